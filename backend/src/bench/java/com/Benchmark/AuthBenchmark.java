@@ -0,0 +1,70 @@
+package com.Benchmark;
+
+import com.Domain.User;
+import com.Repository.Manual.UserRepository;
+import com.Service.UserService;
+import com.Util.ConnectionPool;
+import com.Util.DatabaseWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logins per second at a fixed CPU budget: eight request threads log in as fast as they can while the
+ * hashes are verified on {@code verifiers} threads, i.e. that many cores at most whatever the load.
+ * {@code cache=off} verifies every login; {@code cache=on} answers repeat logins from the cache of verified
+ * ones, as for desks logging in again within {@link UserService#CACHE_TTL}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class AuthBenchmark {
+    private static final int USERS = 10;
+
+    @Param({"1", "2"})
+    public int verifiers;
+
+    @Param({"off", "on"})
+    public String cache;
+
+    private BenchDatabase  database;
+    private ConnectionPool pool;
+    private DatabaseWriter writer;
+    private UserService    users;
+
+    @Setup
+    public void setUp() {
+        BenchDatabase.quietLogging();
+        database = new BenchDatabase(USERS * 10);
+        pool     = new ConnectionPool(database.getUrl(), 8, 32, 30 * 60_000L, 0, 5_000L, List.of());
+        writer   = new DatabaseWriter(database.getUrl(), 256);
+        users    = new UserService(new UserRepository(pool, writer), verifiers, 64, Duration.ofMinutes(5),
+                cache.equals("on") ? 1_000 : 0);
+        // The seeded passwords are plain; store them hashed as the server would
+        for (int i = 0; i < USERS; i++) {
+            users.update(i + 1, new User(i + 1, "user" + i, "password" + i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        writer.close();
+        pool.close();
+        database.close();
+    }
+
+    @Benchmark
+    public Optional<User> login() {
+        int i = ThreadLocalRandom.current().nextInt(USERS);
+        return users.authenticate("user" + i, "password" + i);
+    }
+}
@@ -0,0 +1,113 @@
+package com.Benchmark;
+
+import ch.qos.logback.classic.Level;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Throwaway SQLite database with the application schema, so benchmarks never touch identifier.sqlite.
+ */
+public class BenchDatabase implements AutoCloseable {
+    private static final String[] TYPES = {"Drawing", "Treasure Hunt", "Poetry"};
+    private static final String[] AGES  = {"6-8 years old", "9-11 years old", "12-15 years old"};
+
+    private final Path file;
+
+    public BenchDatabase(int participants) {
+        try {
+            file = Files.createTempFile("contest-bench-", ".sqlite");
+            try (Connection conn = DriverManager.getConnection(getUrl());
+                 Statement st = conn.createStatement()) {
+                st.execute("CREATE TABLE Competition(competitionID INTEGER PRIMARY KEY AUTOINCREMENT, type TEXT NOT NULL, ageCategory TEXT NOT NULL, nrOfParticipants INTEGER NOT NULL)");
+                st.execute("CREATE TABLE Participant(participantID INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, age INTEGER NOT NULL)");
+                st.execute("CREATE TABLE ParticipantCompetition(participantID INTEGER NOT NULL, competitionID INTEGER NOT NULL, PRIMARY KEY(participantID, competitionID))");
+                st.execute("CREATE TABLE User(userID INTEGER PRIMARY KEY AUTOINCREMENT, userName TEXT NOT NULL UNIQUE, password TEXT NOT NULL)");
+                seed(conn, participants);
+            }
+        } catch (IOException | SQLException e) {
+            throw new RuntimeException("Failed to create benchmark database", e);
+        }
+    }
+
+    /**
+     * Nine competitions (every type x age category), {@code participants} participants and one user per ten
+     * of them. Every participant is enrolled in the competition of its age category and of type
+     * {@code id % 3}, and the competitions' counts match. Always the same rows, so runs are comparable.
+     */
+    private static void seed(Connection conn, int participants) throws SQLException {
+        conn.setAutoCommit(false);
+        try (PreparedStatement comp = conn.prepareStatement(
+                     "INSERT INTO Competition(type, ageCategory, nrOfParticipants) VALUES (?, ?, 0)");
+             PreparedStatement part = conn.prepareStatement("INSERT INTO Participant(name, age) VALUES (?, ?)");
+             PreparedStatement enroll = conn.prepareStatement(
+                     "INSERT INTO ParticipantCompetition(participantID, competitionID) VALUES (?, ?)");
+             PreparedStatement user = conn.prepareStatement("INSERT INTO User(userName, password) VALUES (?, ?)");
+             Statement st = conn.createStatement()) {
+            for (String type : TYPES) {
+                for (String age : AGES) {
+                    comp.setString(1, type);
+                    comp.setString(2, age);
+                    comp.executeUpdate();
+                }
+            }
+            for (int i = 0; i < participants; i++) {
+                int age = 6 + i % 10;
+                part.setString(1, "Participant " + i);
+                part.setInt(2, age);
+                part.addBatch();
+                // IDs start at 1; competitions are numbered type-major in TYPES x AGES order
+                int id = i + 1;
+                enroll.setInt(1, id);
+                enroll.setInt(2, 1 + (id % TYPES.length) * AGES.length + ageIndex(age));
+                enroll.addBatch();
+            }
+            part.executeBatch();
+            enroll.executeBatch();
+            st.executeUpdate("UPDATE Competition SET nrOfParticipants = (SELECT COUNT(*) FROM ParticipantCompetition pc " +
+                    "WHERE pc.competitionID = Competition.competitionID)");
+            for (int i = 0; i < participants / 10; i++) {
+                user.setString(1, "user" + i);
+                user.setString(2, "password" + i);
+                user.addBatch();
+            }
+            user.executeBatch();
+        }
+        conn.commit();
+    }
+
+    private static int ageIndex(int age) {
+        return age <= 8 ? 0 : age <= 11 ? 1 : 2;
+    }
+
+    public String getUrl() {
+        return "jdbc:sqlite:" + file;
+    }
+
+    /**
+     * Points the shared {@code ConnectionPool}, {@code DatabaseWriter} and Hibernate session factory at this
+     * database. They read {@code db.url} once, so this must run before anything touches them; each JMH fork
+     * is a fresh JVM, so one benchmark's database never leaks into another's.
+     */
+    public void useAsApplicationDatabase() {
+        System.setProperty("db.url", getUrl());
+    }
+
+    /** Keeps connection, writer and request logging out of what a benchmark measures. */
+    public static void quietLogging() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,79 @@
+package com.Benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Compares two JMH JSON result files, e.g. the previous release's against this build's:
+ * one line per benchmark and parameter set with both scores and the change. A change only counts as
+ * faster or slower when the two error intervals do not overlap; anything else is reported as {@code ~}.
+ * Benchmarks present in just one file are listed as added or removed.
+ *
+ * Usage: BenchmarkDiff baseline.json current.json
+ */
+public class BenchmarkDiff {
+    private record Score(String mode, double score, double error, String unit) {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BenchmarkDiff baseline.json current.json");
+            System.exit(2);
+        }
+        Map<String, Score> baseline = read(new File(args[0]));
+        Map<String, Score> current  = read(new File(args[1]));
+
+        Set<String> keys = new TreeSet<>(baseline.keySet());
+        keys.addAll(current.keySet());
+        int faster = 0, slower = 0;
+        System.out.printf("%-70s %22s %22s %9s%n", "benchmark", "baseline", "current", "change");
+        for (String key : keys) {
+            Score before = baseline.get(key);
+            Score after  = current.get(key);
+            if (before == null || after == null) {
+                Score only = before == null ? after : before;
+                System.out.printf("%-70s %22s %22s %9s%n", key,
+                        before == null ? "-" : format(only), after == null ? "-" : format(only),
+                        before == null ? "added" : "removed");
+                continue;
+            }
+            double change = (after.score() - before.score()) / before.score() * 100;
+            String verdict = "~";
+            boolean separated = Math.abs(after.score() - before.score()) > before.error() + after.error();
+            if (separated) {
+                // Throughput is better when higher, every time-per-operation mode when lower
+                boolean better = after.mode().equals("thrpt") == after.score() > before.score();
+                verdict = better ? "faster" : "slower";
+                if (better) faster++; else slower++;
+            }
+            System.out.printf("%-70s %22s %22s %+8.1f%% %s%n", key, format(before), format(after), change, verdict);
+        }
+        System.out.printf("%d faster, %d slower, %d compared%n", faster, slower, keys.size());
+    }
+
+    /** Results keyed by benchmark name plus its parameters, e.g. {@code RepositoryBenchmark.getById impl=manual}. */
+    private static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new HashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(run.get("benchmark").asText().replaceFirst("^com\\.Benchmark\\.", ""));
+            JsonNode params = run.get("params");
+            if (params != null) {
+                Map<String, String> sorted = new TreeMap<>();
+                params.fields().forEachRemaining(p -> sorted.put(p.getKey(), p.getValue().asText()));
+                sorted.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            }
+            JsonNode metric = run.get("primaryMetric");
+            double error = metric.get("scoreError").asDouble();
+            scores.put(key.toString(), new Score(run.get("mode").asText(), metric.get("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error, metric.get("scoreUnit").asText()));
+        }
+        return scores;
+    }
+
+    private static String format(Score s) {
+        return String.format("%.3f +- %.3f %s", s.score(), s.error(), s.unit());
+    }
+}
@@ -0,0 +1,70 @@
+package com.Benchmark;
+
+import Network.v2.CompetitionList;
+import com.Domain.Competition;
+import com.Network.ProtoMapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (the v1 payload and the REST body) against protobuf (the v2 {@link CompetitionList}) for a
+ * {@code List<Competition>}, both ways. Decoding ends with domain objects in both cases, so the protobuf
+ * side includes {@link ProtoMapper#toDomain}. Nine rows is the real table; the larger size shows how each
+ * scales.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompetitionEncodingBenchmark {
+    private static final String[] TYPES = {"Drawing", "Treasure Hunt", "Poetry"};
+    private static final String[] AGES  = {"6-8 years old", "9-11 years old", "12-15 years old"};
+    private static final TypeReference<List<Competition>> LIST = new TypeReference<>() {};
+
+    @Param({"9", "500"})
+    public int rows;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private List<Competition>  competitions;
+    private byte[]             json;
+    private byte[]             proto;
+
+    @Setup
+    public void setUp() throws IOException {
+        competitions = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            competitions.add(new Competition(i + 1, TYPES[i / 3 % 3], AGES[i % 3], 40 + i));
+        }
+        json  = mapper.writeValueAsBytes(competitions);
+        proto = ProtoMapper.competitionList(competitions).toByteArray();
+    }
+
+    @Benchmark
+    public byte[] jacksonEncode() throws IOException {
+        return mapper.writeValueAsBytes(competitions);
+    }
+
+    @Benchmark
+    public byte[] protobufEncode() {
+        return ProtoMapper.competitionList(competitions).toByteArray();
+    }
+
+    @Benchmark
+    public List<Competition> jacksonDecode() throws IOException {
+        return mapper.readValue(json, LIST);
+    }
+
+    @Benchmark
+    public List<Competition> protobufDecode() throws InvalidProtocolBufferException {
+        return CompetitionList.parseFrom(proto).getCompetitionsList().stream().map(ProtoMapper::toDomain).toList();
+    }
+}
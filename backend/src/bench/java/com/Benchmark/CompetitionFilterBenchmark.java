@@ -0,0 +1,76 @@
+package com.Benchmark;
+
+import com.Domain.Competition;
+import com.Repository.Cached.CachingCompetitionRepository;
+import com.Repository.Interface.ICompetitionRepository;
+import com.Repository.Manual.CompetitionRepository;
+import com.Service.CompetitionService;
+import com.Util.ConnectionPool;
+import com.Util.DatabaseWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the competition filters FILTER_COMPETITIONS runs, straight from SQLite versus through
+ * {@link CachingCompetitionRepository} and its {@link com.Repository.Cached.CompetitionIndex}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompetitionFilterBenchmark {
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private BenchDatabase      database;
+    private ConnectionPool     pool;
+    private DatabaseWriter     writer;
+    private CompetitionService service;
+
+    @Setup
+    public void setUp() {
+        BenchDatabase.quietLogging();
+        database = new BenchDatabase(0);
+        pool     = new ConnectionPool(database.getUrl(), 8, 32, 30 * 60_000L, 0, 5_000L, List.of());
+        writer   = new DatabaseWriter(database.getUrl(), 256);
+        ICompetitionRepository repository = new CompetitionRepository(pool, writer);
+        service  = new CompetitionService(cached ? new CachingCompetitionRepository(repository) : repository);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        writer.close();
+        pool.close();
+        database.close();
+    }
+
+    @Benchmark
+    public List<Competition> all() {
+        return service.getAll();
+    }
+
+    @Benchmark
+    public List<Competition> byType() {
+        return service.getByType("Poetry");
+    }
+
+    @Benchmark
+    public List<Competition> byAge() {
+        return service.getByAgeCategory("9-11 years old");
+    }
+
+    @Benchmark
+    public List<Competition> byTypeAndAge() {
+        return service.getByTypeAndAgeCat("Poetry", "9-11 years old");
+    }
+
+    @Benchmark
+    public List<Competition> filterAllAges() {
+        return service.filter("Poetry", CompetitionService.ALL_AGES);
+    }
+}
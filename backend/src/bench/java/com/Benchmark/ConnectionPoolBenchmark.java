@@ -0,0 +1,68 @@
+package com.Benchmark;
+
+import com.Domain.Competition;
+import com.Repository.Manual.CompetitionRepository;
+import com.Util.ConnectionPool;
+import com.Util.DatabaseWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code CompetitionRepository.getById} throughput with a fresh connection per call (pool size 0, the old
+ * behaviour) versus the pool with its prepared-statement cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConnectionPoolBenchmark {
+    @Param({"0", "8"})
+    public int poolSize;
+
+    private BenchDatabase         database;
+    private ConnectionPool        pool;
+    private DatabaseWriter        writer;
+    private CompetitionRepository repository;
+
+    @Setup
+    public void setUp() {
+        BenchDatabase.quietLogging();
+        database   = new BenchDatabase(0);
+        pool       = new ConnectionPool(database.getUrl(), poolSize, 32, 30 * 60_000L, 0, 5_000L, List.of());
+        writer     = new DatabaseWriter(database.getUrl(), 256);
+        repository = new CompetitionRepository(pool, writer);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        writer.close();
+        pool.close();
+        database.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int nextId() {
+            next = next % 9 + 1;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public Competition getById(Cursor cursor) {
+        return repository.getById(cursor.nextId());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Competition getByIdConcurrent(Cursor cursor) {
+        return repository.getById(cursor.nextId());
+    }
+}
@@ -0,0 +1,59 @@
+package com.Benchmark;
+
+import com.Domain.Competition;
+import com.Repository.Cached.CachingCompetitionRepository;
+import com.Repository.Hibernate.CompetitionHibernateRepository;
+import com.Repository.Interface.ICompetitionRepository;
+import com.Repository.Manual.CompetitionRepository;
+import com.Service.CompetitionService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CompetitionService#competitionToEnrollIn}, the lookup behind every single and bulk enrollment,
+ * against each competition repository the server can run with. Successive calls walk every age from 5 to 16
+ * (including the two out of range) and every type, so no single query shape gets to dominate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnrollTargetBenchmark {
+    private static final String[] TYPES = {"Drawing", "Treasure Hunt", "Poetry"};
+
+    @Param({"manual", "hibernate", "cached"})
+    public String repository;
+
+    private BenchDatabase      database;
+    private CompetitionService service;
+    private int                next;
+
+    @Setup
+    public void setUp() {
+        BenchDatabase.quietLogging();
+        database = new BenchDatabase(1_000);
+        database.useAsApplicationDatabase();
+        ICompetitionRepository competitions = switch (repository) {
+            case "manual"    -> new CompetitionRepository();
+            case "hibernate" -> new CompetitionHibernateRepository();
+            default          -> new CachingCompetitionRepository(new CompetitionHibernateRepository());
+        };
+        service = new CompetitionService(competitions);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        database.close();
+    }
+
+    @Benchmark
+    public Competition competitionToEnrollIn() {
+        int i = next;
+        next = (i + 1) % (12 * TYPES.length);
+        return service.competitionToEnrollIn(5 + i % 12, TYPES[i / 12]);
+    }
+}
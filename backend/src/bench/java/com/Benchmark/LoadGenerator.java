@@ -0,0 +1,478 @@
+package com.Benchmark;
+
+import Network.UpdateMessage;
+import Network.v2.*;
+import com.DTO.ChangeEvent;
+import com.DTO.UpdateDTO;
+import com.Domain.Competition;
+import com.Domain.Participant;
+import com.Network.ClientSession;
+import com.Repository.Interface.ICompetitionRepository;
+import com.Service.CompetitionService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.MessageLite;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Open-loop load generator for the socket server, for capacity planning.
+ * {@code desks} connections are opened up front, like the registration desks running the client, and
+ * requests then arrive at {@code rate} per second in total (exponential gaps, i.e. a Poisson process), each
+ * on a random desk, whether or not earlier ones have been answered. Latency is measured from when a request
+ * was due rather than when it went out, so a stalled server shows up in the percentiles instead of quietly
+ * lowering the rate (no coordinated omission).
+ *
+ * The mix is {@code FILTER_COMPETITIONS}, {@code GET_PARTICIPANTS_FOR_COMP}, {@code ADD_PARTICIPANT} and
+ * {@code ENROLL_PARTICIPANT}. Enrollments use participants this run added, in a competition of their age
+ * category and at most {@link ICompetitionRepository#ENROLLMENT_LIMIT} per participant, so they succeed;
+ * until any participant exists an enrollment slot adds one instead.
+ *
+ * Fan-out delay runs from the enrolling desk receiving ENROLL_PARTICIPANT_REPLY (sent once the enrollment is
+ * committed) to each desk receiving the UPDATE carrying it: reported per delivery and until the last desk.
+ * Requests due during the warm-up are sent but not recorded. Leaves its participants in the database.
+ *
+ * Usage: LoadGenerator [--host=localhost] [--port=5000] [--desks=1000] [--rate=200] [--duration=60]
+ *                      [--warmup=10] [--protocol=1] [--mix=filter:40,participants:40,add:10,enroll:10]
+ * (the leading dashes are optional)
+ */
+public class LoadGenerator {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final String[] TYPES = {"Drawing", "Treasure Hunt", "Poetry"};
+    private static final String[] AGES  = {"6-8 years old", "9-11 years old", "12-15 years old"};
+    private static final int[]    PERCENTILES_X10 = {500, 900, 990, 999};
+
+    private enum Op {
+        FILTER_COMPETITIONS("filter"), GET_PARTICIPANTS_FOR_COMP("participants"),
+        ADD_PARTICIPANT("add"), ENROLL_PARTICIPANT("enroll");
+
+        final String option;
+        final MessageType v2 = MessageType.valueOf(name());
+
+        Op(String option) {
+            this.option = option;
+        }
+    }
+
+    /** A participant this run added, with the competition types it is already enrolled in. */
+    private record Enrollee(int participantID, String ageCategory, Set<String> types) {}
+
+    private record Pending(Op op, long dueAt, long fanoutKey, int age) {}
+
+    private final String  host;
+    private final int     port;
+    private final int     protocol;
+    private final Random  random = new Random();
+
+    private final List<Desk>                      desks       = new ArrayList<>();
+    private final AtomicInteger                   liveDesks   = new AtomicInteger();
+    private final Map<String, Integer>            competitionFor = new HashMap<>();
+    private final List<Integer>                   competitionIDs = new ArrayList<>();
+    private final Queue<Enrollee>                 enrollees   = new ConcurrentLinkedQueue<>();
+    private final Map<Long, Fanout>               fanouts     = new ConcurrentHashMap<>();
+    private final Map<Op, Histogram>              latency     = new EnumMap<>(Op.class);
+    private final Map<Op, LongAdder>              errors      = new EnumMap<>(Op.class);
+    private final Histogram                       fanoutEach  = new ConcurrentHistogram(3);
+    private final Histogram                       fanoutAll   = new ConcurrentHistogram(3);
+    private final AtomicLong                      sent        = new AtomicLong();
+    private final AtomicLong                      answered    = new AtomicLong();
+    private volatile long                         measureFrom = Long.MAX_VALUE;
+
+    private LoadGenerator(String host, int port, int protocol) {
+        this.host     = host;
+        this.port     = port;
+        this.protocol = protocol;
+        for (Op op : Op.values()) {
+            latency.put(op, new ConcurrentHistogram(3));
+            errors.put(op, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] kv = arg.replaceFirst("^-+", "").split("=", 2);
+            options.put(kv[0], kv.length > 1 ? kv[1] : "true");
+        }
+        int    desks    = Integer.parseInt(options.getOrDefault("desks", "1000"));
+        double rate     = Double.parseDouble(options.getOrDefault("rate", "200"));
+        int    duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+        int    warmup   = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        Map<Op, Integer> mix = parseMix(options.getOrDefault("mix", "filter:40,participants:40,add:10,enroll:10"));
+
+        LoadGenerator generator = new LoadGenerator(options.getOrDefault("host", "localhost"),
+                Integer.parseInt(options.getOrDefault("port", "5000")),
+                Integer.parseInt(options.getOrDefault("protocol", String.valueOf(ClientSession.LEGACY_PROTOCOL))));
+        generator.connect(desks);
+        generator.loadCompetitions();
+        generator.run(rate, warmup, duration, mix);
+        generator.report(rate, duration);
+        System.exit(0);
+    }
+
+    private static Map<Op, Integer> parseMix(String spec) {
+        Map<Op, Integer> mix = new EnumMap<>(Op.class);
+        for (String part : spec.split(",")) {
+            String[] kv = part.split(":");
+            Op op = Arrays.stream(Op.values()).filter(o -> o.option.equals(kv[0].trim())).findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown request kind in mix: " + kv[0]));
+            mix.put(op, Integer.parseInt(kv[1].trim()));
+        }
+        return mix;
+    }
+
+    // ----- Setup -----
+
+    private void connect(int count) throws InterruptedException {
+        long started = System.nanoTime();
+        AtomicInteger failed = new AtomicInteger();
+        List<Desk> connected = Collections.synchronizedList(new ArrayList<>());
+        try (ExecutorService connecting = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < count; i++) {
+                connecting.execute(() -> {
+                    try {
+                        connected.add(new Desk());
+                    } catch (IOException e) {
+                        if (failed.getAndIncrement() == 0) System.err.println("Connect failed: " + e.getMessage());
+                    }
+                });
+            }
+        }
+        desks.addAll(connected);
+        if (desks.isEmpty()) throw new IllegalStateException("No desk could connect to " + host + ":" + port);
+        desks.forEach(Desk::startReading);
+        System.out.printf("Connected %d desks (protocol v%d) in %.1f s, %d failed%n",
+                desks.size(), protocol, (System.nanoTime() - started) / 1e9, failed.get());
+    }
+
+    /** The competition IDs and which one serves each type and age category, over a separate connection. */
+    private void loadCompetitions() throws IOException {
+        List<Competition> all;
+        try (Socket socket = new Socket(host, port)) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            UpdateMessage.newBuilder().setType("GET_ALL_COMPETITIONS").setPayload("").build()
+                    .writeDelimitedTo(socket.getOutputStream());
+            UpdateMessage reply = UpdateMessage.parseDelimitedFrom(in);
+            if (reply == null) throw new EOFException("Server closed the connection");
+            all = mapper.readValue(reply.getPayload(), new TypeReference<>() {});
+        }
+        for (Competition c : all) {
+            competitionIDs.add(c.getCompetitionID());
+            competitionFor.putIfAbsent(c.getType() + '|' + c.getAgeCategory(), c.getCompetitionID());
+        }
+        if (competitionIDs.isEmpty()) throw new IllegalStateException("The server has no competitions");
+    }
+
+    // ----- Load -----
+
+    private void run(double rate, int warmupSeconds, int durationSeconds, Map<Op, Integer> mix)
+            throws InterruptedException {
+        Op[] weighted = mix.entrySet().stream()
+                .flatMap(e -> Collections.nCopies(e.getValue(), e.getKey()).stream())
+                .toArray(Op[]::new);
+        long start = System.nanoTime();
+        measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end    = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long nextProgress = start + TimeUnit.SECONDS.toNanos(5);
+        long due = start;
+
+        try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (due < end) {
+                long wait = due - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+                Desk desk = desks.get(random.nextInt(desks.size()));
+                Op op = weighted[random.nextInt(weighted.length)];
+                long requestDue = due;
+                MessageLite request = buildRequest(desk, op, requestDue);
+                senders.execute(() -> desk.write(request));
+                sent.incrementAndGet();
+
+                if (System.nanoTime() >= nextProgress) {
+                    System.out.printf("%5.0f s  sent=%d answered=%d in-flight=%d desks=%d%s%n",
+                            (System.nanoTime() - start) / 1e9, sent.get(), answered.get(),
+                            sent.get() - answered.get(), liveDesks.get(), due < measureFrom ? "  (warm-up)" : "");
+                    nextProgress += TimeUnit.SECONDS.toNanos(5);
+                }
+                // Exponential gap: arrivals form a Poisson process with the requested mean rate
+                due += (long) (-Math.log(1 - random.nextDouble()) * 1e9 / rate);
+            }
+        }
+        // Give the last replies and UPDATEs (which wait out the coalescing window) time to arrive
+        long drainUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((answered.get() < sent.get() || !fanouts.isEmpty()) && System.nanoTime() < drainUntil) {
+            Thread.sleep(50);
+        }
+    }
+
+    /** Build the next request for {@code desk}, registering it as pending under a fresh request id. */
+    private MessageLite buildRequest(Desk desk, Op op, long dueAt) {
+        Enrollee enrollee = null;
+        if (op == Op.ENROLL_PARTICIPANT) {
+            enrollee = enrollees.poll();
+            if (enrollee == null) op = Op.ADD_PARTICIPANT;
+        }
+        long id = desk.nextRequestId.incrementAndGet();
+        return switch (op) {
+            case FILTER_COMPETITIONS -> {
+                String type = random.nextInt(4) == 0 ? CompetitionService.ALL_TYPES : TYPES[random.nextInt(TYPES.length)];
+                String age  = random.nextInt(4) == 0 ? CompetitionService.ALL_AGES  : AGES[random.nextInt(AGES.length)];
+                desk.pending.put(id, new Pending(op, dueAt, 0, 0));
+                yield protocol >= 2
+                        ? envelope(op, id).setFilter(FilterRequest.newBuilder().setType(type).setAge(age)).build()
+                        : v1(op, id, json(Map.of("type", type, "age", age)));
+            }
+            case GET_PARTICIPANTS_FOR_COMP -> {
+                int competitionID = competitionIDs.get(random.nextInt(competitionIDs.size()));
+                desk.pending.put(id, new Pending(op, dueAt, 0, 0));
+                yield protocol >= 2
+                        ? envelope(op, id).setCompetitionId(competitionID).build()
+                        : v1(op, id, String.valueOf(competitionID));
+            }
+            case ADD_PARTICIPANT -> {
+                int age = 6 + random.nextInt(10);
+                String name = "Load desk " + id + "-" + sent.get();
+                desk.pending.put(id, new Pending(op, dueAt, 0, age));
+                yield protocol >= 2
+                        ? envelope(op, id).setParticipant(ParticipantData.newBuilder().setName(name).setAge(age)).build()
+                        : v1(op, id, json(Map.of("name", name, "age", age)));
+            }
+            case ENROLL_PARTICIPANT -> {
+                Enrollee e = enrollee;
+                String type = Arrays.stream(TYPES).filter(t -> !e.types().contains(t))
+                        .skip(random.nextInt(TYPES.length - e.types().size())).findFirst().orElseThrow();
+                e.types().add(type);
+                if (e.types().size() < ICompetitionRepository.ENROLLMENT_LIMIT) enrollees.add(e);
+                int competitionID = competitionFor.get(type + '|' + e.ageCategory());
+                long key = fanoutKey(e.participantID(), competitionID);
+                if (dueAt >= measureFrom) fanouts.put(key, new Fanout());
+                desk.pending.put(id, new Pending(op, dueAt, key, 0));
+                yield protocol >= 2
+                        ? envelope(op, id).setEnroll(EnrollRequest.newBuilder()
+                                .setParticipantId(e.participantID()).setCompetitionId(competitionID)).build()
+                        : v1(op, id, e.participantID() + "," + competitionID);
+            }
+        };
+    }
+
+    private static Envelope.Builder envelope(Op op, long id) {
+        return Envelope.newBuilder().setType(op.v2).setRequestId(id);
+    }
+
+    private static UpdateMessage v1(Op op, long id, String payload) {
+        return UpdateMessage.newBuilder().setType(op.name()).setRequestId(id).setPayload(payload).build();
+    }
+
+    private static String json(Object value) {
+        try {
+            return mapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long fanoutKey(int participantID, int competitionID) {
+        return (long) participantID << 32 | competitionID;
+    }
+
+    // ----- Replies and UPDATEs, on the desks' reader threads -----
+
+    private void replied(Pending pending, long at, boolean error, int participantID) {
+        answered.incrementAndGet();
+        if (error) {
+            errors.get(pending.op()).increment();
+            if (pending.fanoutKey() != 0) fanouts.remove(pending.fanoutKey());
+            return;
+        }
+        if (pending.dueAt() >= measureFrom) {
+            latency.get(pending.op()).recordValue(Math.max(0, at - pending.dueAt()) / 1_000);
+        }
+        if (pending.op() == Op.ADD_PARTICIPANT) {
+            enrollees.add(new Enrollee(participantID, CompetitionService.ageCategoryFor(pending.age()),
+                    ConcurrentHashMap.newKeySet()));
+        } else if (pending.fanoutKey() != 0) {
+            Fanout fanout = fanouts.get(pending.fanoutKey());
+            if (fanout != null) fanout.committed(pending.fanoutKey(), at, liveDesks.get());
+        }
+    }
+
+    private void enrollmentDelivered(int participantID, int competitionID, long at) {
+        long key = fanoutKey(participantID, competitionID);
+        Fanout fanout = fanouts.get(key);
+        if (fanout != null) fanout.delivered(key, at);
+    }
+
+    /**
+     * Arrivals of one enrollment's UPDATE. An UPDATE can beat the enrolling desk's own reply, so arrivals
+     * before the commit time is known are held back until it is.
+     */
+    private final class Fanout {
+        private long       committedAt = -1;
+        private int        expected;
+        private int        delivered;
+        private long       last;
+        private List<Long> early;
+
+        synchronized void committed(long key, long at, int desks) {
+            committedAt = at;
+            expected    = desks;
+            if (early != null) early.forEach(arrival -> record(key, arrival));
+            early = null;
+        }
+
+        synchronized void delivered(long key, long at) {
+            if (committedAt < 0) {
+                if (early == null) early = new ArrayList<>();
+                early.add(at);
+            } else {
+                record(key, at);
+            }
+        }
+
+        private void record(long key, long at) {
+            fanoutEach.recordValue(Math.max(0, at - committedAt) / 1_000);
+            last = Math.max(last, at);
+            if (++delivered >= expected) {
+                fanoutAll.recordValue(Math.max(0, last - committedAt) / 1_000);
+                fanouts.remove(key);
+            }
+        }
+    }
+
+    /** One client connection: requests are written by the sender threads, a virtual thread reads everything. */
+    private final class Desk {
+        private final Socket                socket;
+        private final InputStream           in;
+        private final OutputStream          out;
+        private final AtomicLong            nextRequestId = new AtomicLong();
+        private final Map<Long, Pending>    pending       = new ConcurrentHashMap<>();
+        // Not the stream's monitor: senders are virtual threads, and blocking on the socket inside
+        // synchronized would pin their carriers
+        private final ReentrantLock         writeLock     = new ReentrantLock();
+
+        Desk() throws IOException {
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            in  = new BufferedInputStream(socket.getInputStream());
+            out = new BufferedOutputStream(socket.getOutputStream());
+            if (protocol >= 2) {
+                write(UpdateMessage.newBuilder().setType("HELLO").setPayload(String.valueOf(protocol)).build());
+                UpdateMessage hello = UpdateMessage.parseDelimitedFrom(in);
+                if (hello == null || Integer.parseInt(hello.getPayload()) != protocol) {
+                    socket.close();
+                    throw new IOException("Server does not speak protocol v" + protocol);
+                }
+            }
+            liveDesks.incrementAndGet();
+        }
+
+        void startReading() {
+            Thread.ofVirtual().name("desk-reader-", 0).start(this::readLoop);
+        }
+
+        void write(MessageLite message) {
+            writeLock.lock();
+            try {
+                message.writeDelimitedTo(out);
+                out.flush();
+            } catch (IOException e) {
+                close();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        private void readLoop() {
+            try {
+                while (true) {
+                    if (protocol >= 2) {
+                        Envelope env = Envelope.parseDelimitedFrom(in);
+                        if (env == null) break;
+                        long at = System.nanoTime();
+                        if (env.getType() == MessageType.UPDATE) {
+                            for (ChangeEventData event : env.getUpdate().getEventsList()) {
+                                if (event.hasEnrollmentAdded()) {
+                                    EnrollmentAdded added = event.getEnrollmentAdded();
+                                    enrollmentDelivered(added.getParticipant().getParticipantId(), added.getCompetitionId(), at);
+                                }
+                            }
+                        } else {
+                            Pending p = pending.remove(env.getRequestId());
+                            if (p != null) replied(p, at, env.getType() == MessageType.ERROR,
+                                    env.getParticipant().getParticipantId());
+                        }
+                    } else {
+                        UpdateMessage msg = UpdateMessage.parseDelimitedFrom(in);
+                        if (msg == null) break;
+                        long at = System.nanoTime();
+                        if (msg.getType().equals("UPDATE")) {
+                            for (ChangeEvent event : mapper.readValue(msg.getPayload(), UpdateDTO.class).getEvents()) {
+                                if (event.getKind() == ChangeEvent.Kind.ENROLLMENT_ADDED) {
+                                    enrollmentDelivered(event.getParticipant().getParticipantID(), event.getCompetitionID(), at);
+                                }
+                            }
+                        } else {
+                            Pending p = pending.remove(msg.getRequestId());
+                            if (p == null) continue;
+                            boolean error = msg.getType().equals("ERROR");
+                            int participantID = !error && p.op() == Op.ADD_PARTICIPANT
+                                    ? mapper.readValue(msg.getPayload(), Participant.class).getParticipantID() : 0;
+                            replied(p, at, error, participantID);
+                        }
+                    }
+                }
+            } catch (IOException ignored) {
+            } finally {
+                close();
+            }
+        }
+
+        private void close() {
+            try {
+                if (!socket.isClosed()) {
+                    socket.close();
+                    liveDesks.decrementAndGet();
+                }
+            } catch (IOException ignored) {}
+        }
+    }
+
+    // ----- Report -----
+
+    private void report(double rate, int durationSeconds) {
+        System.out.println();
+        System.out.printf("%-26s %9s %7s %9s %9s %9s %9s %9s%n",
+                "latency (ms)", "count", "errors", "p50", "p90", "p99", "p99.9", "max");
+        long measured = 0;
+        for (Op op : Op.values()) {
+            Histogram h = latency.get(op);
+            measured += h.getTotalCount();
+            printRow(op.name(), h, errors.get(op).sum());
+        }
+        System.out.println();
+        printRow("fan-out, each desk", fanoutEach, -1);
+        printRow("fan-out, every desk", fanoutAll, -1);
+        long incomplete = fanouts.values().stream().filter(f -> f.committedAt >= 0).count();
+        System.out.printf("%nachieved %.1f req/s answered of %.1f offered; %d unanswered, %d enrollments not seen by every desk, %d desks still connected%n",
+                measured / (double) durationSeconds, rate, sent.get() - answered.get(), incomplete, liveDesks.get());
+    }
+
+    private static void printRow(String label, Histogram h, long errors) {
+        StringBuilder row = new StringBuilder(String.format("%-26s %9d %7s", label, h.getTotalCount(),
+                errors < 0 ? "" : String.valueOf(errors)));
+        for (int p : PERCENTILES_X10) {
+            row.append(String.format(" %9.2f", h.getValueAtPercentile(p / 10.0) / 1_000.0));
+        }
+        row.append(String.format(" %9.2f", h.getMaxValue() / 1_000.0));
+        System.out.println(row);
+    }
+}
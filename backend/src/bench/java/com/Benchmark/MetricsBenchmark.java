@@ -0,0 +1,117 @@
+package com.Benchmark;
+
+import Network.UpdateMessage;
+import com.Network.ClientHandler;
+import com.Network.ClientSession;
+import com.Network.RequestLog;
+import com.Network.ServerMetrics;
+import com.Network.UpdateBroadcaster;
+import com.Repository.Interface.ICompetitionRepository;
+import com.Repository.Interface.IParticipantRepository;
+import com.Repository.Interface.IUserRepository;
+import com.Repository.Manual.CompetitionRepository;
+import com.Repository.Manual.ParticipantRepository;
+import com.Repository.Manual.UserRepository;
+import com.Repository.Timed.TimedRepository;
+import com.Service.CompetitionService;
+import com.Service.ParticipantService;
+import com.Service.SessionService;
+import com.Service.UserService;
+import com.Util.ConnectionPool;
+import com.Util.DatabaseWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the instrumentation costs a request when nobody scrapes: {@link ClientHandler#process} with the
+ * request histogram and timed repositories recording into a Prometheus registry ({@code on}) against the
+ * same handler with {@link ServerMetrics#DISABLED} and bare repositories ({@code off}).
+ * {@code scrape} renders the registry once the handler has recorded every meter, i.e. what one scrape costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsBenchmark {
+    @Param({"on", "off"})
+    public String metrics;
+
+    private BenchDatabase           database;
+    private ConnectionPool          pool;
+    private DatabaseWriter          writer;
+    private PrometheusMeterRegistry registry;
+    private ClientHandler           handler;
+    private ClientSession           session;
+    private byte[]                  allCompetitions;
+    private byte[]                  participantPage;
+
+    @Setup
+    public void setUp() {
+        BenchDatabase.quietLogging();
+        database = new BenchDatabase(1_000);
+        pool     = new ConnectionPool(database.getUrl(), 8, 32, 30 * 60_000L, 0, 5_000L, List.of());
+        writer   = new DatabaseWriter(database.getUrl(), 256);
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+
+        ICompetitionRepository competitions = new CompetitionRepository(pool, writer);
+        IParticipantRepository participants = new ParticipantRepository(pool, writer);
+        IUserRepository        users        = new UserRepository(pool, writer);
+        ServerMetrics serverMetrics = ServerMetrics.DISABLED;
+        if (metrics.equals("on")) {
+            competitions  = TimedRepository.wrap(ICompetitionRepository.class, competitions, registry);
+            participants  = TimedRepository.wrap(IParticipantRepository.class, participants, registry);
+            users         = TimedRepository.wrap(IUserRepository.class, users, registry);
+            serverMetrics = new ServerMetrics(registry);
+        }
+        handler = new ClientHandler(
+                new ParticipantService(participants),
+                new CompetitionService(competitions),
+                new UserService(users),
+                new SessionService(),
+                new ObjectMapper(),
+                new UpdateBroadcaster(20, 64, Map.of()),
+                RequestLog.DISABLED,
+                serverMetrics);
+        session = new ClientSession(OutputStream.nullOutputStream());
+        allCompetitions = request("GET_ALL_COMPETITIONS", "");
+        participantPage = request("GET_ALL_PARTICIPANTS", "0,50");
+        handler.process(session, allCompetitions);
+        handler.process(session, participantPage);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        writer.close();
+        pool.close();
+        database.close();
+    }
+
+    private static byte[] request(String type, String payload) {
+        return UpdateMessage.newBuilder().setType(type).setPayload(payload).build().toByteArray();
+    }
+
+    @Benchmark
+    public void getAllCompetitions() {
+        handler.process(session, allCompetitions);
+    }
+
+    @Benchmark
+    public void getParticipantPage() {
+        handler.process(session, participantPage);
+    }
+
+    @Benchmark
+    public String scrape() {
+        return registry.scrape();
+    }
+}
@@ -0,0 +1,94 @@
+package com.Benchmark;
+
+import Network.UpdateMessage;
+import Network.v2.Envelope;
+import Network.v2.MessageType;
+import com.Domain.Competition;
+import com.Domain.Participant;
+import com.Network.ProtoMapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The v1 protocol (JSON string inside {@link UpdateMessage}) against v2 (typed {@link Envelope}) for the two
+ * list replies that dominate traffic, nine competitions and a 500-row participant list. Whole replies are
+ * encoded and decoded down to domain objects; the bytes each takes on the wire are printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolBenchmark {
+    private static final String[] TYPES = {"Drawing", "Treasure Hunt", "Poetry"};
+    private static final String[] AGES  = {"6-8 years old", "9-11 years old", "12-15 years old"};
+
+    @Param({"competitions", "participants"})
+    public String payload;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private List<Competition>  competitions;
+    private List<Participant>  participants;
+    private byte[]             v1;
+    private byte[]             v2;
+
+    @Setup
+    public void setUp() throws IOException {
+        competitions = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            competitions.add(new Competition(i + 1, TYPES[i / 3], AGES[i % 3], 40 + i));
+        }
+        participants = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            participants.add(new Participant(i + 1, "Participant " + i, 6 + i % 10));
+        }
+        v1 = v1Encode();
+        v2 = v2Encode();
+        System.out.printf("%n%s: v1/json %d bytes, v2/proto %d bytes%n", payload, v1.length, v2.length);
+    }
+
+    @Benchmark
+    public byte[] v1Encode() throws IOException {
+        boolean comps = payload.equals("competitions");
+        return UpdateMessage.newBuilder()
+                .setType(comps ? "GET_ALL_COMPETITIONS_REPLY" : "GET_PARTICIPANTS_FOR_COMP_REPLY")
+                .setPayload(mapper.writeValueAsString(comps ? competitions : participants))
+                .build()
+                .toByteArray();
+    }
+
+    @Benchmark
+    public byte[] v2Encode() {
+        Envelope.Builder reply = Envelope.newBuilder();
+        if (payload.equals("competitions")) {
+            reply.setType(MessageType.GET_ALL_COMPETITIONS_REPLY).setCompetitions(ProtoMapper.competitionList(competitions));
+        } else {
+            reply.setType(MessageType.GET_PARTICIPANTS_FOR_COMP_REPLY).setParticipants(ProtoMapper.participantList(participants));
+        }
+        return reply.build().toByteArray();
+    }
+
+    @Benchmark
+    public List<?> v1Decode() throws IOException {
+        String json = UpdateMessage.parseFrom(v1).getPayload();
+        return payload.equals("competitions")
+                ? mapper.readValue(json, new TypeReference<List<Competition>>() {})
+                : mapper.readValue(json, new TypeReference<List<Participant>>() {});
+    }
+
+    @Benchmark
+    public List<?> v2Decode() throws InvalidProtocolBufferException {
+        Envelope reply = Envelope.parseFrom(v2);
+        return payload.equals("competitions")
+                ? reply.getCompetitions().getCompetitionsList().stream().map(ProtoMapper::toDomain).toList()
+                : reply.getParticipants().getParticipantsList().stream().map(ProtoMapper::toDomain).toList();
+    }
+}
@@ -0,0 +1,94 @@
+package com.Benchmark;
+
+import com.Domain.Competition;
+import com.Domain.Participant;
+import com.Repository.Hibernate.CompetitionHibernateRepository;
+import com.Repository.Hibernate.ParticipantHibernateRepository;
+import com.Repository.Interface.ICompetitionRepository;
+import com.Repository.Interface.IParticipantRepository;
+import com.Repository.Manual.CompetitionRepository;
+import com.Repository.Manual.ParticipantRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CRUD latency of the manual JDBC repositories against the Hibernate ones, over the same seeded database
+ * and the same shared connection pool and writer thread. Hibernate runs as configured, second-level cache
+ * included, so {@code getById} measures what the server actually does rather than a cold query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+    private static final int PARTICIPANTS = 10_000;
+
+    @Param({"manual", "hibernate"})
+    public String impl;
+
+    private BenchDatabase          database;
+    private IParticipantRepository participants;
+    private ICompetitionRepository competitions;
+
+    @Setup
+    public void setUp() {
+        BenchDatabase.quietLogging();
+        database = new BenchDatabase(PARTICIPANTS);
+        database.useAsApplicationDatabase();
+        if (impl.equals("manual")) {
+            participants = new ParticipantRepository();
+            competitions = new CompetitionRepository();
+        } else {
+            participants = new ParticipantHibernateRepository();
+            competitions = new CompetitionHibernateRepository();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        database.close();
+    }
+
+    private static int randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(PARTICIPANTS);
+    }
+
+    @Benchmark
+    public Participant getById() {
+        return participants.getById(randomId());
+    }
+
+    @Benchmark
+    public List<Participant> getPage() {
+        return participants.getPage(randomId() - 1, 50);
+    }
+
+    @Benchmark
+    public List<Participant> participantsForCompetition() {
+        return participants.getParticipantsForCompetition(1 + ThreadLocalRandom.current().nextInt(9));
+    }
+
+    @Benchmark
+    public List<Competition> allCompetitions() {
+        return competitions.getAll();
+    }
+
+    @Benchmark
+    public void update() {
+        int id = randomId();
+        participants.update(id, new Participant(id, "Participant " + id, 6 + (id - 1) % 10));
+    }
+
+    /** One insert and one delete, each its own trip through the writer thread. */
+    @Benchmark
+    public void addAndRemove() {
+        Participant added = participants.add(new Participant(null, "Transient", 9));
+        participants.remove(added.getParticipantID());
+    }
+}
@@ -0,0 +1,130 @@
+package com.Benchmark;
+
+import Network.UpdateMessage;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.Network.ClientHandler;
+import com.Network.ClientSession;
+import com.Network.RequestLog;
+import com.Network.ServerMetrics;
+import com.Network.UpdateBroadcaster;
+import com.Repository.Manual.CompetitionRepository;
+import com.Repository.Manual.ParticipantRepository;
+import com.Repository.Manual.UserRepository;
+import com.Service.CompetitionService;
+import com.Service.ParticipantService;
+import com.Service.SessionService;
+import com.Service.UserService;
+import com.Util.ConnectionPool;
+import com.Util.DatabaseWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests per second through {@link ClientHandler#process} with the old logging and the new.
+ * {@code verbose} is what every request used to cost: repository entry/exit lines and the handler's
+ * chatter (now at debug, switched back on here) plus a request line for every call. {@code sampled} is the
+ * shipped default, {@code off} disables the request log. Log output is fully formatted and encoded but
+ * written to a discarding stream, so the scores measure logging's CPU and allocation, not the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestLoggingBenchmark {
+    @Param({"verbose", "sampled", "off"})
+    public String logging;
+
+    private BenchDatabase  database;
+    private ConnectionPool pool;
+    private DatabaseWriter writer;
+    private ClientHandler  handler;
+    private ClientSession  session;
+    private byte[]         allCompetitions;
+    private byte[]         participantPage;
+
+    @Setup
+    public void setUp() {
+        RequestLog requestLog = switch (logging) {
+            case "verbose" -> new RequestLog(1.0, 0);
+            case "sampled" -> RequestLog.fromConfig();
+            default        -> RequestLog.DISABLED;
+        };
+        Level appLevel = logging.equals("verbose") ? Level.DEBUG : Level.INFO;
+        logToNowhere(appLevel);
+
+        database = new BenchDatabase(1_000);
+        pool     = new ConnectionPool(database.getUrl(), 8, 32, 30 * 60_000L, 0, 5_000L, List.of());
+        writer   = new DatabaseWriter(database.getUrl(), 256);
+        handler  = new ClientHandler(
+                new ParticipantService(new ParticipantRepository(pool, writer)),
+                new CompetitionService(new CompetitionRepository(pool, writer)),
+                new UserService(new UserRepository(pool, writer)),
+                new SessionService(),
+                new ObjectMapper(),
+                new UpdateBroadcaster(20, 64, Map.of()),
+                requestLog,
+                ServerMetrics.DISABLED);
+        session  = new ClientSession(OutputStream.nullOutputStream());
+        allCompetitions = request("GET_ALL_COMPETITIONS", "");
+        participantPage = request("GET_ALL_PARTICIPANTS", "0,50");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        writer.close();
+        pool.close();
+        database.close();
+    }
+
+    /** Untagged requests, so process() handles them on this thread and returns after the reply. */
+    private static byte[] request(String type, String payload) {
+        return UpdateMessage.newBuilder().setType(type).setPayload(payload).build().toByteArray();
+    }
+
+    /** Replace the console with an appender that formats every event and throws the bytes away. */
+    private static void logToNowhere(Level appLevel) {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        ch.qos.logback.classic.Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.detachAndStopAllAppenders();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{HH:mm:ss.SSS} [%thread] %-5level %logger{36} -- %msg%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+
+        root.addAppender(appender);
+        root.setLevel(Level.INFO);
+        context.getLogger("com.Repository").setLevel(appLevel);
+        context.getLogger("com.Network").setLevel(appLevel);
+        context.getLogger("com.Util").setLevel(Level.WARN);
+    }
+
+    @Benchmark
+    public void getAllCompetitions() {
+        handler.process(session, allCompetitions);
+    }
+
+    @Benchmark
+    public void getParticipantPage() {
+        handler.process(session, participantPage);
+    }
+}
@@ -0,0 +1,114 @@
+package com.Benchmark;
+
+import com.DTO.ImportReportDTO;
+import com.Repository.Manual.CompetitionRepository;
+import com.Repository.Manual.ParticipantRepository;
+import com.Service.TransferService;
+import com.Util.ConnectionPool;
+import com.Util.DatabaseWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Participant import and export rates through {@link TransferService}. Scores are rows per second:
+ * every invocation moves {@link #ROWS} rows. Import reads from a generated stream and export writes to
+ * a discarding one, so neither side holds the data set in memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(TransferBenchmark.ROWS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferBenchmark {
+    static final int ROWS = 50_000;
+
+    @Param({"CSV", "NDJSON"})
+    public TransferService.Format format;
+
+    private BenchDatabase   database;
+    private ConnectionPool  pool;
+    private DatabaseWriter  writer;
+    private TransferService service;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchDatabase.quietLogging();
+        database = new BenchDatabase(0);
+        pool     = new ConnectionPool(database.getUrl(), 4, 32, 30 * 60_000L, 0, 5_000L, List.of());
+        writer   = new DatabaseWriter(database.getUrl(), 256);
+        service  = new TransferService(new ParticipantRepository(pool, writer), new CompetitionRepository(pool, writer));
+        // Give export a table of ROWS participants to read
+        service.importFrom(format, new GeneratedRows(format, ROWS));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        writer.close();
+        pool.close();
+        database.close();
+    }
+
+    @Benchmark
+    public ImportReportDTO importRows() throws IOException {
+        return service.importFrom(format, new GeneratedRows(format, ROWS));
+    }
+
+    @Benchmark
+    public long exportRows() throws IOException {
+        return service.export(format, OutputStream.nullOutputStream());
+    }
+
+    /** Produces {@code rows} import lines on demand. Ages and competition IDs match the seeded competitions. */
+    static class GeneratedRows extends InputStream {
+        private final TransferService.Format format;
+        private final int rows;
+        private int next;
+        private byte[] line = new byte[0];
+        private int pos;
+
+        GeneratedRows(TransferService.Format format, int rows) {
+            this.format = format;
+            this.rows   = rows;
+        }
+
+        @Override
+        public int read() {
+            if (pos == line.length) {
+                if (next == rows) return -1;
+                line = line(next++).getBytes(StandardCharsets.UTF_8);
+                pos = 0;
+            }
+            return line[pos++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            int n = 0;
+            while (n < len) {
+                int c = read();
+                if (c < 0) break;
+                b[off + n++] = (byte) c;
+            }
+            return n == 0 && len > 0 ? -1 : n;
+        }
+
+        // BenchDatabase seeds IDs 1-9 as type-major: (Drawing, Treasure Hunt, Poetry) x (6-8, 9-11, 12-15)
+        private String line(int i) {
+            int age = 6 + i % 10;
+            int ageIndex = age <= 8 ? 0 : age <= 11 ? 1 : 2;
+            int first = 1 + ageIndex, second = 7 + ageIndex;
+            String name = "Participant " + i;
+            return format == TransferService.Format.CSV
+                    ? ",\"" + name + "\"," + age + "," + first + ";" + second + "\n"
+                    : "{\"name\":\"" + name + "\",\"age\":" + age + ",\"competitionIDs\":[" + first + "," + second + "]}\n";
+        }
+    }
+}
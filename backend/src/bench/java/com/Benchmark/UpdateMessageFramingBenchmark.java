@@ -0,0 +1,80 @@
+package com.Benchmark;
+
+import Network.UpdateMessage;
+import com.Domain.Competition;
+import com.Domain.Participant;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.CodedInputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of putting a v1 {@link UpdateMessage} on the wire and taking it off again, the same way the server
+ * does: {@code writeDelimitedTo} on the way out, and a varint length, {@code readNBytes} and
+ * {@code parseFrom} on the way in (ClientHandler.readFrame). Payloads are the JSON of the two common
+ * replies, nine competitions and a 500-row participant list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateMessageFramingBenchmark {
+    @Param({"competitions", "participants"})
+    public String payload;
+
+    private String                json;
+    private byte[]                framed;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Object rows;
+        if (payload.equals("competitions")) {
+            List<Competition> competitions = new ArrayList<>();
+            for (int i = 0; i < 9; i++) {
+                competitions.add(new Competition(i + 1, "Treasure Hunt", "9-11 years old", 40 + i));
+            }
+            rows = competitions;
+        } else {
+            List<Participant> participants = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                participants.add(new Participant(i + 1, "Participant " + i, 6 + i % 10));
+            }
+            rows = participants;
+        }
+        json = mapper.writeValueAsString(rows);
+        out  = new ByteArrayOutputStream();
+        frame();
+        framed = out.toByteArray();
+    }
+
+    /** Built from the payload string each time, as a reply is, so the UTF-8 encoding is part of the cost. */
+    @Benchmark
+    public int frame() throws IOException {
+        out.reset();
+        UpdateMessage.newBuilder()
+                .setType("GET_ALL_COMPETITIONS_REPLY")
+                .setRequestId(42)
+                .setPayload(json)
+                .build()
+                .writeDelimitedTo(out);
+        return out.size();
+    }
+
+    @Benchmark
+    public UpdateMessage unframe() throws IOException {
+        InputStream in = new ByteArrayInputStream(framed);
+        int length = CodedInputStream.readRawVarint32(in.read(), in);
+        return UpdateMessage.parseFrom(in.readNBytes(length));
+    }
+}
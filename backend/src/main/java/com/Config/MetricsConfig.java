@@ -0,0 +1,32 @@
+package com.Config;
+
+import com.Repository.RepositoryBackend;
+import com.Util.Metrics;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.CollectorRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hands Actuator the process-wide {@link Metrics#registry()} instead of letting it build its own, so
+ * {@code /actuator/metrics} and {@code /actuator/prometheus} show the same meters as the socket server's
+ * {@code /metrics}. Actuator binds every {@link MeterBinder} bean to it, plus its JVM and HTTP request meters.
+ */
+@Configuration
+public class MetricsConfig {
+    @Bean
+    public PrometheusMeterRegistry prometheusMeterRegistry() {
+        return Metrics.registry();
+    }
+
+    @Bean
+    public CollectorRegistry collectorRegistry() {
+        return Metrics.registry().getPrometheusRegistry();
+    }
+
+    @Bean
+    public MeterBinder databaseMetrics() {
+        return registry -> Metrics.bindDatabase(registry, RepositoryBackend.fromConfig());
+    }
+}
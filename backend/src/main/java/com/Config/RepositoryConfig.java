@@ -0,0 +1,60 @@
+package com.Config;
+
+import com.Repository.Cached.CachingCompetitionRepository;
+import com.Repository.Cached.CachingParticipantRepository;
+import com.Repository.Cached.EnrollmentGraph;
+import com.Repository.Interface.IUserRepository;
+import com.Repository.Repositories;
+import com.Repository.RepositoryBackend;
+import com.Util.AppConfig;
+import com.Util.Metrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Opens the repositories of the {@code repository.backend} chosen in config.properties, each behind a
+ * timing proxy, and puts the competition and participant repositories behind the in-memory caches, which
+ * share one {@link EnrollmentGraph} for enrollment limit checks and rosters. Both reload when the
+ * database's data version shows that another process, such as the socket server, has written it. The
+ * services only ever see the repository interfaces, so they do not know which backend they run on.
+ */
+@Configuration
+public class RepositoryConfig {
+    private final RepositoryBackend backend         = RepositoryBackend.fromConfig();
+    // One connection asking the data version, shared by both caches
+    private final LongSupplier      dataVersion     = backend.dataVersion();
+    private final long              checkIntervalMs = AppConfig.getLong("repository.enrollments.checkIntervalMs", 1000);
+
+    @Bean(destroyMethod = "close")
+    public Repositories repositories() {
+        return backend.open().timed(Metrics.registry());
+    }
+
+    @Bean
+    public EnrollmentGraph enrollmentGraph(Repositories repositories) {
+        EnrollmentGraph graph = EnrollmentGraph.over(repositories.participants(), dataVersion, checkIntervalMs);
+        // Registered before the participant cache registers its own, so it re-reads rows Hibernate no longer holds
+        graph.onReload(backend::evictCachedRows);
+        return graph;
+    }
+
+    @Bean
+    public CachingCompetitionRepository competitionRepository(Repositories repositories, EnrollmentGraph enrollmentGraph) {
+        CachingCompetitionRepository competitions = new CachingCompetitionRepository(repositories.competitions(),
+                enrollmentGraph, dataVersion, checkIntervalMs);
+        competitions.onReload(backend::evictCachedRows);
+        return competitions;
+    }
+
+    @Bean
+    public CachingParticipantRepository participantRepository(Repositories repositories, EnrollmentGraph enrollmentGraph) {
+        return new CachingParticipantRepository(repositories.participants(), enrollmentGraph);
+    }
+
+    @Bean
+    public IUserRepository userRepository(Repositories repositories) {
+        return repositories.users();
+    }
+}
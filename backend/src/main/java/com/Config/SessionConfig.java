@@ -0,0 +1,45 @@
+package com.Config;
+
+import com.Controller.UserController;
+import com.Service.SessionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Optional;
+
+/**
+ * Checks the {@value UserController#SESSION_HEADER} header of every REST request against the in-memory
+ * {@link SessionService}, without a database lookup, and leaves the session in the {@link #LOGIN_ATTRIBUTE}
+ * request attribute for handlers that care who is calling. Requests without the header stay anonymous;
+ * one with an unknown, expired or revoked token is answered 401.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class SessionConfig implements WebMvcConfigurer {
+    public static final String LOGIN_ATTRIBUTE = "login";
+
+    private final SessionService sessionService;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                String token = request.getHeader(UserController.SESSION_HEADER);
+                if (token == null) return true;
+                Optional<SessionService.Session> login = sessionService.validate(token);
+                if (login.isEmpty()) {
+                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                    return false;
+                }
+                request.setAttribute(LOGIN_ATTRIBUTE, login.get());
+                return true;
+            }
+        }).addPathPatterns("/api/**");
+    }
+}
@@ -1,12 +1,16 @@
 package com.Controller;
 
+import com.DTO.BulkEnrollDTO;
+import com.DTO.BulkEnrollResultDTO;
 import com.DTO.CompetitionDTO;
 import com.DTO.EnrollDTO;
 import com.Domain.Competition;
 import com.Service.CompetitionService;
+import com.Repository.Interface.RepositoryInterface;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URI;
 import java.util.List;
@@ -26,13 +30,19 @@ public class CompetitionController {
         return ResponseEntity.created(location).body(saved);
     }
 
-    /** GET ALL */
+    /** GET ALL - streamed as a JSON array while it is read */
     @GetMapping
-    public ResponseEntity<List<Competition>> getAll() {
-        List<Competition> competitions = competitionService.getAll();
-        return competitions.isEmpty()
-                ? ResponseEntity.noContent().build()
-                : ResponseEntity.ok(competitions);
+    public ResponseEntity<StreamingResponseBody> getAll() {
+        return ListResponses.stream(competitionService::forEach);
+    }
+
+    /** GET PAGE - up to limit competitions with an ID above after; a full page links to the next one */
+    @GetMapping(params = "limit")
+    public ResponseEntity<List<Competition>> getPage(
+            @RequestParam(defaultValue = "0") int after,
+            @RequestParam int limit) {
+        int size = RepositoryInterface.clampPageSize(limit);
+        return ListResponses.page(competitionService.getPage(after, size), size, Competition::getCompetitionID, "/api/competitions");
     }
 
     /** GET BY ID */
@@ -65,6 +75,14 @@ public class CompetitionController {
         return ResponseEntity.noContent().build();
     }
 
+    /** FILTER, with the same semantics as the socket FILTER_COMPETITIONS request */
+    @GetMapping("/filter")
+    public ResponseEntity<List<Competition>> filter(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String age) {
+        return ResponseEntity.ok(competitionService.filter(type, age));
+    }
+
     @GetMapping("/type/{type}/age/{ageCat}")
     public ResponseEntity<List<Competition>> getByTypeAndAge(
             @PathVariable String type,
@@ -106,4 +124,10 @@ public class CompetitionController {
         }
         return ResponseEntity.ok().build();
     }
+
+    /** BULK ENROLL - register many new participants at once; the body reports the outcome of every row */
+    @PostMapping("/enroll/batch")
+    public ResponseEntity<List<BulkEnrollResultDTO>> enrollBatch(@RequestBody List<BulkEnrollDTO> rows) {
+        return ResponseEntity.ok(competitionService.bulkEnroll(rows));
+    }
 }
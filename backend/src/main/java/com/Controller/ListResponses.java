@@ -0,0 +1,56 @@
+package com.Controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * The two shapes of the list endpoints: one keyset page with a {@code Link} header pointing at the next,
+ * or the whole table written to the response as a JSON array while it is read.
+ */
+final class ListResponses {
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+    private ListResponses() {
+    }
+
+    /** A full page may have a successor, so it links to it; a short page is the last one. */
+    static <T> ResponseEntity<List<T>> page(List<T> page, int limit, ToIntFunction<T> id, String path) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (!page.isEmpty() && page.size() == limit) {
+            int last = id.applyAsInt(page.get(page.size() - 1));
+            ok.header(HttpHeaders.LINK, "<" + path + "?after=" + last + "&limit=" + limit + ">; rel=\"next\"");
+        }
+        return ok.body(page);
+    }
+
+    /** Serializes each element {@code source} hands over straight to the response; nothing is collected first. */
+    static <T> ResponseEntity<StreamingResponseBody> stream(Consumer<Consumer<T>> source) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = mapper.getFactory().createGenerator(out)) {
+                json.writeStartArray();
+                source.accept(item -> {
+                    try {
+                        json.writeObject(item);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                json.writeEndArray();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+}
@@ -2,11 +2,17 @@ package com.Controller;
 
 import com.Domain.Participant;
 import com.Service.ParticipantService;
+import com.Service.TransferService;
+import com.DTO.ImportReportDTO;
 import com.DTO.ParticipantDTO;
+import com.Repository.Interface.RepositoryInterface;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.List;
 
@@ -16,6 +22,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ParticipantController {
     private final ParticipantService participantService;
+    private final TransferService    transferService;
 
     /** CREATE */
     @PostMapping
@@ -26,13 +33,19 @@ public class ParticipantController {
         return ResponseEntity.created(location).body(saved);
     }
 
-    /** GET ALL */
+    /** GET ALL - streamed as a JSON array while it is read */
     @GetMapping
-    public ResponseEntity<List<Participant>> getAll() {
-        List<Participant> participants = participantService.getAll();
-        return participants.isEmpty()
-                ? ResponseEntity.noContent().build()
-                : ResponseEntity.ok(participants);
+    public ResponseEntity<StreamingResponseBody> getAll() {
+        return ListResponses.stream(participantService::forEach);
+    }
+
+    /** GET PAGE - up to limit participants with an ID above after; a full page links to the next one */
+    @GetMapping(params = "limit")
+    public ResponseEntity<List<Participant>> getPage(
+            @RequestParam(defaultValue = "0") int after,
+            @RequestParam int limit) {
+        int size = RepositoryInterface.clampPageSize(limit);
+        return ListResponses.page(participantService.getPage(after, size), size, Participant::getParticipantID, "/api/participants");
     }
 
     /** GET BY ID */
@@ -73,4 +86,22 @@ public class ParticipantController {
                 ? ResponseEntity.notFound().build()
                 : ResponseEntity.ok(participants);
     }
+
+    /** EXPORT - every participant with its competition IDs, streamed as CSV or NDJSON */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "csv") String format) {
+        TransferService.Format f = TransferService.Format.parse(format);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(f.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=participants." + f.getExtension())
+                .body(out -> transferService.export(f, out));
+    }
+
+    /** IMPORT - new participants with their competition IDs, read from the request body as it arrives */
+    @PostMapping("/import")
+    public ResponseEntity<ImportReportDTO> importParticipants(
+            @RequestParam(defaultValue = "csv") String format,
+            InputStream body) throws IOException {
+        return ResponseEntity.ok(transferService.importFrom(TransferService.Format.parse(format), body));
+    }
 }
@@ -0,0 +1,23 @@
+package com.Controller;
+
+import com.DTO.CacheRegionStatsDTO;
+import com.Service.CacheStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/stats")
+@CrossOrigin(origins = "http://localhost:5173")
+@RequiredArgsConstructor
+public class StatsController {
+    private final CacheStatsService cacheStatsService;
+
+    /** CACHE - hits, misses and hit ratio per cache region since startup */
+    @GetMapping("/cache")
+    public ResponseEntity<List<CacheRegionStatsDTO>> cache() {
+        return ResponseEntity.ok(cacheStatsService.getRegionStats());
+    }
+}
@@ -2,22 +2,30 @@ package com.Controller;
 
 import com.Domain.User;
 import com.DTO.UserDTO;
+import com.Service.SessionService;
 import com.Service.UserService;
+import com.Repository.Interface.RepositoryInterface;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.net.URI;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/users")
-@CrossOrigin(origins = "http://localhost:5173")
+@CrossOrigin(origins = "http://localhost:5173", exposedHeaders = UserController.SESSION_HEADER)
 @RequiredArgsConstructor
 public class UserController {
+    /** Carries the session token: set on the login response, sent back by the client on later requests. */
+    public static final String SESSION_HEADER = "X-Session-Token";
 
-    private final UserService userService;
+    private final UserService    userService;
+    private final SessionService sessionService;
 
     /** CREATE */
     @PostMapping
@@ -28,13 +36,19 @@ public class UserController {
         return ResponseEntity.created(location).body(saved);
     }
 
-    /** GET ALL */
+    /** GET ALL - streamed as a JSON array while it is read */
     @GetMapping
-    public ResponseEntity<List<User>> getAll() {
-        List<User> users = userService.getAll();
-        return users.isEmpty()
-                ? ResponseEntity.noContent().build()
-                : ResponseEntity.ok(users);
+    public ResponseEntity<StreamingResponseBody> getAll() {
+        return ListResponses.stream(userService::forEach);
+    }
+
+    /** GET PAGE - up to limit users with an ID above after; a full page links to the next one */
+    @GetMapping(params = "limit")
+    public ResponseEntity<List<User>> getPage(
+            @RequestParam(defaultValue = "0") int after,
+            @RequestParam int limit) {
+        int size = RepositoryInterface.clampPageSize(limit);
+        return ListResponses.page(userService.getPage(after, size), size, User::getUserID, "/api/users");
     }
 
     /** GET BY ID */
@@ -67,9 +81,31 @@ public class UserController {
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * LOGIN - opens a session whose token comes back in the X-Session-Token header.
+     * Answered asynchronously, so no request thread waits for the password hash to be checked.
+     */
     @PostMapping("/login")
-    public ResponseEntity<User> login(@RequestBody UserDTO dto) {
-        Optional<User> user = userService.authenticate(dto.getUserName(), dto.getPassword());
-        return user.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+    public CompletableFuture<ResponseEntity<User>> login(@RequestBody UserDTO dto) {
+        return userService.authenticateAsync(dto.getUserName(), dto.getPassword()).handle((user, error) -> {
+            if (error == null) {
+                return user
+                        .map(u -> ResponseEntity.ok().header(SESSION_HEADER, sessionService.issue(u).token()).body(u))
+                        .orElseGet(() -> ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof RejectedExecutionException) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+            }
+            throw new CompletionException(cause);
+        });
+    }
+
+    /** LOGOUT - ends the session of the token sent */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(SESSION_HEADER) String token) {
+        return sessionService.revoke(token)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
     }
 }
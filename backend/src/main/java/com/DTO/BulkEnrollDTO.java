@@ -0,0 +1,19 @@
+package com.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One row of a bulk registration: a new participant and the competition types to enroll them in.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkEnrollDTO {
+    private String name;
+    private int age;
+    private List<String> compTypes;
+}
@@ -0,0 +1,33 @@
+package com.DTO;
+
+import com.Domain.Participant;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of one {@link BulkEnrollDTO} row, in request order. On success the saved participant and the
+ * competitions it was enrolled in are set; on failure only {@link #error} is.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkEnrollResultDTO {
+    private int row;
+    private boolean success;
+    private Participant participant;
+    private List<Integer> competitionIDs;
+    private String error;
+
+    public static BulkEnrollResultDTO enrolled(int row, Participant participant, List<Integer> competitionIDs) {
+        return new BulkEnrollResultDTO(row, true, participant, competitionIDs, null);
+    }
+
+    public static BulkEnrollResultDTO failed(int row, String error) {
+        return new BulkEnrollResultDTO(row, false, null, null, error);
+    }
+}
@@ -0,0 +1,28 @@
+package com.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Counters of one cache region since startup. {@code kind} is "entity" or "query" for Hibernate's
+ * second-level cache regions and "index" for the in-memory competition index; {@code size} is null
+ * when the cache cannot report it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheRegionStatsDTO {
+    private String region;
+    private String kind;
+    private long hits;
+    private long misses;
+    private long puts;
+    private double hitRatio;
+    private Long size;
+
+    public static CacheRegionStatsDTO of(String region, String kind, long hits, long misses, long puts, Long size) {
+        long lookups = hits + misses;
+        return new CacheRegionStatsDTO(region, kind, hits, misses, puts, lookups == 0 ? 0 : (double) hits / lookups, size);
+    }
+}
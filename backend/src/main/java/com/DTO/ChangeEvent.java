@@ -0,0 +1,36 @@
+package com.DTO;
+
+import com.Domain.Participant;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single change pushed to clients inside an UPDATE message, so they can patch their views
+ * in place instead of re-fetching. Only the fields relevant to {@link #kind} are set.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeEvent {
+    public enum Kind { PARTICIPANT_ADDED, ENROLLMENT_ADDED, COMPETITION_COUNT_CHANGED }
+
+    private Kind kind;
+    private Participant participant;
+    private Integer competitionID;
+    private Integer nrOfParticipants;
+
+    public static ChangeEvent participantAdded(Participant p) {
+        return new ChangeEvent(Kind.PARTICIPANT_ADDED, p, null, null);
+    }
+
+    public static ChangeEvent enrollmentAdded(Participant p, int competitionID) {
+        return new ChangeEvent(Kind.ENROLLMENT_ADDED, p, competitionID, null);
+    }
+
+    public static ChangeEvent competitionCountChanged(int competitionID, int nrOfParticipants) {
+        return new ChangeEvent(Kind.COMPETITION_COUNT_CHANGED, null, competitionID, nrOfParticipants);
+    }
+}
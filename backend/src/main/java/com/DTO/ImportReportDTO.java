@@ -0,0 +1,20 @@
+package com.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a participant import: how many rows were saved and rejected, and why the first few
+ * rejected rows failed (prefixed with their line number).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportReportDTO {
+    private long imported;
+    private long rejected;
+    private List<String> errors;
+}
@@ -0,0 +1,22 @@
+package com.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One participant together with the IDs of the competitions it is enrolled in; the row format of
+ * participant import and export.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParticipantRecordDTO {
+    private Integer participantID;
+    private String name;
+    private int age;
+    private List<Integer> competitionIDs = new ArrayList<>();
+}
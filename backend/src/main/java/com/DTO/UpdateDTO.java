@@ -0,0 +1,19 @@
+package com.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Payload of an UPDATE message. {@code seq} increases by exactly one per UPDATE sent, so a client
+ * that sees a gap knows it missed events and must re-fetch its state.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UpdateDTO {
+    private long seq;
+    private List<ChangeEvent> events;
+}
@@ -2,9 +2,13 @@ package com.Domain;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "Participant")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "participant")
 @Data
 @NoArgsConstructor
 @RequiredArgsConstructor
@@ -1,38 +1,63 @@
 package com.Main;
 
-import com.Service.UserService;
-import com.Domain.User;
+import com.Network.NetworkClient;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
 import lombok.Setter;
-import java.util.Optional;
+import java.util.Map;
 
 public class LoginController {
     @FXML private TextField usernameField;
     @FXML private PasswordField passwordField;
     @FXML private Label errorLabel;
 
-    @Setter private UserService userService;
     @Setter private Main mainApp;
 
+    private final ObjectMapper mapper = new ObjectMapper();
+
     @FXML
     public void initialize() {
         errorLabel.setText("");
     }
 
+    /** Checks the credentials on the server; the session it opens is carried over to the main view. */
     @FXML
     private void onLoginButtonClicked() {
         String username = usernameField.getText();
         String password = passwordField.getText();
 
-        Optional<User> userOpt = userService.authenticate(username, password);
-        if (userOpt.isPresent()) {
-            Stage currentStage = (Stage) errorLabel.getScene().getWindow();
-            currentStage.close();
-            mainApp.showMainView();
-        } else {
-            errorLabel.setText("Invalid credentials!");
+        NetworkClient client = new NetworkClient();
+        client.start(Main.SERVER_HOST, Main.SERVER_PORT, msg -> {});
+        try {
+            String json = mapper.writeValueAsString(Map.of("userName", username, "password", password));
+            client.request("AUTH_USER", json).whenComplete((reply, ex) -> {
+                client.close();
+                Platform.runLater(() -> {
+                    if (ex != null) {
+                        errorLabel.setText("Cannot reach the server: " + ex.getMessage());
+                        return;
+                    }
+                    try {
+                        JsonNode login = mapper.readTree(reply.getPayload());
+                        if (login.isNull()) {
+                            errorLabel.setText("Invalid credentials!");
+                            return;
+                        }
+                        Stage currentStage = (Stage) errorLabel.getScene().getWindow();
+                        currentStage.close();
+                        mainApp.showMainView(login.get("sessionToken").asText());
+                    } catch (Exception e) {
+                        errorLabel.setText("Unexpected server reply: " + e.getMessage());
+                    }
+                });
+            });
+        } catch (Exception e) {
+            client.close();
+            errorLabel.setText(e.getMessage());
         }
     }
 }
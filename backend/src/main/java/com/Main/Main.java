@@ -1,7 +1,6 @@
 package com.Main;
 
-import com.Repository.Manual.UserRepository;
-import com.Service.UserService;
+import com.Util.AppConfig;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -11,6 +10,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class Main extends Application {
+    /** The socket server both views talk to. */
+    public static final String SERVER_HOST = AppConfig.getString("client.serverHost", "localhost");
+    public static final int    SERVER_PORT = AppConfig.getInt("server.port", 5000);
+
     private Stage primaryStage;
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
 
@@ -31,9 +34,7 @@ public class Main extends Application {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/Main/login-view.fxml"));
             Parent root = loader.load();
 
-            UserService userService = new UserService(new UserRepository());
             LoginController loginController = loader.getController();
-            loginController.setUserService(userService);
             loginController.setMainApp(this);
 
             primaryStage.setTitle("Login");
@@ -44,9 +45,11 @@ public class Main extends Application {
         }
     }
 
-    public void showMainView() {
+    /** Open the main view; its connection logs in with {@code sessionToken} instead of the password. */
+    public void showMainView(String sessionToken) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/Main/main-view.fxml"));
+            loader.setControllerFactory(type -> new MainController(sessionToken));
             Parent root = loader.load();
             Stage mainStage = new Stage();
             mainStage.setTitle("Competition Management");
@@ -1,27 +1,32 @@
 package com.Main;
 
+import com.DTO.BulkEnrollDTO;
+import com.DTO.ChangeEvent;
+import com.DTO.UpdateDTO;
 import com.Domain.Competition;
 import com.Domain.Participant;
 import com.Network.NetworkClient;
 import Network.UpdateMessage;
-import com.Repository.Manual.CompetitionRepository;
-import com.Service.CompetitionService;
 import com.Validators.EntryValidator;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.input.MouseEvent;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public class MainController {
     private final NetworkClient networkClient = new NetworkClient();
     private final ObjectMapper  mapper        = new ObjectMapper();
-    CompetitionService competitionService;
+    // From the login view; logs every connection in without the password or a database lookup
+    private final String        sessionToken;
 
     // UI controls
     @FXML private ListView<Competition> competitionsListView;
@@ -30,20 +35,30 @@ public class MainController {
     @FXML private ComboBox<String> comp1ComboBox, comp2ComboBox;
     @FXML private TextField nameField, ageField;
 
-    // Track chosen comps for enrollment
-    private String pendingComp1, pendingComp2;
+    // Sequence number of the last UPDATE applied, 0 before the first one
+    private long lastUpdateSeq;
 
-    public void initialize() {
-        competitionService = new CompetitionService(new CompetitionRepository());
+    // Participants per listed competition, prefetched when the list loads and kept current by UPDATEs
+    private final Map<Integer, ObservableList<Participant>> rosters = new HashMap<>();
+
+    public MainController(String sessionToken) {
+        this.sessionToken = sessionToken;
+    }
 
+    public void initialize() {
         initFilterComboBoxes();
         initCompComboBoxes();
 
         // On competition click, request its participants
         competitionsListView.setOnMouseClicked(this::onCompetitionSelected);
 
-        // Start listening to server messages
-        networkClient.start("localhost", 8080, this::dispatchMessage);
+        // Start listening to server messages; whatever was pushed while disconnected is lost, so reload
+        networkClient.start(Main.SERVER_HOST, Main.SERVER_PORT, this::dispatchMessage, () -> Platform.runLater(() -> {
+            logIn();
+            lastUpdateSeq = 0;
+            resync();
+        }));
+        logIn();
 
         // Initial load of competitions
         networkClient.send("GET_ALL_COMPETITIONS", "");
@@ -54,9 +69,7 @@ public class MainController {
             try {
                 switch (msg.getType()) {
                     case "GET_ALL_COMPETITIONS_REPLY", "FILTER_COMPETITIONS_REPLY" -> handleAllCompetitions(msg.getPayload());
-                    case "GET_PARTICIPANTS_FOR_COMP_REPLY" -> handleParticipantsForComp(msg.getPayload());
-                    case "ADD_PARTICIPANT_REPLY" -> handleAddParticipantReply(msg.getPayload());
-                    case "ENROLL_PARTICIPANT_REPLY", "UPDATE" -> onEnrollOrUpdate();
+                    case "UPDATE" -> applyUpdate(msg.getPayload());
                     default -> System.out.println("Unhandled message: " + msg.getType());
                 }
             } catch (Exception e) {
@@ -65,37 +78,103 @@ public class MainController {
         });
     }
 
-    private void refreshCompetitionList() {
-        networkClient.send("GET_ALL_COMPETITIONS", "");
-    }
-
     // --- Message handlers ---
 
     private void handleAllCompetitions(String payload) throws Exception {
         List<Competition> comps = mapper.readValue(payload, new TypeReference<>() {});
         competitionsListView.setItems(FXCollections.observableArrayList(comps));
+        // All lookups go out at once; the server answers them concurrently
+        rosters.clear();
+        comps.forEach(c -> loadRoster(c.getCompetitionID()));
+    }
+
+    private void loadRoster(int competitionID) {
+        networkClient.request("GET_PARTICIPANTS_FOR_COMP", String.valueOf(competitionID))
+                .thenAccept(reply -> Platform.runLater(() -> {
+                    try {
+                        List<Participant> parts = mapper.readValue(reply.getPayload(), new TypeReference<>() {});
+                        rosters.put(competitionID, FXCollections.observableArrayList(parts));
+                        showRosterIfSelected(competitionID);
+                    } catch (Exception e) {
+                        showAlert("Error processing server reply: " + e.getMessage());
+                    }
+                }))
+                .exceptionally(e -> {
+                    System.err.println("Failed to load participants for competition " + competitionID + ": " + e.getMessage());
+                    return null;
+                });
     }
 
-    private void handleParticipantsForComp(String payload) throws Exception {
-        List<Participant> parts = mapper.readValue(payload, new TypeReference<>() {});
-        participantsListView.setItems(FXCollections.observableArrayList(parts));
+    private void showRosterIfSelected(int competitionID) {
+        Competition sel = competitionsListView.getSelectionModel().getSelectedItem();
+        if (sel != null && sel.getCompetitionID() == competitionID) {
+            participantsListView.setItems(rosters.get(competitionID));
+        }
     }
 
-    private void handleAddParticipantReply(String payload) throws Exception {
-        Participant p = mapper.readValue(payload, Participant.class);
-        if (!"Empty".equals(pendingComp1)) sendEnroll(p, pendingComp1);
-        if (!"Empty".equals(pendingComp2)) sendEnroll(p, pendingComp2);
-        pendingComp1 = pendingComp2 = "Empty";
-        refreshCompetitionList();
+    /** Patch the visible lists with the pushed changes; re-fetch everything if an UPDATE was missed. */
+    private void applyUpdate(String payload) throws Exception {
+        UpdateDTO update = mapper.readValue(payload, UpdateDTO.class);
+        boolean missedUpdates = lastUpdateSeq != 0 && update.getSeq() != lastUpdateSeq + 1;
+        lastUpdateSeq = update.getSeq();
+        if (missedUpdates) {
+            resync();
+            return;
+        }
+        for (ChangeEvent event : update.getEvents()) {
+            switch (event.getKind()) {
+                case COMPETITION_COUNT_CHANGED -> applyCompetitionCount(event.getCompetitionID(), event.getNrOfParticipants());
+                case ENROLLMENT_ADDED -> applyEnrollment(event.getCompetitionID(), event.getParticipant());
+                case PARTICIPANT_ADDED -> { /* no view lists every participant */ }
+            }
+        }
     }
 
-    private void onEnrollOrUpdate() {
-        Competition sel = competitionsListView.getSelectionModel().getSelectedItem();
-        if (sel != null) {
-            networkClient.send("GET_PARTICIPANTS_FOR_COMP", String.valueOf(sel.getCompetitionID()));
+    private void applyCompetitionCount(int competitionID, int nrOfParticipants) {
+        ObservableList<Competition> items = competitionsListView.getItems();
+        for (int i = 0; i < items.size(); i++) {
+            Competition c = items.get(i);
+            if (c.getCompetitionID() == competitionID) {
+                items.set(i, new Competition(c.getCompetitionID(), c.getType(), c.getAgeCategory(), nrOfParticipants));
+                return;
+            }
         }
     }
 
+    private void applyEnrollment(int competitionID, Participant participant) {
+        // The selected roster is the same list object, so the view follows
+        ObservableList<Participant> items = rosters.get(competitionID);
+        if (items == null) return;
+        boolean alreadyListed = items.stream()
+                .anyMatch(p -> p.getParticipantID().equals(participant.getParticipantID()));
+        if (!alreadyListed) {
+            items.add(participant);
+        }
+    }
+
+    /** Log this connection in with the session opened at login; the server keeps it per connection. */
+    private void logIn() {
+        try {
+            networkClient.request("AUTH_USER", mapper.writeValueAsString(Map.of("sessionToken", sessionToken)))
+                    .thenAccept(reply -> {
+                        if ("null".equals(reply.getPayload())) {
+                            Platform.runLater(() -> showAlert("Your session has expired, please log in again."));
+                        }
+                    })
+                    .exceptionally(e -> {
+                        System.err.println("Failed to log in: " + e.getMessage());
+                        return null;
+                    });
+        } catch (Exception e) {
+            showAlert("Failed to send login request: " + e.getMessage());
+        }
+    }
+
+    /** Re-fetching the competitions also reloads every roster. */
+    private void resync() {
+        fetchCompetitions();
+    }
+
     // --- UI event handlers ---
 
     @FXML
@@ -108,16 +187,15 @@ public class MainController {
 
             if (!EntryValidator.validateInput(name, age, c1, c2)) return;
 
-            pendingComp1 = c1;
-            pendingComp2 = c2;
-
-            String json = mapper.writeValueAsString(Map.of(
-                    "name", name,
-                    "age", age
-            ));
-
-            networkClient.send("ADD_PARTICIPANT", json);
-            clearForm();
+            // The server adds the participant and resolves the competitions in one round trip;
+            // the lists update from the UPDATE it broadcasts
+            List<String> compTypes = Stream.of(c1, c2).filter(c -> !"Empty".equals(c)).toList();
+            String json = mapper.writeValueAsString(new BulkEnrollDTO(name, age, compTypes));
+            networkClient.request("ENROLL_BY_TYPE", json)
+                    .whenComplete((reply, ex) -> Platform.runLater(() -> {
+                        if (ex == null) clearForm();
+                        else showAlert("Registration failed: " + ex.getMessage());
+                    }));
         } catch (Exception e) {
             showAlert(e.getMessage());
         }
@@ -125,21 +203,17 @@ public class MainController {
 
     private void onCompetitionSelected(MouseEvent e) {
         Competition sel = competitionsListView.getSelectionModel().getSelectedItem();
-        if (sel != null) {
-            networkClient.send("GET_PARTICIPANTS_FOR_COMP", String.valueOf(sel.getCompetitionID()));
+        if (sel == null) return;
+        if (rosters.containsKey(sel.getCompetitionID())) {
+            showRosterIfSelected(sel.getCompetitionID());
+        } else {
+            // Prefetch still in flight or failed
+            loadRoster(sel.getCompetitionID());
         }
     }
 
     // --- Helper methods ---
 
-    private void sendEnroll(Participant p, String compType) {
-        Competition target = competitionService.competitionToEnrollIn(p.getAge(), compType);
-        networkClient.send(
-                "ENROLL_PARTICIPANT",
-                p.getParticipantID() + "," + target.getCompetitionID()
-        );
-    }
-
     private void initFilterComboBoxes() {
         List<String> types = List.of("All competitions", "Drawing", "Treasure Hunt", "Poetry");
         typeComboBox.setItems(FXCollections.observableArrayList(types));
@@ -1,203 +1,602 @@
 package com.Network;
 
 import Network.UpdateMessage;
+import Network.v2.*;
+import com.DTO.BulkEnrollDTO;
+import com.DTO.BulkEnrollResultDTO;
+import com.DTO.ChangeEvent;
 import com.Domain.Competition;
 import com.Domain.Participant;
 import com.Domain.User;
+import com.Repository.Interface.RepositoryInterface;
 import com.Service.CompetitionService;
 import com.Service.ParticipantService;
+import com.Service.SessionService;
 import com.Service.UserService;
 import com.Validators.EntryValidator;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.*;
 import java.net.Socket;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Decodes client requests and writes the replies.
+ * One instance is shared by every connection: {@link #serve(Socket)} runs the blocking read loop for
+ * the thread-based server modes, while the NIO server frames messages itself and calls {@link #process}.
+ * Each request is decoded according to the connection's protocol version (v1 JSON payloads or v2
+ * typed {@link Envelope}s) and then handled by the same version-independent logic.
+ * Replies echo the request id of the message they answer. Read requests that carry an id are run
+ * concurrently and may be answered out of order; everything else is handled in arrival order.
+ * A successful AUTH_USER opens a {@link SessionService} session and logs the connection in; its token lets
+ * the client log a later connection in again without the password or a database lookup. No thread waits
+ * for the password check: the reply is written once the verifier pool has finished it, so it may come
+ * after replies to later requests.
+ */
 @AllArgsConstructor
-public class ClientHandler implements Runnable {
+public class ClientHandler {
     private static final Logger        logger = LoggerFactory.getLogger(ClientHandler.class);
-    private final Socket               socket;
     private final ParticipantService   participantService;
     private final CompetitionService   competitionService;
     private final UserService          userService;
+    private final SessionService       sessionService;
     private final ObjectMapper         mapper;
-    private final Set<OutputStream>    clientStreams;
-
-    @Override
-    public void run() {
-        OutputStream out = null;
-        try (InputStream in = socket.getInputStream()) {
-            out = socket.getOutputStream();
-            clientStreams.add(out);
+    private final UpdateBroadcaster    broadcaster;
+    private final RequestLog           requestLog;
+    private final ServerMetrics        metrics;
+
+    private static final Set<String> READ_ONLY_V1 = Set.of(
+            "GET_PARTICIPANTS_FOR_COMP", "GET_ALL_COMPETITIONS", "GET_ALL_PARTICIPANTS",
+            "GET_ALL_USERS", "FILTER_COMPETITIONS");
+    private static final Set<MessageType> READ_ONLY_V2 = EnumSet.of(
+            MessageType.GET_PARTICIPANTS_FOR_COMP, MessageType.GET_ALL_COMPETITIONS, MessageType.GET_ALL_PARTICIPANTS,
+            MessageType.GET_ALL_USERS, MessageType.FILTER_COMPETITIONS);
+
+    private final ExecutorService readers =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("read-request-", 0).factory());
+
+    /** Blocking read loop for a single socket; returns once the client disconnects. */
+    public void serve(Socket socket) {
+        ClientSession session = null;
+        try (InputStream in = new BufferedInputStream(socket.getInputStream())) {
+            session = new ClientSession(socket.getOutputStream());
+            broadcaster.register(session, socket);
             logger.info("Client connected: {}", socket.getInetAddress());
 
-            UpdateMessage msg;
-            while ((msg = UpdateMessage.parseDelimitedFrom(in)) != null) {
-                try {
-                    switch (msg.getType()) {
-                        case "ADD_PARTICIPANT" -> handleAddParticipant(out, msg);
-                        case "GET_PARTICIPANTS_FOR_COMP" -> handleGetParticipantsForComp(out, msg);
-                        case "GET_ALL_COMPETITIONS" -> handleGetAllCompetitions(out);
-                        case "GET_ALL_PARTICIPANTS" -> handleGetAllParticipants(out);
-                        case "GET_ALL_USERS" -> handleGetAllUsers(out);
-                        case "AUTH_USER" -> handleAuthUser(out, msg);
-                        case "ENROLL_PARTICIPANT" -> handleEnrollParticipant(out, msg);
-                        case "FILTER_COMPETITIONS" -> handleFilterCompetitions(out, msg);
-                        default -> logger.warn("Unknown message type: {}", msg.getType());
-                    }
-                } catch (IOException e) {
-                    logger.error("Error processing message: {}", e.getMessage());
-                }
+            byte[] frame;
+            while ((frame = readFrame(in)) != null) {
+                process(session, frame);
             }
-        } catch (InvalidProtocolBufferException ipbe) {
-            logger.error("Malformed protobuf message", ipbe);
         } catch (IOException ioe) {
             logger.info("Client disconnected: {}", ioe.getMessage());
         } finally {
-            if (out != null) {
-                try { out.close(); } catch (IOException ignored) {}
-                clientStreams.remove(out);
+            if (session != null) {
+                try { session.getOut().close(); } catch (IOException ignored) {}
+                broadcaster.unregister(session);
             }
             try { socket.close(); } catch (IOException ignored) {}
         }
     }
 
-    private void handleFilterCompetitions(OutputStream out, UpdateMessage msg) throws IOException {
-        // Parse JSON filters from the message payload
-        Map<String,String> filters = mapper.readValue(msg.getPayload(), new TypeReference<>() {});
+    /** Read one varint length-delimited frame, or return null at a clean end of stream. */
+    private static byte[] readFrame(InputStream in) throws IOException {
+        int first = in.read();
+        if (first == -1) return null;
+        int length = CodedInputStream.readRawVarint32(first, in);
+        byte[] frame = in.readNBytes(length);
+        if (frame.length < length) throw new EOFException("Truncated frame");
+        return frame;
+    }
 
-        // Extract type and age category
-        String type = filters.getOrDefault("type", "All competitions");
-        String age  = filters.getOrDefault("age",  "All ages");
+    /**
+     * Handle one request frame, writing any reply to the session.
+     * May return before a read request has been answered; blocks the caller once the session already
+     * has {@link ClientSession#MAX_IN_FLIGHT_READS} reads running, which suits a thread per connection.
+     */
+    public void process(ClientSession session, byte[] frame) {
+        process(session, frame, null, null);
+    }
 
-        List<Competition> filtered;
-        if ("All competitions".equals(type) && "All ages".equals(age) ) {
-            filtered = competitionService.getAll();
-        }
-        else if ( "All competitions".equals(type) ) {
-            filtered = competitionService.getByAgeCategory(age);
+    /**
+     * Like {@link #process(ClientSession, byte[])}, but never waits for a read slot: if the frame is a read
+     * the session has no slot for, it runs {@code pause} and returns false without handling the frame.
+     * The caller should stop reading the client and offer the frame again once {@code resume} has run.
+     */
+    public boolean tryProcess(ClientSession session, byte[] frame, Runnable pause, Runnable resume) {
+        return process(session, frame, pause, resume);
+    }
+
+    private boolean process(ClientSession session, byte[] frame, Runnable pause, Runnable resume) {
+        try {
+            if (session.getProtocolVersion() >= 2) {
+                Envelope env = Envelope.parseFrom(frame);
+                if (env.getType() == MessageType.AUTH_USER) {
+                    handleAsync(session, env.getType().name(), env.getRequestId(), () -> authUserV2(session, env));
+                    return true;
+                }
+                return dispatch(session, env.getType().name(), env.getRequestId(),
+                        READ_ONLY_V2.contains(env.getType()), () -> processV2(session, env), pause, resume);
+            } else {
+                UpdateMessage msg = UpdateMessage.parseFrom(frame);
+                if (msg.getType().equals("AUTH_USER")) {
+                    handleAsync(session, msg.getType(), msg.getRequestId(), () -> handleAuthUser(session, msg));
+                    return true;
+                }
+                return dispatch(session, msg.getType(), msg.getRequestId(),
+                        READ_ONLY_V1.contains(msg.getType()), () -> processV1(session, msg), pause, resume);
+            }
+        } catch (InvalidProtocolBufferException ipbe) {
+            logger.error("Malformed protobuf message", ipbe);
+            return true;
         }
-        else if ( "All ages".equals(age) ) {
-            filtered = competitionService.getByType(type);
+    }
+
+    /**
+     * Writes (and HELLO) run on the calling thread, so a request sent after a write always sees it.
+     * Reads run on {@link #readers}, but only when the client tagged them with a request id: clients
+     * that match replies by type alone keep getting them in request order. Without a {@code pause}
+     * a read waits for a free slot; with one it is turned away instead.
+     */
+    private boolean dispatch(ClientSession session, String type, long requestId, boolean readOnly, Request request,
+                             Runnable pause, Runnable resume) {
+        if (!readOnly || requestId == 0) {
+            handle(session, type, requestId, request);
+            return true;
         }
-        else {
-            filtered = competitionService.getByTypeAndAgeCat(type, age);
+        if (pause == null) {
+            session.startRead();
+        } else if (!session.tryStartRead(pause, resume)) {
+            return false;
         }
+        readers.execute(() -> {
+            try {
+                handle(session, type, requestId, request);
+            } finally {
+                session.finishRead();
+            }
+        });
+        return true;
+    }
 
-        String json = mapper.writeValueAsString(filtered);
-        reply(out, "FILTER_COMPETITIONS_REPLY", json);
+    private void handle(ClientSession session, String type, long requestId, Request request) {
+        handle(session, type, requestId, System.nanoTime(), request);
     }
 
-    private void broadcastUpdate() {
-        UpdateMessage update = UpdateMessage.newBuilder()
-                .setType("UPDATE")
-                .setPayload("")
-                .build();
-        clientStreams.forEach(os -> {
+    private void handle(ClientSession session, String type, long requestId, long started, Request request) {
+        int protocol = session.getProtocolVersion();
+        int rows = 0;
+        boolean failed = false;
+        try {
+            checkLogin(session);
+            rows = request.run();
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            // Answer instead of leaving the client waiting for a reply that will never come;
+            // a bad payload surfaces here as a Jackson IOException
+            logger.error("Failed to handle {} message", type, e);
             try {
-                synchronized (os) {
-                    update.writeDelimitedTo(os);
-                    os.flush();
-                }
-            } catch (IOException e) {
-                logger.error("Failed to broadcastUpdate to client", e);
-                clientStreams.remove(os);
-            }
-        });
+                replyError(session, requestId, String.valueOf(e.getMessage()));
+            } catch (IOException ignored) {}
+        }
+        long elapsed = System.nanoTime() - started;
+        metrics.recordRequest(type, protocol, elapsed, failed);
+        requestLog.finish(type, protocol, requestId, elapsed, rows, failed);
     }
 
-    private void reply(OutputStream to, String type, String payload) throws IOException {
-        UpdateMessage reply = UpdateMessage.newBuilder()
-                .setType(type)
-                .setPayload(payload)
-                .build();
-        synchronized (to) {
-        reply.writeDelimitedTo(to);
-        to.flush();
+    /**
+     * Start a request that completes later, then send its reply from {@link #readers}: the future may
+     * complete on a small pool, such as the password verifiers, that must not wait on a client's socket.
+     * It is timed and logged from start to reply like any other.
+     */
+    private void handleAsync(ClientSession session, String type, long requestId, AsyncRequest request) {
+        long started = System.nanoTime();
+        CompletableFuture<Request> reply;
+        try {
+            reply = request.start();
+        } catch (IOException | RuntimeException e) {
+            reply = CompletableFuture.failedFuture(e);
         }
+        reply.whenCompleteAsync((send, error) ->
+                handle(session, type, requestId, started, error == null ? send : failure(error)), readers);
     }
 
-    private void handleAddParticipant(OutputStream out, UpdateMessage msg) throws IOException {
-        logger.info("Received ADD_PARTICIPANT message");
-        Map<String,Object> map = mapper.readValue(msg.getPayload(), Map.class);
+    /** A request that rethrows {@code error}, unwrapped, so {@link #handle} reports it like a synchronous one. */
+    private static Request failure(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return () -> {
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(cause);
+        };
+    }
 
-        String name = (String) map.get("name");
-        int age  = (Integer) map.get("age");
-        if (EntryValidator.validateNameAndAge(name, age)) {
-            logger.info("Valid participant data: name={}, age={}", name, age);
-        } else {
-            logger.error("Invalid participant data: name={}, age={}", name, age);
-            reply(out, "ERROR", "Invalid participant data");
-            return;
+    @FunctionalInterface
+    private interface Request {
+        /** Handle the request and reply; returns the number of rows in the reply. */
+        int run() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface AsyncRequest {
+        /** Start handling the request; completes with the step that writes the reply. */
+        CompletableFuture<Request> start() throws IOException;
+    }
+
+    /** Keyset page asked for by a GET_ALL_* request; the limit is clamped to {@link RepositoryInterface#MAX_PAGE_SIZE}. */
+    private record Page(int afterId, int limit) {
+        Page {
+            limit = RepositoryInterface.clampPageSize(limit);
+        }
+
+        /** v1 payload "afterID,limit"; a blank payload asks for the whole list, as it always did. */
+        static Page parse(String payload) {
+            if (payload.isBlank()) return null;
+            String[] parts = payload.split(",");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Payload must be empty or: afterID,limit");
+            }
+            return new Page(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        }
+
+        static Page of(PageRequest request) {
+            return new Page(request.getAfterId(), request.getLimit());
         }
-        Participant temp = new Participant(null, name, age);
-        Participant p = participantService.add(temp);
-        String json   = mapper.writeValueAsString(p);
+    }
+
+    // ----- v1: JSON payloads in UpdateMessage -----
+
+    private int processV1(ClientSession session, UpdateMessage msg) throws IOException {
+        return switch (msg.getType()) {
+            case "HELLO" -> handleHello(session, msg);
+            case "ADD_PARTICIPANT" -> handleAddParticipant(session, msg);
+            case "GET_PARTICIPANTS_FOR_COMP" -> handleGetParticipantsForComp(session, msg);
+            case "GET_ALL_COMPETITIONS" -> handleGetAllCompetitions(session, msg);
+            case "GET_ALL_PARTICIPANTS" -> handleGetAllParticipants(session, msg);
+            case "GET_ALL_USERS" -> handleGetAllUsers(session, msg);
+            case "ENROLL_PARTICIPANT" -> handleEnrollParticipant(session, msg);
+            case "FILTER_COMPETITIONS" -> handleFilterCompetitions(session, msg);
+            case "BULK_ENROLL" -> handleBulkEnroll(session, msg);
+            case "ENROLL_BY_TYPE" -> handleEnrollByType(session, msg);
+            default -> {
+                logger.warn("Unknown message type: {}", msg.getType());
+                yield 0;
+            }
+        };
+    }
+
+    /** Protocol negotiation: the client names the highest version it speaks, the server answers with the one it picked. */
+    private int handleHello(ClientSession session, UpdateMessage msg) throws IOException {
+        int requested = msg.getPayload().isBlank() ? ClientSession.LEGACY_PROTOCOL : Integer.parseInt(msg.getPayload().trim());
+        int agreed = Math.max(ClientSession.LEGACY_PROTOCOL, Math.min(requested, ClientSession.LATEST_PROTOCOL));
+        // Reply in v1 framing, then switch: the client sends nothing else until it has read this
+        reply(session, msg, "HELLO_REPLY", String.valueOf(agreed));
+        session.setProtocolVersion(agreed);
+        logger.info("Client negotiated protocol v{}", agreed);
+        return 0;
+    }
+
+    private int handleFilterCompetitions(ClientSession session, UpdateMessage msg) throws IOException {
+        // Parse JSON filters from the message payload
+        Map<String,String> filters = mapper.readValue(msg.getPayload(), new TypeReference<>() {});
+
+        // Extract type and age category
+        String type = filters.getOrDefault("type", CompetitionService.ALL_TYPES);
+        String age  = filters.getOrDefault("age",  CompetitionService.ALL_AGES);
 
-        reply(out, "ADD_PARTICIPANT_REPLY", json);
-        broadcastUpdate();
+        List<Competition> found = competitionService.filter(type, age);
+        reply(session, msg, "FILTER_COMPETITIONS_REPLY", mapper.writeValueAsString(found));
+        return found.size();
     }
 
-    private void handleGetParticipantsForComp(OutputStream out, UpdateMessage msg) throws IOException {
+    private int handleAddParticipant(ClientSession session, UpdateMessage msg) throws IOException {
+        logger.debug("Received ADD_PARTICIPANT message");
+        Map<String,Object> map = mapper.readValue(msg.getPayload(), new TypeReference<>() {});
+
+        String name = (String) map.get("name");
+        int age  = (Integer) map.get("age");
+        Participant p = addParticipant(name, age);
+        reply(session, msg, "ADD_PARTICIPANT_REPLY", mapper.writeValueAsString(p));
+        broadcaster.publish(ChangeEvent.participantAdded(p));
+        return 1;
+    }
+
+    private int handleGetParticipantsForComp(ClientSession session, UpdateMessage msg) throws IOException {
         int compId = Integer.parseInt(msg.getPayload());
         List<Participant> list = participantService.getParticipantsForCompetition(compId);
         String json = mapper.writeValueAsString(list);
-        reply(out, "GET_PARTICIPANTS_FOR_COMP_REPLY", json);
+        reply(session, msg, "GET_PARTICIPANTS_FOR_COMP_REPLY", json);
+        return list.size();
     }
 
-    private void handleGetAllCompetitions(OutputStream out) throws IOException {
-        List<Competition> all = competitionService.getAll();
+    private int handleGetAllCompetitions(ClientSession session, UpdateMessage msg) throws IOException {
+        Page page = Page.parse(msg.getPayload());
+        List<Competition> all = page == null ? competitionService.getAll() : competitionService.getPage(page.afterId(), page.limit());
         String json = mapper.writeValueAsString(all);
-        reply(out, "GET_ALL_COMPETITIONS_REPLY", json);
+        reply(session, msg, "GET_ALL_COMPETITIONS_REPLY", json);
+        return all.size();
     }
 
-    private void handleGetAllParticipants(OutputStream out) throws IOException {
-        List<Participant> all = participantService.getAll();
+    private int handleGetAllParticipants(ClientSession session, UpdateMessage msg) throws IOException {
+        Page page = Page.parse(msg.getPayload());
+        List<Participant> all = page == null ? participantService.getAll() : participantService.getPage(page.afterId(), page.limit());
         String json = mapper.writeValueAsString(all);
-        reply(out, "GET_ALL_PARTICIPANTS_REPLY", json);
+        reply(session, msg, "GET_ALL_PARTICIPANTS_REPLY", json);
+        return all.size();
     }
 
-    private void handleGetAllUsers(OutputStream out) throws IOException {
-        List<User> all = userService.getAll();
+    private int handleGetAllUsers(ClientSession session, UpdateMessage msg) throws IOException {
+        Page page = Page.parse(msg.getPayload());
+        List<User> all = page == null ? userService.getAll() : userService.getPage(page.afterId(), page.limit());
         String json = mapper.writeValueAsString(all);
-        reply(out, "GET_ALL_USERS_REPLY", json);
+        reply(session, msg, "GET_ALL_USERS_REPLY", json);
+        return all.size();
     }
 
-    private void handleAuthUser(OutputStream out, UpdateMessage msg) throws IOException {
+    /** Payload {"userName", "password"} or {"sessionToken"}; replies {"userID", "userName", "sessionToken"} or null. */
+    private CompletableFuture<Request> handleAuthUser(ClientSession session, UpdateMessage msg) throws IOException {
         var creds = mapper.readValue(msg.getPayload(), new TypeReference<Map<String, String>>() {});
-        String username = creds.get("userName");
-        String password = creds.get("password");
-        Optional<User> opt = userService.authenticate(username, password);
-        reply(out, "AUTH_USER_REPLY", opt.map(user -> {
-            try {
-                return mapper.writeValueAsString(user);
-            } catch (IOException e) {
-                logger.error("Failed to serialize authenticated user", e);
-                return "null";
-            }
-        }).orElse("null"));
+        return login(session, creds.get("userName"), creds.get("password"), creds.get("sessionToken")).thenApply(login -> () -> {
+            reply(session, msg, "AUTH_USER_REPLY", login.isPresent()
+                    ? mapper.writeValueAsString(new AuthReplyV1(login.get().userID(), login.get().userName(), login.get().token()))
+                    : "null");
+            return login.isPresent() ? 1 : 0;
+        });
     }
 
-    private void handleEnrollParticipant(OutputStream out, UpdateMessage msg) throws IOException {
+    private record AuthReplyV1(int userID, String userName, String sessionToken) {}
+
+    private int handleEnrollParticipant(ClientSession session, UpdateMessage msg) throws IOException {
         // Validate payload
         String[] parts = msg.getPayload().split(",");
         if (parts.length != 2) {
             logger.error("Bad ENROLL payload: {}", msg.getPayload());
-            reply(out, "ERROR", "Payload must be: participantID,competitionID");
-            return;
+            reply(session, msg, "ERROR", "Payload must be: participantID,competitionID");
+            return 0;
         }
         // Parse IDs and enroll
-        int participantID = Integer.parseInt(parts[0]);
-        int competitionID = Integer.parseInt(parts[1]);
-        competitionService.enrollParticipant(participantID, competitionID);
-        broadcastUpdate();
+        enrollParticipant(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+        // Legacy clients never expected an answer here; only callers waiting on a request id get one
+        if (msg.getRequestId() != 0) {
+            reply(session, msg, "ENROLL_PARTICIPANT_REPLY", "");
+        }
+        return 0;
+    }
+
+    private int handleBulkEnroll(ClientSession session, UpdateMessage msg) throws IOException {
+        List<BulkEnrollDTO> rows = mapper.readValue(msg.getPayload(), new TypeReference<>() {});
+        List<BulkEnrollResultDTO> results = bulkEnroll(rows);
+        reply(session, msg, "BULK_ENROLL_REPLY", mapper.writeValueAsString(results));
+        return results.size();
+    }
+
+    private int handleEnrollByType(ClientSession session, UpdateMessage msg) throws IOException {
+        BulkEnrollResultDTO result = enrollByType(mapper.readValue(msg.getPayload(), BulkEnrollDTO.class));
+        reply(session, msg, "ENROLL_BY_TYPE_REPLY", mapper.writeValueAsString(result));
+        return 1;
+    }
+
+    // ----- v2: typed Envelope bodies -----
+
+    private int processV2(ClientSession session, Envelope env) throws IOException {
+        return switch (env.getType()) {
+            case ADD_PARTICIPANT -> {
+                Participant p = addParticipant(env.getParticipant().getName(), env.getParticipant().getAge());
+                int rows = send(session, env, Envelope.newBuilder().setType(MessageType.ADD_PARTICIPANT_REPLY)
+                        .setParticipant(ProtoMapper.toProto(p)));
+                broadcaster.publish(ChangeEvent.participantAdded(p));
+                yield rows;
+            }
+            case GET_PARTICIPANTS_FOR_COMP -> send(session, env, Envelope.newBuilder()
+                    .setType(MessageType.GET_PARTICIPANTS_FOR_COMP_REPLY)
+                    .setParticipants(ProtoMapper.participantList(
+                            participantService.getParticipantsForCompetition(env.getCompetitionId()))));
+            case GET_ALL_COMPETITIONS -> {
+                Envelope.Builder reply = Envelope.newBuilder().setType(MessageType.GET_ALL_COMPETITIONS_REPLY);
+                if (env.hasPage()) {
+                    Page page = Page.of(env.getPage());
+                    reply.setCompetitions(ProtoMapper.competitionPage(
+                            competitionService.getPage(page.afterId(), page.limit()), page.limit()));
+                } else {
+                    reply.setCompetitions(ProtoMapper.competitionList(competitionService.getAll()));
+                }
+                yield send(session, env, reply);
+            }
+            case GET_ALL_PARTICIPANTS -> {
+                Envelope.Builder reply = Envelope.newBuilder().setType(MessageType.GET_ALL_PARTICIPANTS_REPLY);
+                if (env.hasPage()) {
+                    Page page = Page.of(env.getPage());
+                    reply.setParticipants(ProtoMapper.participantPage(
+                            participantService.getPage(page.afterId(), page.limit()), page.limit()));
+                } else {
+                    reply.setParticipants(ProtoMapper.participantList(participantService.getAll()));
+                }
+                yield send(session, env, reply);
+            }
+            case GET_ALL_USERS -> {
+                Envelope.Builder reply = Envelope.newBuilder().setType(MessageType.GET_ALL_USERS_REPLY);
+                if (env.hasPage()) {
+                    Page page = Page.of(env.getPage());
+                    reply.setUsers(ProtoMapper.userPage(userService.getPage(page.afterId(), page.limit()), page.limit()));
+                } else {
+                    reply.setUsers(ProtoMapper.userList(userService.getAll()));
+                }
+                yield send(session, env, reply);
+            }
+            case ENROLL_PARTICIPANT -> {
+                enrollParticipant(env.getEnroll().getParticipantId(), env.getEnroll().getCompetitionId());
+                yield send(session, env, Envelope.newBuilder().setType(MessageType.ENROLL_PARTICIPANT_REPLY));
+            }
+            case FILTER_COMPETITIONS -> send(session, env, Envelope.newBuilder()
+                    .setType(MessageType.FILTER_COMPETITIONS_REPLY)
+                    .setCompetitions(ProtoMapper.competitionList(
+                            competitionService.filter(env.getFilter().getType(), env.getFilter().getAge()))));
+            case BULK_ENROLL -> send(session, env, Envelope.newBuilder()
+                    .setType(MessageType.BULK_ENROLL_REPLY)
+                    .setBulkEnrollReply(ProtoMapper.bulkEnrollReply(bulkEnroll(
+                            env.getBulkEnroll().getRowsList().stream().map(ProtoMapper::toDomain).toList()))));
+            case ENROLL_BY_TYPE -> send(session, env, Envelope.newBuilder()
+                    .setType(MessageType.ENROLL_BY_TYPE_REPLY)
+                    .setEnrollment(ProtoMapper.toProto(enrollByType(ProtoMapper.toDomain(env.getEnrollByType())))));
+            default -> {
+                logger.warn("Unknown message type: {}", env.getType());
+                yield 0;
+            }
+        };
+    }
+
+    private CompletableFuture<Request> authUserV2(ClientSession session, Envelope env) {
+        AuthRequest auth = env.getAuth();
+        return login(session, auth.getUserName(), auth.getPassword(), auth.getSessionToken()).thenApply(login -> () -> {
+            AuthReply.Builder authReply = AuthReply.newBuilder().setSuccess(login.isPresent());
+            login.ifPresent(l -> authReply.setUser(ProtoMapper.toProto(l)).setSessionToken(l.token()));
+            return send(session, env, Envelope.newBuilder().setType(MessageType.AUTH_USER_REPLY).setAuthReply(authReply));
+        });
+    }
+
+    // ----- Protocol-independent operations -----
+
+    /**
+     * Log the connection in with a password, opening a new session, or with the token of an open one,
+     * which needs no database lookup. A failed attempt leaves the connection anonymous.
+     */
+    private CompletableFuture<Optional<SessionService.Session>> login(ClientSession session, String userName,
+                                                                      String password, String token) {
+        CompletableFuture<Optional<SessionService.Session>> login = token != null && !token.isEmpty()
+                ? CompletableFuture.completedFuture(sessionService.validate(token))
+                : userService.authenticateAsync(userName, password).thenApply(user -> user.map(sessionService::issue));
+        return login.thenApply(result -> {
+            session.setLogin(result.orElse(null));
+            return result;
+        });
+    }
+
+    /** Forget a login whose session has expired or was revoked; a map lookup per request, no query. */
+    private void checkLogin(ClientSession session) {
+        SessionService.Session login = session.getLogin();
+        if (login != null && sessionService.validate(login.token()).isEmpty()) {
+            session.setLogin(null);
+        }
+    }
+
+    private Participant addParticipant(String name, int age) {
+        if (EntryValidator.validateNameAndAge(name, age)) {
+            logger.debug("Valid participant data: name={}, age={}", name, age);
+        }
+        return participantService.add(new Participant(null, name, age));
+    }
+
+    private void enrollParticipant(int participantID, int competitionID) {
+        // The count committed by this enrollment; reading it back afterwards could see a later one and
+        // publish the counts out of order
+        int count = competitionService.enrollParticipant(participantID, competitionID);
+
+        // Look the participant up once here rather than having every client re-fetch it
+        Participant participant = participantService.getById(participantID);
+        broadcaster.publish(
+                ChangeEvent.enrollmentAdded(participant, competitionID),
+                ChangeEvent.competitionCountChanged(competitionID, count));
+    }
+
+    /** Enroll the rows, then tell every client about all of it in one UPDATE. */
+    private List<BulkEnrollResultDTO> bulkEnroll(List<BulkEnrollDTO> rows) {
+        logger.debug("Bulk enrolling {} rows", rows.size());
+        List<BulkEnrollResultDTO> results = competitionService.bulkEnroll(rows);
+        publishEnrolled(results);
+        return results;
+    }
+
+    /** Add and enroll one participant, resolving the competitions from its age and the requested types. */
+    private BulkEnrollResultDTO enrollByType(BulkEnrollDTO row) {
+        BulkEnrollResultDTO result = competitionService.enrollByType(row);
+        publishEnrolled(List.of(result));
+        return result;
+    }
+
+    /** Tell every client about the saved rows, all of it in one UPDATE. */
+    private void publishEnrolled(List<BulkEnrollResultDTO> results) {
+        List<ChangeEvent> events = new ArrayList<>();
+        Set<Integer> touched = new TreeSet<>();
+        for (BulkEnrollResultDTO result : results) {
+            if (!result.isSuccess()) continue;
+            events.add(ChangeEvent.participantAdded(result.getParticipant()));
+            for (int competitionID : result.getCompetitionIDs()) {
+                events.add(ChangeEvent.enrollmentAdded(result.getParticipant(), competitionID));
+                touched.add(competitionID);
+            }
+        }
+        for (int competitionID : touched) {
+            events.add(ChangeEvent.competitionCountChanged(
+                    competitionID, competitionService.getById(competitionID).getNrOfParticipants()));
+        }
+        if (!events.isEmpty()) {
+            broadcaster.publish(events.toArray(ChangeEvent[]::new));
+        }
+    }
+
+    // ----- Writing -----
+
+    private void reply(ClientSession session, UpdateMessage request, String type, String payload) throws IOException {
+        reply(session, request.getRequestId(), type, payload);
+    }
+
+    private void reply(ClientSession session, long requestId, String type, String payload) throws IOException {
+        write(session, UpdateMessage.newBuilder()
+                .setType(type)
+                .setPayload(payload)
+                .setRequestId(requestId)
+                .build());
+    }
+
+    /** Write the reply; returns the number of rows it carries, for the request log. */
+    private int send(ClientSession session, Envelope request, Envelope.Builder reply) throws IOException {
+        Envelope built = reply.setRequestId(request.getRequestId()).build();
+        write(session, built);
+        return rowCount(built);
+    }
+
+    private static int rowCount(Envelope reply) {
+        return switch (reply.getBodyCase()) {
+            case COMPETITIONS      -> reply.getCompetitions().getCompetitionsCount();
+            case PARTICIPANTS      -> reply.getParticipants().getParticipantsCount();
+            case USERS             -> reply.getUsers().getUsersCount();
+            case BULK_ENROLL_REPLY -> reply.getBulkEnrollReply().getResultsCount();
+            case PARTICIPANT, ENROLLMENT -> 1;
+            case AUTH_REPLY        -> reply.getAuthReply().getSuccess() ? 1 : 0;
+            default                -> 0;
+        };
+    }
+
+    private void replyError(ClientSession session, long requestId, String message) throws IOException {
+        if (session.getProtocolVersion() >= 2) {
+            write(session, Envelope.newBuilder()
+                    .setType(MessageType.ERROR)
+                    .setRequestId(requestId)
+                    .setError(message)
+                    .build());
+        } else {
+            reply(session, requestId, "ERROR", message);
+        }
+    }
+
+    private static void write(ClientSession session, MessageLite message) throws IOException {
+        OutputStream to = session.getOut();
+        session.getWriteLock().lock();
+        try {
+            message.writeDelimitedTo(to);
+            to.flush();
+        } finally {
+            session.getWriteLock().unlock();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,91 @@
+package com.Network;
+
+import com.Service.SessionService;
+import com.Util.AppConfig;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.io.OutputStream;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-connection state. Every write to {@link #out} happens while holding {@link #writeLock} so replies
+ * and broadcast frames never interleave. It is a {@link ReentrantLock} rather than the stream's monitor
+ * because the writes block on the socket, and a virtual thread blocking inside {@code synchronized}
+ * pins its carrier.
+ */
+@RequiredArgsConstructor
+public class ClientSession {
+    /** Protocol spoken by clients that never send HELLO. */
+    public static final int LEGACY_PROTOCOL = 1;
+    public static final int LATEST_PROTOCOL = 2;
+    /** Read requests one client may have running at once before the server stops reading its socket. */
+    public static final int MAX_IN_FLIGHT_READS = AppConfig.getInt("server.maxInFlightReads", 32);
+
+    @Getter
+    private final OutputStream out;
+    @Getter
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /** Switched once, by the HELLO handshake, before any v2 frame is read. */
+    @Getter @Setter
+    private volatile int protocolVersion = LEGACY_PROTOCOL;
+
+    /** Who logged in on this connection with AUTH_USER; null while it is anonymous or once the session ends. */
+    @Getter @Setter
+    private volatile SessionService.Session login;
+
+    // Read requests dispatched concurrently from this connection, and who to tell when one finishes
+    private final ReentrantLock readSlots    = new ReentrantLock();
+    private final Condition     readFinished = readSlots.newCondition();
+    private int                 inFlightReads;
+    private Runnable            resumeReads;
+
+    /** Take a slot for a concurrent read, waiting while all {@link #MAX_IN_FLIGHT_READS} are taken. */
+    public void startRead() {
+        readSlots.lock();
+        try {
+            while (inFlightReads >= MAX_IN_FLIGHT_READS) {
+                readFinished.awaitUninterruptibly();
+            }
+            inFlightReads++;
+        } finally {
+            readSlots.unlock();
+        }
+    }
+
+    /**
+     * Take a slot for a concurrent read without waiting. When all are taken this runs {@code pause} and
+     * returns false, and {@code resume} runs once a slot frees up; {@code pause} always runs first.
+     */
+    public boolean tryStartRead(Runnable pause, Runnable resume) {
+        readSlots.lock();
+        try {
+            if (inFlightReads < MAX_IN_FLIGHT_READS) {
+                inFlightReads++;
+                return true;
+            }
+            pause.run();
+            resumeReads = resume;
+            return false;
+        } finally {
+            readSlots.unlock();
+        }
+    }
+
+    public void finishRead() {
+        Runnable resume;
+        readSlots.lock();
+        try {
+            inFlightReads--;
+            readFinished.signal();
+            resume = resumeReads;
+            resumeReads = null;
+        } finally {
+            readSlots.unlock();
+        }
+        if (resume != null) resume.run();
+    }
+}
@@ -0,0 +1,67 @@
+package com.Network;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * {@code GET /metrics} in the Prometheus text format for the socket server, which has no HTTP stack of its
+ * own (the Spring app serves the same registry at {@code /actuator/prometheus}). The scrape is rendered on
+ * the endpoint's own thread, so a slow scraper never holds up a client request.
+ */
+public final class MetricsEndpoint implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsEndpoint.class);
+
+    private final HttpServer              http;
+    private final PrometheusMeterRegistry registry;
+
+    private MetricsEndpoint(HttpServer http, PrometheusMeterRegistry registry) {
+        this.http     = http;
+        this.registry = registry;
+    }
+
+    /** Starts serving on {@code port}; returns null, and serves nothing, when the port is 0. */
+    public static MetricsEndpoint start(int port, PrometheusMeterRegistry registry) throws IOException {
+        if (port == 0) return null;
+        HttpServer http = HttpServer.create(new InetSocketAddress(port), 0);
+        MetricsEndpoint endpoint = new MetricsEndpoint(http, registry);
+        http.createContext("/metrics", endpoint::scrape);
+        http.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-endpoint");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        http.start();
+        logger.info("Metrics available at http://localhost:{}/metrics", port);
+        return endpoint;
+    }
+
+    private void scrape(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", TextFormat.CONTENT_TYPE_004);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        http.stop(0);
+    }
+}
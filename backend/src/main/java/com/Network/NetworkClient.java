@@ -1,43 +1,356 @@
 package com.Network;
 
 import Network.UpdateMessage;
+import Network.v2.Envelope;
+import Network.v2.MessageType;
+
+import com.google.protobuf.MessageLite;
 
 import java.io.*;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
+/**
+ * Socket connection to the server.
+ * {@link #send} is fire-and-forget and its reply arrives through the {@code onReceived} callback, as do
+ * UPDATE pushes. {@link #request} tags the message with a request id instead and completes the returned
+ * future with the matching reply, so any number of requests can be in flight at once.
+ * Futures complete on the reader thread; hand heavy or UI work off with the {@code *Async} methods or
+ * {@code Platform.runLater}.
+ *
+ * Outgoing messages go into a bounded queue that a single writer thread drains through a buffered stream,
+ * flushing once the queue is empty. When the queue is full (the server is not keeping up) a send is
+ * rejected, except for the fire-and-forget list queries in {@link #COALESCED}: a newer one replaces the
+ * copy still queued, since only the latest answer matters. While disconnected every send is rejected.
+ *
+ * If the connection drops, pending requests fail and the reader thread reconnects with exponential backoff.
+ * UPDATEs pushed in the meantime are lost, so {@code onReconnected} runs after every reconnect for the
+ * caller to fetch its state again.
+ */
 public class NetworkClient {
-    private Socket socket;
+    public  static final int  DEFAULT_QUEUE_CAPACITY = 256;
+    private static final int  CONNECT_TIMEOUT_MS     = 5_000;
+    private static final long MIN_BACKOFF_MS         = 100;
+    private static final long MAX_BACKOFF_MS         = 10_000;
+    private static final Set<String> COALESCED = Set.of(
+            "GET_ALL_COMPETITIONS", "FILTER_COMPETITIONS", "GET_ALL_PARTICIPANTS", "GET_ALL_USERS");
+
+    private record Connection(Socket socket, InputStream in, OutputStream out) {}
+
+    private record Outbound(MessageLite frame, long requestId, String coalesceKey) {}
+
+    private final BlockingQueue<Outbound>                     outbound;
+    private final AtomicLong                                  nextRequestId = new AtomicLong();
+    private final Map<Long, CompletableFuture<UpdateMessage>> pending       = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<Envelope>>      pendingV2     = new ConcurrentHashMap<>();
+
+    private String                  host;
+    private int                     port;
+    private int                     protocol;
+    private Consumer<UpdateMessage> onReceived;
+    private Consumer<Envelope>      onReceivedV2;
+    private Runnable                onReconnected;
+    private Thread                  reader;
+    private Thread                  writer;
+    private volatile Connection     connection;
+    private volatile boolean        closed;
+
+    public NetworkClient() {
+        this(DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public NetworkClient(int queueCapacity) {
+        this.outbound = new LinkedBlockingQueue<>(queueCapacity);
+    }
 
     public void start(String host, int port, Consumer<UpdateMessage> onReceived) {
-        try {
-            socket = new Socket(host, port);
-            socket.setTcpNoDelay(true);
+        start(host, port, onReceived, () -> {});
+    }
 
-            new Thread(() -> {
-                try {
-                    UpdateMessage msg;
-                    while ((msg = UpdateMessage.parseDelimitedFrom(socket.getInputStream())) != null) {
-                        onReceived.accept(msg);
-                    }
-                } catch (IOException ignored) {}
-            }).start();
-            System.out.println("Connected to server");
+    /**
+     * Connect over protocol v1. If the server is unreachable this returns anyway and keeps retrying in the
+     * background; {@code onReconnected} runs on the reader thread once it gets through.
+     */
+    public void start(String host, int port, Consumer<UpdateMessage> onReceived, Runnable onReconnected) {
+        this.onReceived = onReceived;
+        begin(host, port, ClientSession.LEGACY_PROTOCOL, onReconnected);
+    }
+
+    public void startV2(String host, int port, Consumer<Envelope> onReceived) {
+        startV2(host, port, onReceived, () -> {});
+    }
+
+    /**
+     * Connect and negotiate protocol v2 (again on every reconnect). From then on requests go through
+     * {@link #send(Envelope)} or {@link #request(Envelope.Builder)} and every reply or UPDATE arrives as a
+     * typed {@link Envelope}.
+     */
+    public void startV2(String host, int port, Consumer<Envelope> onReceived, Runnable onReconnected) {
+        this.onReceivedV2 = onReceived;
+        begin(host, port, ClientSession.LATEST_PROTOCOL, onReconnected);
+    }
+
+    private synchronized void begin(String host, int port, int protocol, Runnable onReconnected) {
+        if (reader != null) throw new IllegalStateException("Client already started");
+        this.host          = host;
+        this.port          = port;
+        this.protocol      = protocol;
+        this.onReconnected = onReconnected;
+        try {
+            connection = connect();
+            System.out.println("Connected to server" + (protocol >= 2 ? " (protocol v" + protocol + ")" : ""));
         } catch (IOException ex) {
-            System.err.println("Cannot connect: " + ex.getMessage());
+            System.err.println("Cannot connect: " + ex.getMessage() + ", retrying in the background");
         }
+        reader = Thread.ofPlatform().name("network-client-reader").daemon().start(this::readLoop);
+        writer = Thread.ofPlatform().name("network-client-writer").daemon().start(this::writeLoop);
     }
 
-    public void send(String type, String payload) {
+    /** Whether a connection is up right now; sends fail while it is not. */
+    public boolean isConnected() {
+        return connection != null;
+    }
+
+    /** Stop reconnecting and close the connection; pending requests fail. */
+    public void close() {
+        closed = true;
+        Connection conn = connection;
+        if (conn != null) closeQuietly(conn.socket());
+        if (writer != null) writer.interrupt();
+        if (reader != null) reader.interrupt();
+        failPending(new IOException("Client closed"));
+    }
+
+    /** Queue a fire-and-forget v1 message; false if it was rejected (disconnected or queue full). */
+    public boolean send(String type, String payload) {
+        return send(UpdateMessage.newBuilder()
+                .setType(type)
+                .setPayload(payload)
+                .build(), COALESCED.contains(type) ? type : null);
+    }
+
+    /** Queue a fire-and-forget v2 message; false if it was rejected (disconnected or queue full). */
+    public boolean send(Envelope envelope) {
+        String type = envelope.getType().name();
+        return send(envelope, envelope.getRequestId() == 0 && COALESCED.contains(type) ? type : null);
+    }
+
+    private boolean send(MessageLite message, String coalesceKey) {
         try {
-            UpdateMessage.newBuilder()
-                    .setType(type)
-                    .setPayload(payload)
-                    .build()
-                    .writeDelimitedTo(socket.getOutputStream());
+            enqueue(new Outbound(message, 0, coalesceKey));
+            return true;
         } catch (IOException ex) {
             System.err.println("Send failed: " + ex.getMessage());
+            return false;
         }
     }
-}
 
+    /** Send a v1 request and complete with its reply, or exceptionally if the server answers ERROR. */
+    public CompletableFuture<UpdateMessage> request(String type, String payload) {
+        long id = nextRequestId.incrementAndGet();
+        CompletableFuture<UpdateMessage> reply = new CompletableFuture<>();
+        pending.put(id, reply);
+        try {
+            enqueue(new Outbound(UpdateMessage.newBuilder().setType(type).setPayload(payload).setRequestId(id).build(), id, null));
+        } catch (IOException ex) {
+            pending.remove(id);
+            reply.completeExceptionally(ex);
+        }
+        return reply;
+    }
+
+    /** Send a v2 request and complete with its reply, or exceptionally if the server answers ERROR. */
+    public CompletableFuture<Envelope> request(Envelope.Builder envelope) {
+        long id = nextRequestId.incrementAndGet();
+        CompletableFuture<Envelope> reply = new CompletableFuture<>();
+        pendingV2.put(id, reply);
+        try {
+            enqueue(new Outbound(envelope.setRequestId(id).build(), id, null));
+        } catch (IOException ex) {
+            pendingV2.remove(id);
+            reply.completeExceptionally(ex);
+        }
+        return reply;
+    }
+
+    private void enqueue(Outbound message) throws IOException {
+        if (connection == null) throw new IOException("Not connected to server");
+        // Under the lock so two coalescing sends cannot both leave their copy queued
+        synchronized (outbound) {
+            if (message.coalesceKey() != null) {
+                outbound.removeIf(queued -> message.coalesceKey().equals(queued.coalesceKey()));
+            }
+            if (!outbound.offer(message)) throw new IOException("Outbound queue full, server is not keeping up");
+        }
+    }
+
+    // ----- Connection -----
+
+    private Connection connect() throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            socket.setTcpNoDelay(true);
+            Connection conn = new Connection(socket,
+                    new BufferedInputStream(socket.getInputStream()),
+                    new BufferedOutputStream(socket.getOutputStream()));
+            if (protocol >= 2) {
+                // Not published yet, so the writer thread cannot interleave with the handshake
+                UpdateMessage.newBuilder().setType("HELLO").setPayload(String.valueOf(protocol)).build()
+                        .writeDelimitedTo(conn.out());
+                conn.out().flush();
+                UpdateMessage hello = UpdateMessage.parseDelimitedFrom(conn.in());
+                if (hello == null || !"HELLO_REPLY".equals(hello.getType())
+                        || Integer.parseInt(hello.getPayload()) != protocol) {
+                    throw new IOException("Server does not support protocol v" + protocol);
+                }
+            }
+            return conn;
+        } catch (IOException ex) {
+            closeQuietly(socket);
+            throw ex;
+        }
+    }
+
+    /** Reads the current connection until it drops, then reconnects; the only thread that reads. */
+    private void readLoop() {
+        long backoff = MIN_BACKOFF_MS;
+        while (!closed) {
+            Connection conn = connection;
+            if (conn == null) {
+                try {
+                    conn = connect();
+                } catch (IOException ex) {
+                    pause(backoff);
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+                    continue;
+                }
+                connection = conn;
+                System.out.println("Reconnected to server");
+                runCallback(onReconnected);
+            }
+
+            long connectedAt = System.nanoTime();
+            try {
+                read(conn);
+            } catch (IOException ignored) {
+            }
+            disconnected(conn);
+            if (closed) break;
+            System.err.println("Connection to server lost, reconnecting");
+            // A connection that keeps dropping straight away backs off further instead of hammering the server
+            boolean stable = System.nanoTime() - connectedAt > TimeUnit.MILLISECONDS.toNanos(MAX_BACKOFF_MS);
+            backoff = stable ? MIN_BACKOFF_MS : Math.min(backoff * 2, MAX_BACKOFF_MS);
+            pause(backoff);
+        }
+    }
+
+    private void read(Connection conn) throws IOException {
+        if (protocol >= 2) {
+            Envelope env;
+            while ((env = Envelope.parseDelimitedFrom(conn.in())) != null) {
+                CompletableFuture<Envelope> waiting = pendingV2.remove(env.getRequestId());
+                if (waiting == null) {
+                    Envelope received = env;
+                    runCallback(() -> onReceivedV2.accept(received));
+                } else if (env.getType() == MessageType.ERROR) {
+                    waiting.completeExceptionally(new RuntimeException(env.getError()));
+                } else {
+                    waiting.complete(env);
+                }
+            }
+        } else {
+            UpdateMessage msg;
+            while ((msg = UpdateMessage.parseDelimitedFrom(conn.in())) != null) {
+                CompletableFuture<UpdateMessage> waiting = pending.remove(msg.getRequestId());
+                if (waiting == null) {
+                    UpdateMessage received = msg;
+                    runCallback(() -> onReceived.accept(received));
+                } else if ("ERROR".equals(msg.getType())) {
+                    waiting.completeExceptionally(new RuntimeException(msg.getPayload()));
+                } else {
+                    waiting.complete(msg);
+                }
+            }
+        }
+    }
+
+    /** Drains the queue onto the current connection, flushing whenever it runs empty. */
+    private void writeLoop() {
+        while (!closed) {
+            Outbound next;
+            try {
+                next = outbound.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            Connection conn = connection;
+            if (conn == null) {
+                // Queued just as the connection dropped
+                failRequest(next.requestId(), new IOException("Connection lost"));
+                continue;
+            }
+            try {
+                do {
+                    next.frame().writeDelimitedTo(conn.out());
+                } while ((next = outbound.poll()) != null);
+                conn.out().flush();
+            } catch (IOException ex) {
+                // The reader sees the closed socket and reconnects
+                closeQuietly(conn.socket());
+            }
+        }
+    }
+
+    private void disconnected(Connection conn) {
+        connection = null;
+        closeQuietly(conn.socket());
+        outbound.clear();
+        failPending(new IOException("Connection lost"));
+    }
+
+    private void failRequest(long requestId, IOException cause) {
+        if (requestId == 0) return;
+        CompletableFuture<?> waiting = pending.remove(requestId);
+        if (waiting == null) waiting = pendingV2.remove(requestId);
+        if (waiting != null) waiting.completeExceptionally(cause);
+    }
+
+    private void failPending(IOException cause) {
+        pending.values().forEach(f -> f.completeExceptionally(cause));
+        pending.clear();
+        pendingV2.values().forEach(f -> f.completeExceptionally(cause));
+        pendingV2.clear();
+    }
+
+    // A throwing callback must not take the reader thread, and with it the connection, down
+    private static void runCallback(Runnable callback) {
+        try {
+            callback.run();
+        } catch (RuntimeException ex) {
+            System.err.println("Message handler failed: " + ex);
+        }
+    }
+
+    private void pause(long millis) {
+        try {
+            // Jitter so a restarted server is not hit by every desk at the same instant
+            Thread.sleep(millis / 2 + ThreadLocalRandom.current().nextLong(millis / 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.Network;
+
+import com.Util.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Selector-driven variant of {@link Server}.
+ * A single thread accepts, reads and writes every socket and splits the inbound byte stream into
+ * varint length-delimited frames. Frames are decoded and handled on a worker pool (the protocol version
+ * can change mid-stream, so only the worker knows how to parse them); frames from the same connection
+ * are taken one at a time and in arrival order, and {@link ClientHandler} decides which of them may
+ * then run concurrently; once a client has {@code server.maxInFlightReads} of those running, its socket
+ * is not read again until one finishes, rather than a worker waiting for it. Replies and updates wait in
+ * a per-connection queue for the selector to write; a client that stops reading until more than
+ * {@code server.nio.maxQueuedBytes} are waiting is dropped.
+ */
+public class NioServer {
+    private static final Logger logger = LoggerFactory.getLogger(NioServer.class);
+    private static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+    private static final int READ_BUFFER_BYTES = 8 * 1024;
+    private static final long MAX_QUEUED_BYTES = AppConfig.getLong("server.nio.maxQueuedBytes", 4L * 1024 * 1024);
+
+    private final int                     port;
+    private final int                     maxConnections;
+    private final ClientHandler           handler;
+    private final UpdateBroadcaster       broadcaster;
+    private final ExecutorService         workers;
+    private final Queue<Connection>       pendingInterest = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger           connectionCount = new AtomicInteger();
+    private Selector                      selector;
+
+    public NioServer(int port, int maxConnections, ClientHandler handler,
+                     UpdateBroadcaster broadcaster, ExecutorService workers) {
+        this.port           = port;
+        this.maxConnections = maxConnections;
+        this.handler        = handler;
+        this.broadcaster    = broadcaster;
+        this.workers        = workers;
+    }
+
+    public void start() {
+        try (Selector sel = Selector.open();
+             ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            selector = sel;
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(sel, SelectionKey.OP_ACCEPT);
+            logger.info("NIO server listening on port {}", port);
+
+            while (true) {
+                sel.select();
+                Connection pending;
+                while ((pending = pendingInterest.poll()) != null) {
+                    pending.updateInterest();
+                }
+                Iterator<SelectionKey> it = sel.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept(serverChannel);
+                        continue;
+                    }
+                    Connection conn = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) conn.read();
+                        if (key.isValid() && key.isWritable()) conn.write();
+                    } catch (IOException e) {
+                        logger.info("Client disconnected: {}", e.getMessage());
+                        conn.close();
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            logger.error("Failed to start NIO server on port {}: {}", port, ex.getMessage(), ex);
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    private void accept(ServerSocketChannel serverChannel) throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+        if (connectionCount.get() >= maxConnections) {
+            logger.warn("Rejecting {}: {} connections already open", channel.getRemoteAddress(), maxConnections);
+            channel.close();
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(java.net.StandardSocketOptions.TCP_NODELAY, true);
+        Connection conn = new Connection(channel);
+        conn.key = channel.register(selector, SelectionKey.OP_READ, conn);
+        connectionCount.incrementAndGet();
+        broadcaster.register(conn.session, conn::abort);
+        logger.info("Client connected: {}", channel.getRemoteAddress());
+    }
+
+    /** Read a base-128 varint, or return -1 (leaving the position undefined) if it is not complete yet. */
+    private static int readVarint(ByteBuffer buf) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (!buf.hasRemaining()) return -1;
+            byte b = buf.get();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+        }
+        throw new IOException("Malformed frame length");
+    }
+
+    /** Per-socket state. Everything except {@link #stream} and the inbox is touched only by the selector thread. */
+    private final class Connection {
+        private final SocketChannel              channel;
+        private final ChannelOutputStream        stream   = new ChannelOutputStream();
+        private final ClientSession              session  = new ClientSession(stream);
+        private final Queue<ByteBuffer>          outbound = new ConcurrentLinkedQueue<>();
+        private final AtomicLong                 queuedBytes = new AtomicLong();
+        private final AtomicBoolean              closed   = new AtomicBoolean();
+        private final Queue<byte[]>              inbox    = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean              draining = new AtomicBoolean();
+        private volatile boolean                 closeRequested;
+        private volatile boolean                 readPaused;
+        private ByteBuffer                       readBuf  = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        private SelectionKey                     key;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void read() throws IOException {
+            if (channel.read(readBuf) < 0) {
+                close();
+                return;
+            }
+            readBuf.flip();
+            while (readBuf.hasRemaining()) {
+                int frameStart = readBuf.position();
+                int length = readVarint(readBuf);
+                if (length > MAX_FRAME_BYTES || length < -1) {
+                    throw new IOException("Frame of " + length + " bytes exceeds limit");
+                }
+                if (length == -1 || readBuf.remaining() < length) {
+                    readBuf.position(frameStart);
+                    if (length > readBuf.capacity() - 5) {
+                        readBuf = grow(readBuf, length + 5);
+                    }
+                    break;
+                }
+                byte[] frame = new byte[length];
+                readBuf.get(frame);
+                enqueue(frame);
+            }
+            readBuf.compact();
+        }
+
+        private ByteBuffer grow(ByteBuffer current, int capacity) {
+            ByteBuffer bigger = ByteBuffer.allocate(capacity);
+            bigger.put(current);
+            bigger.flip();
+            return bigger;
+        }
+
+        private void enqueue(byte[] frame) {
+            inbox.add(frame);
+            if (draining.compareAndSet(false, true)) {
+                workers.execute(this::drainInbox);
+            }
+        }
+
+        /**
+         * Runs on a worker; keeps per-connection ordering by letting only one drainer run at a time.
+         * A frame the handler turns away stays at the head of the inbox, and the drain stops while still
+         * holding {@link #draining} until {@link #resumeReading} starts it again.
+         */
+        private void drainInbox() {
+            while (true) {
+                byte[] frame = inbox.peek();
+                if (frame == null) {
+                    draining.set(false);
+                    if (inbox.isEmpty() || !draining.compareAndSet(false, true)) return;
+                    continue;
+                }
+                if (!handler.tryProcess(session, frame, this::pauseReading, this::resumeReading)) return;
+                inbox.poll();
+            }
+        }
+
+        private void pauseReading() {
+            readPaused = true;
+            pendingInterest.add(this);
+            selector.wakeup();
+        }
+
+        private void resumeReading() {
+            readPaused = false;
+            pendingInterest.add(this);
+            selector.wakeup();
+            if (!closed.get()) workers.execute(this::drainInbox);
+        }
+
+        void write() throws IOException {
+            ByteBuffer buf;
+            while ((buf = outbound.peek()) != null) {
+                queuedBytes.addAndGet(-channel.write(buf));
+                if (buf.hasRemaining()) return;
+                outbound.poll();
+            }
+            key.interestOps(readPaused ? 0 : SelectionKey.OP_READ);
+            if (closeRequested) close();
+        }
+
+        /** Read unless paused; write while anything is queued or a close is waiting for the queue to empty. */
+        void updateInterest() {
+            if (key.isValid()) {
+                boolean writing = !outbound.isEmpty() || closeRequested;
+                key.interestOps((readPaused ? 0 : SelectionKey.OP_READ) | (writing ? SelectionKey.OP_WRITE : 0));
+            }
+        }
+
+        /** Drop the connection now, without writing what is still queued; callable from any thread. */
+        void abort() {
+            closeRequested = true;
+            outbound.clear();
+            queuedBytes.set(0);
+            close();
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true)) return;
+            key.cancel();
+            try { channel.close(); } catch (IOException ignored) {}
+            broadcaster.unregister(session);
+            connectionCount.decrementAndGet();
+        }
+
+        /** Buffers writes from handler threads and hands complete chunks to the selector on flush. */
+        private final class ChannelOutputStream extends OutputStream {
+            private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+            @Override
+            public synchronized void write(int b) throws IOException {
+                ensureOpen();
+                buffer.write(b);
+            }
+
+            @Override
+            public synchronized void write(byte[] b, int off, int len) throws IOException {
+                ensureOpen();
+                buffer.write(b, off, len);
+            }
+
+            @Override
+            public synchronized void flush() throws IOException {
+                ensureOpen();
+                if (buffer.size() == 0) return;
+                if (queuedBytes.addAndGet(buffer.size()) > MAX_QUEUED_BYTES) {
+                    logger.warn("Client has {} bytes waiting to be read, disconnecting", queuedBytes.get());
+                    buffer.reset();
+                    abort();
+                    throw new IOException("Client is not reading");
+                }
+                outbound.add(ByteBuffer.wrap(buffer.toByteArray()));
+                buffer.reset();
+                pendingInterest.add(Connection.this);
+                selector.wakeup();
+            }
+
+            @Override
+            public synchronized void close() {
+                closeRequested = true;
+                pendingInterest.add(Connection.this);
+                selector.wakeup();
+            }
+
+            private void ensureOpen() throws IOException {
+                if (closeRequested || !channel.isOpen()) {
+                    throw new IOException("Connection closed");
+                }
+            }
+        }
+    }
+}
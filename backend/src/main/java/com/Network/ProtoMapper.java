@@ -0,0 +1,134 @@
+package com.Network;
+
+import Network.v2.*;
+import com.DTO.BulkEnrollDTO;
+import com.DTO.BulkEnrollResultDTO;
+import com.DTO.ChangeEvent;
+import com.DTO.UpdateDTO;
+import com.Domain.Competition;
+import com.Domain.Participant;
+import com.Domain.User;
+import com.Service.SessionService;
+
+import java.util.List;
+
+/**
+ * Conversions between domain objects and the v2 protobuf messages.
+ */
+public final class ProtoMapper {
+    private ProtoMapper() {}
+
+    public static CompetitionData toProto(Competition c) {
+        return CompetitionData.newBuilder()
+                .setCompetitionId(c.getCompetitionID())
+                .setType(c.getType())
+                .setAgeCategory(c.getAgeCategory())
+                .setNrOfParticipants(c.getNrOfParticipants())
+                .build();
+    }
+
+    public static ParticipantData toProto(Participant p) {
+        ParticipantData.Builder b = ParticipantData.newBuilder()
+                .setName(p.getName())
+                .setAge(p.getAge());
+        if (p.getParticipantID() != null) b.setParticipantId(p.getParticipantID());
+        return b.build();
+    }
+
+    public static UserData toProto(User u) {
+        return UserData.newBuilder()
+                .setUserId(u.getUserID())
+                .setUserName(u.getUserName())
+                .build();
+    }
+
+    public static UserData toProto(SessionService.Session login) {
+        return UserData.newBuilder()
+                .setUserId(login.userID())
+                .setUserName(login.userName())
+                .build();
+    }
+
+    public static CompetitionList competitionList(List<Competition> list) {
+        CompetitionList.Builder b = CompetitionList.newBuilder();
+        list.forEach(c -> b.addCompetitions(toProto(c)));
+        return b.build();
+    }
+
+    public static ParticipantList participantList(List<Participant> list) {
+        ParticipantList.Builder b = ParticipantList.newBuilder();
+        list.forEach(p -> b.addParticipants(toProto(p)));
+        return b.build();
+    }
+
+    public static UserList userList(List<User> list) {
+        UserList.Builder b = UserList.newBuilder();
+        list.forEach(u -> b.addUsers(toProto(u)));
+        return b.build();
+    }
+
+    /** One keyset page out of at most {@code limit}; a full page points at the next one. */
+    public static CompetitionList competitionPage(List<Competition> page, int limit) {
+        CompetitionList.Builder b = competitionList(page).toBuilder();
+        if (page.size() == limit) b.setNextAfterId(page.get(page.size() - 1).getCompetitionID());
+        return b.build();
+    }
+
+    public static ParticipantList participantPage(List<Participant> page, int limit) {
+        ParticipantList.Builder b = participantList(page).toBuilder();
+        if (page.size() == limit) b.setNextAfterId(page.get(page.size() - 1).getParticipantID());
+        return b.build();
+    }
+
+    public static UserList userPage(List<User> page, int limit) {
+        UserList.Builder b = userList(page).toBuilder();
+        if (page.size() == limit) b.setNextAfterId(page.get(page.size() - 1).getUserID());
+        return b.build();
+    }
+
+    public static UpdateBatch toProto(UpdateDTO update) {
+        UpdateBatch.Builder b = UpdateBatch.newBuilder().setSeq(update.getSeq());
+        for (ChangeEvent event : update.getEvents()) {
+            ChangeEventData.Builder e = ChangeEventData.newBuilder();
+            switch (event.getKind()) {
+                case PARTICIPANT_ADDED -> e.setParticipantAdded(toProto(event.getParticipant()));
+                case ENROLLMENT_ADDED -> e.setEnrollmentAdded(EnrollmentAdded.newBuilder()
+                        .setParticipant(toProto(event.getParticipant()))
+                        .setCompetitionId(event.getCompetitionID()));
+                case COMPETITION_COUNT_CHANGED -> e.setCompetitionCountChanged(CompetitionCountChanged.newBuilder()
+                        .setCompetitionId(event.getCompetitionID())
+                        .setNrOfParticipants(event.getNrOfParticipants()));
+            }
+            b.addEvents(e);
+        }
+        return b.build();
+    }
+
+    public static BulkEnrollReply bulkEnrollReply(List<BulkEnrollResultDTO> results) {
+        BulkEnrollReply.Builder b = BulkEnrollReply.newBuilder();
+        for (BulkEnrollResultDTO r : results) {
+            b.addResults(toProto(r));
+        }
+        return b.build();
+    }
+
+    public static BulkEnrollResult toProto(BulkEnrollResultDTO r) {
+        BulkEnrollResult.Builder row = BulkEnrollResult.newBuilder().setRow(r.getRow()).setSuccess(r.isSuccess());
+        if (r.getParticipant() != null) row.setParticipant(toProto(r.getParticipant()));
+        if (r.getCompetitionIDs() != null) row.addAllCompetitionIds(r.getCompetitionIDs());
+        if (r.getError() != null) row.setError(r.getError());
+        return row.build();
+    }
+
+    public static Competition toDomain(CompetitionData c) {
+        return new Competition(c.getCompetitionId(), c.getType(), c.getAgeCategory(), c.getNrOfParticipants());
+    }
+
+    public static Participant toDomain(ParticipantData p) {
+        return new Participant(p.getParticipantId() == 0 ? null : p.getParticipantId(), p.getName(), p.getAge());
+    }
+
+    public static BulkEnrollDTO toDomain(BulkEnrollRow row) {
+        return new BulkEnrollDTO(row.getName(), row.getAge(), List.copyOf(row.getCompTypesList()));
+    }
+}
@@ -0,0 +1,56 @@
+package com.Network;
+
+import com.Util.AppConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One logfmt line per socket request worth looking at, e.g.
+ * {@code type=GET_ALL_PARTICIPANTS v=2 id=17 rows=1000 us=5321 status=ok reason=sample}.
+ * A request is written when it failed, took longer than {@code slowMs}, or falls in the random
+ * {@code sampleRate} fraction (so counts from sampled lines scale by 1 / sampleRate). Everything else costs
+ * a random draw, and when the log is disabled not even that: no line is formatted and no argument is boxed
+ * unless it is going to be written. The caller times the request, since {@link ServerMetrics} needs it anyway.
+ */
+public final class RequestLog {
+    private static final Logger logger = LoggerFactory.getLogger(RequestLog.class);
+
+    public static final RequestLog DISABLED = new RequestLog(0, 0);
+
+    private final double sampleRate;
+    private final long   slowNanos;
+    private final boolean enabled;
+
+    /**
+     * @param sampleRate fraction of ordinary requests to log, 0 to 1
+     * @param slowMs     requests at least this slow are always logged; 0 turns that off
+     */
+    public RequestLog(double sampleRate, long slowMs) {
+        this.sampleRate = sampleRate;
+        this.slowNanos  = slowMs > 0 ? slowMs * 1_000_000 : Long.MAX_VALUE;
+        this.enabled    = sampleRate > 0 || slowMs > 0;
+    }
+
+    public static RequestLog fromConfig() {
+        return new RequestLog(AppConfig.getDouble("log.requests.sampleRate", 0.01),
+                              AppConfig.getLong("log.requests.slowMs", 200));
+    }
+
+    public void finish(String type, int protocol, long requestId, long elapsedNanos, int rows, boolean failed) {
+        if (!enabled || !logger.isInfoEnabled()) return;
+        String reason;
+        if (failed) {
+            reason = "error";
+        } else if (elapsedNanos >= slowNanos) {
+            reason = "slow";
+        } else if (sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            reason = "sample";
+        } else {
+            return;
+        }
+        logger.info("type={} v={} id={} rows={} us={} status={} reason={}",
+                type, protocol, requestId, rows, elapsedNanos / 1_000, failed ? "error" : "ok", reason);
+    }
+}
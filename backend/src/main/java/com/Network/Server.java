@@ -1,19 +1,43 @@
 package com.Network;
 
-import com.Repository.Hibernate.CompetitionHibernateRepository;
-import com.Repository.Hibernate.ParticipantHibernateRepository;
-import com.Repository.Hibernate.UserHibernateRepository;
+import Network.UpdateMessage;
+import Network.v2.Envelope;
+import Network.v2.MessageType;
+import com.DTO.UpdateDTO;
+import com.Repository.Cached.CachingCompetitionRepository;
+import com.Repository.Cached.CachingParticipantRepository;
+import com.Repository.Cached.EnrollmentGraph;
+import com.Repository.Repositories;
+import com.Repository.RepositoryBackend;
 import com.Service.UserService;
+import com.Util.AppConfig;
+import com.Util.Metrics;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.Service.ParticipantService;
+import com.Service.SessionService;
 import com.Service.CompetitionService;
+import com.Service.EnrollmentJournal;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.core.instrument.binder.system.UptimeMetrics;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.*;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.LongSupplier;
 
 public class Server {
     private static final Logger logger = LoggerFactory.getLogger(Server.class);
@@ -21,40 +45,156 @@ public class Server {
     private final ParticipantService   participantService;
     private final CompetitionService   competitionService;
     private final UserService          userService;
+    private final SessionService       sessionService;
+    private final EnrollmentJournal    journal;
     private final ObjectMapper         mapper;
-    private final Set<OutputStream>    clientStreams;
+    private final UpdateBroadcaster    broadcaster;
     private final int                  port;
+    private final ServerMode           mode;
+    private final int                  maxConnections;
+    private final int                  workerThreads;
+    private final RepositoryBackend    backend;
 
     public Server(int port) {
+        this(port,
+             ServerMode.parse(AppConfig.getString("server.mode", "thread")),
+             AppConfig.getInt("server.maxConnections", 10_000),
+             AppConfig.getInt("server.workerThreads", Runtime.getRuntime().availableProcessors()));
+    }
+
+    public Server(int port, ServerMode mode, int maxConnections, int workerThreads) {
+        this(port, mode, maxConnections, workerThreads, RepositoryBackend.fromConfig());
+    }
+
+    public Server(int port, ServerMode mode, int maxConnections, int workerThreads, RepositoryBackend backend) {
         this.port = port;
+        this.mode = mode;
+        this.maxConnections     = maxConnections;
+        this.workerThreads      = workerThreads;
+        this.backend            = backend;
         this.mapper             = new ObjectMapper();
-        this.clientStreams      = ConcurrentHashMap.newKeySet();
-        this.participantService = new ParticipantService(new ParticipantHibernateRepository());
-        this.competitionService = new CompetitionService(new CompetitionHibernateRepository());
-        this.userService        = new UserService       (new UserHibernateRepository());
+        this.broadcaster        = new UpdateBroadcaster(
+                AppConfig.getLong("broadcast.coalesceWindowMs", 20),
+                AppConfig.getInt("broadcast.maxQueuedPerClient", 64),
+                Map.of(ClientSession.LEGACY_PROTOCOL, this::encodeUpdate,
+                       ClientSession.LATEST_PROTOCOL, update -> Envelope.newBuilder()
+                               .setType(MessageType.UPDATE)
+                               .setUpdate(ProtoMapper.toProto(update))
+                               .build()));
+        MeterRegistry registry = Metrics.registry();
+        Repositories repositories = backend.open().timed(registry);
+        LongSupplier dataVersion = backend.dataVersion();
+        long checkIntervalMs = AppConfig.getLong("repository.enrollments.checkIntervalMs", 1000);
+        EnrollmentGraph enrollments = EnrollmentGraph.over(repositories.participants(), dataVersion, checkIntervalMs);
+        // Registered before the caches below register theirs, so they re-read rows Hibernate no longer holds
+        enrollments.onReload(backend::evictCachedRows);
+        CachingCompetitionRepository competitions = new CachingCompetitionRepository(repositories.competitions(),
+                enrollments, dataVersion, checkIntervalMs);
+        competitions.onReload(backend::evictCachedRows);
+        CachingParticipantRepository participants = new CachingParticipantRepository(repositories.participants(), enrollments);
+        competitions.bindTo(registry);
+        try {
+            this.journal = new EnrollmentJournal(competitions, participants, enrollments, backend);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the enrollment journal", e);
+        }
+        journal.bindTo(registry);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                // Compacts the journal into the tables, so it goes first
+                journal.close();
+                repositories.close();
+            } catch (Exception e) {
+                logger.error("Failed to close the {} repositories", backend, e);
+            }
+        }, "repositories-close"));
+        this.participantService = new ParticipantService(participants, journal);
+        this.competitionService = new CompetitionService(competitions, journal);
+        this.userService        = new UserService(repositories.users());
+        this.sessionService     = new SessionService();
     }
 
     public void start() {
+        PrometheusMeterRegistry registry = Metrics.registry();
+        ClientHandler handler = new ClientHandler(
+                participantService,
+                competitionService,
+                userService,
+                sessionService,
+                mapper,
+                broadcaster,
+                RequestLog.fromConfig(),
+                new ServerMetrics(registry)
+        );
+        bindMetrics(registry);
+        logger.info("Starting server in {} mode on the {} backend", mode, backend);
+        switch (mode) {
+            case THREAD  -> acceptBlocking(handler, Thread::new);
+            case VIRTUAL -> acceptBlocking(handler, Thread.ofVirtual().name("client-", 0).factory());
+            case NIO     -> {
+                ExecutorService workers = Executors.newFixedThreadPool(workerThreads);
+                new ExecutorServiceMetrics(workers, "nio-workers", Tags.empty()).bindTo(registry);
+                new NioServer(port, maxConnections, handler, broadcaster, workers).start();
+            }
+        }
+    }
+
+    /** Everything but the request timers, which {@link ServerMetrics} registers as types show up. */
+    private void bindMetrics(PrometheusMeterRegistry registry) {
+        broadcaster.bindTo(registry);
+        userService.bindTo(registry);
+        sessionService.bindTo(registry);
+        Metrics.bindDatabase(registry, backend);
+        new JvmMemoryMetrics().bindTo(registry);
+        new JvmGcMetrics().bindTo(registry);
+        new JvmThreadMetrics().bindTo(registry);
+        new ProcessorMetrics().bindTo(registry);
+        new UptimeMetrics().bindTo(registry);
+        try {
+            MetricsEndpoint.start(AppConfig.getInt("metrics.port", 9400), registry);
+        } catch (IOException e) {
+            logger.warn("Metrics endpoint not started: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Accept loop for the blocking modes. Each connection gets its own thread from {@code threads};
+     * accepting pauses once {@code maxConnections} are open, leaving further clients in the listen backlog.
+     */
+    private void acceptBlocking(ClientHandler handler, ThreadFactory threads) {
+        Semaphore slots = new Semaphore(maxConnections);
         try (ServerSocket serverSocket = new ServerSocket(port)) {
             logger.info("Server listening on port {}", port);
             while (true) {
+                slots.acquireUninterruptibly();
                 Socket clientSocket = serverSocket.accept();
+                clientSocket.setTcpNoDelay(true);
                 logger.info("Client connected: {}", clientSocket.getInetAddress());
-                new Thread(new ClientHandler(
-                        clientSocket,
-                        participantService,
-                        competitionService,
-                        userService,
-                        mapper,
-                        clientStreams
-                )).start();
+                threads.newThread(() -> {
+                    try {
+                        handler.serve(clientSocket);
+                    } finally {
+                        slots.release();
+                    }
+                }).start();
             }
         } catch (IOException ex) {
             logger.error("Failed to start server on port {}: {}", port, ex.getMessage(), ex);
         }
     }
 
+    private UpdateMessage encodeUpdate(UpdateDTO update) {
+        try {
+            return UpdateMessage.newBuilder()
+                    .setType("UPDATE")
+                    .setPayload(mapper.writeValueAsString(update))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize update " + update.getSeq(), e);
+        }
+    }
+
     public static void main(String[] args) {
-        new Server(5000).start();
+        new Server(AppConfig.getInt("server.port", 5000)).start();
     }
 }
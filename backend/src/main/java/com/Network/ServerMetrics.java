@@ -0,0 +1,67 @@
+package com.Network;
+
+import Network.v2.MessageType;
+import com.Util.Metrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Per-message-type latency of socket requests: {@code socket.requests} (a histogram) and
+ * {@code socket.request.errors}, tagged with the type and the protocol version ({@code v1} / {@code v2}).
+ * v1 clients can send any type string, so types the server does not know are all recorded as {@code UNKNOWN}.
+ */
+public final class ServerMetrics {
+    /** Records into meters that do nothing, for handlers nobody scrapes. */
+    public static final ServerMetrics DISABLED = new ServerMetrics(new CompositeMeterRegistry());
+
+    private static final Set<String> KNOWN_TYPES = Stream.concat(Stream.of("HELLO"), Arrays.stream(MessageType.values())
+                    .filter(type -> type != MessageType.UNRECOGNIZED)
+                    .map(MessageType::name))
+            .collect(Collectors.toUnmodifiableSet());
+
+    private final MeterRegistry              registry;
+    // Indexed by protocol version, then keyed by type tag; bounded by the known types
+    private final Map<String, Meters>[]      meters;
+
+    private record Meters(Timer requests, Counter errors) {}
+
+    @SuppressWarnings("unchecked")
+    public ServerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.meters   = new Map[ClientSession.LATEST_PROTOCOL + 1];
+        Arrays.setAll(meters, i -> new ConcurrentHashMap<>());
+    }
+
+    public void recordRequest(String type, int protocol, long elapsedNanos, boolean failed) {
+        String typeTag = KNOWN_TYPES.contains(type) ? type : "UNKNOWN";
+        Meters m = meters[protocol].computeIfAbsent(typeTag, t -> register(t, protocol));
+        m.requests().record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (failed) m.errors().increment();
+    }
+
+    private Meters register(String typeTag, int protocol) {
+        String protocolTag = "v" + protocol;
+        Timer requests = Timer.builder("socket.requests")
+                .tag("type", typeTag)
+                .tag("protocol", protocolTag)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Metrics.MIN_EXPECTED_LATENCY)
+                .maximumExpectedValue(Metrics.MAX_EXPECTED_LATENCY)
+                .register(registry);
+        Counter errors = Counter.builder("socket.request.errors")
+                .tag("type", typeTag)
+                .tag("protocol", protocolTag)
+                .register(registry);
+        return new Meters(requests, errors);
+    }
+}
@@ -0,0 +1,17 @@
+package com.Network;
+
+/**
+ * How {@link Server} maps client connections onto threads. Selected with the {@code server.mode} property.
+ */
+public enum ServerMode {
+    /** One platform thread per connection (the original behaviour). */
+    THREAD,
+    /** One virtual thread per connection, bounded by {@code server.maxConnections}. */
+    VIRTUAL,
+    /** A single selector thread does all socket IO; requests are handled on a fixed worker pool. */
+    NIO;
+
+    public static ServerMode parse(String value) {
+        return ServerMode.valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,237 @@
+package com.Network;
+
+import com.DTO.ChangeEvent;
+import com.DTO.UpdateDTO;
+import com.google.protobuf.MessageLite;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Fan-out stage for UPDATE notifications.
+ * {@link #publish} only enqueues, so request threads never wait on other clients' sockets. A dedicated
+ * thread collects every {@link ChangeEvent} published within the coalescing window into one numbered
+ * {@link UpdateDTO}, serializes it once per protocol version in use and hands the shared frame to every
+ * subscriber's bounded queue.
+ * Each queue is drained by its own short-lived writer; a client whose queue overflows is disconnected.
+ */
+public class UpdateBroadcaster implements AutoCloseable, MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(UpdateBroadcaster.class);
+    private static final int MAX_PENDING_PUBLISHES = 10_000;
+
+    // One element per publish() call, so the events of one call always go out in the same UPDATE
+    private final BlockingQueue<List<ChangeEvent>> published = new LinkedBlockingQueue<>(MAX_PENDING_PUBLISHES);
+    private final Map<ClientSession, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService                writers;
+    private final Thread                         fanOut;
+    private final AtomicLong                     seq = new AtomicLong();
+    private final LongAdder                      droppedPublishes = new LongAdder();
+    private final LongAdder                      overflowEvictions = new LongAdder();
+    private final LongAdder                      writeFailures = new LongAdder();
+    private final long                           coalesceWindowNanos;
+    private final int                            maxQueuedPerClient;
+    private final Map<Integer, Function<UpdateDTO, ? extends MessageLite>> encoders;
+
+    /**
+     * @param encoders builds the UPDATE message for each protocol version, keyed by version number
+     */
+    public UpdateBroadcaster(long coalesceWindowMs, int maxQueuedPerClient,
+                             Map<Integer, Function<UpdateDTO, ? extends MessageLite>> encoders) {
+        this.encoders            = encoders;
+        this.coalesceWindowNanos = TimeUnit.MILLISECONDS.toNanos(coalesceWindowMs);
+        this.maxQueuedPerClient  = maxQueuedPerClient;
+        this.writers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("broadcast-writer-", 0).factory());
+        this.fanOut  = new Thread(this::fanOutLoop, "update-fanout");
+        this.fanOut.setDaemon(true);
+        this.fanOut.start();
+    }
+
+    /**
+     * Start delivering updates to {@code session}. {@code connection} is closed if the client falls more
+     * than {@code maxQueuedPerClient} frames behind or a write fails.
+     */
+    public void register(ClientSession session, Closeable connection) {
+        subscribers.put(session, new Subscriber(session, connection));
+    }
+
+    public void unregister(ClientSession session) {
+        subscribers.remove(session);
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Connected clients, the publish backlog, frames queued for clients, and the ways an update fails to
+     * arrive: dropped publishes, clients evicted for falling behind, failed writes.
+     * The queued-frames gauge walks every subscriber, but only when scraped.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("socket.clients", this, UpdateBroadcaster::subscriberCount)
+                .description("Connected clients receiving updates")
+                .register(registry);
+        Gauge.builder("broadcast.backlog", published, BlockingQueue::size)
+                .description("Publishes waiting for the fan-out thread")
+                .register(registry);
+        Gauge.builder("broadcast.queued.frames", subscribers,
+                        subs -> subs.values().stream().mapToInt(sub -> sub.queue.size()).sum())
+                .description("Update frames queued for all clients")
+                .register(registry);
+        FunctionCounter.builder("broadcast.failures", droppedPublishes, LongAdder::sum)
+                .tag("reason", "backlog_full")
+                .register(registry);
+        FunctionCounter.builder("broadcast.failures", overflowEvictions, LongAdder::sum)
+                .tag("reason", "client_behind")
+                .register(registry);
+        FunctionCounter.builder("broadcast.failures", writeFailures, LongAdder::sum)
+                .tag("reason", "write_failed")
+                .register(registry);
+    }
+
+    /**
+     * Queue events for every subscriber. Never blocks; if the backlog is full the events are dropped
+     * and clients will notice the sequence gap on the next UPDATE.
+     */
+    public void publish(ChangeEvent... events) {
+        if (!published.offer(List.of(events))) {
+            logger.warn("Broadcast backlog full, dropping {} events", events.length);
+            droppedPublishes.increment();
+            seq.incrementAndGet();
+        }
+    }
+
+    private void fanOutLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<ChangeEvent> batch = new ArrayList<>(published.take());
+                long deadline = System.nanoTime() + coalesceWindowNanos;
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    List<ChangeEvent> next = published.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.addAll(next);
+                }
+                UpdateDTO update = new UpdateDTO(seq.incrementAndGet(), coalesce(batch));
+                Map<Integer, byte[]> frames = new HashMap<>();
+                subscribers.values().forEach(sub -> sub.enqueue(frames.computeIfAbsent(
+                        sub.session.getProtocolVersion(), version -> frame(encoders.get(version).apply(update)))));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Drops duplicate events and keeps only the latest count per competition, since counts are absolute.
+     * Published counts only come from enrollments, so the latest is the highest one: two enrollments that
+     * commit in one order may publish in the other. Everything else keeps its publish order.
+     */
+    private static List<ChangeEvent> coalesce(List<ChangeEvent> batch) {
+        Map<Integer, ChangeEvent> latestCounts = new HashMap<>();
+        for (ChangeEvent event : batch) {
+            if (event.getKind() == ChangeEvent.Kind.COMPETITION_COUNT_CHANGED) {
+                latestCounts.merge(event.getCompetitionID(), event,
+                        (kept, next) -> next.getNrOfParticipants() >= kept.getNrOfParticipants() ? next : kept);
+            }
+        }
+        Set<ChangeEvent> merged = new LinkedHashSet<>();
+        for (ChangeEvent event : batch) {
+            if (event.getKind() != ChangeEvent.Kind.COMPETITION_COUNT_CHANGED
+                    || latestCounts.get(event.getCompetitionID()) == event) {
+                merged.add(event);
+            }
+        }
+        return new ArrayList<>(merged);
+    }
+
+    private static byte[] frame(MessageLite msg) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(msg.getSerializedSize() + 5);
+            msg.writeDelimitedTo(bytes);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("In-memory serialization failed", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        fanOut.interrupt();
+        writers.shutdownNow();
+    }
+
+    private final class Subscriber {
+        private final ClientSession          session;
+        private final OutputStream           out;
+        private final Closeable              connection;
+        private final BlockingQueue<byte[]>  queue = new ArrayBlockingQueue<>(maxQueuedPerClient);
+        private final AtomicBoolean          scheduled = new AtomicBoolean();
+
+        Subscriber(ClientSession session, Closeable connection) {
+            this.session    = session;
+            this.out        = session.getOut();
+            this.connection = connection;
+        }
+
+        void enqueue(byte[] frame) {
+            if (!queue.offer(frame)) {
+                logger.warn("Client fell {} updates behind, disconnecting", maxQueuedPerClient);
+                overflowEvictions.increment();
+                evict();
+                return;
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        /** Writes everything queued under the session's write lock (shared with replies), flushing once per pass. */
+        private void drain() {
+            try {
+                while (true) {
+                    byte[] frame = queue.poll();
+                    if (frame == null) {
+                        scheduled.set(false);
+                        if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) return;
+                        continue;
+                    }
+                    session.getWriteLock().lock();
+                    try {
+                        do {
+                            out.write(frame);
+                        } while ((frame = queue.poll()) != null);
+                        out.flush();
+                    } finally {
+                        session.getWriteLock().unlock();
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Failed to broadcast update to client: {}", e.getMessage());
+                writeFailures.increment();
+                evict();
+            }
+        }
+
+        private void evict() {
+            subscribers.remove(session);
+            queue.clear();
+            try { connection.close(); } catch (IOException ignored) {}
+        }
+    }
+}
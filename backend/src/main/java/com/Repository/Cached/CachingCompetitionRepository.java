@@ -0,0 +1,347 @@
+package com.Repository.Cached;
+
+import com.Domain.Competition;
+import com.Domain.Participant;
+import com.Repository.Interface.ICompetitionRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Read-through cache in front of another {@link ICompetitionRepository}.
+ * The whole Competition table (a handful of rows) is loaded into a {@link CompetitionIndex} on the first
+ * read and every query is then answered from memory, including all four filter combinations. Writes go to
+ * the delegate first, then the affected row is re-read and patched into the index.
+ * Cached {@link Competition} instances and returned lists are shared between callers and must not be modified.
+ * Given an {@link EnrollmentGraph}, enrollments that would break the limit or repeat are turned away from it
+ * without a round trip, and committed ones are recorded in it.
+ *
+ * Given the database's data version as well, a read checks it at most once per check interval and, if
+ * another connection has written since the index was loaded, such as the REST app's, reloads the whole
+ * index and swaps it in, as {@link EnrollmentGraph} does. Without one the index only ever changes through
+ * this instance, so it is only right when nothing else writes the delegate's data.
+ */
+public class CachingCompetitionRepository implements ICompetitionRepository, MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(CachingCompetitionRepository.class);
+
+    private final ICompetitionRepository delegate;
+    private final EnrollmentGraph        enrollments;
+    private final LongAdder              hits   = new LongAdder();
+    private final LongAdder              misses = new LongAdder();
+    // Rows written into the index: a whole table per load, one per patched row
+    private final LongAdder              puts   = new LongAdder();
+    // Null when nothing else writes the delegate
+    private final LongSupplier           version;
+    private final long                   checkIntervalNanos;
+    private final AtomicLong             nextCheck = new AtomicLong(System.nanoTime());
+    private final List<Runnable>         reloadListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean             pinned;
+    // Runs each load; see pin
+    private volatile Consumer<Runnable>  loadGuard = Runnable::run;
+
+    // Null until loaded or after a write the index could not be patched for
+    private volatile CompetitionIndex index;
+    // Bumped on every write so a load that raced with one is not installed
+    private long generation;
+    // The data version the index was loaded at; guarded by the monitor
+    private long loadedVersion;
+
+    public CachingCompetitionRepository(ICompetitionRepository delegate) {
+        this(delegate, null);
+    }
+
+    public CachingCompetitionRepository(ICompetitionRepository delegate, EnrollmentGraph enrollments) {
+        this(delegate, enrollments, null, 0);
+    }
+
+    /** A cache that reloads once {@code version} has changed, checked at most every {@code checkIntervalMs}. */
+    public CachingCompetitionRepository(ICompetitionRepository delegate, EnrollmentGraph enrollments,
+                                        LongSupplier version, long checkIntervalMs) {
+        this.delegate           = delegate;
+        this.enrollments        = enrollments;
+        this.version            = version;
+        this.checkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkIntervalMs);
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getPutCount() {
+        return puts.sum();
+    }
+
+    /** Hits and misses as {@code cache.gets}, rows stored as {@code cache.puts}: the names Micrometer's cache binders use. */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tags("cache", "competition-index", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tags("cache", "competition-index", "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.puts", puts, LongAdder::sum)
+                .tags("cache", "competition-index")
+                .register(registry);
+    }
+
+    /**
+     * Never reload from the delegate because the database changed, and run every load, still on first
+     * read, inside {@code guard}; for callers that {@link #apply} rows the database does not have yet, and
+     * are then its only writer. The guard must bring the database up to date with those rows and hold off
+     * new ones while the load it is handed runs.
+     */
+    public void pin(Consumer<Runnable> guard) {
+        loadGuard = guard;
+        pinned    = true;
+    }
+
+    /** Have {@code listener} run, in the order registered, each time the index has been reloaded because the database changed. */
+    public void onReload(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    private CompetitionIndex index() {
+        CompetitionIndex current = index;
+        if (current != null) {
+            if (version != null && !pinned) current = checkVersion(current);
+            hits.increment();
+            return current;
+        }
+        misses.increment();
+        CompetitionIndex[] loaded = new CompetitionIndex[1];
+        loadGuard.accept(() -> loaded[0] = load());
+        return loaded[0];
+    }
+
+    private CompetitionIndex load() {
+        long loadedAt;
+        synchronized (this) {
+            // Another reader may have loaded it while this one waited for the guard
+            if (index != null) return index;
+            loadedAt = generation;
+        }
+        // Read before the rows, so a commit the read misses shows up as a change on the next check
+        long at = currentVersion();
+        CompetitionIndex loaded = CompetitionIndex.of(delegate.getAll());
+        synchronized (this) {
+            if (generation == loadedAt) {
+                index = loaded;
+                loadedVersion = at;
+                puts.add(loaded.all().size());
+            }
+        }
+        logger.debug("Loaded {} competitions into cache", loaded.all().size());
+        return loaded;
+    }
+
+    /** At most once per interval, and by one reader only, reload the index if the database changed. */
+    private CompetitionIndex checkVersion(CompetitionIndex current) {
+        long now = System.nanoTime();
+        long next = nextCheck.get();
+        if (now - next < 0 || !nextCheck.compareAndSet(next, now + checkIntervalNanos)) return current;
+        long at = currentVersion();
+        long loadedAt;
+        synchronized (this) {
+            if (at == loadedVersion) return current;
+            loadedAt = generation;
+        }
+        CompetitionIndex fresh;
+        try {
+            fresh = CompetitionIndex.of(delegate.getAll());
+        } catch (RuntimeException e) {
+            logger.warn("Could not reload the competition index; keeping the current one", e);
+            return current;
+        }
+        synchronized (this) {
+            // A write raced with the reload, or the index was pinned meanwhile; the next check tries again
+            if (generation != loadedAt || pinned || index == null) return current;
+            index = fresh;
+            loadedVersion = at;
+            puts.add(fresh.all().size());
+        }
+        logger.debug("Reloaded {} competitions into cache", fresh.all().size());
+        for (Runnable listener : reloadListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                logger.warn("Competition index reload listener failed", e);
+            }
+        }
+        return fresh;
+    }
+
+    // A value no real version has when it cannot be read, so the next check reloads
+    private long currentVersion() {
+        if (version == null) return 0;
+        try {
+            return version.getAsLong();
+        } catch (RuntimeException e) {
+            logger.warn("Could not check the database for competition changes", e);
+            return -1;
+        }
+    }
+
+    private synchronized void invalidate() {
+        generation++;
+        index = null;
+    }
+
+    /** Patch a row the delegate does not have yet, such as one only written to a journal so far, into the index. */
+    public synchronized void apply(Competition c) {
+        generation++;
+        CompetitionIndex current = index;
+        if (current != null) {
+            index = current.with(c);
+            puts.increment();
+        }
+    }
+
+    /**
+     * Re-read one row after it was written and patch it into the index, or drop it if the row is gone.
+     * The read happens under the lock so two refreshes of the same row cannot install their results out of order.
+     */
+    public synchronized void refresh(int competitionID) {
+        generation++;
+        CompetitionIndex current = index;
+        if (current == null) return;
+        Competition fresh = delegate.getById(competitionID);
+        if (fresh == null) {
+            index = current.without(competitionID);
+        } else {
+            index = current.with(fresh);
+            puts.increment();
+        }
+    }
+
+    // ----- Reads -----
+
+    @Override
+    public List<Competition> getAll() {
+        return index().all();
+    }
+
+    @Override
+    public Competition getById(int id) {
+        return index().get(id);
+    }
+
+    @Override
+    public List<Competition> getPage(int afterId, int limit) {
+        return index().page(afterId, limit);
+    }
+
+    @Override
+    public void forEach(Consumer<Competition> action) {
+        index().all().forEach(action);
+    }
+
+    @Override
+    public List<Competition> getCompetitionByTypeAndAge(String type, String ageCategory) {
+        return index().find(type, ageCategory);
+    }
+
+    @Override
+    public List<Competition> getCompetitionsByType(String type) {
+        return index().find(type, null);
+    }
+
+    @Override
+    public List<Competition> getCompetitionsByAge(String ageCategory) {
+        return index().find(null, ageCategory);
+    }
+
+    @Override
+    public List<Competition> filter(String type, String ageCategory) {
+        return index().find(type, ageCategory);
+    }
+
+    // ----- Writes -----
+
+    @Override
+    public Competition add(Competition c) {
+        Competition saved;
+        try {
+            saved = delegate.add(c);
+        } catch (RuntimeException e) {
+            invalidate();
+            throw e;
+        }
+        refresh(saved.getCompetitionID());
+        return saved;
+    }
+
+    @Override
+    public void update(int id, Competition c) {
+        try {
+            delegate.update(id, c);
+        } finally {
+            refresh(id);
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        try {
+            delegate.remove(id);
+            if (enrollments != null) enrollments.removeCompetition(id);
+        } finally {
+            refresh(id);
+        }
+    }
+
+    @Override
+    public void incrementParticipantCount(int competitionID) {
+        try {
+            delegate.incrementParticipantCount(competitionID);
+        } finally {
+            refresh(competitionID);
+        }
+    }
+
+    @Override
+    public int enrollParticipant(int participantID, int competitionID) {
+        // The delegate still checks both conditions in its own transaction; these only spare it the hopeless calls
+        if (enrollments != null) {
+            if (enrollments.isEnrolled(participantID, competitionID)) {
+                throw new RuntimeException("Participant is already enrolled in this competition");
+            }
+            if (enrollments.enrollmentCount(participantID) >= ENROLLMENT_LIMIT) {
+                throw new RuntimeException("Participant is already enrolled in " + ENROLLMENT_LIMIT + " competitions");
+            }
+        }
+        int count = delegate.enrollParticipant(participantID, competitionID);
+        if (enrollments != null) enrollments.add(participantID, competitionID);
+        refresh(competitionID);
+        return count;
+    }
+
+    @Override
+    public void enrollNewParticipants(List<Participant> participants, List<List<Integer>> competitionIDs) {
+        try {
+            delegate.enrollNewParticipants(participants, competitionIDs);
+            if (enrollments != null) {
+                for (int i = 0; i < participants.size(); i++) {
+                    int participantID = participants.get(i).getParticipantID();
+                    competitionIDs.get(i).forEach(competitionID -> enrollments.add(participantID, competitionID));
+                }
+            }
+        } finally {
+            competitionIDs.stream().flatMap(List::stream).distinct().forEach(this::refresh);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.Repository.Cached;
+
+import com.DTO.ParticipantRecordDTO;
+import com.Domain.Participant;
+import com.Repository.Interface.IParticipantRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * {@link IParticipantRepository} that answers rosters from an {@link EnrollmentGraph} and a read-through
+ * array of participants indexed by ID, so listing a competition's participants costs no query once they
+ * have each been read. Everything else goes to the delegate; writes go to it first, then drop the cached
+ * row. Participants are copied on the way out, since callers may change them. Rows other processes may
+ * have changed are dropped whenever the graph reloads, since that is when it has seen them write.
+ */
+public class CachingParticipantRepository implements IParticipantRepository {
+    private final IParticipantRepository delegate;
+    private final EnrollmentGraph        enrollments;
+
+    private volatile AtomicReferenceArray<Participant> rows = new AtomicReferenceArray<>(1024);
+    // Bumped on every write so a read that raced with one does not install the old row
+    private volatile long generation;
+
+    public CachingParticipantRepository(IParticipantRepository delegate, EnrollmentGraph enrollments) {
+        this.delegate    = delegate;
+        this.enrollments = enrollments;
+        enrollments.onReload(this::clear);
+    }
+
+    private Participant cached(int id) {
+        AtomicReferenceArray<Participant> r = rows;
+        Participant p = id > 0 && id < r.length() ? r.get(id) : null;
+        if (p != null) return p;
+        long readAt = generation;
+        p = delegate.getById(id);
+        if (p != null && id > 0) install(id, p, readAt);
+        return p;
+    }
+
+    /** Cache a participant the delegate does not have yet, such as one only written to a journal so far. */
+    public synchronized void remember(Participant p) {
+        generation++;
+        put(p.getParticipantID(), p);
+    }
+
+    private synchronized void install(int id, Participant p, long readAt) {
+        if (generation == readAt) put(id, p);
+    }
+
+    // Caller holds the monitor
+    private void put(int id, Participant p) {
+        AtomicReferenceArray<Participant> r = rows;
+        if (id >= r.length()) {
+            AtomicReferenceArray<Participant> grown = new AtomicReferenceArray<>(Math.max(id + 1, r.length() * 2));
+            for (int i = 0; i < r.length(); i++) {
+                grown.set(i, r.get(i));
+            }
+            rows = r = grown;
+        }
+        r.set(id, copy(p));
+    }
+
+    private synchronized void clear() {
+        generation++;
+        rows = new AtomicReferenceArray<>(rows.length());
+    }
+
+    private synchronized void evict(int id) {
+        generation++;
+        AtomicReferenceArray<Participant> r = rows;
+        if (id > 0 && id < r.length()) r.set(id, null);
+    }
+
+    private static Participant copy(Participant p) {
+        return p == null ? null : new Participant(p.getParticipantID(), p.getName(), p.getAge());
+    }
+
+    // ----- Reads -----
+
+    @Override
+    public Participant getById(int id) {
+        enrollments.checkForChanges();
+        return copy(cached(id));
+    }
+
+    @Override
+    public ArrayList<Participant> getParticipantsForCompetition(int competitionID) {
+        int[] roster = enrollments.roster(competitionID);
+        ArrayList<Participant> found = new ArrayList<>(roster.length);
+        for (int participantID : roster) {
+            Participant p = cached(participantID);
+            if (p != null) found.add(copy(p));
+        }
+        return found;
+    }
+
+    @Override
+    public List<Participant> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public List<Participant> getPage(int afterId, int limit) {
+        return delegate.getPage(afterId, limit);
+    }
+
+    @Override
+    public void forEach(Consumer<Participant> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public void forEachWithCompetitions(Consumer<ParticipantRecordDTO> action) {
+        delegate.forEachWithCompetitions(action);
+    }
+
+    // ----- Writes -----
+
+    @Override
+    public Participant add(Participant p) {
+        return delegate.add(p);
+    }
+
+    @Override
+    public void update(int id, Participant p) {
+        try {
+            delegate.update(id, p);
+        } finally {
+            evict(id);
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        try {
+            delegate.remove(id);
+            enrollments.removeParticipant(id);
+        } finally {
+            evict(id);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.Repository.Cached;
+
+import com.Domain.Competition;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * Immutable lookup of competitions by ID, type, age category and type × age category.
+ * Every filter combination resolves to a precomputed list with at most two hash lookups, so answering a
+ * query allocates nothing. Changes produce a new index via {@link #with} / {@link #without}, which patch
+ * the changed competition into or out of its groups by binary search; the other groups are shared with
+ * the old index, and nothing is re-sorted or re-scanned.
+ */
+public final class CompetitionIndex {
+    public static final CompetitionIndex EMPTY = new CompetitionIndex(Map.of(), List.of(), Map.of(), Map.of(), Map.of());
+
+    private final Map<Integer, Competition>                    byId;
+    private final List<Competition>                            all;
+    private final Map<String, List<Competition>>               byType;
+    private final Map<String, List<Competition>>               byAge;
+    private final Map<String, Map<String, List<Competition>>>  byTypeAndAge;
+
+    private CompetitionIndex(Map<Integer, Competition> byId, List<Competition> all,
+                             Map<String, List<Competition>> byType, Map<String, List<Competition>> byAge,
+                             Map<String, Map<String, List<Competition>>> byTypeAndAge) {
+        this.byId         = byId;
+        this.all          = all;
+        this.byType       = byType;
+        this.byAge        = byAge;
+        this.byTypeAndAge = byTypeAndAge;
+    }
+
+    public static CompetitionIndex of(Collection<Competition> competitions) {
+        Map<Integer, Competition> byId = new HashMap<>();
+        competitions.forEach(c -> byId.put(c.getCompetitionID(), c));
+        List<Competition> all = byId.values().stream().sorted(Comparator.comparing(Competition::getCompetitionID)).toList();
+        Map<String, List<Competition>> byType = new HashMap<>();
+        Map<String, List<Competition>> byAge  = new HashMap<>();
+        Map<String, Map<String, List<Competition>>> byTypeAndAge = new HashMap<>();
+        for (Competition c : all) {
+            byType.computeIfAbsent(c.getType(), t -> new ArrayList<>()).add(c);
+            byAge.computeIfAbsent(c.getAgeCategory(), a -> new ArrayList<>()).add(c);
+            byTypeAndAge.computeIfAbsent(c.getType(), t -> new HashMap<>())
+                        .computeIfAbsent(c.getAgeCategory(), a -> new ArrayList<>()).add(c);
+        }
+        byType.replaceAll((type, members) -> List.copyOf(members));
+        byAge.replaceAll((age, members) -> List.copyOf(members));
+        byTypeAndAge.replaceAll((type, ofType) -> {
+            ofType.replaceAll((age, members) -> List.copyOf(members));
+            return Map.copyOf(ofType);
+        });
+        return new CompetitionIndex(Map.copyOf(byId), all, Map.copyOf(byType), Map.copyOf(byAge),
+                                    Map.copyOf(byTypeAndAge));
+    }
+
+    /** Competitions matching both filters, in ID order; a null filter matches everything. */
+    public List<Competition> find(String type, String ageCategory) {
+        if (type == null) {
+            return ageCategory == null ? all : byAge.getOrDefault(ageCategory, List.of());
+        }
+        if (ageCategory == null) {
+            return byType.getOrDefault(type, List.of());
+        }
+        Map<String, List<Competition>> ofType = byTypeAndAge.get(type);
+        return ofType == null ? List.of() : ofType.getOrDefault(ageCategory, List.of());
+    }
+
+    public Competition get(int id) {
+        return byId.get(id);
+    }
+
+    public List<Competition> all() {
+        return all;
+    }
+
+    /** Up to {@code limit} competitions with an ID above {@code afterId}; a view of {@link #all()}, not a copy. */
+    public List<Competition> page(int afterId, int limit) {
+        int lo = 0, hi = all.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (all.get(mid).getCompetitionID() <= afterId) lo = mid + 1; else hi = mid;
+        }
+        return all.subList(lo, Math.min(all.size(), lo + limit));
+    }
+
+    /** Index with {@code competition} added, or replacing the one with the same ID. */
+    public CompetitionIndex with(Competition competition) {
+        int id = competition.getCompetitionID();
+        Map<Integer, Competition> ids = new HashMap<>(byId);
+        Competition previous = ids.put(id, competition);
+        Map<String, List<Competition>> types = new HashMap<>(byType);
+        Map<String, List<Competition>> ages  = new HashMap<>(byAge);
+        Map<String, Map<String, List<Competition>>> pairs = new HashMap<>(byTypeAndAge);
+        if (previous != null) {
+            patch(types, ages, pairs, previous, members -> drop(members, id));
+        }
+        patch(types, ages, pairs, competition, members -> put(members, competition));
+        return new CompetitionIndex(Collections.unmodifiableMap(ids), put(all, competition),
+                                    Collections.unmodifiableMap(types), Collections.unmodifiableMap(ages),
+                                    Collections.unmodifiableMap(pairs));
+    }
+
+    public CompetitionIndex without(int id) {
+        Competition removed = byId.get(id);
+        if (removed == null) return this;
+        Map<Integer, Competition> ids = new HashMap<>(byId);
+        ids.remove(id);
+        Map<String, List<Competition>> types = new HashMap<>(byType);
+        Map<String, List<Competition>> ages  = new HashMap<>(byAge);
+        Map<String, Map<String, List<Competition>>> pairs = new HashMap<>(byTypeAndAge);
+        patch(types, ages, pairs, removed, members -> drop(members, id));
+        return new CompetitionIndex(Collections.unmodifiableMap(ids), drop(all, id),
+                                    Collections.unmodifiableMap(types), Collections.unmodifiableMap(ages),
+                                    Collections.unmodifiableMap(pairs));
+    }
+
+    /** Replace the type, age category and type × age category groups of {@code c} with {@code change} applied. */
+    private static void patch(Map<String, List<Competition>> types, Map<String, List<Competition>> ages,
+                              Map<String, Map<String, List<Competition>>> pairs, Competition c,
+                              UnaryOperator<List<Competition>> change) {
+        patchGroup(types, c.getType(), change);
+        patchGroup(ages, c.getAgeCategory(), change);
+        Map<String, List<Competition>> ofType = new HashMap<>(pairs.getOrDefault(c.getType(), Map.of()));
+        patchGroup(ofType, c.getAgeCategory(), change);
+        if (ofType.isEmpty()) pairs.remove(c.getType()); else pairs.put(c.getType(), Collections.unmodifiableMap(ofType));
+    }
+
+    private static void patchGroup(Map<String, List<Competition>> groups, String key,
+                                   UnaryOperator<List<Competition>> change) {
+        List<Competition> members = change.apply(groups.getOrDefault(key, List.of()));
+        if (members.isEmpty()) groups.remove(key); else groups.put(key, members);
+    }
+
+    /** Copy of an ID-ordered list with {@code c} inserted at its place, or replacing the one with its ID. */
+    private static List<Competition> put(List<Competition> sorted, Competition c) {
+        int at = search(sorted, c.getCompetitionID());
+        List<Competition> copy = new ArrayList<>(sorted.size() + 1);
+        copy.addAll(sorted);
+        if (at >= 0) copy.set(at, c); else copy.add(-at - 1, c);
+        return Collections.unmodifiableList(copy);
+    }
+
+    /** Copy of an ID-ordered list without the competition with {@code id}, or the list itself if it is absent. */
+    private static List<Competition> drop(List<Competition> sorted, int id) {
+        int at = search(sorted, id);
+        if (at < 0) return sorted;
+        List<Competition> copy = new ArrayList<>(sorted);
+        copy.remove(at);
+        return Collections.unmodifiableList(copy);
+    }
+
+    /** Index of {@code id} in an ID-ordered list, or {@code -(insertion point) - 1}, as Collections.binarySearch. */
+    private static int search(List<Competition> sorted, int id) {
+        int lo = 0, hi = sorted.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midId = sorted.get(mid).getCompetitionID();
+            if (midId < id) lo = mid + 1; else if (midId > id) hi = mid - 1; else return mid;
+        }
+        return -lo - 1;
+    }
+}
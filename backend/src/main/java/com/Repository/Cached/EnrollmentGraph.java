@@ -0,0 +1,343 @@
+package com.Repository.Cached;
+
+import com.Repository.Interface.ICompetitionRepository;
+import com.Repository.Interface.IParticipantRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * The participant / competition enrollment relation in both directions, held in primitive arrays indexed
+ * by ID (IDs are small and dense, being generated by the database or the in-memory store):
+ * competition -> sorted {@code int[]} of participant IDs, and participant -> its at most
+ * {@link ICompetitionRepository#ENROLLMENT_LIMIT} competition IDs packed into one {@code long}.
+ * Reads take no lock and allocate nothing; rosters are replaced on change, never modified, so a roster
+ * handed out stays valid. Writes are serialized and idempotent.
+ *
+ * A graph made with {@link #over} loads itself from the participant repository on first use. Writes made
+ * before that are skipped, since the load will read them from the database, and a write that arrives
+ * while it runs waits for it, then applies on top. Callers record a change here only after it committed.
+ *
+ * Other processes, such as the REST app next to the socket server, write the same tables without
+ * recording anything here. Given the database's data version, a read checks it at most once per check
+ * interval and, if it moved, rebuilds the graph from the repository off to the side while the other
+ * reads go on with the old one; writes recorded meanwhile are replayed onto the new graph before it is
+ * swapped in. So another process's enrollments show up here within about one interval. Whoever caches
+ * rows the graph refers to, such as {@link CachingParticipantRepository}, hears about each rebuild through
+ * {@link #onReload} and drops them too.
+ */
+public final class EnrollmentGraph {
+    private static final Logger logger = LoggerFactory.getLogger(EnrollmentGraph.class);
+    private static final int[]  NONE   = new int[0];
+
+    static {
+        // Two competition IDs fit in one long
+        if (ICompetitionRepository.ENROLLMENT_LIMIT != 2) throw new ExceptionInInitializerError("ENROLLMENT_LIMIT must be 2");
+    }
+
+    private final IParticipantRepository source;
+    // Null when nothing else writes the source
+    private final LongSupplier           version;
+    private final long                   checkIntervalNanos;
+    private final AtomicLong             nextCheck = new AtomicLong(System.nanoTime());
+    private final List<Runnable>         reloadListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean              loaded;
+    private volatile boolean              pinned;
+    // Runs the first load; see pin
+    private volatile Consumer<Runnable>   loadGuard = Runnable::run;
+    // Guarded by the monitor: the version the arrays were read at, and the writes to replay while a reload runs
+    private long                          loadedVersion;
+    private List<Runnable>                replay;
+    // competitionID -> participant IDs in ascending order, null for none
+    private volatile AtomicReferenceArray<int[]> rosters     = new AtomicReferenceArray<>(16);
+    // participantID -> (second competitionID << 32) | first competitionID, 0 for none
+    private volatile AtomicLongArray             enrollments = new AtomicLongArray(1024);
+
+    private EnrollmentGraph(IParticipantRepository source, LongSupplier version, long checkIntervalMs) {
+        this.source             = source;
+        this.version            = version;
+        this.checkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkIntervalMs);
+        this.loaded             = source == null;
+    }
+
+    /** A graph that starts out empty and is kept only by the writes recorded in it. */
+    public static EnrollmentGraph empty() {
+        return new EnrollmentGraph(null, null, 0);
+    }
+
+    /** A graph of the enrollments {@code participants} holds, loaded on first use, for a source nothing else writes. */
+    public static EnrollmentGraph over(IParticipantRepository participants) {
+        return new EnrollmentGraph(participants, null, 0);
+    }
+
+    /**
+     * A graph of the enrollments {@code participants} holds, loaded on first use and rebuilt when
+     * {@code version} has changed, checked at most every {@code checkIntervalMs}.
+     */
+    public static EnrollmentGraph over(IParticipantRepository participants, LongSupplier version, long checkIntervalMs) {
+        return new EnrollmentGraph(participants, version, checkIntervalMs);
+    }
+
+    /**
+     * Never reload from the repository, and run the first load, still on first use, inside {@code guard};
+     * for callers that record writes the database does not have yet, and are then its only writer. The
+     * guard must bring the database up to date with those writes and hold off new ones while the load it
+     * is handed runs.
+     */
+    public void pin(Consumer<Runnable> guard) {
+        loadGuard = guard;
+        pinned    = true;
+    }
+
+    /** Have {@code listener} run, in the order registered, each time the graph has been rebuilt from the repository. */
+    public void onReload(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    /** Rebuild if the database changed and the check interval has passed; reads of the graph do this on their own. */
+    public void checkForChanges() {
+        if (loaded && version != null && !pinned) checkVersion();
+    }
+
+    // ----- Reads -----
+
+    /** Participants enrolled in the competition, ascending; shared, must not be modified. */
+    public int[] roster(int competitionID) {
+        ensureLoaded();
+        AtomicReferenceArray<int[]> r = rosters;
+        int[] roster = competitionID > 0 && competitionID < r.length() ? r.get(competitionID) : null;
+        return roster == null ? NONE : roster;
+    }
+
+    /** How many competitions the participant is enrolled in. */
+    public int enrollmentCount(int participantID) {
+        long slot = slot(participantID);
+        return first(slot) == 0 ? 0 : second(slot) == 0 ? 1 : 2;
+    }
+
+    public boolean isEnrolled(int participantID, int competitionID) {
+        long slot = slot(participantID);
+        return competitionID != 0 && (first(slot) == competitionID || second(slot) == competitionID);
+    }
+
+    /** Hand the participant's competition IDs to {@code action}, in enrollment order. */
+    public void forEachCompetitionOf(int participantID, IntConsumer action) {
+        long slot = slot(participantID);
+        if (first(slot) != 0) action.accept(first(slot));
+        if (second(slot) != 0) action.accept(second(slot));
+    }
+
+    private long slot(int participantID) {
+        ensureLoaded();
+        AtomicLongArray e = enrollments;
+        return participantID > 0 && participantID < e.length() ? e.get(participantID) : 0;
+    }
+
+    private static int first(long slot) {
+        return (int) slot;
+    }
+
+    private static int second(long slot) {
+        return (int) (slot >>> 32);
+    }
+
+    // ----- Writes -----
+
+    /** Record a committed enrollment; a no-op if it is already known. */
+    public synchronized void add(int participantID, int competitionID) {
+        if (!loaded) return;
+        link(participantID, competitionID);
+        if (replay != null) replay.add(() -> link(participantID, competitionID));
+    }
+
+    /** Forget every enrollment of a removed participant. */
+    public synchronized void removeParticipant(int participantID) {
+        if (!loaded) return;
+        unlinkParticipant(participantID);
+        if (replay != null) replay.add(() -> unlinkParticipant(participantID));
+    }
+
+    /** Forget every enrollment in a removed competition. */
+    public synchronized void removeCompetition(int competitionID) {
+        if (!loaded) return;
+        unlinkCompetition(competitionID);
+        if (replay != null) replay.add(() -> unlinkCompetition(competitionID));
+    }
+
+    // Caller holds the monitor
+    private void unlinkParticipant(int participantID) {
+        if (participantID <= 0 || participantID >= enrollments.length()) return;
+        long slot = enrollments.get(participantID);
+        for (int competitionID : new int[]{first(slot), second(slot)}) {
+            if (competitionID != 0) setRoster(competitionID, without(rosters.get(competitionID), participantID));
+        }
+        enrollments.set(participantID, 0);
+    }
+
+    // Caller holds the monitor
+    private void unlinkCompetition(int competitionID) {
+        if (competitionID <= 0 || competitionID >= rosters.length()) return;
+        int[] roster = rosters.get(competitionID);
+        if (roster == null) return;
+        for (int participantID : roster) {
+            long slot = enrollments.get(participantID);
+            int a = first(slot), b = second(slot);
+            enrollments.set(participantID, a == competitionID ? pack(b, 0) : pack(a, 0));
+        }
+        rosters.set(competitionID, null);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            checkForChanges();
+            return;
+        }
+        loadGuard.accept(this::load);
+    }
+
+    private synchronized void load() {
+        if (loaded) return;
+        long started = System.nanoTime();
+        if (version != null) loadedVersion = version.getAsLong();
+        source.forEachWithCompetitions(record -> {
+            for (int competitionID : record.getCompetitionIDs()) {
+                link(record.getParticipantID(), competitionID);
+            }
+        });
+        loaded = true;
+        logger.debug("Loaded the enrollment graph in {} ms", (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /** At most once per interval, and by one reader only, rebuild the graph if the database changed. */
+    private void checkVersion() {
+        long now = System.nanoTime();
+        long next = nextCheck.get();
+        if (now - next < 0 || !nextCheck.compareAndSet(next, now + checkIntervalNanos)) return;
+        long current;
+        try {
+            current = version.getAsLong();
+        } catch (RuntimeException e) {
+            logger.warn("Could not check the database for enrollment changes", e);
+            return;
+        }
+        synchronized (this) {
+            if (current == loadedVersion || replay != null) return;
+            replay = new ArrayList<>();
+        }
+        EnrollmentGraph fresh = empty();
+        try {
+            long started = System.nanoTime();
+            source.forEachWithCompetitions(record -> {
+                for (int competitionID : record.getCompetitionIDs()) {
+                    fresh.add(record.getParticipantID(), competitionID);
+                }
+            });
+            logger.debug("Reloaded the enrollment graph in {} ms", (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            logger.warn("Could not reload the enrollment graph; keeping the current one", e);
+            synchronized (this) {
+                replay = null;
+            }
+            return;
+        }
+        synchronized (this) {
+            if (pinned) {
+                // Pinned meanwhile: the tables may now be behind the writes recorded here
+                replay = null;
+                return;
+            }
+            rosters       = fresh.rosters;
+            enrollments   = fresh.enrollments;
+            // Commits after the version was read may be missing from the scan; the next check sees them
+            loadedVersion = current;
+            replay.forEach(Runnable::run);
+            replay = null;
+        }
+        for (Runnable listener : reloadListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                logger.warn("Enrollment graph reload listener failed", e);
+            }
+        }
+    }
+
+    // Caller holds the monitor
+    private void link(int participantID, int competitionID) {
+        if (participantID <= 0 || competitionID <= 0) return;
+        AtomicLongArray e = enrollments;
+        if (participantID >= e.length()) {
+            e = grow(e, participantID);
+            enrollments = e;
+        }
+        long slot = e.get(participantID);
+        int a = first(slot), b = second(slot);
+        if (a == competitionID || b == competitionID) return;
+        if (b != 0) {
+            logger.warn("Participant {} has more than {} competitions; ignoring {}",
+                    participantID, ICompetitionRepository.ENROLLMENT_LIMIT, competitionID);
+            return;
+        }
+        e.set(participantID, a == 0 ? pack(competitionID, 0) : pack(a, competitionID));
+        AtomicReferenceArray<int[]> r = rosters;
+        setRoster(competitionID, with(competitionID < r.length() ? r.get(competitionID) : null, participantID));
+    }
+
+    private void setRoster(int competitionID, int[] roster) {
+        AtomicReferenceArray<int[]> r = rosters;
+        if (competitionID >= r.length()) {
+            AtomicReferenceArray<int[]> grown = new AtomicReferenceArray<>(Math.max(competitionID + 1, r.length() * 2));
+            for (int i = 0; i < r.length(); i++) {
+                grown.set(i, r.get(i));
+            }
+            rosters = r = grown;
+        }
+        r.set(competitionID, roster);
+    }
+
+    private static AtomicLongArray grow(AtomicLongArray e, int needed) {
+        AtomicLongArray grown = new AtomicLongArray(Math.max(needed + 1, e.length() * 2));
+        for (int i = 0; i < e.length(); i++) {
+            grown.set(i, e.get(i));
+        }
+        return grown;
+    }
+
+    private static long pack(int first, int second) {
+        return ((long) second << 32) | (first & 0xFFFFFFFFL);
+    }
+
+    private static int[] with(int[] roster, int participantID) {
+        if (roster == null) return new int[]{participantID};
+        int at = Arrays.binarySearch(roster, participantID);
+        if (at >= 0) return roster;
+        int insert = -at - 1;
+        int[] grown = new int[roster.length + 1];
+        System.arraycopy(roster, 0, grown, 0, insert);
+        grown[insert] = participantID;
+        System.arraycopy(roster, insert, grown, insert + 1, roster.length - insert);
+        return grown;
+    }
+
+    private static int[] without(int[] roster, int participantID) {
+        if (roster == null) return null;
+        int at = Arrays.binarySearch(roster, participantID);
+        if (at < 0) return roster;
+        if (roster.length == 1) return null;
+        int[] shrunk = new int[roster.length - 1];
+        System.arraycopy(roster, 0, shrunk, 0, at);
+        System.arraycopy(roster, at + 1, shrunk, at, roster.length - at - 1);
+        return shrunk;
+    }
+}
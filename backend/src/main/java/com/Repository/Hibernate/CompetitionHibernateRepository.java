@@ -1,35 +1,49 @@
 package com.Repository.Hibernate;
 
 import com.Domain.Competition;
+import com.Domain.Participant;
 import com.Domain.ParticipantCompetition;
 import com.Util.HibernateUtil;
+import org.hibernate.Cache;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
-import org.hibernate.Transaction;
+import org.hibernate.StatelessSession;
 import org.hibernate.query.Query;
 import com.Repository.Interface.ICompetitionRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Repository;
 
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 /**
  * CompetitionHibernateRepository is a concrete implementation of the ICompetitionRepository interface
  * using Hibernate for ORM.
  */
-@Repository
 public class CompetitionHibernateRepository implements ICompetitionRepository {
     private static final Logger logger = LoggerFactory.getLogger(CompetitionHibernateRepository.class);
+    private static final int STREAM_FETCH_SIZE = 1000;
+    // Query cache region for the type / age filters (hibernate-cache.conf)
+    static final String FILTER_REGION = "competition-filters";
 
     @Override
     public Competition add(Competition c) {
-        logger.info("Adding competition: {}", c);
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-            session.persist(c);
-            tx.commit();
-            logger.info("Saved Competition with ID: {}", c.getCompetitionID());
-            return c;
+        logger.debug("Adding competition: {}", c);
+        try {
+            return HibernateUtil.write(session -> {
+                session.persist(c);
+                logger.debug("Saved Competition with ID: {}", c.getCompetitionID());
+                return c;
+            });
         } catch (Exception e) {
             logger.error("Error adding competition", e);
             throw new RuntimeException(e);
@@ -38,19 +52,20 @@ public class CompetitionHibernateRepository implements ICompetitionRepository {
 
     @Override
     public void update(int id, Competition c) {
-        logger.info("Updating competition ID: {}", id);
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-            Competition comp = session.get(Competition.class, id);
-            if (comp != null) {
-                comp.setType(c.getType());
-                comp.setAgeCategory(c.getAgeCategory());
-                comp.setNrOfParticipants(c.getNrOfParticipants());
-                logger.info("Competition updated");
-            } else {
-                logger.warn("Competition not found");
-            }
-            tx.commit();
+        logger.debug("Updating competition ID: {}", id);
+        try {
+            HibernateUtil.write(session -> {
+                Competition comp = session.get(Competition.class, id);
+                if (comp != null) {
+                    comp.setType(c.getType());
+                    comp.setAgeCategory(c.getAgeCategory());
+                    comp.setNrOfParticipants(c.getNrOfParticipants());
+                    logger.debug("Competition updated");
+                } else {
+                    logger.warn("Competition not found");
+                }
+                return null;
+            });
         } catch (Exception e) {
             logger.error("Error updating competition", e);
             throw new RuntimeException(e);
@@ -59,17 +74,18 @@ public class CompetitionHibernateRepository implements ICompetitionRepository {
 
     @Override
     public void remove(int id) {
-        logger.info("Removing competition ID: {}", id);
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-            Competition comp = session.get(Competition.class, id);
-            if (comp != null) {
-                session.remove(comp);
-                logger.info("Competition removed");
-            } else {
-                logger.warn("Competition not found");
-            }
-            tx.commit();
+        logger.debug("Removing competition ID: {}", id);
+        try {
+            HibernateUtil.write(session -> {
+                Competition comp = session.get(Competition.class, id);
+                if (comp != null) {
+                    session.remove(comp);
+                    logger.debug("Competition removed");
+                } else {
+                    logger.warn("Competition not found");
+                }
+                return null;
+            });
         } catch (Exception e) {
             logger.error("Error removing competition", e);
             throw new RuntimeException(e);
@@ -78,10 +94,10 @@ public class CompetitionHibernateRepository implements ICompetitionRepository {
 
     @Override
     public List<Competition> getAll() {
-        logger.info("Fetching all competitions");
+        logger.debug("Fetching all competitions");
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             List<Competition> list = session.createQuery("from Competition", Competition.class).list();
-            logger.info("Retrieved {} competitions", list.size());
+            logger.debug("Retrieved {} competitions", list.size());
             return list;
         } catch (Exception e) {
             logger.error("Error fetching competitions", e);
@@ -91,11 +107,11 @@ public class CompetitionHibernateRepository implements ICompetitionRepository {
 
     @Override
     public Competition getById(int id) {
-        logger.info("Fetching competition ID: {}", id);
+        logger.debug("Fetching competition ID: {}", id);
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             Competition comp = session.get(Competition.class, id);
             if (comp != null) {
-                logger.info("Competition found: {}", comp);
+                logger.debug("Competition found: {}", comp);
             } else {
                 logger.warn("Competition not found");
             }
@@ -108,14 +124,16 @@ public class CompetitionHibernateRepository implements ICompetitionRepository {
 
     @Override
     public List<Competition> getCompetitionByTypeAndAge(String type, String ageCategory) {
-        logger.info("Fetching competitions of type '{}' and age '{}'", type, ageCategory);
+        logger.debug("Fetching competitions of type '{}' and age '{}'", type, ageCategory);
         String hql = "from Competition c where c.type = :type and c.ageCategory = :age";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Query<Competition> q = session.createQuery(hql, Competition.class);
+            Query<Competition> q = session.createQuery(hql, Competition.class)
+                    .setCacheable(true)
+                    .setCacheRegion(FILTER_REGION);
             q.setParameter("type", type);
             q.setParameter("age", ageCategory);
             List<Competition> results = q.list();
-            logger.info("Retrieved {} competitions", results.size());
+            logger.debug("Retrieved {} competitions", results.size());
             return results;
         } catch (Exception e) {
             logger.error("Error fetching competitions by type and age", e);
@@ -125,13 +143,15 @@ public class CompetitionHibernateRepository implements ICompetitionRepository {
 
     @Override
     public List<Competition> getCompetitionsByType(String type) {
-        logger.info("Fetching competitions of type '{}'", type);
+        logger.debug("Fetching competitions of type '{}'", type);
         String hql = "from Competition c where c.type = :type";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Query<Competition> q = session.createQuery(hql, Competition.class);
+            Query<Competition> q = session.createQuery(hql, Competition.class)
+                    .setCacheable(true)
+                    .setCacheRegion(FILTER_REGION);
             q.setParameter("type", type);
             List<Competition> results = q.list();
-            logger.info("Retrieved {} competitions", results.size());
+            logger.debug("Retrieved {} competitions", results.size());
             return results;
         } catch (Exception e) {
             logger.error("Error fetching competitions by type", e);
@@ -141,13 +161,15 @@ public class CompetitionHibernateRepository implements ICompetitionRepository {
 
     @Override
     public List<Competition> getCompetitionsByAge(String ageCategory) {
-        logger.info("Fetching competitions of age '{}'", ageCategory);
+        logger.debug("Fetching competitions of age '{}'", ageCategory);
         String hql = "from Competition c where c.ageCategory = :age";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Query<Competition> q = session.createQuery(hql, Competition.class);
+            Query<Competition> q = session.createQuery(hql, Competition.class)
+                    .setCacheable(true)
+                    .setCacheRegion(FILTER_REGION);
             q.setParameter("age", ageCategory);
             List<Competition> results = q.list();
-            logger.info("Retrieved {} competitions", results.size());
+            logger.debug("Retrieved {} competitions", results.size());
             return results;
         } catch (Exception e) {
             logger.error("Error fetching competitions by age", e);
@@ -157,45 +179,171 @@ public class CompetitionHibernateRepository implements ICompetitionRepository {
 
     @Override
     public void incrementParticipantCount(int compID) {
-        logger.info("Incrementing participant count for competition ID: {}", compID);
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-            Competition comp = session.get(Competition.class, compID);
-            if (comp != null) {
-                comp.setNrOfParticipants(comp.getNrOfParticipants() + 1);
-                logger.info("New participant count: {}", comp.getNrOfParticipants());
-            } else {
-                logger.warn("Competition not found");
-            }
-            tx.commit();
+        logger.debug("Incrementing participant count for competition ID: {}", compID);
+        try {
+            HibernateUtil.write(session -> {
+                Competition comp = session.get(Competition.class, compID);
+                if (comp != null) {
+                    comp.setNrOfParticipants(comp.getNrOfParticipants() + 1);
+                    logger.debug("New participant count: {}", comp.getNrOfParticipants());
+                } else {
+                    logger.warn("Competition not found");
+                }
+                return null;
+            });
         } catch (Exception e) {
             logger.error("Error incrementing count", e);
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Insert the link only if the participant is under the limit, then bump the count, all in one write
+     * session. The statements run as JDBC work on the writer's connection: Hibernate will not execute
+     * mutation queries outside its own transaction, and the writer owns the transaction here.
+     * The count is read back in that same transaction, so it is the one this enrollment produced.
+     */
+    @Override
+    public int enrollParticipant(int participantID, int competitionID) {
+        logger.debug("Enrolling participant {} in competition {}", participantID, competitionID);
+        try {
+            int count = HibernateUtil.write(session -> {
+                int enrolled = session.doReturningWork(conn -> {
+                    try (PreparedStatement insert = conn.prepareStatement(
+                                 "INSERT INTO ParticipantCompetition(participantID, competitionID) SELECT ?, ? " +
+                                 "WHERE (SELECT COUNT(*) FROM ParticipantCompetition WHERE participantID = ?) < ?");
+                         PreparedStatement bump = conn.prepareStatement(
+                                 "UPDATE Competition SET nrOfParticipants = nrOfParticipants + 1 WHERE competitionID = ?");
+                         PreparedStatement read = conn.prepareStatement(
+                                 "SELECT nrOfParticipants FROM Competition WHERE competitionID = ?")) {
+                        insert.setInt(1, participantID);
+                        insert.setInt(2, competitionID);
+                        insert.setInt(3, participantID);
+                        insert.setInt(4, ENROLLMENT_LIMIT);
+                        if (insert.executeUpdate() == 0) {
+                            logger.error("Participant ID:{} is already enrolled in {} competitions", participantID, ENROLLMENT_LIMIT);
+                            throw new IllegalStateException("Participant is already enrolled in " + ENROLLMENT_LIMIT + " competitions");
+                        }
+                        bump.setInt(1, competitionID);
+                        if (bump.executeUpdate() == 0) {
+                            throw new IllegalStateException("Competition " + competitionID + " does not exist");
+                        }
+                        read.setInt(1, competitionID);
+                        try (ResultSet rs = read.executeQuery()) {
+                            rs.next();
+                            return rs.getInt(1);
+                        }
+                    }
+                });
+                logger.debug("Participant {} successfully enrolled in competition {}", participantID, competitionID);
+                return enrolled;
+            });
+            evictAfterJdbcWrite(List.of(competitionID));
+            return count;
+        } catch (RuntimeException e) {
+            if (causedByUniqueViolation(e)) {
+                logger.warn("Participant {} already in competition {}", participantID, competitionID);
+                throw new RuntimeException("Participant is already enrolled in this competition", e);
+            }
+            logger.error("Error enrolling participant in competition", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Participants are persisted one by one (IDENTITY keys cannot be batched); the links are flushed as
+     * one JDBC batch (hibernate.jdbc.batch_size) and the counts get one batched update per competition.
+     */
+    @Override
+    public void enrollNewParticipants(List<Participant> participants, List<List<Integer>> competitionIDs) {
+        logger.debug("Bulk enrolling {} new participants", participants.size());
+        try {
+            Set<Integer> touched = HibernateUtil.write(session -> {
+                participants.forEach(session::persist);
+                // Outside a Hibernate transaction IDENTITY inserts wait for the flush; the links need the IDs
+                session.flush();
+                Map<Integer, Integer> added = new TreeMap<>();
+                for (int i = 0; i < participants.size(); i++) {
+                    Participant p = participants.get(i);
+                    for (int competitionID : competitionIDs.get(i)) {
+                        session.persist(new ParticipantCompetition(p.getParticipantID(), competitionID));
+                        added.merge(competitionID, 1, Integer::sum);
+                    }
+                }
+                session.flush();
+                session.doWork(conn -> {
+                    try (PreparedStatement bump = conn.prepareStatement(
+                            "UPDATE Competition SET nrOfParticipants = nrOfParticipants + ? WHERE competitionID = ?")) {
+                        for (Map.Entry<Integer, Integer> e : added.entrySet()) {
+                            bump.setInt(1, e.getValue());
+                            bump.setInt(2, e.getKey());
+                            bump.addBatch();
+                        }
+                        for (int updated : bump.executeBatch()) {
+                            if (updated == 0) throw new IllegalStateException("Unknown competition in bulk enrollment");
+                        }
+                    }
+                });
+                logger.debug("Bulk enrolled {} participants into {} competitions", participants.size(), added.size());
+                return added.keySet();
+            });
+            evictAfterJdbcWrite(touched);
+        } catch (Exception e) {
+            logger.error("Error in bulk enrollment", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The enrollment counters are bumped with plain JDBC, which Hibernate does not see: drop the cached
+     * rows and every cached query over Competition or ParticipantCompetition once the write has committed.
+     */
+    private static void evictAfterJdbcWrite(Collection<Integer> competitionIDs) {
+        Cache cache = HibernateUtil.getSessionFactory().getCache();
+        competitionIDs.forEach(id -> cache.evictEntityData(Competition.class, id));
+        cache.evictQueryRegion(FILTER_REGION);
+        cache.evictQueryRegion(ParticipantHibernateRepository.BY_COMPETITION_REGION);
+    }
+
+    private static boolean causedByUniqueViolation(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException && String.valueOf(t.getMessage()).contains("UNIQUE constraint failed")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
-    public void enrollParticipant(int participantID, int competitionID) {
-        logger.info("Enrolling participant {} in competition {}", participantID, competitionID);
+    public List<Competition> getPage(int afterId, int limit) {
+        logger.debug("Fetching competitions after ID {} (limit {})", afterId, limit);
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-            // Check if the participant is already enrolled in 2 competitions
-            Long count = session.createQuery(
-                    "select count(pc) from ParticipantCompetition pc where pc.participantID = :pid",
-                    Long.class
-            ).setParameter("pid", participantID).uniqueResult();
-            if (count != null && count >= 2) {
-                logger.error("Participant ID:{} is already enrolled in {} competitions", participantID, count);
-                tx.rollback();
-                throw new RuntimeException("Participant is already enrolled in 2 competitions");
+            return session.createQuery("from Competition where competitionID > :after order by competitionID", Competition.class)
+                    .setParameter("after", afterId)
+                    .setMaxResults(limit)
+                    .list();
+        } catch (Exception e) {
+            logger.error("Error fetching a page of competitions", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** A stateless session keeps nothing per row, so the scroll runs in constant memory */
+    @Override
+    public void forEach(Consumer<Competition> action) {
+        logger.debug("Streaming all competitions");
+        try (StatelessSession session = HibernateUtil.getSessionFactory().openStatelessSession();
+             ScrollableResults<Competition> rows = session.createQuery("from Competition order by competitionID", Competition.class)
+                     .setFetchSize(STREAM_FETCH_SIZE)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                action.accept(rows.get());
             }
-            // Enroll the participant in the competition(s)
-            ParticipantCompetition pc = new ParticipantCompetition(participantID, competitionID);
-            session.persist(pc);
-            tx.commit();
-            logger.info("Participant {} successfully enrolled in competition {}", participantID, competitionID);
+        } catch (UncheckedIOException e) {
+            // Thrown by the action, typically the client of a streamed response going away
+            throw e;
         } catch (Exception e) {
-            logger.error("Error enrolling participant in competition", e);
+            logger.error("Error streaming competitions", e);
             throw new RuntimeException(e);
         }
     }
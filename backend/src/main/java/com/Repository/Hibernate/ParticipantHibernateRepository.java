@@ -1,36 +1,42 @@
 package com.Repository.Hibernate;
 
+import com.DTO.ParticipantRecordDTO;
 import com.Domain.Participant;
 import com.Domain.ParticipantCompetition;
 import com.Repository.Interface.IParticipantRepository;
 import com.Util.HibernateUtil;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
-import org.hibernate.Transaction;
+import org.hibernate.StatelessSession;
 import org.hibernate.query.Query;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Repository;
 
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * ParticipantHibernateRepository is a concrete implementation of the IParticipantRepository interface
  * using Hibernate for ORM.
  */
-@Repository
 public class ParticipantHibernateRepository implements IParticipantRepository {
     private static final Logger logger = LoggerFactory.getLogger(ParticipantHibernateRepository.class);
+    private static final int STREAM_FETCH_SIZE = 1000;
+    // Query cache region for getParticipantsForCompetition (hibernate-cache.conf)
+    static final String BY_COMPETITION_REGION = "participants-by-competition";
 
     @Override
     public Participant add(Participant p) {
-        logger.info("Adding participant: {}", p);
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-            session.persist(p);
-            tx.commit();
-            logger.info("Participant saved with ID: {}", p.getParticipantID());
-            return p;
+        logger.debug("Adding participant: {}", p);
+        try {
+            return HibernateUtil.write(session -> {
+                session.persist(p);
+                logger.debug("Participant saved with ID: {}", p.getParticipantID());
+                return p;
+            });
         } catch (Exception e) {
             logger.error("Error adding participant", e);
             throw new RuntimeException(e);
@@ -39,18 +45,19 @@ public class ParticipantHibernateRepository implements IParticipantRepository {
 
     @Override
     public void update(int id, Participant p) {
-        logger.info("Updating participant ID: {}", id);
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-            Participant participant = session.get(Participant.class, id);
-            if (participant != null) {
-                participant.setName(p.getName());
-                participant.setAge(p.getAge());
-                logger.info("Participant updated successfully.");
-            } else {
-                logger.warn("No participant found with ID: {}", id);
-            }
-            tx.commit();
+        logger.debug("Updating participant ID: {}", id);
+        try {
+            HibernateUtil.write(session -> {
+                Participant participant = session.get(Participant.class, id);
+                if (participant != null) {
+                    participant.setName(p.getName());
+                    participant.setAge(p.getAge());
+                    logger.debug("Participant updated successfully.");
+                } else {
+                    logger.warn("No participant found with ID: {}", id);
+                }
+                return null;
+            });
         } catch (Exception e) {
             logger.error("Error updating participant", e);
             throw new RuntimeException(e);
@@ -59,17 +66,18 @@ public class ParticipantHibernateRepository implements IParticipantRepository {
 
     @Override
     public void remove(int id) {
-        logger.info("Removing participant with ID: {}", id);
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-            Participant p = session.get(Participant.class, id);
-            if (p != null) {
-                session.remove(p);
-                logger.info("Participant removed successfully.");
-            } else {
-                logger.warn("No participant found with ID: {}", id);
-            }
-            tx.commit();
+        logger.debug("Removing participant with ID: {}", id);
+        try {
+            HibernateUtil.write(session -> {
+                Participant p = session.get(Participant.class, id);
+                if (p != null) {
+                    session.remove(p);
+                    logger.debug("Participant removed successfully.");
+                } else {
+                    logger.warn("No participant found with ID: {}", id);
+                }
+                return null;
+            });
         } catch (Exception e) {
             logger.error("Error removing participant", e);
             throw new RuntimeException(e);
@@ -78,10 +86,10 @@ public class ParticipantHibernateRepository implements IParticipantRepository {
 
     @Override
     public List<Participant> getAll() {
-        logger.info("Fetching all participants.");
+        logger.debug("Fetching all participants.");
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             List<Participant> participants = session.createQuery("from Participant", Participant.class).list();
-            logger.info("Successfully retrieved {} participants.", participants.size());
+            logger.debug("Successfully retrieved {} participants.", participants.size());
             return participants;
         } catch (Exception e) {
             logger.error("Error fetching participants", e);
@@ -91,11 +99,11 @@ public class ParticipantHibernateRepository implements IParticipantRepository {
 
     @Override
     public Participant getById(int id) {
-        logger.info("Fetching participant with ID: {}", id);
+        logger.debug("Fetching participant with ID: {}", id);
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             Participant p = session.get(Participant.class, id);
             if (p != null) {
-                logger.info("Participant found: {}", p);
+                logger.debug("Participant found: {}", p);
             } else {
                 logger.warn("No participant found with ID: {}", id);
             }
@@ -108,7 +116,7 @@ public class ParticipantHibernateRepository implements IParticipantRepository {
 
     @Override
     public ArrayList<Participant> getParticipantsForCompetition(int compID) {
-        logger.info("Fetching participants for competition ID: {}", compID);
+        logger.debug("Fetching participants for competition ID: {}", compID);
         String hql = """
             select p\s
               from Participant p
@@ -117,14 +125,88 @@ public class ParticipantHibernateRepository implements IParticipantRepository {
              where pc.competitionID = :cid
            \s""";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Query<Participant> q = session.createQuery(hql, Participant.class);
+            Query<Participant> q = session.createQuery(hql, Participant.class)
+                    .setCacheable(true)
+                    .setCacheRegion(BY_COMPETITION_REGION);
             q.setParameter("cid", compID);
             List<Participant> list = q.list();
-            logger.info("Found {} participants", list.size());
+            logger.debug("Found {} participants", list.size());
             return new ArrayList<>(list);
         } catch (Exception e) {
             logger.error("Error fetching participants", e);
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Scalar rows through a stateless session and a forward-only scroll, so nothing accumulates in a
+     * persistence context however many participants there are.
+     */
+    @Override
+    public void forEachWithCompetitions(Consumer<ParticipantRecordDTO> action) {
+        logger.debug("Streaming all participants with their competitions");
+        String hql = """
+            select p.participantID, p.name, p.age, pc.competitionID
+              from Participant p
+              left join ParticipantCompetition pc
+                on p.participantID = pc.participantID
+             order by p.participantID
+            """;
+        try (StatelessSession session = HibernateUtil.getSessionFactory().openStatelessSession();
+             ScrollableResults<Object[]> rows = session.createQuery(hql, Object[].class)
+                     .setFetchSize(STREAM_FETCH_SIZE)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            ParticipantRecordDTO current = null;
+            while (rows.next()) {
+                Object[] row = rows.get();
+                Integer id = (Integer) row[0];
+                if (current == null || !current.getParticipantID().equals(id)) {
+                    if (current != null) action.accept(current);
+                    current = new ParticipantRecordDTO(id, (String) row[1], (Integer) row[2], new ArrayList<>(2));
+                }
+                if (row[3] != null) current.getCompetitionIDs().add((Integer) row[3]);
+            }
+            if (current != null) action.accept(current);
+        } catch (UncheckedIOException e) {
+            // Thrown by the action, typically the client of a streamed response going away
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error streaming participants", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<Participant> getPage(int afterId, int limit) {
+        logger.debug("Fetching participants after ID {} (limit {})", afterId, limit);
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.createQuery("from Participant where participantID > :after order by participantID", Participant.class)
+                    .setParameter("after", afterId)
+                    .setMaxResults(limit)
+                    .list();
+        } catch (Exception e) {
+            logger.error("Error fetching a page of participants", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** A stateless session keeps nothing per row, so the scroll runs in constant memory */
+    @Override
+    public void forEach(Consumer<Participant> action) {
+        logger.debug("Streaming all participants");
+        try (StatelessSession session = HibernateUtil.getSessionFactory().openStatelessSession();
+             ScrollableResults<Participant> rows = session.createQuery("from Participant order by participantID", Participant.class)
+                     .setFetchSize(STREAM_FETCH_SIZE)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                action.accept(rows.get());
+            }
+        } catch (UncheckedIOException e) {
+            // Thrown by the action, typically the client of a streamed response going away
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error streaming participants", e);
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -2,34 +2,36 @@ package com.Repository.Hibernate;
 
 import com.Domain.User;
 import com.Util.HibernateUtil;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
-import org.hibernate.Transaction;
+import org.hibernate.StatelessSession;
 import org.hibernate.query.Query;
 import com.Repository.Interface.IUserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * UserHibernateRepository is a concrete implementation of the IUserRepository interface
  * using Hibernate for ORM.
  */
-@Repository
 public class UserHibernateRepository implements IUserRepository {
     private static final Logger logger = LoggerFactory.getLogger(UserHibernateRepository.class);
+    private static final int STREAM_FETCH_SIZE = 1000;
 
     @Override
     public User add(User user) {
-        logger.info("Adding user: {}", user);
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-            session.persist(user);
-            tx.commit();
-            logger.info("Saved User with ID: {}", user.getUserID());
-            return user;
+        logger.debug("Adding user: {}", user);
+        try {
+            return HibernateUtil.write(session -> {
+                session.persist(user);
+                logger.debug("Saved User with ID: {}", user.getUserID());
+                return user;
+            });
         } catch (Exception e) {
             logger.error("Error adding user", e);
             throw new RuntimeException(e);
@@ -38,18 +40,19 @@ public class UserHibernateRepository implements IUserRepository {
 
     @Override
     public void update(int id, User user) {
-        logger.info("Updating user ID: {}", id);
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-            User existingUser = session.get(User.class, id);
-            if (existingUser != null) {
-                existingUser.setUserName(user.getUserName());
-                existingUser.setPassword(user.getPassword());
-                logger.info("User updated");
-            } else {
-                logger.warn("User not found");
-            }
-            tx.commit();
+        logger.debug("Updating user ID: {}", id);
+        try {
+            HibernateUtil.write(session -> {
+                User existingUser = session.get(User.class, id);
+                if (existingUser != null) {
+                    existingUser.setUserName(user.getUserName());
+                    existingUser.setPassword(user.getPassword());
+                    logger.debug("User updated");
+                } else {
+                    logger.warn("User not found");
+                }
+                return null;
+            });
         } catch (Exception e) {
             logger.error("Error updating user", e);
             throw new RuntimeException(e);
@@ -58,17 +61,18 @@ public class UserHibernateRepository implements IUserRepository {
 
     @Override
     public void remove(int id) {
-        logger.info("Removing user ID: {}", id);
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction tx = session.beginTransaction();
-            User u = session.get(User.class, id);
-            if (u != null) {
-                session.remove(u);
-                logger.info("User removed");
-            } else {
-                logger.warn("User not found");
-            }
-            tx.commit();
+        logger.debug("Removing user ID: {}", id);
+        try {
+            HibernateUtil.write(session -> {
+                User u = session.get(User.class, id);
+                if (u != null) {
+                    session.remove(u);
+                    logger.debug("User removed");
+                } else {
+                    logger.warn("User not found");
+                }
+                return null;
+            });
         } catch (Exception e) {
             logger.error("Error removing user", e);
             throw new RuntimeException(e);
@@ -77,10 +81,10 @@ public class UserHibernateRepository implements IUserRepository {
 
     @Override
     public List<User> getAll() {
-        logger.info("Fetching all users");
+        logger.debug("Fetching all users");
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             List<User> list = session.createQuery("from User", User.class).list();
-            logger.info("Retrieved {} users", list.size());
+            logger.debug("Retrieved {} users", list.size());
             return list;
         } catch (Exception e) {
             logger.error("Error fetching users", e);
@@ -90,11 +94,11 @@ public class UserHibernateRepository implements IUserRepository {
 
     @Override
     public User getById(int id) {
-        logger.info("Fetching user ID: {}", id);
+        logger.debug("Fetching user ID: {}", id);
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             User user = session.get(User.class, id);
             if (user != null) {
-                logger.info("User found: {}", user);
+                logger.debug("User found: {}", user);
                 return user;
             } else {
                 logger.warn("User not found");
@@ -107,24 +111,45 @@ public class UserHibernateRepository implements IUserRepository {
     }
 
     @Override
-    public Optional<User> authenticate(String userName, String password) {
-        logger.info("Authenticating user: {}", userName);
+    public Optional<User> getByUserName(String userName) {
+        logger.debug("Fetching user: {}", userName);
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Query<User> q = session.createQuery(
-                    "from User where userName = :u and password = :p", User.class
-            );
+            Query<User> q = session.createQuery("from User where userName = :u", User.class);
             q.setParameter("u", userName);
-            q.setParameter("p", password);
-            User result = q.uniqueResult();
-            if (result != null) {
-                logger.info("Authentication successful");
-                return Optional.of(result);
-            } else {
-                logger.warn("Authentication failed");
-                return Optional.empty();
+            return Optional.ofNullable(q.uniqueResult());
+        } catch (Exception e) {
+            logger.error("Error fetching user by name", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        logger.debug("Fetching users after ID {} (limit {})", afterId, limit);
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.createQuery("from User where userID > :after order by userID", User.class)
+                    .setParameter("after", afterId)
+                    .setMaxResults(limit)
+                    .list();
+        } catch (Exception e) {
+            logger.error("Error fetching a page of users", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** A stateless session keeps nothing per row, so the scroll runs in constant memory */
+    @Override
+    public void forEach(Consumer<User> action) {
+        logger.debug("Streaming all users");
+        try (StatelessSession session = HibernateUtil.getSessionFactory().openStatelessSession();
+             ScrollableResults<User> rows = session.createQuery("from User order by userID", User.class)
+                     .setFetchSize(STREAM_FETCH_SIZE)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                action.accept(rows.get());
             }
         } catch (Exception e) {
-            logger.error("Error during authentication", e);
+            logger.error("Error streaming users", e);
             throw new RuntimeException(e);
         }
     }
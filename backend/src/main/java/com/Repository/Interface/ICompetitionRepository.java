@@ -1,10 +1,14 @@
 package com.Repository.Interface;
 
 import com.Domain.Competition;
+import com.Domain.Participant;
 
 import java.util.List;
 
 public interface ICompetitionRepository extends RepositoryInterface<Competition> {
+    /** Maximum number of competitions one participant may be enrolled in */
+    int ENROLLMENT_LIMIT = 2;
+
     /** Return competitions matching both a type (e.g. "Drawing") and age category (e.g. "6-8 years old") */
     List<Competition> getCompetitionByTypeAndAge(String type, String ageCategory);
 
@@ -14,9 +18,29 @@ public interface ICompetitionRepository extends RepositoryInterface<Competition>
     /** Return competitions matching the given age category only */
     List<Competition> getCompetitionsByAge(String ageCategory);
 
+    /** Return competitions matching both filters; a null type or age category matches any value */
+    default List<Competition> filter(String type, String ageCategory) {
+        if (type == null && ageCategory == null) return getAll();
+        if (type == null) return getCompetitionsByAge(ageCategory);
+        if (ageCategory == null) return getCompetitionsByType(type);
+        return getCompetitionByTypeAndAge(type, ageCategory);
+    }
+
     /** Increment the nrOfParticipants counter on the competition with the given ID */
     void incrementParticipantCount(int competitionID);
 
-    /** Enroll a participant in a competition */
-    void enrollParticipant(int participantID, int competitionID);
+    /**
+     * Enroll a participant in a competition and increment its nrOfParticipants in one transaction.
+     * Fails without changing anything if the participant is already in {@link #ENROLLMENT_LIMIT}
+     * competitions or already in this one.
+     * @return the competition's nrOfParticipants as committed by this enrollment
+     */
+    int enrollParticipant(int participantID, int competitionID);
+
+    /**
+     * Save new participants and enroll {@code participants.get(i)} in every competition of
+     * {@code competitionIDs.get(i)}, bumping the counts, all in one transaction. Sets each participant's
+     * generated ID. Callers validate the rows first; any failure rolls back the whole batch.
+     */
+    void enrollNewParticipants(List<Participant> participants, List<List<Integer>> competitionIDs);
 }
@@ -1,10 +1,18 @@
 package com.Repository.Interface;
 
+import com.DTO.ParticipantRecordDTO;
 import com.Domain.Participant;
 
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 public interface IParticipantRepository extends RepositoryInterface<Participant>{
     /** Fetch all participants enrolled in the given competition */
     ArrayList<Participant> getParticipantsForCompetition(int competitionID);
+
+    /**
+     * Hand every participant, with the IDs of its competitions, to {@code action} in ID order. Rows come
+     * from a forward-only cursor one at a time, so memory use does not grow with the table.
+     */
+    void forEachWithCompetitions(Consumer<ParticipantRecordDTO> action);
 }
@@ -4,6 +4,6 @@ import com.Domain.User;
 import java.util.Optional;
 
 public interface IUserRepository extends RepositoryInterface<User>{
-    /** Authenticate a user based on their username and password */
-    Optional<User> authenticate(String userName, String password);
+    /** The user with this name, stored password hash included; verifying it is up to the caller */
+    Optional<User> getByUserName(String userName);
 }
@@ -4,8 +4,16 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.List;
 import java.util.Properties;
+import java.util.function.Consumer;
 
 public interface RepositoryInterface<T> {
+    /** Largest page the controllers and the socket server hand out, whatever the client asks for */
+    int MAX_PAGE_SIZE = 1000;
+
+    static int clampPageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
     String url = loadDatabaseUrl();
     static String loadDatabaseUrl() {
         Properties properties = new Properties();
@@ -29,4 +37,13 @@ public interface RepositoryInterface<T> {
     List<T> getAll();
 
     T getById(int id);
+
+    /**
+     * Keyset pagination: up to {@code limit} entities whose ID is greater than {@code afterId}, in ID order.
+     * Pass 0 for the first page and the last ID of a page for the next one.
+     */
+    List<T> getPage(int afterId, int limit);
+
+    /** Hand every entity to {@code action} in ID order, one at a time from a forward-only cursor */
+    void forEach(Consumer<T> action);
 }
@@ -1,38 +1,62 @@
 package com.Repository.Manual;
 
 import com.Domain.Competition;
+import com.Domain.Participant;
 import com.Repository.Interface.ICompetitionRepository;
+import com.Util.ConnectionPool;
+import com.Util.DatabaseWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 
 public class CompetitionRepository implements ICompetitionRepository {
     private static final Logger logger = LoggerFactory.getLogger(CompetitionRepository.class);
+    private static final int STREAM_FETCH_SIZE = 1000;
+    // Inserts nothing once the participant has reached the limit; the check and the insert are one statement
+    private static final String ENROLL_SQL =
+            "INSERT INTO ParticipantCompetition(participantID, competitionID) SELECT ?, ? " +
+            "WHERE (SELECT COUNT(*) FROM ParticipantCompetition WHERE participantID = ?) < ?";
+    private final ConnectionPool pool;
+    private final DatabaseWriter writer;
+
+    public CompetitionRepository() {
+        this(ConnectionPool.getInstance(), DatabaseWriter.getInstance());
+    }
+
+    public CompetitionRepository(ConnectionPool pool, DatabaseWriter writer) {
+        this.pool   = pool;
+        this.writer = writer;
+    }
 
     @Override
     public Competition add(Competition c) {
-        logger.info("Adding competition: {}", c);
+        logger.debug("Adding competition: {}", c);
         String sql = "INSERT INTO Competition(type, ageCategory, nrOfParticipants) VALUES (?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(url);
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setString(1, c.getType());
-            ps.setString(2, c.getAgeCategory());
-            ps.setInt(3, c.getNrOfParticipants());
-            ps.executeUpdate();
-            logger.info("Competition added successfully.");
-            try(ResultSet rs = ps.getGeneratedKeys()) {
-                if (rs.next()) {
-                    int id = rs.getInt(1);
-                    logger.info("Generated ID for new competition: {}", id);
-                    c.setCompetitionID(id);
+        try {
+            return writer.submit(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, c.getType());
+                    ps.setString(2, c.getAgeCategory());
+                    ps.setInt(3, c.getNrOfParticipants());
+                    ps.executeUpdate();
+                    logger.debug("Competition added successfully.");
+                    try(ResultSet rs = ps.getGeneratedKeys()) {
+                        if (rs.next()) {
+                            int id = rs.getInt(1);
+                            logger.debug("Generated ID for new competition: {}", id);
+                            c.setCompetitionID(id);
+                        }
+                    }
+                    return c;
                 }
-            }
-            return c;
+            });
         } catch (SQLException e) {
             logger.error("Error adding competition", e);
             throw new RuntimeException(e);
@@ -41,17 +65,19 @@ public class CompetitionRepository implements ICompetitionRepository {
 
     @Override
     public void update(int id, Competition c) {
-        logger.info("Updating competition ID: {}", id);
+        logger.debug("Updating competition ID: {}", id);
         String sql = "UPDATE Competition SET type = ?, ageCategory = ?, nrOfParticipants = ? WHERE competitionID = ?";
-        try (Connection conn = DriverManager.getConnection(url);
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setString(1, c.getType());
-            ps.setString(2, c.getAgeCategory());
-            ps.setInt(3, c.getNrOfParticipants());
-            ps.setInt(4, id);
-            ps.executeUpdate();
-            logger.info("Competition updated successfully.");
+        try {
+            writer.execute(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, c.getType());
+                    ps.setString(2, c.getAgeCategory());
+                    ps.setInt(3, c.getNrOfParticipants());
+                    ps.setInt(4, id);
+                    ps.executeUpdate();
+                    logger.debug("Competition updated successfully.");
+                }
+            });
         } catch (SQLException e) {
             logger.error("Error updating competition", e);
             throw new RuntimeException(e);
@@ -60,14 +86,16 @@ public class CompetitionRepository implements ICompetitionRepository {
 
     @Override
     public void remove(int compID) {
-        logger.info("Removing competition with ID: {}", compID);
+        logger.debug("Removing competition with ID: {}", compID);
         String sql = "DELETE FROM Competition WHERE competitionID = ?";
-        try (Connection conn = DriverManager.getConnection(url);
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setInt(1, compID);
-            ps.executeUpdate();
-            logger.info("Competition removed successfully.");
+        try {
+            writer.execute(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setInt(1, compID);
+                    ps.executeUpdate();
+                    logger.debug("Competition removed successfully.");
+                }
+            });
         } catch (SQLException e) {
             logger.error("Error removing competition", e);
             throw new RuntimeException(e);
@@ -76,9 +104,9 @@ public class CompetitionRepository implements ICompetitionRepository {
 
     @Override
     public ArrayList<Competition> getAll() {
-        logger.info("Fetching all competitions.");
+        logger.debug("Fetching all competitions.");
         String sql = "SELECT * FROM Competition";
-        try (Connection conn = DriverManager.getConnection(url);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
@@ -91,7 +119,7 @@ public class CompetitionRepository implements ICompetitionRepository {
                         rs.getInt(4)     // Number of Participants
                 ));
             }
-            logger.info("Successfully retrieved {} competitions.", competitions.size());
+            logger.debug("Successfully retrieved {} competitions.", competitions.size());
             return competitions;
         } catch (SQLException e) {
             logger.error("Error fetching competitions", e);
@@ -101,25 +129,26 @@ public class CompetitionRepository implements ICompetitionRepository {
 
     @Override
     public Competition getById(int id) {
-        logger.info("Fetching competition with ID: {}", id);
+        logger.debug("Fetching competition with ID: {}", id);
         String sql = "SELECT * FROM Competition WHERE competitionID = ?";
-        try (Connection conn = DriverManager.getConnection(url);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, id);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                Competition competition = new Competition(
-                        rs.getInt(1),    // ID
-                        rs.getString(2), // Type
-                        rs.getString(3), // Age Category
-                        rs.getInt(4)     // Number of Participants
-                );
-                logger.info("Competition found: {}", competition);
-                return competition;
-            } else {
-                logger.warn("No competition found with ID: {}", id);
-                return null;
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    Competition competition = new Competition(
+                            rs.getInt(1),    // ID
+                            rs.getString(2), // Type
+                            rs.getString(3), // Age Category
+                            rs.getInt(4)     // Number of Participants
+                    );
+                    logger.debug("Competition found: {}", competition);
+                    return competition;
+                } else {
+                    logger.warn("No competition found with ID: {}", id);
+                    return null;
+                }
             }
         } catch (SQLException e) {
             logger.error("Error fetching competition", e);
@@ -129,25 +158,26 @@ public class CompetitionRepository implements ICompetitionRepository {
 
     @Override
     public List<Competition> getCompetitionByTypeAndAge(String type, String ageCategory) {
-        logger.info("Fetching competitions of type: {} and age category: {}", type, ageCategory);
+        logger.debug("Fetching competitions of type: {} and age category: {}", type, ageCategory);
         String sql = "SELECT * FROM Competition WHERE type = ? AND ageCategory = ?";
-        try (Connection conn = DriverManager.getConnection(url);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, type);
             ps.setString(2, ageCategory);
-            ResultSet rs = ps.executeQuery();
-            ArrayList<Competition> competitions = new ArrayList<>();
-            while (rs.next()) {
-                competitions.add(new Competition(
-                        rs.getInt(1),
-                        rs.getString(2),
-                        rs.getString(3),
-                        rs.getInt(4)
-                ));
+            try (ResultSet rs = ps.executeQuery()) {
+                ArrayList<Competition> competitions = new ArrayList<>();
+                while (rs.next()) {
+                    competitions.add(new Competition(
+                            rs.getInt(1),
+                            rs.getString(2),
+                            rs.getString(3),
+                            rs.getInt(4)
+                    ));
+                }
+                logger.debug("Successfully retrieved {} competitions of type: {} and age category: {}", competitions.size(), type, ageCategory);
+                return competitions;
             }
-            logger.info("Successfully retrieved {} competitions of type: {} and age category: {}", competitions.size(), type, ageCategory);
-            return competitions;
         } catch (SQLException e) {
             logger.error("Error fetching competitions by type and age category", e);
             throw new RuntimeException(e);
@@ -156,24 +186,25 @@ public class CompetitionRepository implements ICompetitionRepository {
 
     @Override
     public List<Competition> getCompetitionsByType(String type) {
-        logger.info("Fetching competitions of type: {}", type);
+        logger.debug("Fetching competitions of type: {}", type);
         String sql = "SELECT * FROM Competition WHERE type = ?";
-        try (Connection conn = DriverManager.getConnection(url);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, type);
-            ResultSet rs = ps.executeQuery();
-            ArrayList<Competition> competitions = new ArrayList<>();
-            while (rs.next()) {
-                competitions.add(new Competition(
-                        rs.getInt(1),
-                        rs.getString(2),
-                        rs.getString(3),
-                        rs.getInt(4)
-                ));
+            try (ResultSet rs = ps.executeQuery()) {
+                ArrayList<Competition> competitions = new ArrayList<>();
+                while (rs.next()) {
+                    competitions.add(new Competition(
+                            rs.getInt(1),
+                            rs.getString(2),
+                            rs.getString(3),
+                            rs.getInt(4)
+                    ));
+                }
+                logger.debug("Successfully retrieved {} competitions of type: {}", competitions.size(), type);
+                return competitions;
             }
-            logger.info("Successfully retrieved {} competitions of type: {}", competitions.size(), type);
-            return competitions;
         } catch (SQLException e) {
             logger.error("Error fetching competitions by type", e);
             throw new RuntimeException(e);
@@ -182,24 +213,25 @@ public class CompetitionRepository implements ICompetitionRepository {
 
     @Override
     public List<Competition> getCompetitionsByAge(String age) {
-        logger.info("Fetching competitions of age category: {}", age);
+        logger.debug("Fetching competitions of age category: {}", age);
         String sql = "SELECT * FROM Competition WHERE ageCategory = ?";
-        try (Connection conn = DriverManager.getConnection(url);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, age);
-            ResultSet rs = ps.executeQuery();
-            ArrayList<Competition> competitions = new ArrayList<>();
-            while (rs.next()) {
-                competitions.add(new Competition(
-                        rs.getInt(1),
-                        rs.getString(2),
-                        rs.getString(3),
-                        rs.getInt(4)
-                ));
+            try (ResultSet rs = ps.executeQuery()) {
+                ArrayList<Competition> competitions = new ArrayList<>();
+                while (rs.next()) {
+                    competitions.add(new Competition(
+                            rs.getInt(1),
+                            rs.getString(2),
+                            rs.getString(3),
+                            rs.getInt(4)
+                    ));
+                }
+                logger.debug("Successfully retrieved {} competitions of age category: {}", competitions.size(), age);
+                return competitions;
             }
-            logger.info("Successfully retrieved {} competitions of age category: {}", competitions.size(), age);
-            return competitions;
         } catch (SQLException e) {
             logger.error("Error fetching competitions by age category", e);
             throw new RuntimeException(e);
@@ -208,47 +240,149 @@ public class CompetitionRepository implements ICompetitionRepository {
 
     @Override
     public void incrementParticipantCount(int competitionId) {
-        logger.info("Incrementing participant count for competition ID: {}", competitionId);
+        logger.debug("Incrementing participant count for competition ID: {}", competitionId);
         String sql = "UPDATE Competition SET nrOfParticipants = nrOfParticipants + 1 WHERE competitionID = ?";
-        try (Connection conn = DriverManager.getConnection(url);
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setInt(1, competitionId);
-            ps.executeUpdate();
-            logger.info("Participant count incremented.");
+        try {
+            writer.execute(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setInt(1, competitionId);
+                    ps.executeUpdate();
+                    logger.debug("Participant count incremented.");
+                }
+            });
         } catch (SQLException e) {
             logger.error("Error incrementing participant count", e);
         }
     }
 
+    /**
+     * Link the participant to the competition and bump its participant count as one writer mutation, so
+     * the 2-competition limit check, the insert and the count change commit or roll back together.
+     * The new count is read inside the same mutation, so no other enrollment can land in between.
+     */
     @Override
-    public void enrollParticipant(int participantID, int competitionID) {
-        logger.info("Enrolling participant {} in competition {}", participantID, competitionID);
-        String sqlCheckCount = "SELECT COUNT(*) FROM ParticipantCompetition WHERE participantID = ?";
-        String sqlInsert = "INSERT INTO ParticipantCompetition(participantID, competitionID) VALUES (?, ?)";
-
-        try (Connection conn = DriverManager.getConnection(url)) {
-            PreparedStatement ps = conn.prepareStatement(sqlCheckCount);
-            ps.setInt(1, participantID);
-            ResultSet rs = ps.executeQuery();
-            rs.next();
-            if (rs.getInt(1) >= 2) {
-                logger.error("Participant {} is already enrolled in 2 competitions", participantID);
-                throw new RuntimeException("Participant is already enrolled in 2 competitions");
-            }
-
-            PreparedStatement ps2 = conn.prepareStatement(sqlInsert);
-            ps2.setInt(1, participantID);
-            ps2.setInt(2, competitionID);
-            ps2.executeUpdate();
-            logger.info("Participant {} enrolled in competition {}", participantID, competitionID);
+    public int enrollParticipant(int participantID, int competitionID) {
+        logger.debug("Enrolling participant {} in competition {}", participantID, competitionID);
+        try {
+            return writer.submit(conn -> {
+                try (PreparedStatement insert = conn.prepareStatement(ENROLL_SQL);
+                     PreparedStatement bump = conn.prepareStatement(
+                             "UPDATE Competition SET nrOfParticipants = nrOfParticipants + 1 WHERE competitionID = ?");
+                     PreparedStatement read = conn.prepareStatement(
+                             "SELECT nrOfParticipants FROM Competition WHERE competitionID = ?")) {
+                    insert.setInt(1, participantID);
+                    insert.setInt(2, competitionID);
+                    insert.setInt(3, participantID);
+                    insert.setInt(4, ENROLLMENT_LIMIT);
+                    if (insert.executeUpdate() == 0) {
+                        logger.error("Participant {} is already enrolled in {} competitions", participantID, ENROLLMENT_LIMIT);
+                        throw new RuntimeException("Participant is already enrolled in " + ENROLLMENT_LIMIT + " competitions");
+                    }
+                    bump.setInt(1, competitionID);
+                    if (bump.executeUpdate() == 0) {
+                        // Throwing rolls the link back as well
+                        throw new RuntimeException("Competition " + competitionID + " does not exist");
+                    }
+                    logger.debug("Participant {} enrolled in competition {}", participantID, competitionID);
+                    read.setInt(1, competitionID);
+                    try (ResultSet rs = read.executeQuery()) {
+                        rs.next();
+                        return rs.getInt(1);
+                    }
+                }
+            });
         } catch (SQLException e) {
-            logger.error("Error enrolling participant in competition", e);
             if (e.getMessage().contains("UNIQUE constraint failed")) {
                 logger.warn("Participant {} already in competition {}", participantID, competitionID);
-            } else {
-                throw new RuntimeException(e);
+                throw new RuntimeException("Participant is already enrolled in this competition", e);
+            }
+            logger.error("Error enrolling participant in competition", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void enrollNewParticipants(List<Participant> participants, List<List<Integer>> competitionIDs) {
+        logger.debug("Bulk enrolling {} new participants", participants.size());
+        try {
+            writer.execute(conn -> {
+                try (PreparedStatement insert = conn.prepareStatement("INSERT INTO Participant(name, age) VALUES (?, ?)");
+                     PreparedStatement link = conn.prepareStatement(
+                             "INSERT INTO ParticipantCompetition(participantID, competitionID) VALUES (?, ?)");
+                     PreparedStatement bump = conn.prepareStatement(
+                             "UPDATE Competition SET nrOfParticipants = nrOfParticipants + ? WHERE competitionID = ?")) {
+                    Map<Integer, Integer> added = new TreeMap<>();
+                    for (int i = 0; i < participants.size(); i++) {
+                        Participant p = participants.get(i);
+                        insert.setString(1, p.getName());
+                        insert.setInt(2, p.getAge());
+                        insert.executeUpdate();
+                        try (ResultSet keys = insert.getGeneratedKeys()) {
+                            keys.next();
+                            p.setParticipantID(keys.getInt(1));
+                        }
+                        for (int competitionID : competitionIDs.get(i)) {
+                            link.setInt(1, p.getParticipantID());
+                            link.setInt(2, competitionID);
+                            link.addBatch();
+                            added.merge(competitionID, 1, Integer::sum);
+                        }
+                    }
+                    link.executeBatch();
+                    // One count update per competition rather than one per enrollment
+                    for (Map.Entry<Integer, Integer> e : added.entrySet()) {
+                        bump.setInt(1, e.getValue());
+                        bump.setInt(2, e.getKey());
+                        bump.addBatch();
+                    }
+                    for (int updated : bump.executeBatch()) {
+                        if (updated == 0) throw new RuntimeException("Unknown competition in bulk enrollment");
+                    }
+                    logger.debug("Bulk enrolled {} participants into {} competitions", participants.size(), added.size());
+                }
+            });
+        } catch (SQLException e) {
+            logger.error("Error in bulk enrollment", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<Competition> getPage(int afterId, int limit) {
+        logger.debug("Fetching competitions after ID {} (limit {})", afterId, limit);
+        String sql = "SELECT competitionID, type, ageCategory, nrOfParticipants FROM Competition WHERE competitionID > ? ORDER BY competitionID LIMIT ?";
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<Competition> page = new ArrayList<>(limit);
+                while (rs.next()) {
+                    page.add(new Competition(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4)));
+                }
+                return page;
+            }
+        } catch (SQLException e) {
+            logger.error("Error fetching a page of competitions", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<Competition> action) {
+        logger.debug("Streaming all competitions");
+        String sql = "SELECT competitionID, type, ageCategory, nrOfParticipants FROM Competition ORDER BY competitionID";
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(new Competition(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4)));
+                }
             }
+        } catch (SQLException e) {
+            logger.error("Error streaming competitions", e);
+            throw new RuntimeException(e);
         }
     }
 }
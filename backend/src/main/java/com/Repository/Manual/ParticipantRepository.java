@@ -1,35 +1,55 @@
 package com.Repository.Manual;
 
+import com.DTO.ParticipantRecordDTO;
 import com.Domain.Participant;
 import com.Repository.Interface.IParticipantRepository;
+import com.Util.ConnectionPool;
+import com.Util.DatabaseWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 public class ParticipantRepository implements IParticipantRepository {
     private static final Logger logger = LoggerFactory.getLogger(ParticipantRepository.class);
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private final ConnectionPool pool;
+    private final DatabaseWriter writer;
+
+    public ParticipantRepository() {
+        this(ConnectionPool.getInstance(), DatabaseWriter.getInstance());
+    }
+
+    public ParticipantRepository(ConnectionPool pool, DatabaseWriter writer) {
+        this.pool   = pool;
+        this.writer = writer;
+    }
 
     @Override
     public Participant add(Participant p) {
-        logger.info("Adding participant: {}", p);
+        logger.debug("Adding participant: {}", p);
         String sql = "INSERT INTO Participant(name, age) VALUES (?, ?)";
 
-        try (Connection conn = DriverManager.getConnection(url)) {
-            PreparedStatement ps = conn.prepareStatement(sql);
-            ps.setString(1, p.getName());
-            ps.setInt(2, p.getAge());
-            ps.executeUpdate();
-            logger.info("Participant added successfully.");
-            try(ResultSet rs = ps.getGeneratedKeys()) {
-                if(rs.next()) {
-                    int id = rs.getInt(1);
-                    logger.info("Generated ID for new participant: {}", id);
-                    p.setParticipantID(id);
+        try {
+            return writer.submit(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, p.getName());
+                    ps.setInt(2, p.getAge());
+                    ps.executeUpdate();
+                    logger.debug("Participant added successfully.");
+                    try(ResultSet rs = ps.getGeneratedKeys()) {
+                        if(rs.next()) {
+                            int id = rs.getInt(1);
+                            logger.debug("Generated ID for new participant: {}", id);
+                            p.setParticipantID(id);
+                        }
+                    }
+                    return p;
                 }
-            }
-            return p;
+            });
         } catch (SQLException e) {
             logger.error("Error adding participant", e);
             throw new RuntimeException(e);
@@ -38,16 +58,19 @@ public class ParticipantRepository implements IParticipantRepository {
 
     @Override
     public void update(int id, Participant p) {
-        logger.info("Updating participant ID: {}", id);
+        logger.debug("Updating participant ID: {}", id);
         String sql = "UPDATE Participant SET name = ?, age = ? WHERE participantID = ?";
 
-        try (Connection conn = DriverManager.getConnection(url)) {
-            PreparedStatement ps = conn.prepareStatement(sql);
-            ps.setString(1, p.getName());
-            ps.setInt(2, p.getAge());
-            ps.setInt(3, id);
-            ps.executeUpdate();
-            logger.info("Participant updated successfully.");
+        try {
+            writer.execute(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, p.getName());
+                    ps.setInt(2, p.getAge());
+                    ps.setInt(3, id);
+                    ps.executeUpdate();
+                    logger.debug("Participant updated successfully.");
+                }
+            });
         } catch (SQLException e) {
             logger.error("Error updating participant", e);
             throw new RuntimeException(e);
@@ -56,18 +79,21 @@ public class ParticipantRepository implements IParticipantRepository {
 
     @Override
     public void remove(int id) {
-        logger.info("Removing participant with ID: {}", id);
+        logger.debug("Removing participant with ID: {}", id);
         String sqlDeleteParticipant = "DELETE FROM Participant WHERE participantID = ?";
         String sqlDeleteLinks = "DELETE FROM ParticipantCompetition WHERE participantID = ?";
 
-        try (Connection conn = DriverManager.getConnection(url)) {
-            PreparedStatement ps1 = conn.prepareStatement(sqlDeleteParticipant);
-            PreparedStatement ps2 = conn.prepareStatement(sqlDeleteLinks);
-            ps1.setInt(1, id);
-            ps2.setInt(1, id);
-            ps1.executeUpdate();
-            ps2.executeUpdate();
-            logger.info("Participant removed successfully.");
+        try {
+            writer.execute(conn -> {
+                try (PreparedStatement ps1 = conn.prepareStatement(sqlDeleteParticipant);
+                     PreparedStatement ps2 = conn.prepareStatement(sqlDeleteLinks)) {
+                    ps1.setInt(1, id);
+                    ps2.setInt(1, id);
+                    ps1.executeUpdate();
+                    ps2.executeUpdate();
+                    logger.debug("Participant removed successfully.");
+                }
+            });
         } catch (SQLException e) {
             logger.error("Error removing participant", e);
             throw new RuntimeException(e);
@@ -76,12 +102,12 @@ public class ParticipantRepository implements IParticipantRepository {
 
     @Override
     public ArrayList<Participant> getAll() {
-        logger.info("Fetching all participants.");
+        logger.debug("Fetching all participants.");
         String sql = "SELECT * FROM Participant";
 
-        try (Connection conn = DriverManager.getConnection(url)) {
-            PreparedStatement ps = conn.prepareStatement(sql);
-            ResultSet rs = ps.executeQuery();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
             ArrayList<Participant> participants = new ArrayList<>();
             while (rs.next()) {
                 participants.add(new Participant(
@@ -89,7 +115,7 @@ public class ParticipantRepository implements IParticipantRepository {
                         rs.getString(2),  // name
                         rs.getInt(3)));   // age
             }
-            logger.info("Successfully retrieved {} participants.", participants.size());
+            logger.debug("Successfully retrieved {} participants.", participants.size());
             return participants;
         } catch (SQLException e) {
             logger.error("Error fetching participants", e);
@@ -99,23 +125,24 @@ public class ParticipantRepository implements IParticipantRepository {
 
     @Override
     public Participant getById(int id) {
-        logger.info("Fetching participant with ID: {}", id);
+        logger.debug("Fetching participant with ID: {}", id);
         String sql = "SELECT * FROM Participant WHERE participantID = ?";
 
-        try (Connection conn = DriverManager.getConnection(url)) {
-            PreparedStatement ps = conn.prepareStatement(sql);
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                Participant participant = new Participant(
-                        rs.getInt(1),     // ID
-                        rs.getString(2),  // name
-                        rs.getInt(3));    // age
-                logger.info("Participant found: {}", participant);
-                return participant;
-            } else {
-                logger.warn("No participant found with ID: {}", id);
-                return null;
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    Participant participant = new Participant(
+                            rs.getInt(1),     // ID
+                            rs.getString(2),  // name
+                            rs.getInt(3));    // age
+                    logger.debug("Participant found: {}", participant);
+                    return participant;
+                } else {
+                    logger.warn("No participant found with ID: {}", id);
+                    return null;
+                }
             }
         } catch (SQLException e) {
             logger.error("Error fetching participant", e);
@@ -125,29 +152,100 @@ public class ParticipantRepository implements IParticipantRepository {
 
     @Override
     public ArrayList<Participant> getParticipantsForCompetition(int compID) {
-        logger.info("Fetching participants for competition with ID: {}", compID);
+        logger.debug("Fetching participants for competition with ID: {}", compID);
         String sql = "SELECT p.* " +
                 "FROM Participant p " +
                 "INNER JOIN ParticipantCompetition pc " +
                 "ON p.participantID = pc.participantID " +
                 "WHERE pc.competitionID = ?";
-        try (Connection conn = DriverManager.getConnection(url);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, compID);
-            ResultSet rs = ps.executeQuery();
-            ArrayList<Participant> participants = new ArrayList<>();
-            while (rs.next()) {
-                participants.add(new Participant(
-                        rs.getInt(1),
-                        rs.getString(2),
-                        rs.getInt(3)
-                ));
+            try (ResultSet rs = ps.executeQuery()) {
+                ArrayList<Participant> participants = new ArrayList<>();
+                while (rs.next()) {
+                    participants.add(new Participant(
+                            rs.getInt(1),
+                            rs.getString(2),
+                            rs.getInt(3)
+                    ));
+                }
+                logger.debug("Successfully retrieved {} participants for competition with ID: {}", participants.size(), compID);
+                return participants;
             }
-            logger.info("Successfully retrieved {} participants for competition with ID: {}", participants.size(), compID);
-            return participants;
         } catch (SQLException e) {
             logger.error("Error fetching participants for competition with ID: {}", compID, e);
             throw new RuntimeException(e);
         }
     }
+
+    @Override
+    public void forEachWithCompetitions(Consumer<ParticipantRecordDTO> action) {
+        logger.debug("Streaming all participants with their competitions");
+        String sql = "SELECT p.participantID, p.name, p.age, pc.competitionID " +
+                "FROM Participant p " +
+                "LEFT JOIN ParticipantCompetition pc " +
+                "ON p.participantID = pc.participantID " +
+                "ORDER BY p.participantID";
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                // One row per enrollment; a participant's rows are adjacent because of the ORDER BY
+                ParticipantRecordDTO current = null;
+                while (rs.next()) {
+                    int id = rs.getInt(1);
+                    if (current == null || current.getParticipantID() != id) {
+                        if (current != null) action.accept(current);
+                        current = new ParticipantRecordDTO(id, rs.getString(2), rs.getInt(3), new ArrayList<>(2));
+                    }
+                    int competitionID = rs.getInt(4);
+                    if (!rs.wasNull()) current.getCompetitionIDs().add(competitionID);
+                }
+                if (current != null) action.accept(current);
+            }
+        } catch (SQLException e) {
+            logger.error("Error streaming participants", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public List<Participant> getPage(int afterId, int limit) {
+        logger.debug("Fetching participants after ID {} (limit {})", afterId, limit);
+        String sql = "SELECT participantID, name, age FROM Participant WHERE participantID > ? ORDER BY participantID LIMIT ?";
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<Participant> page = new ArrayList<>(limit);
+                while (rs.next()) {
+                    page.add(new Participant(rs.getInt(1), rs.getString(2), rs.getInt(3)));
+                }
+                return page;
+            }
+        } catch (SQLException e) {
+            logger.error("Error fetching a page of participants", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<Participant> action) {
+        logger.debug("Streaming all participants");
+        String sql = "SELECT participantID, name, age FROM Participant ORDER BY participantID";
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(new Participant(rs.getInt(1), rs.getString(2), rs.getInt(3)));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error streaming participants", e);
+            throw new RuntimeException(e);
+        }
+    }
 }
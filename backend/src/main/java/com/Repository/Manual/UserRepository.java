@@ -2,36 +2,54 @@ package com.Repository.Manual;
 
 import com.Domain.User;
 import com.Repository.Interface.IUserRepository;
+import com.Util.ConnectionPool;
+import com.Util.DatabaseWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public class UserRepository implements IUserRepository {
     private static final Logger logger = LoggerFactory.getLogger(UserRepository.class);
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private final ConnectionPool pool;
+    private final DatabaseWriter writer;
+
+    public UserRepository() {
+        this(ConnectionPool.getInstance(), DatabaseWriter.getInstance());
+    }
+
+    public UserRepository(ConnectionPool pool, DatabaseWriter writer) {
+        this.pool   = pool;
+        this.writer = writer;
+    }
 
     @Override
     public User add(User user) {
-        logger.info("Adding user: {}", user);
+        logger.debug("Adding user: {}", user);
         String sql = "INSERT INTO User(userName, password) VALUES (?, ?)";
 
-        try (Connection conn = DriverManager.getConnection(url);
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setString(1, user.getUserName());
-            ps.setString(2, user.getPassword());
-            ps.executeUpdate();
-            logger.info("User added successfully.");
-            try (ResultSet rs = ps.getGeneratedKeys()) {
-                if (rs.next()) {
-                    int id = rs.getInt(1);
-                    logger.info("Generated ID for new user: {}", id);
-                    user.setUserID(id);
+        try {
+            return writer.submit(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, user.getUserName());
+                    ps.setString(2, user.getPassword());
+                    ps.executeUpdate();
+                    logger.debug("User added successfully.");
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        if (rs.next()) {
+                            int id = rs.getInt(1);
+                            logger.debug("Generated ID for new user: {}", id);
+                            user.setUserID(id);
+                        }
+                    }
+                    return user;
                 }
-            }
-            return user;
+            });
         } catch (SQLException e) {
             logger.error("Error adding user", e);
             throw new RuntimeException(e);
@@ -40,17 +58,19 @@ public class UserRepository implements IUserRepository {
 
     @Override
     public void update(int id, User user) {
-        logger.info("Updating user ID: {}", id);
+        logger.debug("Updating user ID: {}", id);
         String sql = "UPDATE User SET userName = ?, password = ? WHERE userID = ?";
 
-        try (Connection conn = DriverManager.getConnection(url);
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setString(1, user.getUserName());
-            ps.setString(2, user.getPassword());
-            ps.setInt(3, id);
-            ps.executeUpdate();
-            logger.info("User updated successfully.");
+        try {
+            writer.execute(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, user.getUserName());
+                    ps.setString(2, user.getPassword());
+                    ps.setInt(3, id);
+                    ps.executeUpdate();
+                    logger.debug("User updated successfully.");
+                }
+            });
         } catch (SQLException e) {
             logger.error("Error updating user", e);
             throw new RuntimeException(e);
@@ -59,15 +79,17 @@ public class UserRepository implements IUserRepository {
 
     @Override
     public void remove(int id) {
-        logger.info("Removing user with ID: {}", id);
+        logger.debug("Removing user with ID: {}", id);
         String sql = "DELETE FROM User WHERE userID = ?";
 
-        try (Connection conn = DriverManager.getConnection(url);
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setInt(1, id);
-            ps.executeUpdate();
-            logger.info("User removed successfully.");
+        try {
+            writer.execute(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setInt(1, id);
+                    ps.executeUpdate();
+                    logger.debug("User removed successfully.");
+                }
+            });
         } catch (SQLException e) {
             logger.error("Error removing user", e);
             throw new RuntimeException(e);
@@ -76,10 +98,10 @@ public class UserRepository implements IUserRepository {
 
     @Override
     public ArrayList<User> getAll() {
-        logger.info("Fetching all users.");
+        logger.debug("Fetching all users.");
         String sql = "SELECT * FROM User";
 
-        try (Connection conn = DriverManager.getConnection(url);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
@@ -91,7 +113,7 @@ public class UserRepository implements IUserRepository {
                         rs.getString(3)
                 ));
             }
-            logger.info("Retrieved {} users.", users.size());
+            logger.debug("Retrieved {} users.", users.size());
             return users;
         } catch (SQLException e) {
             logger.error("Error retrieving users", e);
@@ -101,25 +123,26 @@ public class UserRepository implements IUserRepository {
 
     @Override
     public User getById(int id) {
-        logger.info("Fetching user with ID: {}", id);
+        logger.debug("Fetching user with ID: {}", id);
         String sql = "SELECT * FROM User WHERE userID = ?";
 
-        try (Connection conn = DriverManager.getConnection(url);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, id);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                User user = new User(
-                        rs.getInt(1),
-                        rs.getString(2),
-                        rs.getString(3)
-                );
-                logger.info("User found: {}", user);
-                return user;
-            } else {
-                logger.warn("No user found with ID: {}", id);
-                return null;
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    User user = new User(
+                            rs.getInt(1),
+                            rs.getString(2),
+                            rs.getString(3)
+                    );
+                    logger.debug("User found: {}", user);
+                    return user;
+                } else {
+                    logger.warn("No user found with ID: {}", id);
+                    return null;
+                }
             }
         } catch (SQLException e) {
             logger.error("Error fetching user", e);
@@ -128,31 +151,62 @@ public class UserRepository implements IUserRepository {
     }
 
     @Override
-    public Optional<User> authenticate(String userName, String password) {
-        logger.info("Authenticating user: {}", userName);
-        String sql = "SELECT * FROM User WHERE userName = ? AND password = ?";
+    public Optional<User> getByUserName(String userName) {
+        logger.debug("Fetching user: {}", userName);
+        String sql = "SELECT userID, userName, password FROM User WHERE userName = ?";
 
-        try (Connection conn = DriverManager.getConnection(url);
+        try (Connection conn = pool.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, userName);
-            ps.setString(2, password);
-            ResultSet rs = ps.executeQuery();
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(new User(rs.getInt(1), rs.getString(2), rs.getString(3)));
+                }
+                logger.debug("No user named {}", userName);
+                return Optional.empty();
+            }
+        } catch (SQLException e) {
+            logger.error("Error fetching user by name", e);
+            throw new RuntimeException(e);
+        }
+    }
 
-            if (rs.next()) {
-                User user = new User(
-                        rs.getInt(1),
-                        rs.getString(2),
-                        rs.getString(3)
-                );
-                logger.info("User authenticated successfully.");
-                return Optional.of(user);
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        logger.debug("Fetching users after ID {} (limit {})", afterId, limit);
+        String sql = "SELECT userID, userName, password FROM User WHERE userID > ? ORDER BY userID LIMIT ?";
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<User> page = new ArrayList<>(limit);
+                while (rs.next()) {
+                    page.add(new User(rs.getInt(1), rs.getString(2), rs.getString(3)));
+                }
+                return page;
             }
+        } catch (SQLException e) {
+            logger.error("Error fetching a page of users", e);
+            throw new RuntimeException(e);
+        }
+    }
 
-            logger.info("User authentication failed.");
-            return Optional.empty();
+    @Override
+    public void forEach(Consumer<User> action) {
+        logger.debug("Streaming all users");
+        String sql = "SELECT userID, userName, password FROM User ORDER BY userID";
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(new User(rs.getInt(1), rs.getString(2), rs.getString(3)));
+                }
+            }
         } catch (SQLException e) {
-            logger.error("Error authenticating user", e);
+            logger.error("Error streaming users", e);
             throw new RuntimeException(e);
         }
     }
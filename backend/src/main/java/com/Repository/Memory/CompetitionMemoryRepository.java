@@ -0,0 +1,116 @@
+package com.Repository.Memory;
+
+import com.Domain.Competition;
+import com.Domain.Participant;
+import com.Repository.Interface.ICompetitionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/** {@link ICompetitionRepository} over a {@link MemoryStore}. */
+public class CompetitionMemoryRepository implements ICompetitionRepository {
+    private static final Logger logger = LoggerFactory.getLogger(CompetitionMemoryRepository.class);
+
+    private final MemoryStore store;
+
+    CompetitionMemoryRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Competition add(Competition c) {
+        c.setCompetitionID(store.competitionSeq.incrementAndGet());
+        store.competitions.put(c.getCompetitionID(), MemoryStore.copy(c));
+        store.changed();
+        logger.debug("Competition added with ID {}", c.getCompetitionID());
+        return c;
+    }
+
+    @Override
+    public void update(int id, Competition c) {
+        Competition stored = new Competition(id, c.getType(), c.getAgeCategory(), c.getNrOfParticipants());
+        store.competitions.update(id, old -> old == null ? null : stored);
+        store.changed();
+    }
+
+    @Override
+    public void remove(int id) {
+        store.competitions.remove(id);
+        store.changed();
+    }
+
+    @Override
+    public List<Competition> getAll() {
+        return matching(c -> true);
+    }
+
+    @Override
+    public Competition getById(int id) {
+        return MemoryStore.copy(store.competitions.get(id));
+    }
+
+    @Override
+    public List<Competition> getCompetitionByTypeAndAge(String type, String ageCategory) {
+        return matching(c -> c.getType().equals(type) && c.getAgeCategory().equals(ageCategory));
+    }
+
+    @Override
+    public List<Competition> getCompetitionsByType(String type) {
+        return matching(c -> c.getType().equals(type));
+    }
+
+    @Override
+    public List<Competition> getCompetitionsByAge(String ageCategory) {
+        return matching(c -> c.getAgeCategory().equals(ageCategory));
+    }
+
+    @Override
+    public void incrementParticipantCount(int competitionID) {
+        store.competitions.update(competitionID, c -> c == null ? null
+                : new Competition(c.getCompetitionID(), c.getType(), c.getAgeCategory(), c.getNrOfParticipants() + 1));
+        store.changed();
+    }
+
+    @Override
+    public int enrollParticipant(int participantID, int competitionID) {
+        return store.enroll(participantID, competitionID);
+    }
+
+    @Override
+    public void enrollNewParticipants(List<Participant> participants, List<List<Integer>> competitionIDs) {
+        store.enrollNew(participants, competitionIDs);
+    }
+
+    @Override
+    public List<Competition> getPage(int afterId, int limit) {
+        List<Competition> page = new ArrayList<>(limit);
+        int last = store.competitionSeq.get();
+        for (int id = afterId + 1; id <= last && page.size() < limit; id++) {
+            Competition c = store.competitions.get(id);
+            if (c != null) page.add(MemoryStore.copy(c));
+        }
+        return page;
+    }
+
+    @Override
+    public void forEach(Consumer<Competition> action) {
+        int last = store.competitionSeq.get();
+        for (int id = 1; id <= last; id++) {
+            Competition c = store.competitions.get(id);
+            if (c != null) action.accept(MemoryStore.copy(c));
+        }
+    }
+
+    // A handful of rows, so filters just scan them in ID order
+    private List<Competition> matching(Predicate<Competition> filter) {
+        List<Competition> found = new ArrayList<>();
+        forEach(c -> {
+            if (filter.test(c)) found.add(c);
+        });
+        return found;
+    }
+}
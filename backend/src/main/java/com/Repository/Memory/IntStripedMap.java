@@ -0,0 +1,178 @@
+package com.Repository.Memory;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Concurrent map from positive {@code int} keys to values, without boxing the keys.
+ * Keys are spread over a fixed number of stripes, each an open-addressing table (linear probing,
+ * backward-shift deletion) behind its own read-write lock, so writers only contend when their keys
+ * land in the same stripe and readers never wait for each other. 0 marks an empty slot, which is why
+ * keys must be positive; every ID the repositories hand out is.
+ */
+final class IntStripedMap<V> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Stripe<V>[] stripes;
+    private final int         mask;
+
+    @SuppressWarnings("unchecked")
+    IntStripedMap(int stripeCount) {
+        int n = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new Stripe<>();
+        }
+        this.mask = n - 1;
+    }
+
+    V get(int key) {
+        Stripe<V> s = stripe(key);
+        s.lock.readLock().lock();
+        try {
+            return s.get(key);
+        } finally {
+            s.lock.readLock().unlock();
+        }
+    }
+
+    boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /** Returns the previous value, or null. */
+    V put(int key, V value) {
+        return update(key, old -> value);
+    }
+
+    V remove(int key) {
+        Stripe<V> s = stripe(key);
+        s.lock.writeLock().lock();
+        try {
+            return s.remove(key);
+        } finally {
+            s.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the value of {@code key} with {@code fn} applied to it (null if absent) while holding the
+     * stripe's write lock; a null result removes the key. Returns the previous value.
+     */
+    V update(int key, UnaryOperator<V> fn) {
+        if (key <= 0) throw new IllegalArgumentException("Keys must be positive: " + key);
+        Stripe<V> s = stripe(key);
+        s.lock.writeLock().lock();
+        try {
+            V old = s.get(key);
+            V value = fn.apply(old);
+            if (value == null) {
+                if (old != null) s.remove(key);
+            } else {
+                s.put(key, value);
+            }
+            return old;
+        } finally {
+            s.lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe<V> s : stripes) {
+            s.lock.readLock().lock();
+            try {
+                size += s.size;
+            } finally {
+                s.lock.readLock().unlock();
+            }
+        }
+        return size;
+    }
+
+    private Stripe<V> stripe(int key) {
+        return stripes[spread(key) & mask];
+    }
+
+    // Murmur3 finalizer; sequential IDs would otherwise fill stripes and slots in lockstep
+    private static int spread(int key) {
+        int h = key;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static final class Stripe<V> {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        int[]    keys   = new int[INITIAL_CAPACITY];
+        Object[] values = new Object[INITIAL_CAPACITY];
+        int      size;
+
+        private int slot(int key) {
+            int m = keys.length - 1;
+            int i = (spread(key) >>> 8) & m;
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & m;
+            }
+            return i;
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(int key) {
+            int i = slot(key);
+            return keys[i] == key ? (V) values[i] : null;
+        }
+
+        void put(int key, V value) {
+            int i = slot(key);
+            if (keys[i] == 0) {
+                if ((size + 1) * 4 > keys.length * 3) {
+                    grow();
+                    i = slot(key);
+                }
+                keys[i] = key;
+                size++;
+            }
+            values[i] = value;
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(int key) {
+            int i = slot(key);
+            if (keys[i] != key) return null;
+            V old = (V) values[i];
+            // Pull later entries of the probe run back so lookups never stop at the hole
+            int m = keys.length - 1;
+            int hole = i;
+            for (int j = (i + 1) & m; keys[j] != 0; j = (j + 1) & m) {
+                int home = (spread(keys[j]) >>> 8) & m;
+                if (((j - home) & m) >= ((j - hole) & m)) {
+                    keys[hole]   = keys[j];
+                    values[hole] = values[j];
+                    hole = j;
+                }
+            }
+            keys[hole]   = 0;
+            values[hole] = null;
+            size--;
+            return old;
+        }
+
+        private void grow() {
+            int[]    oldKeys   = keys;
+            Object[] oldValues = values;
+            keys   = new int[oldKeys.length * 2];
+            values = new Object[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int j = slot(oldKeys[i]);
+                    keys[j]   = oldKeys[i];
+                    values[j] = oldValues[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.Repository.Memory;
+
+import com.Domain.Competition;
+import com.Domain.Participant;
+import com.Domain.User;
+import com.Repository.Cached.EnrollmentGraph;
+import com.Repository.Interface.ICompetitionRepository;
+import com.Util.AppConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * State of the in-memory repository backend, shared by its three repositories.
+ * Entities live in {@link IntStripedMap}s keyed by ID, and IDs come from one counter per table, so ID
+ * order is simply counting up. Enrollments are kept in both directions in an {@link EnrollmentGraph}; changing them
+ * and the competition counts they imply happens under one lock, so the limit check, the link and the count
+ * move together as they do in a database transaction. Entities are copied on the way in and out, so callers
+ * can never change stored state behind the store's back.
+ *
+ * With a snapshot file the store loads it on start and writes the whole state back to it, atomically
+ * replacing the old file, every {@code repository.memory.snapshotIntervalSeconds} if anything changed and on
+ * {@link #close}. Without one it lives and dies with the process. A store that starts empty gets the nine
+ * competitions (every type x age category) the clients offer.
+ */
+public class MemoryStore implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(MemoryStore.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static final int STRIPES = AppConfig.getInt("repository.memory.stripes", 16);
+    private static final List<String> TYPES = List.of("Drawing", "Treasure Hunt", "Poetry");
+    private static final List<String> AGES  = List.of("6-8 years old", "9-11 years old", "12-15 years old");
+
+    /** The file format: every entity plus one {participantID, competitionID} pair per enrollment. */
+    private record Snapshot(List<Competition> competitions, List<Participant> participants, List<User> users,
+                            List<int[]> enrollments) {}
+
+    final IntStripedMap<Competition> competitions = new IntStripedMap<>(STRIPES);
+    final IntStripedMap<Participant> participants = new IntStripedMap<>(STRIPES);
+    final IntStripedMap<User>        users        = new IntStripedMap<>(STRIPES);
+    final Map<String, Integer>       userIds      = new ConcurrentHashMap<>();
+    final AtomicInteger              competitionSeq = new AtomicInteger();
+    final AtomicInteger              participantSeq = new AtomicInteger();
+    final AtomicInteger              userSeq        = new AtomicInteger();
+
+    // Read without a lock; changed, together with the counts they imply, only under enrollmentLock
+    private final EnrollmentGraph         graph          = EnrollmentGraph.empty();
+    private final ReentrantReadWriteLock  enrollmentLock = new ReentrantReadWriteLock();
+
+    private final Path                     snapshotFile;
+    private final AtomicBoolean            dirty = new AtomicBoolean();
+    private final ScheduledExecutorService snapshots;
+
+    /** A store without a snapshot file. */
+    public MemoryStore() {
+        this(null, 0);
+    }
+
+    public MemoryStore(Path snapshotFile, long snapshotIntervalSeconds) {
+        this.snapshotFile = snapshotFile;
+        if (snapshotFile != null && Files.exists(snapshotFile)) {
+            load(snapshotFile);
+        } else {
+            seedCompetitions();
+        }
+        if (snapshotFile != null && snapshotIntervalSeconds > 0) {
+            snapshots = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("memory-snapshot").daemon().factory());
+            snapshots.scheduleWithFixedDelay(this::snapshotIfDirty, snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            snapshots = null;
+        }
+    }
+
+    /** From {@code repository.memory.snapshot} (a path, or blank for none) and its interval. */
+    public static MemoryStore fromConfig() {
+        String file = AppConfig.getString("repository.memory.snapshot", null);
+        return new MemoryStore(file == null ? null : Path.of(file),
+                AppConfig.getLong("repository.memory.snapshotIntervalSeconds", 30));
+    }
+
+    public CompetitionMemoryRepository competitionRepository() {
+        return new CompetitionMemoryRepository(this);
+    }
+
+    public ParticipantMemoryRepository participantRepository() {
+        return new ParticipantMemoryRepository(this);
+    }
+
+    public UserMemoryRepository userRepository() {
+        return new UserMemoryRepository(this);
+    }
+
+    /** Writes a final snapshot if there is a snapshot file. */
+    @Override
+    public void close() {
+        if (snapshots != null) snapshots.shutdownNow();
+        snapshotIfDirty();
+    }
+
+    void changed() {
+        dirty.set(true);
+    }
+
+    // ----- Enrollments -----
+
+    /**
+     * Link a participant to a competition and bump the competition's count, or fail without changing
+     * anything if either does not exist, the participant is already in it or already in
+     * {@link ICompetitionRepository#ENROLLMENT_LIMIT} competitions.
+     */
+    /** Enroll a participant; returns the competition's new nrOfParticipants. */
+    int enroll(int participantID, int competitionID) {
+        enrollmentLock.writeLock().lock();
+        try {
+            if (!participants.containsKey(participantID)) {
+                throw new RuntimeException("Participant " + participantID + " does not exist");
+            }
+            if (graph.isEnrolled(participantID, competitionID)) {
+                throw new RuntimeException("Participant is already enrolled in this competition");
+            }
+            if (graph.enrollmentCount(participantID) >= ICompetitionRepository.ENROLLMENT_LIMIT) {
+                throw new RuntimeException("Participant is already enrolled in " + ICompetitionRepository.ENROLLMENT_LIMIT + " competitions");
+            }
+            return link(participantID, competitionID);
+        } finally {
+            enrollmentLock.writeLock().unlock();
+        }
+    }
+
+    /** Save new participants and enroll each in its competitions; all or nothing, like one transaction. */
+    void enrollNew(List<Participant> newParticipants, List<List<Integer>> competitionIDs) {
+        enrollmentLock.writeLock().lock();
+        try {
+            for (List<Integer> ids : competitionIDs) {
+                for (int id : ids) {
+                    if (!competitions.containsKey(id)) throw new RuntimeException("Unknown competition in bulk enrollment");
+                }
+            }
+            for (int i = 0; i < newParticipants.size(); i++) {
+                Participant p = newParticipants.get(i);
+                p.setParticipantID(participantSeq.incrementAndGet());
+                participants.put(p.getParticipantID(), copy(p));
+                for (int competitionID : competitionIDs.get(i)) {
+                    link(p.getParticipantID(), competitionID);
+                }
+            }
+        } finally {
+            enrollmentLock.writeLock().unlock();
+        }
+    }
+
+    /** Drop every enrollment of a removed participant; counts stay as they are, as with the JDBC backend. */
+    void unlinkParticipant(int participantID) {
+        enrollmentLock.writeLock().lock();
+        try {
+            if (graph.enrollmentCount(participantID) == 0) return;
+            graph.removeParticipant(participantID);
+            changed();
+        } finally {
+            enrollmentLock.writeLock().unlock();
+        }
+    }
+
+    /** Hand the IDs of the participants enrolled in {@code competitionID} to {@code action}, in ID order. */
+    void forEachParticipantOf(int competitionID, IntConsumer action) {
+        for (int participantID : graph.roster(competitionID)) {
+            action.accept(participantID);
+        }
+    }
+
+    void forEachCompetitionOf(int participantID, IntConsumer action) {
+        graph.forEachCompetitionOf(participantID, action);
+    }
+
+    // Caller holds the enrollment write lock
+    private int link(int participantID, int competitionID) {
+        Competition previous = competitions.update(competitionID, c -> c == null ? null
+                : new Competition(c.getCompetitionID(), c.getType(), c.getAgeCategory(), c.getNrOfParticipants() + 1));
+        if (previous == null) {
+            throw new RuntimeException("Competition " + competitionID + " does not exist");
+        }
+        graph.add(participantID, competitionID);
+        changed();
+        return previous.getNrOfParticipants() + 1;
+    }
+
+    // ----- Copies -----
+
+    static Competition copy(Competition c) {
+        return c == null ? null : new Competition(c.getCompetitionID(), c.getType(), c.getAgeCategory(), c.getNrOfParticipants());
+    }
+
+    static Participant copy(Participant p) {
+        return p == null ? null : new Participant(p.getParticipantID(), p.getName(), p.getAge());
+    }
+
+    static User copy(User u) {
+        return u == null ? null : new User(u.getUserID(), u.getUserName(), u.getPassword());
+    }
+
+    // ----- Snapshots -----
+
+    private void seedCompetitions() {
+        for (String type : TYPES) {
+            for (String age : AGES) {
+                int id = competitionSeq.incrementAndGet();
+                competitions.put(id, new Competition(id, type, age, 0));
+            }
+        }
+    }
+
+    private void load(Path file) {
+        Snapshot snapshot;
+        try {
+            snapshot = mapper.readValue(file.toFile(), Snapshot.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read snapshot " + file, e);
+        }
+        snapshot.competitions().forEach(c -> {
+            competitions.put(c.getCompetitionID(), c);
+            competitionSeq.accumulateAndGet(c.getCompetitionID(), Math::max);
+        });
+        snapshot.participants().forEach(p -> {
+            participants.put(p.getParticipantID(), p);
+            participantSeq.accumulateAndGet(p.getParticipantID(), Math::max);
+        });
+        snapshot.users().forEach(u -> {
+            users.put(u.getUserID(), u);
+            userIds.put(u.getUserName(), u.getUserID());
+            userSeq.accumulateAndGet(u.getUserID(), Math::max);
+        });
+        // The counts in the snapshot already include these enrollments
+        for (int[] pair : snapshot.enrollments()) {
+            graph.add(pair[0], pair[1]);
+        }
+        logger.info("Loaded {} competitions, {} participants, {} users and {} enrollments from {}",
+                snapshot.competitions().size(), snapshot.participants().size(), snapshot.users().size(),
+                snapshot.enrollments().size(), file);
+    }
+
+    private void snapshotIfDirty() {
+        if (snapshotFile == null || !dirty.getAndSet(false)) return;
+        try {
+            writeSnapshot();
+        } catch (IOException | RuntimeException e) {
+            dirty.set(true);
+            logger.error("Failed to write snapshot {}", snapshotFile, e);
+        }
+    }
+
+    private synchronized void writeSnapshot() throws IOException {
+        List<Competition> cs = new ArrayList<>();
+        List<Participant> ps = new ArrayList<>();
+        List<User>        us = new ArrayList<>();
+        List<int[]>       enrollments = new ArrayList<>();
+        // Under the read lock so the enrollments and the counts in the file agree
+        enrollmentLock.readLock().lock();
+        try {
+            for (int id = 1; id <= competitionSeq.get(); id++) {
+                Competition c = competitions.get(id);
+                if (c != null) cs.add(c);
+            }
+            for (int id = 1; id <= participantSeq.get(); id++) {
+                Participant p = participants.get(id);
+                if (p == null) continue;
+                ps.add(p);
+                int participantID = id;
+                graph.forEachCompetitionOf(id, competitionID -> enrollments.add(new int[]{participantID, competitionID}));
+            }
+        } finally {
+            enrollmentLock.readLock().unlock();
+        }
+        for (int id = 1; id <= userSeq.get(); id++) {
+            User u = users.get(id);
+            if (u != null) us.add(u);
+        }
+        Path parent = snapshotFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, snapshotFile.getFileName().toString(), ".tmp");
+        try {
+            mapper.writeValue(tmp.toFile(), new Snapshot(cs, ps, us, enrollments));
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        logger.debug("Wrote snapshot of {} participants to {}", ps.size(), snapshotFile);
+    }
+}
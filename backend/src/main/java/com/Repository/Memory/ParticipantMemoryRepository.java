@@ -0,0 +1,99 @@
+package com.Repository.Memory;
+
+import com.DTO.ParticipantRecordDTO;
+import com.Domain.Participant;
+import com.Repository.Interface.IParticipantRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/** {@link IParticipantRepository} over a {@link MemoryStore}. */
+public class ParticipantMemoryRepository implements IParticipantRepository {
+    private static final Logger logger = LoggerFactory.getLogger(ParticipantMemoryRepository.class);
+
+    private final MemoryStore store;
+
+    ParticipantMemoryRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Participant add(Participant p) {
+        p.setParticipantID(store.participantSeq.incrementAndGet());
+        store.participants.put(p.getParticipantID(), MemoryStore.copy(p));
+        store.changed();
+        logger.debug("Participant added with ID {}", p.getParticipantID());
+        return p;
+    }
+
+    @Override
+    public void update(int id, Participant p) {
+        Participant stored = new Participant(id, p.getName(), p.getAge());
+        store.participants.update(id, old -> old == null ? null : stored);
+        store.changed();
+    }
+
+    @Override
+    public void remove(int id) {
+        store.participants.remove(id);
+        store.unlinkParticipant(id);
+        store.changed();
+    }
+
+    @Override
+    public List<Participant> getAll() {
+        List<Participant> all = new ArrayList<>();
+        forEach(all::add);
+        return all;
+    }
+
+    @Override
+    public Participant getById(int id) {
+        return MemoryStore.copy(store.participants.get(id));
+    }
+
+    @Override
+    public ArrayList<Participant> getParticipantsForCompetition(int competitionID) {
+        ArrayList<Participant> found = new ArrayList<>();
+        store.forEachParticipantOf(competitionID, id -> {
+            Participant p = store.participants.get(id);
+            if (p != null) found.add(MemoryStore.copy(p));
+        });
+        return found;
+    }
+
+    @Override
+    public void forEachWithCompetitions(Consumer<ParticipantRecordDTO> action) {
+        int last = store.participantSeq.get();
+        for (int id = 1; id <= last; id++) {
+            Participant p = store.participants.get(id);
+            if (p == null) continue;
+            List<Integer> competitionIDs = new ArrayList<>(2);
+            store.forEachCompetitionOf(id, competitionIDs::add);
+            action.accept(new ParticipantRecordDTO(id, p.getName(), p.getAge(), competitionIDs));
+        }
+    }
+
+    @Override
+    public List<Participant> getPage(int afterId, int limit) {
+        List<Participant> page = new ArrayList<>(limit);
+        int last = store.participantSeq.get();
+        for (int id = afterId + 1; id <= last && page.size() < limit; id++) {
+            Participant p = store.participants.get(id);
+            if (p != null) page.add(MemoryStore.copy(p));
+        }
+        return page;
+    }
+
+    @Override
+    public void forEach(Consumer<Participant> action) {
+        int last = store.participantSeq.get();
+        for (int id = 1; id <= last; id++) {
+            Participant p = store.participants.get(id);
+            if (p != null) action.accept(MemoryStore.copy(p));
+        }
+    }
+}
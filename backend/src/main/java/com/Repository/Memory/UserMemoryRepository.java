@@ -0,0 +1,94 @@
+package com.Repository.Memory;
+
+import com.Domain.User;
+import com.Repository.Interface.IUserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/** {@link IUserRepository} over a {@link MemoryStore}; user names are unique, as in the database. */
+public class UserMemoryRepository implements IUserRepository {
+    private static final Logger logger = LoggerFactory.getLogger(UserMemoryRepository.class);
+
+    private final MemoryStore store;
+
+    UserMemoryRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public User add(User u) {
+        int id = store.userSeq.incrementAndGet();
+        if (store.userIds.putIfAbsent(u.getUserName(), id) != null) {
+            throw new RuntimeException("User name already taken: " + u.getUserName());
+        }
+        u.setUserID(id);
+        store.users.put(id, MemoryStore.copy(u));
+        store.changed();
+        logger.debug("User added with ID {}", id);
+        return u;
+    }
+
+    @Override
+    public void update(int id, User u) {
+        User stored = new User(id, u.getUserName(), u.getPassword());
+        User old = store.users.get(id);
+        if (old == null) return;
+        if (!old.getUserName().equals(u.getUserName())
+                && store.userIds.putIfAbsent(u.getUserName(), id) != null) {
+            throw new RuntimeException("User name already taken: " + u.getUserName());
+        }
+        store.users.put(id, stored);
+        if (!old.getUserName().equals(u.getUserName())) store.userIds.remove(old.getUserName(), id);
+        store.changed();
+    }
+
+    @Override
+    public void remove(int id) {
+        User old = store.users.remove(id);
+        if (old != null) store.userIds.remove(old.getUserName(), id);
+        store.changed();
+    }
+
+    @Override
+    public List<User> getAll() {
+        List<User> all = new ArrayList<>();
+        forEach(all::add);
+        return all;
+    }
+
+    @Override
+    public User getById(int id) {
+        return MemoryStore.copy(store.users.get(id));
+    }
+
+    @Override
+    public Optional<User> getByUserName(String userName) {
+        Integer id = store.userIds.get(userName);
+        return id == null ? Optional.empty() : Optional.ofNullable(getById(id));
+    }
+
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        List<User> page = new ArrayList<>(limit);
+        int last = store.userSeq.get();
+        for (int id = afterId + 1; id <= last && page.size() < limit; id++) {
+            User u = store.users.get(id);
+            if (u != null) page.add(MemoryStore.copy(u));
+        }
+        return page;
+    }
+
+    @Override
+    public void forEach(Consumer<User> action) {
+        int last = store.userSeq.get();
+        for (int id = 1; id <= last; id++) {
+            User u = store.users.get(id);
+            if (u != null) action.accept(MemoryStore.copy(u));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.Repository;
+
+import com.Repository.Interface.ICompetitionRepository;
+import com.Repository.Interface.IParticipantRepository;
+import com.Repository.Interface.IUserRepository;
+import com.Repository.Timed.TimedRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * One backend's repositories, opened together by {@link RepositoryBackend#open}.
+ * {@code close} releases whatever the backend holds beyond the process-wide pools, e.g. writes the
+ * in-memory store's last snapshot.
+ */
+public record Repositories(ICompetitionRepository competitions,
+                           IParticipantRepository participants,
+                           IUserRepository users,
+                           AutoCloseable resources) implements AutoCloseable {
+
+    /** The same repositories, each behind a {@link TimedRepository} proxy. */
+    public Repositories timed(MeterRegistry registry) {
+        return new Repositories(
+                TimedRepository.wrap(ICompetitionRepository.class, competitions, registry),
+                TimedRepository.wrap(IParticipantRepository.class, participants, registry),
+                TimedRepository.wrap(IUserRepository.class, users, registry),
+                resources);
+    }
+
+    @Override
+    public void close() throws Exception {
+        resources.close();
+    }
+}
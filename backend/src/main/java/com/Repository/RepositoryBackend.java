@@ -0,0 +1,89 @@
+package com.Repository;
+
+import com.Repository.Hibernate.CompetitionHibernateRepository;
+import com.Repository.Hibernate.ParticipantHibernateRepository;
+import com.Repository.Hibernate.UserHibernateRepository;
+import com.Repository.Manual.CompetitionRepository;
+import com.Repository.Manual.ParticipantRepository;
+import com.Repository.Manual.UserRepository;
+import com.Domain.Competition;
+import com.Domain.Participant;
+import com.Domain.ParticipantCompetition;
+import com.Repository.Memory.MemoryStore;
+import com.Util.AppConfig;
+import com.Util.DataVersion;
+import com.Util.HibernateUtil;
+import org.hibernate.Cache;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Where the repositories keep their data. Selected with the {@code repository.backend} property; the
+ * socket server and the REST app both open theirs through {@link #fromConfig()}.
+ */
+public enum RepositoryBackend {
+    /** Hand-written SQL over the JDBC connection pool and the single database writer. */
+    JDBC {
+        @Override
+        public Repositories open() {
+            return new Repositories(new CompetitionRepository(), new ParticipantRepository(), new UserRepository(), () -> {});
+        }
+    },
+    /** Hibernate sessions with the second-level and query caches (the original server setup). */
+    HIBERNATE {
+        @Override
+        public Repositories open() {
+            return new Repositories(new CompetitionHibernateRepository(), new ParticipantHibernateRepository(),
+                    new UserHibernateRepository(), () -> {});
+        }
+
+        @Override
+        public void evictCachedRows() {
+            Cache cache = HibernateUtil.getSessionFactory().getCache();
+            cache.evictEntityData(Competition.class);
+            cache.evictEntityData(Participant.class);
+            cache.evictEntityData(ParticipantCompetition.class);
+            cache.evictQueryRegions();
+        }
+    },
+    /** Everything in process memory, optionally snapshotted to {@code repository.memory.snapshot}; no database at all. */
+    MEMORY {
+        @Override
+        public Repositories open() {
+            MemoryStore store = MemoryStore.fromConfig();
+            return new Repositories(store.competitionRepository(), store.participantRepository(),
+                    store.userRepository(), store);
+        }
+
+        @Override
+        public LongSupplier dataVersion() {
+            return null;
+        }
+    };
+
+    /** A new set of repositories on this backend; open it once per process. */
+    public abstract Repositories open();
+
+    /**
+     * A value that changes whenever another connection, possibly of another process, has written the
+     * backend's database; null when no other process can write it.
+     */
+    public LongSupplier dataVersion() {
+        return DataVersion.fromConfig();
+    }
+
+    /**
+     * Drop the rows the backend caches on its own, after {@link #dataVersion} showed that another process
+     * may have changed them. Only Hibernate's second-level cache needs it.
+     */
+    public void evictCachedRows() {
+    }
+
+    public static RepositoryBackend parse(String value) {
+        return RepositoryBackend.valueOf(value.trim().toUpperCase());
+    }
+
+    public static RepositoryBackend fromConfig() {
+        return parse(AppConfig.getString("repository.backend", "hibernate"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.Repository.Timed;
+
+import com.Util.Metrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every call into a repository. {@link #wrap} returns a proxy of the repository interface that records
+ * {@code repository.calls} (a latency histogram) and {@code repository.errors}, tagged with the entity
+ * ({@code participant}), the implementation ({@code manual} / {@code hibernate} / {@code memory}, from the
+ * package it lives in)
+ * and the method. Meters are registered the first time a method is called.
+ */
+public final class TimedRepository implements InvocationHandler {
+    private final Object                   target;
+    private final MeterRegistry            registry;
+    private final String                   repository;
+    private final String                   implementation;
+    private final Map<Method, Meters>      meters = new ConcurrentHashMap<>();
+
+    private record Meters(Timer calls, Counter errors) {}
+
+    private TimedRepository(Object target, MeterRegistry registry, String repository) {
+        this.target         = target;
+        this.registry       = registry;
+        this.repository     = repository;
+        String pkg = target.getClass().getPackageName();
+        this.implementation = pkg.substring(pkg.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+    }
+
+    /** {@code target} behind a timing proxy of {@code type}, e.g. {@code ICompetitionRepository}. */
+    public static <R> R wrap(Class<R> type, R target, MeterRegistry registry) {
+        String entity = type.getSimpleName().replaceFirst("^I", "").replace("Repository", "").toLowerCase(Locale.ROOT);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new TimedRepository(target, registry, entity)));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(target, args);
+        }
+        Meters m = meters.computeIfAbsent(method, this::register);
+        long started = System.nanoTime();
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            m.errors().increment();
+            throw e.getCause();
+        } finally {
+            m.calls().record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Meters register(Method method) {
+        Timer calls = Timer.builder("repository.calls")
+                .tag("repository", repository)
+                .tag("impl", implementation)
+                .tag("method", method.getName())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Metrics.MIN_EXPECTED_LATENCY)
+                .maximumExpectedValue(Metrics.MAX_EXPECTED_LATENCY)
+                .register(registry);
+        Counter errors = Counter.builder("repository.errors")
+                .tag("repository", repository)
+                .tag("impl", implementation)
+                .tag("method", method.getName())
+                .register(registry);
+        return new Meters(calls, errors);
+    }
+}
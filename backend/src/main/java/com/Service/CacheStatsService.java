@@ -0,0 +1,57 @@
+package com.Service;
+
+import com.DTO.CacheRegionStatsDTO;
+import com.Repository.Cached.CachingCompetitionRepository;
+import com.Repository.RepositoryBackend;
+import com.Util.HibernateUtil;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.cache.spi.DomainDataRegion;
+import org.hibernate.cache.spi.QueryResultsRegion;
+import org.hibernate.cache.spi.Region;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hit and miss counts of every cache in front of the database: the Hibernate second-level and query
+ * cache regions (hibernate-cache.conf, Hibernate backend only) and the competition index of
+ * {@link CachingCompetitionRepository}.
+ */
+@Service
+@RequiredArgsConstructor
+public class CacheStatsService {
+    private final CachingCompetitionRepository competitionCache;
+
+    public List<CacheRegionStatsDTO> getRegionStats() {
+        List<CacheRegionStatsDTO> regions = new ArrayList<>();
+        if (RepositoryBackend.fromConfig() == RepositoryBackend.HIBERNATE) {
+            addHibernateRegions(regions);
+        }
+        regions.add(CacheRegionStatsDTO.of("competition-index", "index",
+                competitionCache.getHitCount(), competitionCache.getMissCount(), competitionCache.getPutCount(), null));
+        return regions;
+    }
+
+    private static void addHibernateRegions(List<CacheRegionStatsDTO> regions) {
+        Statistics statistics = HibernateUtil.getSessionFactory().getStatistics();
+        CacheImplementor cache = HibernateUtil.getSessionFactory().getCache().unwrap(CacheImplementor.class);
+        for (String name : statistics.getSecondLevelCacheRegionNames()) {
+            Region region = cache.getRegion(name);
+            if (region instanceof DomainDataRegion) {
+                regions.add(toDTO(name, "entity", statistics.getDomainDataRegionStatistics(name)));
+            } else if (region instanceof QueryResultsRegion) {
+                regions.add(toDTO(name, "query", statistics.getQueryRegionStatistics(name)));
+            }
+        }
+    }
+
+    private static CacheRegionStatsDTO toDTO(String name, String kind, CacheRegionStatistics region) {
+        long size = region.getElementCountInMemory();
+        return CacheRegionStatsDTO.of(name, kind, region.getHitCount(), region.getMissCount(), region.getPutCount(),
+                size == CacheRegionStatistics.NO_EXTENDED_STAT_SUPPORT_RETURN ? null : size);
+    }
+}
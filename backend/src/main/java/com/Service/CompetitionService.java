@@ -1,20 +1,46 @@
 package com.Service;
 
+import com.DTO.BulkEnrollDTO;
+import com.DTO.BulkEnrollResultDTO;
 import com.Domain.Competition;
+import com.Domain.Participant;
 import com.Repository.Interface.ICompetitionRepository;
-import lombok.RequiredArgsConstructor;
+import com.Validators.EntryValidator;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
+/**
+ * Competitions and enrollments. With the {@link EnrollmentJournal} enabled, enrollments and competition
+ * updates are journaled instead of written to the database, and every other write runs through it.
+ */
 @Service
-@RequiredArgsConstructor
 public class CompetitionService {
+    /** Filter values the clients send to mean "no constraint" */
+    public static final String ALL_TYPES = "All competitions";
+    public static final String ALL_AGES  = "All ages";
+
     private final ICompetitionRepository compRepo;
+    private final EnrollmentJournal      journal;
+
+    public CompetitionService(ICompetitionRepository compRepo) {
+        this(compRepo, EnrollmentJournal.disabled());
+    }
+
+    @Autowired
+    public CompetitionService(ICompetitionRepository compRepo, EnrollmentJournal journal) {
+        this.compRepo = compRepo;
+        this.journal  = journal;
+    }
 
     // ----- CRUD -----
     public Competition add(Competition c) {
-        return compRepo.add(c);
+        return journal.writeThrough(() -> compRepo.add(c));
     }
 
     public List<Competition> getAll() {
@@ -25,12 +51,26 @@ public class CompetitionService {
         return compRepo.getById(id);
     }
 
+    /** Keyset page: up to {@code limit} competitions with an ID above {@code afterId}, in ID order */
+    public List<Competition> getPage(int afterId, int limit) {
+        return compRepo.getPage(afterId, limit);
+    }
+
+    /** Visit every competition in ID order without loading them all at once */
+    public void forEach(Consumer<Competition> action) {
+        compRepo.forEach(action);
+    }
+
     public void update(int id, Competition c) {
-        compRepo.update(id, c);
+        if (journal.isEnabled()) {
+            journal.updateCompetition(id, c);
+        } else {
+            compRepo.update(id, c);
+        }
     }
 
     public void remove(int id) {
-        compRepo.remove(id);
+        journal.writeThrough(() -> compRepo.remove(id));
     }
 
     /** Get competitions by type and age category.
@@ -59,20 +99,28 @@ public class CompetitionService {
         return compRepo.getCompetitionsByAge(ageCat);
     }
 
+    /** Get competitions the way the clients filter them.
+     * @param type    the type of competition, or {@link #ALL_TYPES} / empty for any
+     * @param ageCat  the age category, or {@link #ALL_AGES} / empty for any
+     * @return a list of competitions matching the criteria, ordered by ID
+     */
+    public List<Competition> filter(String type, String ageCat) {
+        return compRepo.filter(anyIfBlank(type, ALL_TYPES), anyIfBlank(ageCat, ALL_AGES));
+    }
+
+    private static String anyIfBlank(String value, String all) {
+        return value == null || value.isEmpty() || all.equals(value) ? null : value;
+    }
+
     /** Find a competition to enroll in based on participant's age and competition type.
      * @param age       the age of the participant
      * @param compType  the type of competition (e.g. "Drawing")
      * @return a Competition object that matches the criteria
      */
     public Competition competitionToEnrollIn(int age, String compType) {
-        String ageCategory;
-        switch (age) {
-            case 6, 7, 8 -> ageCategory = "6-8 years old";
-            case 9, 10, 11 -> ageCategory = "9-11 years old";
-            case 12, 13, 14, 15-> ageCategory = "12-15 years old";
-            default -> {
-                return null;
-            }
+        String ageCategory = ageCategoryFor(age);
+        if (ageCategory == null) {
+            return null;
         }
         return compRepo.getCompetitionByTypeAndAge(compType, ageCategory)
                 .stream()
@@ -80,13 +128,96 @@ public class CompetitionService {
                 .orElse(null);
     }
 
-    /** Associates the participant with the competition.
-     * Increments the participant count for the competition.
+    /** The age category a participant of the given age competes in, or null if the age is out of range. */
+    public static String ageCategoryFor(int age) {
+        return switch (age) {
+            case 6, 7, 8 -> "6-8 years old";
+            case 9, 10, 11 -> "9-11 years old";
+            case 12, 13, 14, 15 -> "12-15 years old";
+            default -> null;
+        };
+    }
+
+    /** Associates the participant with the competition and increments its participant count,
+     * atomically; a participant can be in at most {@link ICompetitionRepository#ENROLLMENT_LIMIT} competitions.
      * @param participantID The ID of the participant to enroll.
      * @param competitionID The ID of the competition in which to enroll the participant.
+     * @return the competition's participant count right after this enrollment
+     */
+    public int enrollParticipant(int participantID, int competitionID) {
+        if (journal.isEnabled()) {
+            return journal.enroll(participantID, competitionID);
+        }
+        return compRepo.enrollParticipant(participantID, competitionID);
+    }
+
+    /** Register one new participant and enroll them in the given competition types, in one transaction.
+     * The target competitions are resolved from the age here, through the repository's lookup, so clients
+     * only send names of types.
+     * @param row the participant with the competition types to enroll them in
+     * @return the saved participant and the competitions it was enrolled in
+     * @throws EntryValidator if the row is invalid or no competition matches one of the types
+     */
+    public BulkEnrollResultDTO enrollByType(BulkEnrollDTO row) {
+        BulkEnrollResultDTO result = bulkEnroll(List.of(row)).get(0);
+        if (!result.isSuccess()) {
+            throw new EntryValidator(result.getError());
+        }
+        return result;
+    }
+
+    /** Register a batch of new participants and enroll each in its requested competition types.
+     * Rows are validated and their competitions resolved up front; every valid row is then written in one
+     * transaction, so either all of them are saved or, if the write fails, none are.
+     * @param rows participants with the competition types to enroll each of them in
+     * @return one result per row, in request order
      */
-    public void enrollParticipant(int participantID, int competitionID) {
-        compRepo.enrollParticipant(participantID, competitionID);
-        compRepo.incrementParticipantCount(competitionID);
+    public List<BulkEnrollResultDTO> bulkEnroll(List<BulkEnrollDTO> rows) {
+        BulkEnrollResultDTO[] results = new BulkEnrollResultDTO[rows.size()];
+        List<Integer>       accepted       = new ArrayList<>();
+        List<Participant>   participants   = new ArrayList<>();
+        List<List<Integer>> competitionIDs = new ArrayList<>();
+        Map<String, Competition> resolved  = new HashMap<>();
+
+        for (int i = 0; i < rows.size(); i++) {
+            BulkEnrollDTO row = rows.get(i);
+            try {
+                EntryValidator.validateNameAndAge(row.getName(), row.getAge());
+                EntryValidator.validateCompetitionTypes(row.getCompTypes(), ICompetitionRepository.ENROLLMENT_LIMIT);
+                List<Integer> targets = new ArrayList<>();
+                for (String type : row.getCompTypes()) {
+                    Competition target = resolved.computeIfAbsent(type + '|' + ageCategoryFor(row.getAge()),
+                            key -> competitionToEnrollIn(row.getAge(), type));
+                    if (target == null) {
+                        throw new EntryValidator("No " + type + " competition for age " + row.getAge() + ".");
+                    }
+                    targets.add(target.getCompetitionID());
+                }
+                accepted.add(i);
+                participants.add(new Participant(null, row.getName(), row.getAge()));
+                competitionIDs.add(targets);
+            } catch (EntryValidator e) {
+                results[i] = BulkEnrollResultDTO.failed(i, e.getMessage());
+            }
+        }
+
+        if (!participants.isEmpty()) {
+            try {
+                if (journal.isEnabled()) {
+                    journal.enrollNew(participants, competitionIDs);
+                } else {
+                    compRepo.enrollNewParticipants(participants, competitionIDs);
+                }
+                for (int k = 0; k < accepted.size(); k++) {
+                    int i = accepted.get(k);
+                    results[i] = BulkEnrollResultDTO.enrolled(i, participants.get(k), competitionIDs.get(k));
+                }
+            } catch (RuntimeException e) {
+                for (int i : accepted) {
+                    results[i] = BulkEnrollResultDTO.failed(i, "Batch was not saved: " + e.getMessage());
+                }
+            }
+        }
+        return List.of(results);
     }
 }
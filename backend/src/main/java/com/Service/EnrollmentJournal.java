@@ -0,0 +1,699 @@
+package com.Service;
+
+import com.Domain.Competition;
+import com.Domain.Participant;
+import com.Repository.Cached.CachingCompetitionRepository;
+import com.Repository.Cached.CachingParticipantRepository;
+import com.Repository.Cached.EnrollmentGraph;
+import com.Repository.Interface.ICompetitionRepository;
+import com.Repository.RepositoryBackend;
+import com.Util.AppConfig;
+import com.Util.ConnectionPool;
+import com.Util.DatabaseWriter;
+import com.Util.HibernateUtil;
+import com.Util.Journal;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Write-ahead journal for registrations. With {@code journal.enabled} set, adding participants, enrolling
+ * them and updating competitions do not write the database: each change is checked against the in-memory
+ * caches and the changes still waiting for the disk, appended to a memory-mapped {@link Journal} as events,
+ * and once the journal has synced it, with concurrent writers sharing each fsync, applied to the caches and
+ * acknowledged. A failed sync stops the journal: nothing that might not be on disk is ever shown, and every
+ * later write is refused until a restart replays what did get there. Every {@code journal.compactIntervalMs}
+ * the events are compacted into the SQLite tables in one writer transaction, which also records the LSN it
+ * got to, so each event is applied exactly once even across a crash. An event the tables reject is copied to
+ * {@code journal.dir/rejected}, logged and counted, and skipped rather than retried forever.
+ *
+ * On start the events past that LSN are compacted before anything is served, so startup depends on the
+ * journal's tail, not the table sizes. The enrollment graph and the competition index still load on first
+ * use, but are pinned to this journal: a load first compacts, and runs holding the lock, so it reads tables
+ * that have every change the caches skipped while they were not loaded, and no change lands meanwhile.
+ *
+ * Writes that do not go through the journal must run in {@link #writeThrough}, which compacts first so they
+ * land after every journaled change, and reads that go to the tables in {@link #readThrough}, so they see
+ * every acknowledged one. The journal directory is locked, so only one process per directory can journal.
+ * Participant IDs come from blocks of {@code journal.idBlock} reserved in the table's AUTOINCREMENT
+ * sequence, so rows the REST app inserts meanwhile never take one; its other writes to the same rows are
+ * not seen by this process's caches, though. The in-memory backend has no tables to compact into and
+ * ignores the setting.
+ */
+@Service
+public class EnrollmentJournal implements MeterBinder, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(EnrollmentJournal.class);
+
+    private static final byte PARTICIPANT_ADDED   = 1;
+    private static final byte ENROLLED            = 2;
+    private static final byte COMPETITION_UPDATED = 3;
+
+    private static final int  ID_BLOCK = AppConfig.getInt("journal.idBlock", 1000);
+
+    private final RepositoryBackend            backend;
+    private final CachingCompetitionRepository competitions;
+    private final CachingParticipantRepository participants;
+    private final EnrollmentGraph              enrollments;
+    private final Journal                      journal;
+    private final Path                         rejectedDir;
+    private final ScheduledExecutorService     compactor;
+    // Held while a change is checked and appended, while synced ones are applied, and for a whole compaction
+    private final ReentrantLock                lock        = new ReentrantLock();
+    private final LongAdder                    compactions = new LongAdder();
+    private final LongAdder                    rejected    = new LongAdder();
+    // Appended changes not yet known to be on disk, oldest first, and what they do to the caches; later
+    // checks see them here. Guarded by lock
+    private final ArrayDeque<Unsynced>         unsynced             = new ArrayDeque<>();
+    private final Map<Integer, Participant>    unsyncedParticipants = new HashMap<>();
+    private final Map<Integer, List<Integer>>  unsyncedEnrollments  = new HashMap<>();
+    private final Map<Integer, Competition>    unsyncedCompetitions = new HashMap<>();
+    // The rest of the reserved block of participant IDs, none to start with; guarded by lock
+    private int                                nextParticipantID = 1;
+    private int                                lastReservedID;
+    private volatile long                      compacted;
+    private volatile RuntimeException          failure;
+
+    private record Unsynced(long lsn, Runnable apply) {}
+
+    @Autowired
+    public EnrollmentJournal(CachingCompetitionRepository competitions, CachingParticipantRepository participants,
+                             EnrollmentGraph enrollments) throws IOException {
+        this(competitions, participants, enrollments, RepositoryBackend.fromConfig());
+    }
+
+    public EnrollmentJournal(CachingCompetitionRepository competitions, CachingParticipantRepository participants,
+                             EnrollmentGraph enrollments, RepositoryBackend backend) throws IOException {
+        this.backend      = backend;
+        this.competitions = competitions;
+        this.participants = participants;
+        this.enrollments  = enrollments;
+        if (!AppConfig.getBoolean("journal.enabled", false) || backend == RepositoryBackend.MEMORY) {
+            this.journal     = null;
+            this.rejectedDir = null;
+            this.compactor   = null;
+            return;
+        }
+        Path dir = Path.of(AppConfig.getString("journal.dir", "journal"));
+        this.journal     = new Journal(dir, AppConfig.getInt("journal.segmentMb", 64) << 20);
+        this.rejectedDir = dir.resolve("rejected");
+        long started = System.nanoTime();
+        try {
+            DatabaseWriter.getInstance().execute(conn -> {
+                try (Statement st = conn.createStatement()) {
+                    st.executeUpdate("CREATE TABLE IF NOT EXISTS JournalCheckpoint(" +
+                            "id INTEGER PRIMARY KEY CHECK (id = 1), lsn INTEGER NOT NULL)");
+                }
+            });
+            this.compacted = queryLong("SELECT lsn FROM JournalCheckpoint WHERE id = 1");
+            compact();
+        } catch (IOException | SQLException | RuntimeException e) {
+            // Gives up the directory lock, so a retry can open it again
+            journal.close();
+            throw new IOException("Cannot replay the journal into the tables", e);
+        }
+        logger.info("Replayed the journal up to LSN {} in {} ms", compacted, (System.nanoTime() - started) / 1_000_000);
+        // From here on the caches can be ahead of the tables, so they must only load from them caught up
+        enrollments.pin(this::loadCaughtUp);
+        competitions.pin(this::loadCaughtUp);
+        long interval = AppConfig.getLong("journal.compactIntervalMs", 1000);
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "journal-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.scheduleWithFixedDelay(this::compactQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /** A journal that stays disabled whatever the configuration says. */
+    public static EnrollmentJournal disabled() {
+        try {
+            return new EnrollmentJournal(null, null, null, RepositoryBackend.MEMORY);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return journal != null;
+    }
+
+    // ----- Journaled writes -----
+
+    /** Assign the participant an ID and journal it. */
+    public Participant addParticipant(Participant p) {
+        long lsn;
+        lock.lock();
+        try {
+            ensureWorking();
+            p.setParticipantID(reserveIDs(1));
+            lsn = append(record(out -> writeParticipant(out, p)));
+            stageParticipant(lsn, p);
+        } finally {
+            lock.unlock();
+        }
+        publish(lsn);
+        return p;
+    }
+
+    /** Enroll a participant, failing or returning the new count like {@link ICompetitionRepository#enrollParticipant} would. */
+    public int enroll(int participantID, int competitionID) {
+        long lsn;
+        int count;
+        lock.lock();
+        try {
+            ensureWorking();
+            Competition competition = competition(competitionID);
+            if (competition == null) {
+                throw new RuntimeException("Competition " + competitionID + " does not exist");
+            }
+            if (!participantExists(participantID)) {
+                throw new RuntimeException("Participant " + participantID + " does not exist");
+            }
+            if (isEnrolled(participantID, competitionID)) {
+                throw new RuntimeException("Participant is already enrolled in this competition");
+            }
+            if (enrollmentCount(participantID) >= ICompetitionRepository.ENROLLMENT_LIMIT) {
+                throw new RuntimeException("Participant is already enrolled in " + ICompetitionRepository.ENROLLMENT_LIMIT + " competitions");
+            }
+            lsn = append(record(out -> writeEnrolled(out, participantID, competitionID)));
+            count = competition.getNrOfParticipants() + 1;
+            stageEnrollment(lsn, participantID, competitionID);
+            stageCompetition(lsn, withCount(competition, count));
+        } finally {
+            lock.unlock();
+        }
+        publish(lsn);
+        return count;
+    }
+
+    /**
+     * Add new participants and enroll each in its competitions as one journal record, so they are kept or
+     * lost together, like {@link ICompetitionRepository#enrollNewParticipants}.
+     */
+    public void enrollNew(List<Participant> newParticipants, List<List<Integer>> competitionIDs) {
+        long lsn;
+        lock.lock();
+        try {
+            ensureWorking();
+            // Read before the append: a cache load after it would compact this record into the tables first
+            Map<Integer, Competition> counted = new HashMap<>();
+            for (List<Integer> ids : competitionIDs) {
+                for (int id : ids) {
+                    Competition c = counted.computeIfAbsent(id, this::competition);
+                    if (c == null) throw new RuntimeException("Unknown competition in bulk enrollment");
+                }
+            }
+            int firstID = reserveIDs(newParticipants.size());
+            lsn = append(record(out -> {
+                for (int i = 0; i < newParticipants.size(); i++) {
+                    Participant p = newParticipants.get(i);
+                    writeParticipant(out, new Participant(firstID + i, p.getName(), p.getAge()));
+                    for (int competitionID : competitionIDs.get(i)) {
+                        writeEnrolled(out, firstID + i, competitionID);
+                    }
+                }
+            }));
+            for (int i = 0; i < newParticipants.size(); i++) {
+                Participant p = newParticipants.get(i);
+                p.setParticipantID(firstID + i);
+                stageParticipant(lsn, p);
+                for (int competitionID : competitionIDs.get(i)) {
+                    stageEnrollment(lsn, p.getParticipantID(), competitionID);
+                    Competition c = counted.get(competitionID);
+                    Competition updated = withCount(c, c.getNrOfParticipants() + 1);
+                    counted.put(competitionID, updated);
+                    stageCompetition(lsn, updated);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        publish(lsn);
+    }
+
+    /** Journal a competition's new values; a competition that does not exist is left alone, as an UPDATE would. */
+    public void updateCompetition(int id, Competition c) {
+        long lsn;
+        lock.lock();
+        try {
+            ensureWorking();
+            if (competition(id) == null) return;
+            Competition updated = new Competition(id, c.getType(), c.getAgeCategory(), c.getNrOfParticipants());
+            lsn = append(record(out -> {
+                out.writeByte(COMPETITION_UPDATED);
+                out.writeInt(id);
+                out.writeUTF(updated.getType());
+                out.writeUTF(updated.getAgeCategory());
+                out.writeInt(updated.getNrOfParticipants());
+            }));
+            stageCompetition(lsn, updated);
+        } finally {
+            lock.unlock();
+        }
+        publish(lsn);
+    }
+
+    /**
+     * Run a write that goes straight to the database after everything journaled so far has been compacted,
+     * with journaling held off until it is done. Just runs it when the journal is disabled.
+     */
+    public <T> T writeThrough(Supplier<T> write) {
+        if (journal == null) return write.get();
+        lock.lock();
+        try {
+            ensureWorking();
+            compact();
+            return write.get();
+        } catch (IOException | SQLException e) {
+            throw new RuntimeException("Cannot compact the journal", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void writeThrough(Runnable write) {
+        writeThrough(() -> {
+            write.run();
+            return null;
+        });
+    }
+
+    /**
+     * Run a read that goes to the tables once they hold every change acknowledged so far, compacting first
+     * if they do not. Just runs it when the journal is disabled or has failed.
+     */
+    public <T> T readThrough(Supplier<T> read) {
+        if (journal != null && failure == null && compacted < journal.position()) {
+            lock.lock();
+            try {
+                compact();
+            } catch (IOException | SQLException e) {
+                throw new RuntimeException("Cannot compact the journal", e);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return read.get();
+    }
+
+    public void readThrough(Runnable read) {
+        readThrough(() -> {
+            read.run();
+            return null;
+        });
+    }
+
+    // Runs a load of the caches with the tables caught up, and no change applied until it is done
+    private void loadCaughtUp(Runnable load) {
+        lock.lock();
+        try {
+            // After a failure the tables stay as the last compaction left them until a restart
+            if (failure == null) compact();
+            load.run();
+        } catch (IOException | SQLException e) {
+            throw new RuntimeException("Cannot compact the journal", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ----- Unsynced changes -----
+
+    private void ensureWorking() {
+        if (failure != null) {
+            throw new IllegalStateException("The journal has failed; writes are refused until a restart", failure);
+        }
+    }
+
+    private long append(byte[] record) {
+        try {
+            return journal.append(record);
+        } catch (UncheckedIOException e) {
+            throw fail(e);
+        }
+    }
+
+    private void sync(long lsn) {
+        try {
+            journal.sync(lsn);
+        } catch (UncheckedIOException e) {
+            throw fail(e);
+        }
+    }
+
+    /** Wait until the change ending at {@code lsn} is on disk, then apply it and every one before it to the caches. */
+    private void publish(long lsn) {
+        sync(lsn);
+        lock.lock();
+        try {
+            applySynced(lsn);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds lock; everything up to lsn is on disk
+    private void applySynced(long lsn) {
+        while (!unsynced.isEmpty() && unsynced.peek().lsn() <= lsn) {
+            unsynced.poll().apply().run();
+        }
+    }
+
+    // The journal may be missing what the caches would show after this, so stop taking writes
+    private RuntimeException fail(RuntimeException e) {
+        lock.lock();
+        try {
+            if (failure == null) {
+                failure = e;
+                if (compactor != null) compactor.shutdown();
+                logger.error("Journal write failed; refusing writes until a restart replays what reached the disk", e);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return e;
+    }
+
+    private Competition competition(int id) {
+        Competition c = unsyncedCompetitions.get(id);
+        return c != null ? c : competitions.getById(id);
+    }
+
+    private boolean participantExists(int id) {
+        return unsyncedParticipants.containsKey(id) || participants.getById(id) != null;
+    }
+
+    private boolean isEnrolled(int participantID, int competitionID) {
+        return unsyncedEnrollments.getOrDefault(participantID, List.of()).contains(competitionID)
+                || enrollments.isEnrolled(participantID, competitionID);
+    }
+
+    private int enrollmentCount(int participantID) {
+        return enrollments.enrollmentCount(participantID)
+                + unsyncedEnrollments.getOrDefault(participantID, List.of()).size();
+    }
+
+    private void stageParticipant(long lsn, Participant p) {
+        int id = p.getParticipantID();
+        unsyncedParticipants.put(id, p);
+        unsynced.add(new Unsynced(lsn, () -> {
+            participants.remember(p);
+            unsyncedParticipants.remove(id);
+        }));
+    }
+
+    private void stageEnrollment(long lsn, int participantID, int competitionID) {
+        unsyncedEnrollments.computeIfAbsent(participantID, id -> new ArrayList<>()).add(competitionID);
+        unsynced.add(new Unsynced(lsn, () -> {
+            enrollments.add(participantID, competitionID);
+            List<Integer> pending = unsyncedEnrollments.get(participantID);
+            pending.remove(Integer.valueOf(competitionID));
+            if (pending.isEmpty()) unsyncedEnrollments.remove(participantID);
+        }));
+    }
+
+    private void stageCompetition(long lsn, Competition c) {
+        unsyncedCompetitions.put(c.getCompetitionID(), c);
+        unsynced.add(new Unsynced(lsn, () -> {
+            competitions.apply(c);
+            unsyncedCompetitions.remove(c.getCompetitionID(), c);
+        }));
+    }
+
+    // ----- Participant IDs -----
+
+    /**
+     * Hand out {@code count} consecutive participant IDs, reserving a new block first if the current one
+     * is short. The block is taken from SQLite's AUTOINCREMENT sequence, so every ID the database assigns
+     * afterwards, in this process or another, is above it. Caller holds lock.
+     */
+    private int reserveIDs(int count) {
+        if (lastReservedID - nextParticipantID + 1 < count) {
+            int block = Math.max(ID_BLOCK, count);
+            try {
+                lastReservedID = DatabaseWriter.getInstance().submit(conn -> reserveBlock(conn, block));
+            } catch (SQLException e) {
+                throw new RuntimeException("Cannot reserve participant IDs", e);
+            }
+            nextParticipantID = lastReservedID - block + 1;
+        }
+        int first = nextParticipantID;
+        nextParticipantID += count;
+        return first;
+    }
+
+    private static int reserveBlock(Connection conn, int block) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            // The sequence row only exists once a row has been inserted with a generated ID
+            st.executeUpdate("INSERT INTO sqlite_sequence(name, seq) SELECT 'Participant', 0 " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM sqlite_sequence WHERE name = 'Participant')");
+        }
+        try (PreparedStatement bump = conn.prepareStatement("UPDATE sqlite_sequence " +
+                "SET seq = MAX(seq, (SELECT COALESCE(MAX(participantID), 0) FROM Participant)) + ? " +
+                "WHERE name = 'Participant'")) {
+            bump.setInt(1, block);
+            bump.executeUpdate();
+        }
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT seq FROM sqlite_sequence WHERE name = 'Participant'")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    // ----- Compaction -----
+
+    private void compactQuietly() {
+        if (failure != null) return;
+        try {
+            lock.lock();
+            try {
+                compact();
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException | SQLException | RuntimeException e) {
+            logger.error("Journal compaction failed; will retry", e);
+        }
+    }
+
+    /**
+     * Copy every event past the checkpoint into the tables and move the checkpoint, in one transaction.
+     * Caller holds lock.
+     */
+    private void compact() throws IOException, SQLException {
+        long end = journal.position();
+        if (end > compacted) {
+            sync(end);
+            applySynced(end);
+            List<Entry> records = new ArrayList<>();
+            journal.read(compacted, end, (record, lsn) -> {
+                byte[] bytes = new byte[record.remaining()];
+                record.get(bytes);
+                records.add(new Entry(lsn, bytes));
+            });
+            Set<Integer> touched = new TreeSet<>();
+            List<Rejected> failed = new ArrayList<>();
+            DatabaseWriter.getInstance().execute(conn -> {
+                failed.clear();
+                applyRecords(conn, records, touched, failed);
+                for (Rejected r : failed) {
+                    setAside(r.record());
+                }
+                try (PreparedStatement checkpoint = conn.prepareStatement(
+                        "INSERT OR REPLACE INTO JournalCheckpoint(id, lsn) VALUES (1, ?)")) {
+                    checkpoint.setLong(1, end);
+                    checkpoint.executeUpdate();
+                }
+            });
+            compacted = end;
+            journal.release(end);
+            compactions.increment();
+            for (Rejected r : failed) {
+                rejected.increment();
+                logger.error("Journal record at LSN {} was rejected by the database and set aside in {}",
+                        r.record().lsn(), rejectedDir, r.cause());
+            }
+            if (backend == RepositoryBackend.HIBERNATE) {
+                // Written with plain JDBC, behind the second-level cache's back
+                Cache cache = HibernateUtil.getSessionFactory().getCache();
+                touched.forEach(id -> cache.evictEntityData(Competition.class, id));
+                cache.evictQueryRegions();
+            }
+            // Tables and caches agree again; this repairs the index if it was reloaded from the tables meanwhile
+            touched.forEach(competitions::refresh);
+            logger.debug("Compacted {} journal records up to LSN {}", records.size(), end);
+        }
+    }
+
+    private record Entry(long lsn, byte[] bytes) {}
+
+    private record Rejected(Entry record, SQLException cause) {}
+
+    /** Apply each record in a savepoint of its own; one the tables refuse is rolled back and added to {@code failed}. */
+    private static void applyRecords(Connection conn, List<Entry> records, Set<Integer> touched,
+                                     List<Rejected> failed) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement("INSERT INTO Participant(participantID, name, age) VALUES (?, ?, ?)");
+             PreparedStatement link = conn.prepareStatement(
+                     "INSERT INTO ParticipantCompetition(participantID, competitionID) VALUES (?, ?)");
+             PreparedStatement bump = conn.prepareStatement(
+                     "UPDATE Competition SET nrOfParticipants = nrOfParticipants + 1 WHERE competitionID = ?");
+             PreparedStatement update = conn.prepareStatement(
+                     "UPDATE Competition SET type = ?, ageCategory = ?, nrOfParticipants = ? WHERE competitionID = ?")) {
+            for (Entry record : records) {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.bytes()));
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    while (in.available() > 0) {
+                        switch (in.readByte()) {
+                            case PARTICIPANT_ADDED -> {
+                                insert.setInt(1, in.readInt());
+                                insert.setString(2, in.readUTF());
+                                insert.setInt(3, in.readInt());
+                                insert.executeUpdate();
+                            }
+                            case ENROLLED -> {
+                                int participantID = in.readInt();
+                                int competitionID = in.readInt();
+                                link.setInt(1, participantID);
+                                link.setInt(2, competitionID);
+                                link.executeUpdate();
+                                bump.setInt(1, competitionID);
+                                bump.executeUpdate();
+                                touched.add(competitionID);
+                            }
+                            case COMPETITION_UPDATED -> {
+                                int competitionID = in.readInt();
+                                update.setString(1, in.readUTF());
+                                update.setString(2, in.readUTF());
+                                update.setInt(3, in.readInt());
+                                update.setInt(4, competitionID);
+                                update.executeUpdate();
+                                touched.add(competitionID);
+                            }
+                            default -> throw new SQLException("Unknown journal event type");
+                        }
+                    }
+                    conn.releaseSavepoint(savepoint);
+                } catch (SQLException | IOException e) {
+                    conn.rollback(savepoint);
+                    failed.add(new Rejected(record, e instanceof SQLException sql ? sql
+                            : new SQLException("Truncated journal record", e)));
+                }
+            }
+        }
+    }
+
+    // Named after the LSN, so a batch that is retried writes the same file again
+    private void setAside(Entry record) throws SQLException {
+        try {
+            Files.createDirectories(rejectedDir);
+            Files.write(rejectedDir.resolve(String.format("%020d.record", record.lsn())), record.bytes());
+        } catch (IOException e) {
+            throw new SQLException("Cannot set aside the rejected journal record at LSN " + record.lsn(), e);
+        }
+    }
+
+    // ----- Encoding -----
+
+    @FunctionalInterface
+    private interface Events {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] record(Events events) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            events.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeParticipant(DataOutputStream out, Participant p) throws IOException {
+        out.writeByte(PARTICIPANT_ADDED);
+        out.writeInt(p.getParticipantID());
+        out.writeUTF(p.getName());
+        out.writeInt(p.getAge());
+    }
+
+    private static void writeEnrolled(DataOutputStream out, int participantID, int competitionID) throws IOException {
+        out.writeByte(ENROLLED);
+        out.writeInt(participantID);
+        out.writeInt(competitionID);
+    }
+
+    private static Competition withCount(Competition c, int nrOfParticipants) {
+        return new Competition(c.getCompetitionID(), c.getType(), c.getAgeCategory(), nrOfParticipants);
+    }
+
+    private static long queryLong(String sql) throws SQLException {
+        try (Connection conn = ConnectionPool.getInstance().getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // ----- Lifecycle -----
+
+    /** Journal appends and syncs, compactions, rejected records, and how far the tables are behind the journal. */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (journal == null) return;
+        journal.bindTo(registry);
+        FunctionCounter.builder("journal.compactions", compactions, LongAdder::sum).register(registry);
+        FunctionCounter.builder("journal.rejected", rejected, LongAdder::sum)
+                .description("Records the tables refused, set aside in journal.dir/rejected")
+                .register(registry);
+        Gauge.builder("journal.uncompacted.bytes", this, j -> j.journal.position() - j.compacted)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /** Compact what is left so the tables are complete, then close the journal; after a failure, just close it. */
+    @Override
+    public void close() throws IOException {
+        if (journal == null) return;
+        compactor.shutdownNow();
+        lock.lock();
+        try {
+            if (failure == null) compact();
+        } catch (SQLException e) {
+            logger.error("Final journal compaction failed; it will be replayed on the next start", e);
+        } finally {
+            lock.unlock();
+        }
+        journal.close();
+    }
+}
@@ -2,36 +2,62 @@ package com.Service;
 
 import com.Domain.Participant;
 import com.Repository.Interface.IParticipantRepository;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
+/**
+ * Participants. With the {@link EnrollmentJournal} enabled, new participants are journaled instead of
+ * written to the database, changes to existing ones run through it, and listings, which read the table,
+ * wait for it to be compacted first.
+ */
 @Service
-@RequiredArgsConstructor
 public class ParticipantService {
     private final IParticipantRepository participantRepo;
+    private final EnrollmentJournal      journal;
+
+    public ParticipantService(IParticipantRepository participantRepo) {
+        this(participantRepo, EnrollmentJournal.disabled());
+    }
+
+    @Autowired
+    public ParticipantService(IParticipantRepository participantRepo, EnrollmentJournal journal) {
+        this.participantRepo = participantRepo;
+        this.journal         = journal;
+    }
 
     // ----- CRUD -----
     public Participant add(Participant p) {
-        return participantRepo.add(p);
+        return journal.isEnabled() ? journal.addParticipant(p) : participantRepo.add(p);
     }
 
     public List<Participant> getAll() {
-        return participantRepo.getAll();
+        return journal.readThrough(() -> participantRepo.getAll());
     }
 
     public Participant getById(int id) {
         return participantRepo.getById(id);
     }
 
+    /** Keyset page: up to {@code limit} participants with an ID above {@code afterId}, in ID order */
+    public List<Participant> getPage(int afterId, int limit) {
+        return journal.readThrough(() -> participantRepo.getPage(afterId, limit));
+    }
+
+    /** Visit every participant in ID order without loading them all at once */
+    public void forEach(Consumer<Participant> action) {
+        journal.readThrough(() -> participantRepo.forEach(action));
+    }
+
     public void update(int id, Participant p) {
-        participantRepo.update(id, p);
+        journal.writeThrough(() -> participantRepo.update(id, p));
     }
 
     public void remove(int id) {
-        participantRepo.remove(id);
+        journal.writeThrough(() -> participantRepo.remove(id));
     }
 
     /** Get all participants for a specific competition.
@@ -0,0 +1,146 @@
+package com.Service;
+
+import com.Domain.User;
+import com.Util.AppConfig;
+import com.Util.TimerWheel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sessions of logged-in users, kept in memory only.
+ * {@link #issue} hands out a token of 48 URL-safe characters: session id, user id and expiry, followed by
+ * an HMAC of them under a key that only lives in this process. {@link #validate} checks the HMAC and the
+ * expiry, then looks the session id up in a hash map, so it never touches the database; a restart
+ * invalidates every token. Sessions expire {@code auth.sessionTtlMinutes} after they were issued and are
+ * dropped from the map by a {@link TimerWheel} rather than one scheduled task each.
+ */
+@Service
+public class SessionService implements MeterBinder, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(SessionService.class);
+
+    public static final Duration SESSION_TTL = Duration.ofMinutes(AppConfig.getLong("auth.sessionTtlMinutes", 720));
+
+    private static final int PAYLOAD_BYTES = Long.BYTES + Integer.BYTES + Long.BYTES;
+    private static final int MAC_BYTES     = 16;
+    private static final int TOKEN_CHARS   = 48;
+
+    /** Who a token belongs to; {@code expiresAt} is in epoch milliseconds. */
+    public record Session(long id, String token, int userID, String userName, long expiresAt) {
+        public boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+
+    private record Entry(Session session, TimerWheel.Timeout<Long> expiry) {}
+
+    private final Duration              ttl;
+    private final Map<Long, Entry>      sessions = new ConcurrentHashMap<>();
+    private final TimerWheel<Long>      wheel;
+    private final SecretKeySpec         key;
+    private final SecureRandom          random   = new SecureRandom();
+
+    @Autowired
+    public SessionService() {
+        this(SESSION_TTL);
+    }
+
+    public SessionService(Duration ttl) {
+        this.ttl   = ttl;
+        // One-second ticks; a turn of the wheel covers about 17 minutes
+        this.wheel = new TimerWheel<>("session-expiry", Duration.ofSeconds(1), 1024, sessions::remove);
+        byte[] secret = new byte[32];
+        random.nextBytes(secret);
+        this.key = new SecretKeySpec(secret, "HmacSHA256");
+    }
+
+    /** Open a session for {@code user}; hand its {@link Session#token()} to the client. */
+    public Session issue(User user) {
+        long id;
+        do {
+            id = random.nextLong();
+        } while (sessions.containsKey(id));
+        long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+        ByteBuffer bytes = ByteBuffer.allocate(PAYLOAD_BYTES + MAC_BYTES);
+        bytes.putLong(id).putInt(user.getUserID()).putLong(expiresAt);
+        bytes.put(sign(bytes.array(), PAYLOAD_BYTES));
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.array());
+
+        Session session = new Session(id, token, user.getUserID(), user.getUserName(), expiresAt);
+        sessions.put(id, new Entry(session, wheel.schedule(id, ttl)));
+        logger.debug("Opened session for user {}", user.getUserName());
+        return session;
+    }
+
+    /** The live session {@code token} belongs to; empty if it is malformed, forged, expired or revoked. */
+    public Optional<Session> validate(String token) {
+        if (token == null || token.length() != TOKEN_CHARS) return Optional.empty();
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        byte[] mac = Arrays.copyOfRange(bytes, PAYLOAD_BYTES, bytes.length);
+        if (!MessageDigest.isEqual(mac, sign(bytes, PAYLOAD_BYTES))) return Optional.empty();
+
+        ByteBuffer payload = ByteBuffer.wrap(bytes);
+        long id = payload.getLong();
+        Entry entry = sessions.get(id);
+        if (entry == null || entry.session().userID() != payload.getInt() || entry.session().isExpired()) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.session());
+    }
+
+    /** End the session of {@code token}; false if there was none. */
+    public boolean revoke(String token) {
+        Optional<Session> session = validate(token);
+        session.ifPresent(s -> {
+            Entry entry = sessions.remove(s.id());
+            if (entry != null) entry.expiry().cancel();
+        });
+        return session.isPresent();
+    }
+
+    /** The number of open sessions as {@code auth.sessions}. */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("auth.sessions", sessions, Map::size)
+                .description("Open login sessions")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        wheel.close();
+    }
+
+    private byte[] sign(byte[] data, int length) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            mac.update(data, 0, length);
+            return Arrays.copyOf(mac.doFinal(), MAC_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.Service;
+
+import com.DTO.ImportReportDTO;
+import com.DTO.ParticipantRecordDTO;
+import com.Domain.Competition;
+import com.Domain.Participant;
+import com.Repository.Interface.ICompetitionRepository;
+import com.Repository.Interface.IParticipantRepository;
+import com.Util.AppConfig;
+import com.Validators.EntryValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import and export of participants with their enrollments, as CSV or newline-delimited JSON.
+ * Both directions stream: export writes each row as the repository's cursor produces it, and import
+ * parses line by line and saves every {@link #IMPORT_CHUNK_SIZE} valid rows as one batched transaction,
+ * so memory use stays flat however large the file is. With the {@link EnrollmentJournal} enabled the
+ * chunks are journaled instead, and an export first waits for the journal to be compacted into the tables.
+ */
+@Service
+public class TransferService {
+    private static final Logger logger = LoggerFactory.getLogger(TransferService.class);
+
+    public static final int    IMPORT_CHUNK_SIZE   = AppConfig.getInt("transfer.importChunkSize", 1000);
+    private static final int   MAX_REPORTED_ERRORS = 100;
+    private static final String CSV_HEADER         = "participantID,name,age,competitionIDs";
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectWriter recordWriter = mapper.writerFor(ParticipantRecordDTO.class);
+    private static final ObjectReader recordReader = mapper.readerFor(ParticipantRecordDTO.class);
+
+    private final IParticipantRepository participantRepo;
+    private final ICompetitionRepository compRepo;
+    private final EnrollmentJournal      journal;
+
+    public TransferService(IParticipantRepository participantRepo, ICompetitionRepository compRepo) {
+        this(participantRepo, compRepo, EnrollmentJournal.disabled());
+    }
+
+    @Autowired
+    public TransferService(IParticipantRepository participantRepo, ICompetitionRepository compRepo,
+                           EnrollmentJournal journal) {
+        this.participantRepo = participantRepo;
+        this.compRepo        = compRepo;
+        this.journal         = journal;
+    }
+
+    @Getter
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String mediaType;
+        private final String extension;
+
+        Format(String mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public static Format parse(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    // ----- Export -----
+
+    /** Write every participant to {@code out}; returns the number of rows written. */
+    public long export(Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        long[] rows = {0};
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        try {
+            journal.readThrough(() -> participantRepo.forEachWithCompetitions(record -> {
+                try {
+                    if (format == Format.CSV) {
+                        writeCsv(writer, record);
+                    } else {
+                        writer.write(recordWriter.writeValueAsString(record));
+                    }
+                    writer.write('\n');
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            // Usually the client went away mid-download
+            throw e.getCause();
+        }
+        writer.flush();
+        logger.info("Exported {} participants as {}", rows[0], format);
+        return rows[0];
+    }
+
+    private static void writeCsv(Writer writer, ParticipantRecordDTO record) throws IOException {
+        writer.write(String.valueOf(record.getParticipantID()));
+        writer.write(',');
+        writer.write(quote(record.getName()));
+        writer.write(',');
+        writer.write(String.valueOf(record.getAge()));
+        writer.write(',');
+        List<Integer> ids = record.getCompetitionIDs();
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) writer.write(';');
+            writer.write(String.valueOf(ids.get(i)));
+        }
+    }
+
+    private static String quote(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    // ----- Import -----
+
+    /**
+     * Read rows from {@code in} and save each valid one as a new participant enrolled in the listed
+     * competitions. The participantID column is ignored; new IDs are assigned. Invalid rows are skipped
+     * and reported; a chunk that fails to save is reported as a whole and the import continues.
+     */
+    public ImportReportDTO importFrom(Format format, InputStream in) throws IOException {
+        Map<Integer, Competition> competitions = compRepo.getAll().stream()
+                .collect(Collectors.toMap(Competition::getCompetitionID, c -> c));
+        Chunk chunk = new Chunk();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+
+        String line;
+        long lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank() || (lineNo == 1 && format == Format.CSV && line.startsWith("participantID"))) {
+                continue;
+            }
+            try {
+                ParticipantRecordDTO record = format == Format.CSV ? parseCsv(line) : recordReader.readValue(line);
+                validate(record, competitions);
+                chunk.add(lineNo, record);
+            } catch (IOException | RuntimeException e) {
+                chunk.reject(lineNo, e.getMessage());
+            }
+            if (chunk.size() >= IMPORT_CHUNK_SIZE) {
+                chunk.save();
+            }
+        }
+        chunk.save();
+        logger.info("Imported {} participants as {}, rejected {}", chunk.imported, format, chunk.rejected);
+        return new ImportReportDTO(chunk.imported, chunk.rejected, chunk.errors);
+    }
+
+    private static void validate(ParticipantRecordDTO record, Map<Integer, Competition> competitions) {
+        EntryValidator.validateNameAndAge(record.getName(), record.getAge());
+        List<Integer> ids = record.getCompetitionIDs() == null ? List.of() : record.getCompetitionIDs();
+        if (ids.size() > ICompetitionRepository.ENROLLMENT_LIMIT) {
+            throw new EntryValidator("At most " + ICompetitionRepository.ENROLLMENT_LIMIT + " competitions can be selected.");
+        }
+        if (new HashSet<>(ids).size() != ids.size()) {
+            throw new EntryValidator("Competitions should be different.");
+        }
+        String ageCategory = CompetitionService.ageCategoryFor(record.getAge());
+        for (int id : ids) {
+            Competition c = competitions.get(id);
+            if (c == null) {
+                throw new EntryValidator("Unknown competition " + id + ".");
+            }
+            if (!c.getAgeCategory().equals(ageCategory)) {
+                throw new EntryValidator("Competition " + id + " is for " + c.getAgeCategory() + ".");
+            }
+        }
+        record.setCompetitionIDs(ids);
+    }
+
+    /** participantID,name,age,competitionIDs with the IDs separated by ';'; name may be quoted. */
+    private static ParticipantRecordDTO parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() != 4) {
+            throw new IllegalArgumentException("Expected 4 columns (" + CSV_HEADER + "), got " + fields.size());
+        }
+        List<Integer> ids = new ArrayList<>(2);
+        for (String id : fields.get(3).split(";")) {
+            if (!id.isBlank()) ids.add(Integer.parseInt(id.trim()));
+        }
+        return new ParticipantRecordDTO(null, fields.get(1), Integer.parseInt(fields.get(2).trim()), ids);
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (ch == '"') {
+                    quoted = false;
+                } else {
+                    field.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(ch);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /** Valid rows waiting to be written, plus the running totals of the import. */
+    private class Chunk {
+        private final List<Long>          lines          = new ArrayList<>();
+        private final List<Participant>   participants   = new ArrayList<>();
+        private final List<List<Integer>> competitionIDs = new ArrayList<>();
+        private final List<String>        errors         = new ArrayList<>();
+        private long imported;
+        private long rejected;
+
+        void add(long line, ParticipantRecordDTO record) {
+            lines.add(line);
+            participants.add(new Participant(null, record.getName(), record.getAge()));
+            competitionIDs.add(record.getCompetitionIDs());
+        }
+
+        int size() {
+            return participants.size();
+        }
+
+        void reject(long line, String reason) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("line " + line + ": " + reason);
+            }
+        }
+
+        void save() {
+            if (participants.isEmpty()) return;
+            try {
+                if (journal.isEnabled()) {
+                    journal.enrollNew(participants, competitionIDs);
+                } else {
+                    compRepo.enrollNewParticipants(participants, competitionIDs);
+                }
+                imported += participants.size();
+            } catch (RuntimeException e) {
+                logger.error("Failed to save import lines {}-{}", lines.get(0), lines.get(lines.size() - 1), e);
+                rejected += participants.size();
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add("lines " + lines.get(0) + "-" + lines.get(lines.size() - 1) + " not saved: " + e.getMessage());
+                }
+            }
+            lines.clear();
+            participants.clear();
+            competitionIDs.clear();
+        }
+    }
+}
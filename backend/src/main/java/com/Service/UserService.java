@@ -2,20 +2,96 @@ package com.Service;
 
 import com.Domain.User;
 import com.Repository.Interface.IUserRepository;
-import lombok.RequiredArgsConstructor;
+import com.Util.AppConfig;
+import com.Util.PasswordHasher;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
+/**
+ * Users and their credentials. Passwords are stored as {@link PasswordHasher} hashes; plain passwords left
+ * from before are accepted once and rehashed on that login.
+ *
+ * Verifying a hash costs tens of milliseconds of CPU on purpose, so it runs on a small dedicated pool
+ * ({@code auth.verifierThreads}) with a bounded queue ({@code auth.verifierQueue}) rather than on the
+ * request thread: a burst of logins uses at most that many cores, and once the queue is full further
+ * logins fail fast with {@link RejectedExecutionException} instead of piling up behind it.
+ * Successful verifications are remembered for {@code auth.cacheTtlSeconds}, keyed by an HMAC of name and
+ * password under a key that only lives in this process, so the cache never holds anything that could be
+ * checked against a password offline. A hit still has to match the user's current stored hash, so a
+ * password change takes effect at once.
+ */
 @Service
-@RequiredArgsConstructor
-public class UserService {
-    private final IUserRepository userRepo;
+public class UserService implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+
+    public static final int      VERIFIER_THREADS = AppConfig.getInt("auth.verifierThreads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 4));
+    public static final int      VERIFIER_QUEUE   = AppConfig.getInt("auth.verifierQueue", 64);
+    public static final Duration CACHE_TTL        = Duration.ofSeconds(AppConfig.getLong("auth.cacheTtlSeconds", 60));
+    public static final int      CACHE_SIZE       = AppConfig.getInt("auth.cacheSize", 10_000);
+
+    // Checked against when the user does not exist, so an unknown name takes as long as a wrong password
+    private static final String  UNKNOWN_USER_HASH = PasswordHasher.hash("unknown user");
+
+    private final IUserRepository             userRepo;
+    private final ThreadPoolExecutor          verifiers;
+    // HMAC(name, password) -> stored hash it was verified against
+    private final Cache<String, String>       verified;
+    private final SecretKeySpec               cacheKey;
+
+    @Autowired
+    public UserService(IUserRepository userRepo) {
+        this(userRepo, VERIFIER_THREADS, VERIFIER_QUEUE, CACHE_TTL, CACHE_SIZE);
+    }
+
+    /** A cache size of 0 turns the cache off. */
+    public UserService(IUserRepository userRepo, int verifierThreads, int verifierQueue, Duration cacheTtl, int cacheSize) {
+        this.userRepo  = userRepo;
+        this.verifiers = new ThreadPoolExecutor(verifierThreads, verifierThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(verifierQueue),
+                Thread.ofPlatform().name("password-verifier-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.verified  = Caffeine.newBuilder()
+                .expireAfterWrite(cacheTtl)
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build();
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.cacheKey = new SecretKeySpec(key, "HmacSHA256");
+    }
+
+    /** The verifier pool as {@code executor.*{name=password-verifier}} and the cache as {@code cache.*{cache=verified-logins}}. */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new ExecutorServiceMetrics(verifiers, "password-verifier", Tags.empty()).bindTo(registry);
+        CaffeineCacheMetrics.monitor(registry, verified, "verified-logins");
+    }
 
     // ----- CRUD -----
     public User add(User u) {
-        return userRepo.add(u);
+        return userRepo.add(withHashedPassword(u));
     }
 
     public List<User> getAll() {
@@ -26,20 +102,95 @@ public class UserService {
         return userRepo.getById(id);
     }
 
+    /** Keyset page: up to {@code limit} users with an ID above {@code afterId}, in ID order */
+    public List<User> getPage(int afterId, int limit) {
+        return userRepo.getPage(afterId, limit);
+    }
+
+    /** Visit every user in ID order without loading them all at once */
+    public void forEach(Consumer<User> action) {
+        userRepo.forEach(action);
+    }
+
     public void update(int id, User u) {
-        userRepo.update(id, u);
+        userRepo.update(id, withHashedPassword(u));
     }
 
     public void remove(int id) {
         userRepo.remove(id);
     }
 
-    /** Authenticate user with username and password.
+    // A password that already is a hash (e.g. a user sent back as it was read) is stored as it is
+    private static User withHashedPassword(User u) {
+        if (!PasswordHasher.isHashed(u.getPassword())) {
+            u.setPassword(PasswordHasher.hash(u.getPassword()));
+        }
+        return u;
+    }
+
+    // ----- Authentication -----
+
+    /** Authenticate user with username and password, waiting for the verifier pool.
      * @param userName the username of the user
      * @param password the password of the user
      * @return an Optional containing the User if authentication is successful, or empty if not
+     * @throws RejectedExecutionException if too many logins are already waiting to be verified
      */
     public Optional<User> authenticate(String userName, String password) {
-        return userRepo.authenticate(userName, password);
+        try {
+            return authenticateAsync(userName, password).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    /** Like {@link #authenticate}, completing on the verifier pool (or at once on a cache hit). */
+    public CompletableFuture<Optional<User>> authenticateAsync(String userName, String password) {
+        if (userName == null || password == null) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        Optional<User> user = userRepo.getByUserName(userName);
+        String key = digest(userName, password);
+        if (user.isPresent() && user.get().getPassword().equals(verified.getIfPresent(key))) {
+            return CompletableFuture.completedFuture(user);
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> verify(user, password, key), verifiers);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Login for {} rejected, {} verifications queued", userName, verifiers.getQueue().size());
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("Too many logins in progress, try again shortly"));
+        }
+    }
+
+    private Optional<User> verify(Optional<User> found, String password, String key) {
+        if (found.isEmpty()) {
+            PasswordHasher.verify(password, UNKNOWN_USER_HASH);
+            return Optional.empty();
+        }
+        User user = found.get();
+        if (!PasswordHasher.verify(password, user.getPassword())) {
+            return Optional.empty();
+        }
+        if (PasswordHasher.needsRehash(user.getPassword())) {
+            user = new User(user.getUserID(), user.getUserName(), PasswordHasher.hash(password));
+            userRepo.update(user.getUserID(), user);
+            logger.info("Rehashed the password of user {}", user.getUserName());
+        }
+        verified.put(key, user.getPassword());
+        return Optional.of(user);
+    }
+
+    private String digest(String userName, String password) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(cacheKey);
+            mac.update(userName.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
     }
 }
@@ -0,0 +1,398 @@
+package com.Util;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Small JDBC connection pool for the manual repositories.
+ * Borrowed connections are proxies: {@code close()} hands the physical connection back, and
+ * {@code prepareStatement(sql)} returns a statement cached on that physical connection, so a repeated
+ * query skips SQLite's parse and prepare step. Closing such a statement closes its open result set and
+ * returns it to the cache.
+ * Physical connections older than {@code maxLifetimeMs} are retired when they come back. A connection held
+ * longer than {@code leakDetectionMs} is logged once, together with the stack trace of its borrower.
+ * Every new physical connection first runs the configured PRAGMAs (see {@link #pragmasFromConfig}).
+ * A pool of size 0 opens a fresh connection on every call, which is how the repositories used to work.
+ */
+public class ConnectionPool implements AutoCloseable, MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    /** Pool shared by the manual repositories, configured by the {@code db.pool.*} keys. */
+    @Getter
+    private static final ConnectionPool instance = new ConnectionPool(
+            AppConfig.getString("db.url", null),
+            AppConfig.getInt("db.pool.size", 8),
+            AppConfig.getInt("db.pool.statementCacheSize", 32),
+            AppConfig.getLong("db.pool.maxLifetimeMs", 30 * 60_000L),
+            AppConfig.getLong("db.pool.leakDetectionMs", 10_000L),
+            AppConfig.getLong("db.pool.connectionTimeoutMs", 5_000L),
+            pragmasFromConfig());
+
+    private final String                          url;
+    private final int                             size;
+    private final int                             statementCacheSize;
+    private final long                            maxLifetimeNanos;
+    private final long                            leakDetectionNanos;
+    private final long                            connectionTimeoutMs;
+    private final List<String>                    initSql;
+    private final Semaphore                       permits;
+    private final Deque<PooledConnection>         idle = new ConcurrentLinkedDeque<>();
+    private final Set<PooledConnection>           borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService        leakDetector;
+    private volatile boolean                      closed;
+
+    public ConnectionPool(String url, int size, int statementCacheSize,
+                          long maxLifetimeMs, long leakDetectionMs, long connectionTimeoutMs,
+                          List<String> initSql) {
+        this.url                 = url;
+        this.size                = size;
+        this.statementCacheSize  = statementCacheSize;
+        this.maxLifetimeNanos    = TimeUnit.MILLISECONDS.toNanos(maxLifetimeMs);
+        this.leakDetectionNanos  = TimeUnit.MILLISECONDS.toNanos(leakDetectionMs);
+        this.connectionTimeoutMs = connectionTimeoutMs;
+        this.initSql             = initSql;
+        this.permits             = new Semaphore(size, true);
+
+        if (size > 0 && leakDetectionMs > 0) {
+            leakDetector = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "connection-leak-detector");
+                t.setDaemon(true);
+                return t;
+            });
+            long period = Math.max(1_000L, leakDetectionMs / 2);
+            leakDetector.scheduleAtFixedRate(this::reportLeaks, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            leakDetector = null;
+        }
+    }
+
+    /**
+     * SQLite settings from the {@code db.sqlite.*} keys. WAL lets readers run while the single writer
+     * ({@link DatabaseWriter}) commits, and synchronous=NORMAL is safe in WAL mode, syncing only at checkpoints.
+     */
+    public static List<String> pragmasFromConfig() {
+        List<String> pragmas = new ArrayList<>();
+        pragmas.add("PRAGMA busy_timeout = " + AppConfig.getInt("db.sqlite.busyTimeoutMs", 5_000));
+        pragmas.add("PRAGMA journal_mode = " + AppConfig.getString("db.sqlite.journalMode", "WAL"));
+        pragmas.add("PRAGMA synchronous = " + AppConfig.getString("db.sqlite.synchronous", "NORMAL"));
+        // Negative cache_size is in KiB rather than pages
+        pragmas.add("PRAGMA cache_size = -" + AppConfig.getInt("db.sqlite.cacheSizeKb", 16 * 1024));
+        pragmas.add("PRAGMA mmap_size = " + AppConfig.getLong("db.sqlite.mmapSizeMb", 256) * 1024 * 1024);
+        return pragmas;
+    }
+
+    /**
+     * Borrow a connection; closing it returns it to the pool.
+     * Waits up to {@code connectionTimeoutMs} when every connection is in use.
+     */
+    public Connection getConnection() throws SQLException {
+        if (size == 0) {
+            return open();
+        }
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(connectionTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "No database connection available after " + connectionTimeoutMs + " ms (pool size " + size + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null && !pooled.isUsable()) {
+                pooled.closePhysical();
+            }
+            if (pooled == null) {
+                pooled = new PooledConnection(open());
+            }
+            Connection handle = pooled.borrow();
+            borrowed.add(pooled);
+            return handle;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Connection open() throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        try (Statement st = conn.createStatement()) {
+            for (String sql : initSql) {
+                st.execute(sql);
+            }
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("db.pool.connections", this, ConnectionPool::getActiveCount)
+                .tag("state", "active")
+                .register(registry);
+        Gauge.builder("db.pool.connections", this, ConnectionPool::getIdleCount)
+                .tag("state", "idle")
+                .register(registry);
+        Gauge.builder("db.pool.size", this, pool -> pool.size).register(registry);
+        Gauge.builder("db.pool.pending", this, pool -> pool.permits.getQueueLength())
+                .description("Threads waiting for a connection")
+                .register(registry);
+    }
+
+    private void giveBack(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            pooled.reset();
+            if (closed || !pooled.isUsable()) {
+                pooled.closePhysical();
+            } else {
+                // Most recently used first, so a quiet period lets the rest age out
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            logger.warn("Discarding connection that failed to reset: {}", e.getMessage());
+            pooled.closePhysical();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void reportLeaks() {
+        long now = System.nanoTime();
+        for (PooledConnection pooled : borrowed) {
+            if (!pooled.leakReported && now - pooled.borrowedAt > leakDetectionNanos) {
+                pooled.leakReported = true;
+                logger.warn("Connection held for {} ms, possible leak. Borrowed at:",
+                        TimeUnit.NANOSECONDS.toMillis(now - pooled.borrowedAt), pooled.borrowedBy);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (leakDetector != null) {
+            leakDetector.shutdownNow();
+        }
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closePhysical();
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** One physical connection and its statement cache. Used by one borrower at a time. */
+    private final class PooledConnection {
+        private final Connection                          physical;
+        private final long                                createdAt = System.nanoTime();
+        private final Map<String, CachedStatement>        statements;
+        private volatile long                             borrowedAt;
+        private volatile Throwable                        borrowedBy;
+        private volatile boolean                          leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical   = physical;
+            this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                    if (size() <= statementCacheSize) return false;
+                    eldest.getValue().closePhysical();
+                    return true;
+                }
+            };
+        }
+
+        boolean isUsable() {
+            try {
+                return System.nanoTime() - createdAt < maxLifetimeNanos && !physical.isClosed();
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        Connection borrow() {
+            borrowedAt   = System.nanoTime();
+            borrowedBy   = leakDetector != null ? new Exception("Connection borrowed here") : null;
+            leakReported = false;
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Handle());
+        }
+
+        PreparedStatement prepare(String sql) throws SQLException {
+            if (statementCacheSize <= 0) {
+                return physical.prepareStatement(sql);
+            }
+            CachedStatement cached = statements.get(sql);
+            if (cached == null) {
+                cached = new CachedStatement(physical.prepareStatement(sql));
+                statements.put(sql, cached);
+            } else if (cached.inUse) {
+                // Same query twice in one borrow: the second copy is not cached
+                return physical.prepareStatement(sql);
+            }
+            return cached.checkOut();
+        }
+
+        /** Undo whatever the borrower left behind before the next one gets this connection. */
+        void reset() throws SQLException {
+            for (CachedStatement cached : statements.values()) {
+                cached.release();
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+        }
+
+        void closePhysical() {
+            statements.clear();
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                logger.warn("Error closing pooled connection: {}", e.getMessage());
+            }
+        }
+
+        /** The borrower's view of the connection; stops working once closed. */
+        private final class Handle implements InvocationHandler {
+            private boolean returned;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close" -> {
+                        if (!returned) {
+                            returned = true;
+                            giveBack(PooledConnection.this);
+                        }
+                        return null;
+                    }
+                    case "isClosed" -> {
+                        return returned || physical.isClosed();
+                    }
+                    case "equals" -> {
+                        return proxy == args[0];
+                    }
+                    case "hashCode" -> {
+                        return System.identityHashCode(proxy);
+                    }
+                    case "toString" -> {
+                        return "Pooled[" + physical + "]";
+                    }
+                    default -> { }
+                }
+                if (returned) {
+                    throw new SQLException("Connection has been returned to the pool");
+                }
+                if ("prepareStatement".equals(method.getName()) && args.length == 1) {
+                    return prepare((String) args[0]);
+                }
+                return ConnectionPool.invoke(physical, method, args);
+            }
+        }
+    }
+
+    /** A prepared statement kept open between borrows. */
+    private static final class CachedStatement {
+        private final PreparedStatement physical;
+        private boolean                 inUse;
+        private ResultSet               lastResult;
+
+        CachedStatement(PreparedStatement physical) {
+            this.physical = physical;
+        }
+
+        PreparedStatement checkOut() {
+            inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new Handle());
+        }
+
+        /** Close the open result set (SQLite keeps a read lock while a statement is mid-step) and unbind. */
+        void release() throws SQLException {
+            if (!inUse) return;
+            inUse = false;
+            if (lastResult != null) {
+                lastResult.close();
+                lastResult = null;
+            }
+            physical.clearParameters();
+        }
+
+        void closePhysical() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                logger.warn("Error closing cached statement: {}", e.getMessage());
+            }
+        }
+
+        private final class Handle implements InvocationHandler {
+            private boolean closed;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close" -> {
+                        if (!closed) {
+                            closed = true;
+                            release();
+                        }
+                        return null;
+                    }
+                    case "isClosed" -> {
+                        return closed;
+                    }
+                    case "equals" -> {
+                        return proxy == args[0];
+                    }
+                    case "hashCode" -> {
+                        return System.identityHashCode(proxy);
+                    }
+                    default -> { }
+                }
+                if (closed) {
+                    throw new SQLException("Statement is closed");
+                }
+                Object result = ConnectionPool.invoke(physical, method, args);
+                if (result instanceof ResultSet rs && "executeQuery".equals(method.getName())) {
+                    lastResult = rs;
+                }
+                return result;
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.Util;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.LongSupplier;
+
+/**
+ * SQLite's {@code PRAGMA data_version}, asked on a connection of its own: the value differs from the one
+ * returned before whenever another connection, of this process or of another one, has committed to the
+ * database in between. Only values from the same instance can be compared; should its connection be
+ * replaced, the next value merely looks like a change.
+ */
+public class DataVersion implements LongSupplier, AutoCloseable {
+    private final ConnectionPool connection;
+
+    public DataVersion(String url) {
+        // One connection, never retired, so consecutive values come from the same one
+        this.connection = new ConnectionPool(url, 1, 1, Long.MAX_VALUE, 0, Long.MAX_VALUE,
+                ConnectionPool.pragmasFromConfig());
+    }
+
+    public static DataVersion fromConfig() {
+        return new DataVersion(AppConfig.getString("db.url", null));
+    }
+
+    @Override
+    public long getAsLong() {
+        try (Connection conn = connection.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA data_version")) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw new RuntimeException("Cannot read the database's data_version", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        connection.close();
+    }
+}
@@ -0,0 +1,234 @@
+package com.Util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The only path for writes to the SQLite database.
+ * SQLite allows a single writer at a time, so instead of letting request threads race for the lock (and
+ * fail with SQLITE_BUSY) every mutation is queued to one thread that owns one connection. Whatever has
+ * queued up while the previous batch was committing runs as the next batch: each mutation inside its own
+ * savepoint, so a failing one is rolled back alone, and the batch under a single COMMIT, so one fsync
+ * covers all of them. {@link #submit} returns only after the commit, and after any callbacks the mutation
+ * registered with {@link #afterCompletion} have heard whether it was kept.
+ * Reads keep going through {@link ConnectionPool} and, in WAL mode, never wait for the writer.
+ */
+public class DatabaseWriter implements AutoCloseable, MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseWriter.class);
+
+    @Getter
+    private static final DatabaseWriter instance = new DatabaseWriter(
+            AppConfig.getString("db.url", null),
+            AppConfig.getInt("db.writer.maxBatch", 256));
+
+    /** Work run on the writer's connection, inside the batch transaction. Must not commit or roll back. */
+    @FunctionalInterface
+    public interface Mutation<T> {
+        T apply(Connection conn) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface Update {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface Completion {
+        /** {@code committed} is false if the mutation was rolled back, alone or with its whole batch. */
+        void afterCompletion(boolean committed);
+    }
+
+    private final ConnectionPool                 connection;
+    private final int                            maxBatch;
+    private final BlockingQueue<Pending<?>>      queue = new LinkedBlockingQueue<>();
+    private final Thread                         thread;
+    private final LongAdder                      batches   = new LongAdder();
+    private final LongAdder                      mutations = new LongAdder();
+    private Connection                           current;
+    // Callbacks of the mutation running now; touched only by the writer thread
+    private List<Completion>                     completions;
+
+    public DatabaseWriter(String url, int maxBatch) {
+        // A pool of one keeps the prepared-statement cache across batches
+        this.connection = new ConnectionPool(url, 1, 64, Long.MAX_VALUE, 0, Long.MAX_VALUE,
+                ConnectionPool.pragmasFromConfig());
+        this.maxBatch   = maxBatch;
+        this.thread     = new Thread(this::writeLoop, "db-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /** Queue {@code mutation} and wait until the batch containing it has committed. */
+    public <T> T submit(Mutation<T> mutation) throws SQLException {
+        if (Thread.currentThread() == thread) {
+            // Called from inside another mutation: already in the batch transaction
+            return mutation.apply(current);
+        }
+        Pending<T> pending = new Pending<>(mutation);
+        queue.add(pending);
+        try {
+            return pending.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the database writer", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sql) throw sql;
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof Error error) throw error;
+            throw new SQLException(cause);
+        }
+    }
+
+    public void execute(Update update) throws SQLException {
+        submit(conn -> {
+            update.apply(conn);
+            return null;
+        });
+    }
+
+    /**
+     * Have {@code completion} run on the writer thread once the mutation calling this has been committed or
+     * rolled back, before its submitter is released. Only callable from inside a mutation.
+     */
+    public void afterCompletion(Completion completion) {
+        if (Thread.currentThread() != thread) {
+            throw new IllegalStateException("afterCompletion called outside a mutation");
+        }
+        completions.add(completion);
+    }
+
+    public int getQueueLength() {
+        return queue.size();
+    }
+
+    /** Queue depth plus committed batches and mutations; their ratio is the average batch size. */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("db.writer.queue", this, DatabaseWriter::getQueueLength)
+                .description("Mutations waiting for the writer thread")
+                .register(registry);
+        FunctionCounter.builder("db.writer.batches", batches, LongAdder::sum).register(registry);
+        FunctionCounter.builder("db.writer.mutations", mutations, LongAdder::sum).register(registry);
+    }
+
+    private void writeLoop() {
+        List<Pending<?>> batch = new ArrayList<>();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatch - 1);
+                try {
+                    runBatch(batch);
+                } catch (Throwable e) {
+                    // runBatch fails its own futures; this only keeps the one writer thread alive if that failed too
+                    logger.error("Write batch of {} failed unexpectedly", batch.size(), e);
+                    batch.forEach(p -> p.result.completeExceptionally(e));
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        batch.forEach(p -> p.result.completeExceptionally(new SQLException("Database writer stopped")));
+        queue.forEach(p -> p.result.completeExceptionally(new SQLException("Database writer stopped")));
+    }
+
+    private void runBatch(List<Pending<?>> batch) {
+        List<Object> outcomes = new ArrayList<>(batch.size());
+        // Callbacks of the mutations still in the transaction, to run once it commits or rolls back
+        List<Completion> committing = new ArrayList<>();
+        try (Connection conn = connection.getConnection()) {
+            current = conn;
+            conn.setAutoCommit(false);
+            try {
+                for (Pending<?> pending : batch) {
+                    Savepoint savepoint = conn.setSavepoint();
+                    completions = new ArrayList<>();
+                    try {
+                        outcomes.add(pending.mutation.apply(conn));
+                        conn.releaseSavepoint(savepoint);
+                        committing.addAll(completions);
+                    } catch (Throwable e) {
+                        // Errors too: the mutation fails alone, and the thread every write depends on lives on
+                        outcomes.add(new Failed(e));
+                        complete(completions, false);
+                        conn.rollback(savepoint);
+                    }
+                }
+                conn.commit();
+            } catch (Throwable e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException | RuntimeException rollback) {
+                    e.addSuppressed(rollback);
+                }
+                throw e;
+            } finally {
+                current = null;
+                completions = null;
+            }
+        } catch (Throwable e) {
+            logger.error("Write batch of {} failed, rolled back", batch.size(), e);
+            complete(committing, false);
+            batch.forEach(p -> p.result.completeExceptionally(e));
+            return;
+        }
+        complete(committing, true);
+        batches.increment();
+        mutations.add(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).complete(outcomes.get(i));
+        }
+        logger.debug("Committed {} mutations", batch.size());
+    }
+
+    private static void complete(List<Completion> callbacks, boolean committed) {
+        for (Completion callback : callbacks) {
+            try {
+                callback.afterCompletion(committed);
+            } catch (Throwable e) {
+                logger.error("After-completion callback failed", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        thread.interrupt();
+        connection.close();
+    }
+
+    private record Failed(Throwable cause) {}
+
+    private static final class Pending<T> {
+        private final Mutation<T>          mutation;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Pending(Mutation<T> mutation) {
+            this.mutation = mutation;
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(Object outcome) {
+            if (outcome instanceof Failed failed) {
+                result.completeExceptionally(failed.cause());
+            } else {
+                result.complete((T) outcome);
+            }
+        }
+    }
+}
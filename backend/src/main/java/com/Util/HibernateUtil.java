@@ -1,8 +1,16 @@
 package com.Util;
 
 import lombok.Getter;
+import org.hibernate.Cache;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.function.Function;
 
 public class HibernateUtil {
     @Getter
@@ -15,4 +23,45 @@ public class HibernateUtil {
             throw new ExceptionInInitializerError(ex);
         }
     }
+
+    /**
+     * Run {@code work} on the {@link DatabaseWriter} thread with a session bound to its connection.
+     * The session is flushed before the writer commits its batch, so {@code work} must not begin or
+     * commit a transaction itself; throwing rolls back only this unit of work.
+     * Since the session never sees a transaction end, the second-level cache is told by the writer once the
+     * batch has committed or rolled back: without that, every row written would stay soft-locked, and
+     * uncacheable, until the lock timed out. On a rollback the rows it wrote are evicted as well.
+     */
+    public static <T> T write(Function<Session, T> work) {
+        DatabaseWriter writer = DatabaseWriter.getInstance();
+        try {
+            return writer.submit(conn -> {
+                Session session = sessionFactory.withOptions().connection(conn).openSession();
+                SharedSessionContractImplementor unit = (SharedSessionContractImplementor) session;
+                // Kept open until then, since the cache actions to complete live in the session
+                writer.afterCompletion(committed -> {
+                    try {
+                        unit.afterTransactionCompletion(committed, false);
+                        if (!committed) evictWritten(unit);
+                    } finally {
+                        session.close();
+                    }
+                });
+                T result = work.apply(session);
+                session.flush();
+                return result;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Drop every entity the session holds, and all cached queries, after its writes were rolled back. */
+    private static void evictWritten(SharedSessionContractImplementor unit) {
+        Cache cache = sessionFactory.getCache();
+        for (Map.Entry<Object, EntityEntry> entry : unit.getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+            cache.evictEntityData(entry.getValue().getEntityName(), entry.getValue().getId());
+        }
+        cache.evictQueryRegions();
+    }
 }
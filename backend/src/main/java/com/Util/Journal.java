@@ -0,0 +1,322 @@
+package com.Util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of opaque records in memory-mapped segment files of a fixed size, named after the
+ * position (LSN, a byte offset across all segments) they start at. A record is its length, a CRC32C of the
+ * payload and the payload; a zero length marks the end of a segment's data, and a record that does not fit
+ * in the rest of a segment starts the next one. On open the last segment is scanned up to the first record
+ * that is cut short or fails its checksum, and writing resumes there.
+ *
+ * {@link #append} only copies into the mapping; {@link #sync} waits until the record is on disk. One thread
+ * does the forcing, and everything appended while it was busy goes out with its next force, so a burst of
+ * writers shares one fsync per round instead of paying for one each. A journal takes an exclusive lock on
+ * its directory for as long as it is open, so a second process opening the same one fails instead of
+ * appending alongside it.
+ */
+public class Journal implements AutoCloseable, MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(Journal.class);
+    private static final String SUFFIX = ".journal";
+    private static final String LOCK   = "lock";
+    private static final int    HEADER = 8;
+
+    private final Path        dir;
+    private final int         segmentBytes;
+    private final FileChannel dirLock;
+
+    // Guarded by this
+    private FileChannel      channel;
+    private MappedByteBuffer segment;
+    private long             segmentStart;
+    private int              synced;
+
+    // Guarded by syncLock
+    private final Object syncLock = new Object();
+    private long         requested;
+    private long         durable;
+    private IOException  failure;
+
+    private volatile long    position;
+    private volatile boolean closed;
+    private final Thread     syncer;
+    private final LongAdder  appends = new LongAdder();
+    private final LongAdder  forces  = new LongAdder();
+
+    public Journal(Path dir, int segmentBytes) throws IOException {
+        this.dir          = Files.createDirectories(dir);
+        this.segmentBytes = segmentBytes;
+        this.dirLock      = lockDirectory(this.dir);
+        try {
+            recover();
+        } catch (IOException | RuntimeException e) {
+            dirLock.close();
+            throw e;
+        }
+        this.durable   = position;
+        this.requested = position;
+        this.syncer    = new Thread(this::syncLoop, "journal-sync");
+        this.syncer.setDaemon(true);
+        this.syncer.start();
+        logger.info("Journal {} opened at LSN {}", dir, position);
+    }
+
+    // Held until close; the channel's lock goes away with it, also when the process dies
+    private static FileChannel lockDirectory(Path dir) throws IOException {
+        FileChannel channel = FileChannel.open(dir.resolve(LOCK), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        boolean locked;
+        try {
+            locked = channel.tryLock() != null;
+        } catch (OverlappingFileLockException e) {
+            locked = false;
+        }
+        if (!locked) {
+            channel.close();
+            throw new IOException("Journal " + dir + " is already open in another process");
+        }
+        return channel;
+    }
+
+    private void recover() throws IOException {
+        List<Long> starts = segmentStarts();
+        if (starts.isEmpty()) {
+            open(0);
+            position = 0;
+        } else {
+            long last = starts.get(starts.size() - 1);
+            open(last);
+            int end = scan(segment, last, 0, segmentBytes, null);
+            // Clear whatever a torn write left behind so a later scan cannot run into it
+            for (int i = end; i < segmentBytes; i++) {
+                segment.put(i, (byte) 0);
+            }
+            segment.force();
+            position = last + end;
+            synced   = end;
+        }
+    }
+
+    /** The LSN just past the last appended record. */
+    public long position() {
+        return position;
+    }
+
+    /** Copy a record into the journal and return the LSN just past it; not durable until {@link #sync}. */
+    public synchronized long append(byte[] payload) {
+        if (closed) throw new IllegalStateException("Journal is closed");
+        if (payload.length == 0 || payload.length > segmentBytes - HEADER) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit a segment");
+        }
+        int offset = (int) (position - segmentStart);
+        if (offset + HEADER + payload.length > segmentBytes) {
+            roll();
+            offset = 0;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        segment.put(offset + HEADER, payload, 0, payload.length);
+        segment.putInt(offset + 4, (int) crc.getValue());
+        // The length goes last: a reader that sees it also sees the payload
+        segment.putInt(offset, payload.length);
+        position = segmentStart + offset + HEADER + payload.length;
+        appends.increment();
+        return position;
+    }
+
+    /** Wait until everything up to {@code lsn} has been forced to disk. */
+    public void sync(long lsn) {
+        synchronized (syncLock) {
+            if (lsn > requested) {
+                requested = lsn;
+                syncLock.notifyAll();
+            }
+            while (durable < lsn) {
+                if (failure != null) throw new UncheckedIOException("Journal sync failed", failure);
+                if (closed) throw new IllegalStateException("Journal is closed");
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the journal", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hand every record from {@code from} up to {@code to}, which must both be record boundaries, to
+     * {@code action} with the LSN it starts at, in order. Returns the LSN reading stopped at.
+     */
+    public long read(long from, long to, ObjLongConsumer<ByteBuffer> action) throws IOException {
+        long at = from;
+        for (long start : segmentStarts()) {
+            if (start + segmentBytes <= at) continue;
+            if (start >= to) break;
+            try (FileChannel ch = FileChannel.open(file(start), StandardOpenOption.READ)) {
+                MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, segmentBytes);
+                int begin = at > start ? (int) (at - start) : 0;
+                int limit = (int) Math.min(segmentBytes, to - start);
+                at = start + scan(map, start, begin, limit, action);
+            }
+        }
+        return at;
+    }
+
+    /** Delete the segments that end at or before {@code lsn}; they have been copied elsewhere. */
+    public synchronized void release(long lsn) throws IOException {
+        for (long start : segmentStarts()) {
+            if (start + segmentBytes <= lsn && start != segmentStart) {
+                Files.deleteIfExists(file(start));
+                logger.debug("Released journal segment {}", start);
+            }
+        }
+    }
+
+    /** Appends and forces, and the LSNs written and made durable. */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("journal.appends", appends, LongAdder::sum).register(registry);
+        FunctionCounter.builder("journal.syncs", forces, LongAdder::sum)
+                .description("fsyncs; appends per sync is the group size")
+                .register(registry);
+        Gauge.builder("journal.unsynced.bytes", this, j -> j.position - j.durable())
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private long durable() {
+        synchronized (syncLock) {
+            return durable;
+        }
+    }
+
+    // Walks the records of the segment starting at LSN base from begin, stopping at end, an empty slot or a damaged record
+    private int scan(ByteBuffer map, long base, int begin, int end, ObjLongConsumer<ByteBuffer> action) {
+        int at = begin;
+        while (at + HEADER <= end) {
+            int length = map.getInt(at);
+            if (length <= 0 || at + HEADER + length > end) break;
+            ByteBuffer payload = map.slice(at + HEADER, length);
+            CRC32C crc = new CRC32C();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != map.getInt(at + 4)) {
+                logger.warn("Journal record at {} fails its checksum; treating it as the end", at);
+                break;
+            }
+            if (action != null) action.accept(payload.asReadOnlyBuffer(), base + at);
+            at += HEADER + length;
+        }
+        return at;
+    }
+
+    // Caller holds this
+    private void roll() {
+        // Force the tail of the old segment here; the syncer only ever forces the current one
+        segment.force(synced, (int) (position - segmentStart) - synced);
+        long next = segmentStart + segmentBytes;
+        try {
+            channel.close();
+            open(next);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start journal segment " + next, e);
+        }
+        position = next;
+        synced   = 0;
+    }
+
+    private void open(long start) throws IOException {
+        channel      = FileChannel.open(file(start), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment      = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segmentStart = start;
+    }
+
+    private void syncLoop() {
+        while (true) {
+            synchronized (syncLock) {
+                while (requested <= durable && !closed) {
+                    try {
+                        syncLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) return;
+            }
+            long target;
+            MappedByteBuffer map;
+            int from, to;
+            synchronized (this) {
+                target = position;
+                map    = segment;
+                from   = synced;
+                to     = (int) (position - segmentStart);
+                synced = to;
+            }
+            try {
+                if (to > from) map.force(from, to - from);
+                forces.increment();
+                synchronized (syncLock) {
+                    durable = Math.max(durable, target);
+                    syncLock.notifyAll();
+                }
+            } catch (UncheckedIOException e) {
+                logger.error("Journal sync failed", e);
+                synchronized (syncLock) {
+                    failure = e.getCause();
+                    syncLock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    private List<Long> segmentStarts() throws IOException {
+        List<Long> starts = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(p -> p.getFileName().toString())
+                 .filter(name -> name.endsWith(SUFFIX))
+                 .forEach(name -> starts.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length()))));
+        }
+        starts.sort(null);
+        return starts;
+    }
+
+    private Path file(long start) {
+        return dir.resolve(String.format("%020d%s", start, SUFFIX));
+    }
+
+    /** Force what is left, stop the sync thread and give up the directory. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        segment.force();
+        synchronized (syncLock) {
+            closed  = true;
+            durable = position;
+            syncLock.notifyAll();
+        }
+        channel.close();
+        dirLock.close();
+    }
+}
@@ -0,0 +1,45 @@
+package com.Util;
+
+import com.Repository.RepositoryBackend;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.hibernate.stat.HibernateMetrics;
+
+import java.time.Duration;
+
+/**
+ * The process-wide meter registry. The socket server scrapes it through
+ * {@link com.Network.MetricsEndpoint}; the Spring app hands the same instance to Actuator, so both
+ * expose the same meters.
+ * Meters only count and bucket when something is recorded. Gauges and the Hibernate and pool meters
+ * are read at scrape time, so nobody pays for them until someone scrapes.
+ */
+public final class Metrics {
+    /** Histogram bounds for socket requests and repository calls; Prometheus computes percentiles from the buckets. */
+    public static final Duration MIN_EXPECTED_LATENCY = Duration.ofNanos(50_000);
+    public static final Duration MAX_EXPECTED_LATENCY = Duration.ofSeconds(10);
+
+    private static final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+
+    private Metrics() {
+    }
+
+    public static PrometheusMeterRegistry registry() {
+        return registry;
+    }
+
+    /**
+     * Connection pool and database writer for the SQL backends, plus Hibernate statistics (including the
+     * second-level cache regions) for Hibernate. The in-memory backend has none of them.
+     */
+    public static void bindDatabase(MeterRegistry registry, RepositoryBackend backend) {
+        if (backend == RepositoryBackend.MEMORY) return;
+        ConnectionPool.getInstance().bindTo(registry);
+        DatabaseWriter.getInstance().bindTo(registry);
+        if (backend == RepositoryBackend.HIBERNATE) {
+            new HibernateMetrics(HibernateUtil.getSessionFactory(), "contest", Tags.empty()).bindTo(registry);
+        }
+    }
+}
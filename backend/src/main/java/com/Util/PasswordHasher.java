@@ -0,0 +1,72 @@
+package com.Util;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Password hashing for stored credentials: PBKDF2-HMAC-SHA512 with a random 16-byte salt, stored as
+ * {@code pbkdf2-sha512$<iterations>$<salt>$<hash>} (unpadded Base64). The iteration count is part of the
+ * stored value, so raising {@code auth.pbkdf2Iterations} keeps old hashes verifiable and
+ * {@link #needsRehash} tells which ones to upgrade. Rows written before hashing hold the plain password;
+ * {@link #verify} still accepts those so they can be rehashed on the next successful login.
+ */
+public final class PasswordHasher {
+    public static final int ITERATIONS = AppConfig.getInt("auth.pbkdf2Iterations", 210_000);
+
+    private static final String       SCHEME     = "pbkdf2-sha512";
+    private static final String       ALGORITHM  = "PBKDF2WithHmacSHA512";
+    private static final int          SALT_BYTES = 16;
+    private static final int          HASH_BITS  = 256;
+    private static final SecureRandom random     = new SecureRandom();
+
+    private PasswordHasher() {}
+
+    public static String hash(String password) {
+        return hash(password, ITERATIONS);
+    }
+
+    public static String hash(String password, int iterations) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return SCHEME + '$' + iterations + '$' + b64.encodeToString(salt) + '$'
+                + b64.encodeToString(derive(password, salt, iterations));
+    }
+
+    /** Whether {@code password} matches {@code stored}, compared in constant time. */
+    public static boolean verify(String password, String stored) {
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) return false;
+        Base64.Decoder b64 = Base64.getDecoder();
+        byte[] expected = b64.decode(parts[3]);
+        return MessageDigest.isEqual(expected, derive(password, b64.decode(parts[2]), Integer.parseInt(parts[1])));
+    }
+
+    public static boolean isHashed(String stored) {
+        return stored.startsWith(SCHEME + '$');
+    }
+
+    /** Plain passwords and hashes made with another iteration count. */
+    public static boolean needsRehash(String stored) {
+        return !isHashed(stored) || !stored.startsWith(SCHEME + '$' + ITERATIONS + '$');
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " unavailable", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
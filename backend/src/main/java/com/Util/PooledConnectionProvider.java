@@ -0,0 +1,37 @@
+package com.Util;
+
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Lets Hibernate read through {@link ConnectionPool}, so both repository flavours share the same
+ * connections, statement cache and SQLite PRAGMAs. Writes go through {@link HibernateUtil#write}.
+ */
+public class PooledConnectionProvider implements ConnectionProvider {
+    @Override
+    public Connection getConnection() throws SQLException {
+        return ConnectionPool.getInstance().getConnection();
+    }
+
+    @Override
+    public void closeConnection(Connection conn) throws SQLException {
+        conn.close();
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class<?> unwrapType) {
+        return false;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> unwrapType) {
+        throw new UnsupportedOperationException("Cannot unwrap to " + unwrapType);
+    }
+}
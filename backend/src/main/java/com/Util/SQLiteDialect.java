@@ -3,10 +3,45 @@ package com.Util;
 import org.hibernate.dialect.Dialect;
 import org.hibernate.dialect.identity.IdentityColumnSupport;
 import org.hibernate.dialect.identity.IdentityColumnSupportImpl;
+import org.hibernate.dialect.pagination.LimitHandler;
+import org.hibernate.dialect.pagination.LimitOffsetLimitHandler;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.sql.ast.SqlAstTranslator;
+import org.hibernate.sql.ast.SqlAstTranslatorFactory;
+import org.hibernate.sql.ast.spi.StandardSqlAstTranslator;
+import org.hibernate.sql.ast.spi.StandardSqlAstTranslatorFactory;
+import org.hibernate.sql.ast.tree.Statement;
+import org.hibernate.sql.ast.tree.select.QueryPart;
+import org.hibernate.sql.exec.spi.JdbcOperation;
 
 public class SQLiteDialect extends Dialect {
     @Override
     public IdentityColumnSupport getIdentityColumnSupport() {
         return new IdentityColumnSupportImpl();
     }
+
+    // SQLite has no FETCH FIRST, which is how the base dialect renders setMaxResults / setFirstResult;
+    // the limit handler covers native queries, the translator HQL
+    @Override
+    public LimitHandler getLimitHandler() {
+        return LimitOffsetLimitHandler.INSTANCE;
+    }
+
+    @Override
+    public SqlAstTranslatorFactory getSqlAstTranslatorFactory() {
+        return new StandardSqlAstTranslatorFactory() {
+            @Override
+            protected <T extends JdbcOperation> SqlAstTranslator<T> buildTranslator(
+                    SessionFactoryImplementor sessionFactory, Statement statement) {
+                return new StandardSqlAstTranslator<>(sessionFactory, statement) {
+                    @Override
+                    public void visitOffsetFetchClause(QueryPart queryPart) {
+                        if (!isRowNumberingCurrentQueryPart()) {
+                            renderLimitOffsetClause(queryPart);
+                        }
+                    }
+                };
+            }
+        };
+    }
 }
@@ -0,0 +1,100 @@
+package com.Util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel: a ring of {@code slots} buckets, one per {@code tick}, advanced by a single daemon
+ * thread. A timeout lands in the bucket its deadline tick hashes to and fires on the pass that reaches that
+ * tick; timeouts further out than one turn of the ring wait in their bucket until their turn comes round.
+ * Scheduling and cancelling are O(1) whatever the number of timeouts, and the whole wheel costs one thread
+ * however many there are. Expiry is only as precise as a tick and comes up to one tick late.
+ */
+public class TimerWheel<T> implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TimerWheel.class);
+
+    /** A scheduled expiry; {@link #cancel} stops it firing and drops it on the next pass over its bucket. */
+    public static final class Timeout<T> {
+        private final T        item;
+        private final long     deadlineTick;
+        private volatile boolean cancelled;
+
+        private Timeout(T item, long deadlineTick) {
+            this.item         = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private final long                   tickMillis;
+    private final Queue<Timeout<T>>[]    buckets;
+    private final Consumer<T>            onExpiry;
+    private final Thread                 thread;
+    private volatile long                tick;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(String name, Duration tick, int slots, Consumer<T> onExpiry) {
+        this.tickMillis = Math.max(1, tick.toMillis());
+        this.buckets    = new Queue[slots];
+        for (int i = 0; i < slots; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.onExpiry = onExpiry;
+        this.thread   = Thread.ofPlatform().name(name).daemon().start(this::run);
+    }
+
+    /** Call {@code onExpiry} with {@code item} once {@code delay} has passed, rounded up to whole ticks. */
+    public Timeout<T> schedule(T item, Duration delay) {
+        long ticks = Math.max(1, (delay.toMillis() + tickMillis - 1) / tickMillis);
+        // One tick of slack: the wheel may move on between reading the tick and adding to the bucket,
+        // and a timeout put in a bucket that was just passed would wait a whole turn
+        Timeout<T> timeout = new Timeout<>(item, tick + ticks + 1);
+        buckets[(int) (timeout.deadlineTick % buckets.length)].add(timeout);
+        return timeout;
+    }
+
+    @Override
+    public void close() {
+        thread.interrupt();
+    }
+
+    private void run() {
+        long next = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted()) {
+            next += tickMillis * 1_000_000L;
+            long sleep = next - System.nanoTime();
+            try {
+                if (sleep > 0) Thread.sleep(sleep / 1_000_000L, (int) (sleep % 1_000_000L));
+            } catch (InterruptedException e) {
+                return;
+            }
+            expire(++tick);
+        }
+    }
+
+    private void expire(long now) {
+        Iterator<Timeout<T>> it = buckets[(int) (now % buckets.length)].iterator();
+        while (it.hasNext()) {
+            Timeout<T> timeout = it.next();
+            if (timeout.cancelled) {
+                it.remove();
+            } else if (timeout.deadlineTick <= now) {
+                it.remove();
+                try {
+                    onExpiry.accept(timeout.item);
+                } catch (RuntimeException e) {
+                    logger.error("Expiry callback failed", e);
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.Validators;
 
+import java.util.HashSet;
+import java.util.List;
+
 public class EntryValidator extends RuntimeException {
     public EntryValidator(String message) {
         super(message);
@@ -30,4 +33,17 @@ public class EntryValidator extends RuntimeException {
         }
         return true;
     }
+
+    public static boolean validateCompetitionTypes(List<String> types, int limit) {
+        if (types == null || types.isEmpty()) {
+            throw new EntryValidator("At least one competition should be selected.");
+        }
+        if (types.size() > limit) {
+            throw new EntryValidator("At most " + limit + " competitions can be selected.");
+        }
+        if (new HashSet<>(types).size() != types.size()) {
+            throw new EntryValidator("Competitions should be different.");
+        }
+        return true;
+    }
 }
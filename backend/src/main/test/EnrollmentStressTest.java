@@ -0,0 +1,194 @@
+import com.Repository.Cached.CachingCompetitionRepository;
+import com.Repository.Cached.CachingParticipantRepository;
+import com.Repository.Cached.EnrollmentGraph;
+import com.Repository.Hibernate.CompetitionHibernateRepository;
+import com.Repository.Hibernate.ParticipantHibernateRepository;
+import com.Repository.Interface.ICompetitionRepository;
+import com.Repository.Manual.CompetitionRepository;
+import com.Repository.RepositoryBackend;
+import com.Service.CompetitionService;
+import com.Util.AppConfig;
+import ch.qos.logback.classic.Level;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency check for enrollment. {@code enrollers} threads are released together and each hammers a small
+ * pool of participants with random enrollments, so the same participant is routinely enrolled from several
+ * threads at once. Afterwards the database must still hold the invariants:
+ *  - no participant is in more than {@link ICompetitionRepository#ENROLLMENT_LIMIT} competitions
+ *  - every competition's nrOfParticipants equals its number of ParticipantCompetition rows
+ *  - the number of rows equals the number of enrollments reported as successful
+ *  - for the cached repositories, the enrollment graph's rosters hold the same rows
+ * Runs once per repository implementation against a throwaway database (db.url is overridden), and exits
+ * non-zero if an invariant is broken.
+ *
+ * Usage: EnrollmentStressTest [enrollers=64] [attemptsPerEnroller=50] [participants=40]
+ */
+public class EnrollmentStressTest {
+    private static final String[] TYPES = {"Drawing", "Treasure Hunt", "Poetry"};
+    private static final String[] AGES  = {"6-8 years old", "9-11 years old", "12-15 years old"};
+
+    public static void main(String[] args) throws Exception {
+        int enrollers    = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int attempts     = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int participants = args.length > 2 ? Integer.parseInt(args[2]) : 40;
+
+        Path file = Files.createTempFile("contest-enroll-", ".sqlite");
+        String url = "jdbc:sqlite:" + file;
+        // Must be set before the connection pool and the database writer are first touched
+        System.setProperty("db.url", url);
+        createSchema(url);
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        // Wired the way Server wires it, so enrollments are checked against the graph before the database
+        RepositoryBackend backend = RepositoryBackend.HIBERNATE;
+        LongSupplier dataVersion = backend.dataVersion();
+        long checkIntervalMs = AppConfig.getLong("repository.enrollments.checkIntervalMs", 1000);
+        ParticipantHibernateRepository participantRepository = new ParticipantHibernateRepository();
+        EnrollmentGraph enrollments = EnrollmentGraph.over(participantRepository, dataVersion, checkIntervalMs);
+        enrollments.onReload(backend::evictCachedRows);
+        CachingCompetitionRepository cached = new CachingCompetitionRepository(new CompetitionHibernateRepository(),
+                enrollments, dataVersion, checkIntervalMs);
+        cached.onReload(backend::evictCachedRows);
+        CachingParticipantRepository rosters = new CachingParticipantRepository(participantRepository, enrollments);
+
+        Map<String, ICompetitionRepository> repositories = Map.of(
+                "manual", new CompetitionRepository(),
+                "hibernate", new CompetitionHibernateRepository(),
+                "cached", cached);
+
+        boolean ok = true;
+        for (String name : new String[]{"manual", "hibernate", "cached"}) {
+            ok &= run(name, new CompetitionService(repositories.get(name)), name.equals("cached") ? rosters : null,
+                    url, enrollers, attempts, participants);
+        }
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(Path.of(file + "-wal"));
+        Files.deleteIfExists(Path.of(file + "-shm"));
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static boolean run(String name, CompetitionService service, CachingParticipantRepository rosters,
+                               String url, int enrollers, int attempts, int participants) throws Exception {
+        resetEnrollments(url);
+        // The reset went behind the second-level cache's back
+        RepositoryBackend.HIBERNATE.evictCachedRows();
+        int[] ids = addParticipants(url, participants);
+
+        AtomicInteger enrolled = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger errors   = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(enrollers);
+        for (int e = 0; e < enrollers; e++) {
+            pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < attempts; i++) {
+                    int participant = ids[random.nextInt(ids.length)];
+                    int competition = 1 + random.nextInt(TYPES.length * AGES.length);
+                    try {
+                        service.enrollParticipant(participant, competition);
+                        enrolled.incrementAndGet();
+                    } catch (RuntimeException ex) {
+                        if (String.valueOf(ex.getMessage()).contains("already enrolled")) {
+                            rejected.incrementAndGet();
+                        } else {
+                            errors.incrementAndGet();
+                            System.err.println(name + ": " + ex);
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - began) / 1e9;
+
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement st = conn.createStatement()) {
+            int overLimit = count(st, "SELECT COUNT(*) FROM (SELECT participantID FROM ParticipantCompetition " +
+                    "GROUP BY participantID HAVING COUNT(*) > " + ICompetitionRepository.ENROLLMENT_LIMIT + ")");
+            int drifted = count(st, "SELECT COUNT(*) FROM Competition c WHERE nrOfParticipants != " +
+                    "(SELECT COUNT(*) FROM ParticipantCompetition pc WHERE pc.competitionID = c.competitionID)");
+            int rows = count(st, "SELECT COUNT(*) FROM ParticipantCompetition");
+            // The cached repository must agree with the table as well
+            int cachedTotal = service.getAll().stream().mapToInt(c -> c.getNrOfParticipants()).sum();
+            int rosterTotal = rows;
+            if (rosters != null) {
+                rosterTotal = 0;
+                for (int competition = 1; competition <= TYPES.length * AGES.length; competition++) {
+                    rosterTotal += rosters.getParticipantsForCompetition(competition).size();
+                }
+            }
+
+            boolean ok = overLimit == 0 && drifted == 0 && rows == enrolled.get() && cachedTotal == rows
+                    && rosterTotal == rows && errors.get() == 0;
+            System.out.printf("%-9s enrolled=%d rejected=%d errors=%d rows=%d overLimit=%d driftedCounts=%d " +
+                            "countTotal=%d rosterTotal=%d %.0f attempts/s -> %s%n",
+                    name, enrolled.get(), rejected.get(), errors.get(), rows, overLimit, drifted, cachedTotal,
+                    rosterTotal, enrollers * attempts / seconds, ok ? "OK" : "FAILED");
+            return ok;
+        }
+    }
+
+    private static void createSchema(String url) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE Competition(competitionID INTEGER PRIMARY KEY AUTOINCREMENT, type TEXT NOT NULL, ageCategory TEXT NOT NULL, nrOfParticipants INTEGER NOT NULL)");
+            st.execute("CREATE TABLE Participant(participantID INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, age INTEGER NOT NULL)");
+            st.execute("CREATE TABLE ParticipantCompetition(participantID INTEGER NOT NULL, competitionID INTEGER NOT NULL, PRIMARY KEY(participantID, competitionID))");
+            st.execute("CREATE TABLE User(userID INTEGER PRIMARY KEY AUTOINCREMENT, userName TEXT NOT NULL UNIQUE, password TEXT NOT NULL)");
+            for (String type : TYPES) {
+                for (String age : AGES) {
+                    st.execute("INSERT INTO Competition(type, ageCategory, nrOfParticipants) VALUES ('" + type + "', '" + age + "', 0)");
+                }
+            }
+        }
+    }
+
+    private static void resetEnrollments(String url) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement st = conn.createStatement()) {
+            st.execute("DELETE FROM ParticipantCompetition");
+            st.execute("UPDATE Competition SET nrOfParticipants = 0");
+        }
+    }
+
+    private static int[] addParticipants(String url, int participants) throws SQLException {
+        int[] ids = new int[participants];
+        try (Connection conn = DriverManager.getConnection(url);
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO Participant(name, age) VALUES (?, ?)",
+                     Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < participants; i++) {
+                ps.setString(1, "Stress " + i);
+                ps.setInt(2, 6 + i % 10);
+                ps.executeUpdate();
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    rs.next();
+                    ids[i] = rs.getInt(1);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static int count(Statement st, String sql) throws SQLException {
+        try (ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
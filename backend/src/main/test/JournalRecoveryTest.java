@@ -0,0 +1,168 @@
+import com.Domain.Competition;
+import com.Domain.Participant;
+import com.Repository.Cached.CachingCompetitionRepository;
+import com.Repository.Cached.CachingParticipantRepository;
+import com.Repository.Cached.EnrollmentGraph;
+import com.Repository.Repositories;
+import com.Repository.RepositoryBackend;
+import com.Service.EnrollmentJournal;
+import ch.qos.logback.classic.Level;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Crash check for the enrollment journal. A child JVM opens the journal over a throwaway database, adds and
+ * enrolls participants, and halts without closing it, so nothing but the journal holds the writes: compaction
+ * is pushed out of reach and shutdown hooks do not run. This JVM then reopens the journal, which must replay
+ * them, and checks that:
+ *  - every acknowledged participant and enrollment is in the tables
+ *  - every competition's nrOfParticipants equals its number of ParticipantCompetition rows
+ *  - the competition index, loaded after the replay, agrees with the tables
+ * Exits non-zero if a check fails.
+ *
+ * Usage: JournalRecoveryTest [participants=200]
+ */
+public class JournalRecoveryTest {
+    private static final String[] TYPES = {"Drawing", "Treasure Hunt", "Poetry"};
+    private static final String[] AGES  = {"6-8 years old", "9-11 years old", "12-15 years old"};
+    private static final int COMPETITIONS = TYPES.length * AGES.length;
+    // Participants the child adds in one enrollNew record, on top of the ones it adds one by one
+    private static final int BULK = 10;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("crash")) {
+            crash(Integer.parseInt(args[1]));
+            return;
+        }
+        int participants = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+        Path file = Files.createTempFile("contest-journal-", ".sqlite");
+        Path dir  = Files.createTempDirectory("contest-journal-");
+        String url = "jdbc:sqlite:" + file;
+        createSchema(url);
+
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                "-Ddb.url=" + url,
+                "-Djournal.enabled=true",
+                "-Djournal.dir=" + dir,
+                "-Djournal.compactIntervalMs=3600000",
+                JournalRecoveryTest.class.getName(), "crash", String.valueOf(participants)));
+        int exit = new ProcessBuilder(command).inheritIO().start().waitFor();
+        if (exit != 0) {
+            System.out.println("writer exited with " + exit + " -> FAILED");
+            System.exit(1);
+        }
+
+        // Must be set before the connection pool and the database writer are first touched
+        System.setProperty("db.url", url);
+        System.setProperty("journal.enabled", "true");
+        System.setProperty("journal.dir", dir.toString());
+        quiet();
+
+        int before = count(url, "SELECT COUNT(*) FROM Participant");
+        long started = System.nanoTime();
+        Opened reopened = open();
+        double ms = (System.nanoTime() - started) / 1e6;
+
+        int expected = participants + BULK;
+        int people   = count(url, "SELECT COUNT(*) FROM Participant");
+        int rows     = count(url, "SELECT COUNT(*) FROM ParticipantCompetition");
+        int drifted  = count(url, "SELECT COUNT(*) FROM Competition c WHERE nrOfParticipants != " +
+                "(SELECT COUNT(*) FROM ParticipantCompetition pc WHERE pc.competitionID = c.competitionID)");
+        int cachedTotal = reopened.competitions().getAll().stream().mapToInt(Competition::getNrOfParticipants).sum();
+        reopened.close();
+
+        boolean ok = before == 0 && people == expected && rows == 2 * expected && drifted == 0 && cachedTotal == rows;
+        System.out.printf("tablesBeforeReplay=%d participants=%d/%d enrollments=%d/%d driftedCounts=%d " +
+                        "countTotal=%d reopened in %.0f ms -> %s%n",
+                before, people, expected, rows, 2 * expected, drifted, cachedTotal, ms, ok ? "OK" : "FAILED");
+
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(Path.of(file + "-wal"));
+        Files.deleteIfExists(Path.of(file + "-shm"));
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    /** Journal the writes, then stop the JVM the way a crash would, with every write acknowledged but none compacted. */
+    private static void crash(int participants) throws IOException {
+        quiet();
+        Opened opened = open();
+        EnrollmentJournal journal = opened.journal();
+        for (int i = 0; i < participants; i++) {
+            Participant p = journal.addParticipant(new Participant("Recovered " + i, 6 + i % 10));
+            journal.enroll(p.getParticipantID(), 1 + i % COMPETITIONS);
+            journal.enroll(p.getParticipantID(), 1 + (i + 1) % COMPETITIONS);
+        }
+        List<Participant> bulk = new ArrayList<>();
+        List<List<Integer>> competitionIDs = new ArrayList<>();
+        for (int i = 0; i < BULK; i++) {
+            bulk.add(new Participant("Bulk " + i, 6 + i % 10));
+            competitionIDs.add(List.of(1 + i % COMPETITIONS, 1 + (i + 1) % COMPETITIONS));
+        }
+        journal.enrollNew(bulk, competitionIDs);
+        Runtime.getRuntime().halt(0);
+    }
+
+    private record Opened(EnrollmentJournal journal, CachingCompetitionRepository competitions,
+                          Repositories repositories) implements AutoCloseable {
+        @Override
+        public void close() throws Exception {
+            journal.close();
+            repositories.close();
+        }
+    }
+
+    /** The journal over cached JDBC repositories, wired the way the server wires it. */
+    private static Opened open() throws IOException {
+        RepositoryBackend backend = RepositoryBackend.JDBC;
+        Repositories repositories = backend.open();
+        EnrollmentGraph enrollments = EnrollmentGraph.over(repositories.participants(), backend.dataVersion(), 1000);
+        CachingCompetitionRepository competitions = new CachingCompetitionRepository(repositories.competitions(),
+                enrollments, backend.dataVersion(), 1000);
+        CachingParticipantRepository participants = new CachingParticipantRepository(repositories.participants(), enrollments);
+        EnrollmentJournal journal = new EnrollmentJournal(competitions, participants, enrollments, backend);
+        return new Opened(journal, competitions, repositories);
+    }
+
+    private static void quiet() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    private static void createSchema(String url) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE Competition(competitionID INTEGER PRIMARY KEY AUTOINCREMENT, type TEXT NOT NULL, ageCategory TEXT NOT NULL, nrOfParticipants INTEGER NOT NULL)");
+            st.execute("CREATE TABLE Participant(participantID INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, age INTEGER NOT NULL)");
+            st.execute("CREATE TABLE ParticipantCompetition(participantID INTEGER NOT NULL, competitionID INTEGER NOT NULL, PRIMARY KEY(participantID, competitionID))");
+            st.execute("CREATE TABLE User(userID INTEGER PRIMARY KEY AUTOINCREMENT, userName TEXT NOT NULL UNIQUE, password TEXT NOT NULL)");
+            for (String type : TYPES) {
+                for (String age : AGES) {
+                    st.execute("INSERT INTO Competition(type, ageCategory, nrOfParticipants) VALUES ('" + type + "', '" + age + "', 0)");
+                }
+            }
+        }
+    }
+
+    private static int count(String url, String sql) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
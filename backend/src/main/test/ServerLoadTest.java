@@ -0,0 +1,140 @@
+import Network.UpdateMessage;
+import com.Network.Server;
+import com.Network.ServerMode;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load harness for the socket server. For every requested mode it starts a {@link Server} on its own
+ * port, opens {@code connections} clients, and has each one send {@code requests} GET_ALL_COMPETITIONS
+ * messages back to back. Prints open connections and latency percentiles per mode.
+ *
+ * Each mode runs in a JVM of its own, since a server cannot be stopped and shares the metrics port and
+ * the database writer with any other in the process; a single mode runs in this one.
+ *
+ * Usage: ServerLoadTest [connections=2000] [requests=20] [modes=thread,virtual,nio] [port=6100]
+ * Run from the directory holding identifier.sqlite.
+ */
+public class ServerLoadTest {
+    // Set on the JVMs started for each mode, which leave the header to the one that started them
+    private static final String CHILD = "serverLoadTest.child";
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int requests    = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        String[] modes  = (args.length > 2 ? args[2] : "thread,virtual,nio").split(",");
+        int basePort    = args.length > 3 ? Integer.parseInt(args[3]) : 6100;
+
+        if (!Boolean.getBoolean(CHILD)) {
+            System.out.printf("%-8s %11s %8s %9s %9s %9s %10s%n",
+                    "mode", "connections", "failed", "p50(ms)", "p99(ms)", "max(ms)", "req/s");
+        }
+        if (modes.length == 1) {
+            ServerMode mode = ServerMode.parse(modes[0]);
+            Thread server = new Thread(() -> new Server(basePort, mode, connections + 100, 16).start(), "server");
+            server.setDaemon(true);
+            server.start();
+            awaitListening(basePort, server);
+            run(mode, basePort, connections, requests);
+            // The accept loop and the client threads never end on their own
+            System.exit(0);
+        }
+        boolean ok = true;
+        for (int i = 0; i < modes.length; i++) {
+            List<String> command = List.of(
+                    Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-cp", System.getProperty("java.class.path"),
+                    "-D" + CHILD + "=true",
+                    ServerLoadTest.class.getName(),
+                    String.valueOf(connections), String.valueOf(requests), modes[i], String.valueOf(basePort + i));
+            int exit = new ProcessBuilder(command).inheritIO().start().waitFor();
+            if (exit != 0) {
+                System.out.printf("%-8s exited with %d%n", modes[i], exit);
+                ok = false;
+            }
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    /** Wait until the server accepts connections, failing if it stops or takes longer than a minute to start. */
+    private static void awaitListening(int port, Thread server) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (true) {
+            try (Socket probe = new Socket("localhost", port)) {
+                return;
+            } catch (IOException e) {
+                if (!server.isAlive()) throw new IllegalStateException("Server on port " + port + " failed to start");
+                if (System.nanoTime() > deadline) throw new IllegalStateException("Server on port " + port + " is not listening", e);
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    private static void run(ServerMode mode, int port, int connections, int requests) throws Exception {
+        List<long[]> perClient = new CopyOnWriteArrayList<>();
+        AtomicInteger connected = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch allConnected = new CountDownLatch(connections);
+
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < connections; c++) {
+                clients.submit(() -> {
+                    try (Socket socket = new Socket("localhost", port)) {
+                        socket.setTcpNoDelay(true);
+                        socket.setSoTimeout(30_000);
+                        connected.incrementAndGet();
+                        allConnected.countDown();
+                        allConnected.await();
+                        perClient.add(sendRequests(socket, requests));
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        allConnected.countDown();
+                    }
+                    return null;
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long[] all = perClient.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%-8s %11d %8d %9.2f %9.2f %9.2f %10.0f%n",
+                mode, connected.get(), failed.get(),
+                percentile(all, 0.50), percentile(all, 0.99), percentile(all, 1.0),
+                all.length / seconds);
+    }
+
+    private static long[] sendRequests(Socket socket, int requests) throws IOException {
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        OutputStream out = socket.getOutputStream();
+        UpdateMessage request = UpdateMessage.newBuilder().setType("GET_ALL_COMPETITIONS").setPayload("").build();
+        List<Long> latencies = new ArrayList<>(requests);
+        // r == -1 is a warm-up round trip so session-factory startup does not skew the percentiles
+        for (int r = -1; r < requests; r++) {
+            long sent = System.nanoTime();
+            request.writeDelimitedTo(out);
+            out.flush();
+            UpdateMessage reply;
+            do {
+                reply = UpdateMessage.parseDelimitedFrom(in);
+                if (reply == null) throw new EOFException("Server closed the connection");
+                if ("ERROR".equals(reply.getType())) throw new IOException(reply.getPayload());
+            } while (!"GET_ALL_COMPETITIONS_REPLY".equals(reply.getType()));
+            if (r >= 0) latencies.add(System.nanoTime() - sent);
+        }
+        return latencies.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return Double.NaN;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}